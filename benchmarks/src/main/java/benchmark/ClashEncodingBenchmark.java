@@ -0,0 +1,73 @@
+package benchmark;
+
+import business.Schedule;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+import org.chocosolver.solver.Model;
+
+/**
+ * Compares the PAIRWISE and GLOBAL clash encodings of ScheduleSolver:
+ * model-build time, heap growth during the build, model size and time to first solution.
+ *
+ * Usage: java [-DfirstSolutionLimitMs=60000] benchmark.ClashEncodingBenchmark [units...] (default 200 800 2000)
+ * Run with a large heap (e.g. -Xmx8g): the pairwise model at 2,000 units needs several GB.
+ * A limit of 0 skips the search and only measures the model build.
+ */
+public class ClashEncodingBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long FIRST_SOLUTION_LIMIT_MS = Long.getLong("firstSolutionLimitMs", 60_000);
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{200, 800, 2000}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-9s %-6s %10s %10s %10s %12s %12s %8s%n",
+                "encoding", "units", "vars", "cstrs", "build(ms)", "heap(MB)", "first(ms)", "clashes");
+        for (int units : sizes) {
+            for (ClashEncoding encoding : ClashEncoding.values()) {
+                run(units, encoding);
+            }
+        }
+    }
+
+    private static void run(int units, ClashEncoding encoding) {
+        SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+        try {
+            long heapBefore = usedHeap();
+            long t0 = System.nanoTime();
+
+            ScheduleSolver solver = school.newSolver();
+            solver.setClashEncoding(encoding);
+            solver.defineVariables();
+            solver.addConstraints();
+            solver.addSoftConstraints();
+
+            long buildMs = (System.nanoTime() - t0) / 1_000_000;
+            long heapMb = (usedHeap() - heapBefore) / (1024 * 1024);
+            Model model = solver.getModel();
+
+            String firstMs = "skipped";
+            String clashes = "-";
+            if (FIRST_SOLUTION_LIMIT_MS > 0) {
+                long t1 = System.nanoTime();
+                Schedule first = solver.findFirstSchedule(FIRST_SOLUTION_LIMIT_MS);
+                firstMs = first == null ? "timeout" : String.valueOf((System.nanoTime() - t1) / 1_000_000);
+                if (first != null) clashes = String.valueOf(SchoolGenerator.countClashes(first));
+            }
+
+            System.out.printf("%-9s %-6d %10d %10d %10d %12d %12s %8s%n",
+                    encoding, solver.getNumUnits(), model.getNbVars(), model.getNbCstrs(), buildMs, heapMb,
+                    firstMs, clashes);
+        } catch (OutOfMemoryError oom) {
+            System.out.printf("%-9s %-6d %s%n", encoding, school.unitCount(), "out of memory");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import business.Schedule;
+import business.ScheduleDecomposer;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+
+import java.util.List;
+
+/**
+ * Compares solving a multi-campus school as one model against solving each independent component
+ * found by ScheduleDecomposer: model build plus time to first solution. The components are timed one
+ * after the other, so "max" is the wall time with one thread per component and "sum" the single-thread time.
+ *
+ * Usage: java [-Dmonolithic=false] benchmark.DecompositionBenchmark [units] [campuses...] (default 400 1 2 4)
+ * monolithic=false skips the whole-model run, which can take minutes on multi-campus instances.
+ */
+public class DecompositionBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long FIRST_SOLUTION_LIMIT_MS = Long.getLong("firstSolutionLimitMs", 60_000);
+    private static final boolean MONOLITHIC = Boolean.parseBoolean(System.getProperty("monolithic", "true"));
+
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int[] campuses = args.length > 1
+                ? java.util.Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 2, 4};
+
+        System.out.printf("%-8s %-6s %11s %14s %12s %12s%n",
+                "campuses", "units", "components", "monolithic(ms)", "max(ms)", "sum(ms)");
+        for (int k : campuses) {
+            SchoolGenerator school = SchoolGenerator.withCampuses(units, k, SEED);
+            long mono = MONOLITHIC
+                    ? timeFirst(new ScheduleSolver(school.teachers, school.classrooms, school.studentGroups, school.timePeriods))
+                    : -2;
+
+            List<ScheduleDecomposer.Component> components = new ScheduleDecomposer(
+                    school.teachers, school.classrooms, school.studentGroups, school.timePeriods).findComponents();
+            long max = 0, sum = 0;
+            for (ScheduleDecomposer.Component comp : components) {
+                long ms = timeFirst(new ScheduleSolver(comp.teachers, comp.classrooms, comp.studentGroups, school.timePeriods));
+                if (ms < 0 || sum < 0) {
+                    sum = max = -1;
+                    continue;
+                }
+                max = Math.max(max, ms);
+                sum += ms;
+            }
+            System.out.printf("%-8d %-6d %11d %14s %12s %12s%n", k, school.unitCount(), components.size(),
+                    format(mono), format(max), format(sum));
+        }
+    }
+
+    // Build + first solution in ms, or -1 on timeout
+    private static long timeFirst(ScheduleSolver solver) {
+        long t0 = System.nanoTime();
+        solver.setClashEncoding(ClashEncoding.GLOBAL);
+        solver.defineVariables();
+        solver.addConstraints();
+        solver.addSoftConstraints();
+        Schedule first = solver.findFirstSchedule(FIRST_SOLUTION_LIMIT_MS);
+        return first == null ? -1 : (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    private static String format(long ms) {
+        return ms == -2 ? "skipped" : ms < 0 ? "timeout" : String.valueOf(ms);
+    }
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import business.Classroom;
+import business.FeasibilityDiagnostics;
+import business.Schedule;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+import business.StudentGroup;
+import business.Subject;
+import business.Teacher;
+import business.TimePeriod;
+import org.chocosolver.solver.Solver;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the structural diagnostics of FeasibilityDiagnostics with the CP search on instances that
+ * have no timetable: how long each takes to say so and what reasons the diagnostics give. The
+ * "feasible" instance checks that the diagnostics do not reject a solvable school.
+ *
+ * Instances (all derived from SchoolGenerator):
+ *   feasible - unchanged.
+ *   subject  - the teachers of the first subject lack one hour for its demand (as in TeacherFlowBenchmark).
+ *   daily    - the first subject needs 6 hours a week with at most 1 a day over 5 days.
+ *   rooms    - every group has 60 students and only one room holds 60.
+ *   avail    - the teachers of the last subject are only available the first 3 periods of the week.
+ *
+ * Usage: java [-DfirstSolutionLimitMs=30000] benchmark.DiagnosticsBenchmark [units...] (default 200 1000)
+ */
+public class DiagnosticsBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long FIRST_SOLUTION_LIMIT_MS = Long.getLong("firstSolutionLimitMs", 30_000);
+    private static final String[] INSTANCES = {"feasible", "subject", "daily", "rooms", "avail"};
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{200, 1000}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-9s %-6s %8s %10s %10s %9s  %s%n",
+                "instance", "units", "diag(ms)", "build(ms)", "first(ms)", "fails", "reasons");
+        for (int units : sizes) {
+            for (String instance : INSTANCES) {
+                run(units, instance);
+            }
+        }
+    }
+
+    private static void run(int units, String instance) {
+        SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+        switch (instance) {
+            case "subject": TeacherFlowBenchmark.makeFirstSubjectShort(school); break;
+            case "daily": tightenDailyLimit(school); break;
+            case "rooms": crowdGroups(school); break;
+            case "avail": restrictLastSubjectTeachers(school); break;
+            default: break;
+        }
+
+        // Warm-up so the first row does not pay class loading
+        FeasibilityDiagnostics.check(school.teachers, school.classrooms, school.studentGroups, school.timePeriods);
+        FeasibilityDiagnostics diagnostics =
+                FeasibilityDiagnostics.check(school.teachers, school.classrooms, school.studentGroups, school.timePeriods);
+
+        // CP without the diagnostics (findFirstSchedule does not run them)
+        long t0 = System.nanoTime();
+        ScheduleSolver solver = school.newSolver();
+        solver.setClashEncoding(ClashEncoding.GLOBAL);
+        String outcome;
+        long buildMs;
+        long fails = 0;
+        try {
+            solver.defineVariables();
+            solver.addConstraints();
+            buildMs = (System.nanoTime() - t0) / 1_000_000;
+            long t1 = System.nanoTime();
+            Schedule first = solver.findFirstSchedule(FIRST_SOLUTION_LIMIT_MS);
+            long firstMs = (System.nanoTime() - t1) / 1_000_000;
+            Solver s = solver.getModel().getSolver();
+            fails = s.getFailCount();
+            outcome = first != null ? String.valueOf(firstMs)
+                    : s.isStopCriterionMet() ? "timeout" : "none@" + firstMs;
+        } catch (RuntimeException e) {
+            // Empty domains can already fail while posting the constraints
+            buildMs = (System.nanoTime() - t0) / 1_000_000;
+            outcome = "fail@build";
+        }
+
+        Map<FeasibilityDiagnostics.Kind, Integer> kinds = new EnumMap<>(FeasibilityDiagnostics.Kind.class);
+        for (FeasibilityDiagnostics.Reason r : diagnostics.getReasons()) kinds.merge(r.getKind(), 1, Integer::sum);
+        System.out.printf("%-9s %-6d %8d %10d %10s %9d  %s%n", instance, solver.getNumUnits(),
+                diagnostics.getElapsedMs(), buildMs, outcome, fails, kinds.isEmpty() ? "-" : kinds);
+        if (!diagnostics.isFeasible()) {
+            System.out.println("          " + diagnostics.getReasons().get(0).getMessage());
+        }
+    }
+
+    private static void tightenDailyLimit(SchoolGenerator school) {
+        Subject s0 = school.subjects.get(0);
+        s0.setWeeklyAssignedHours(6);
+        s0.setMaxDailyHours(1);
+    }
+
+    private static void crowdGroups(SchoolGenerator school) {
+        for (StudentGroup g : school.studentGroups) g.setNumberOfStudents(60);
+        Classroom big = school.classrooms.get(0);
+        big.setCapacity(60);
+    }
+
+    private static void restrictLastSubjectTeachers(SchoolGenerator school) {
+        Subject last = school.subjects.get(school.subjects.size() - 1);
+        List<TimePeriod> unavailable = new ArrayList<>(school.timePeriods.subList(3, school.timePeriods.size()));
+        for (Teacher t : school.teachers) {
+            if (t.canTeach(last)) t.setUnavailableTimePeriods(unavailable);
+        }
+    }
+}
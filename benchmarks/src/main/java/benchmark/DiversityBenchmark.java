@@ -0,0 +1,97 @@
+package benchmark;
+
+import business.LocalSearchSolver;
+import business.SchoolGenerator;
+import business.SolutionPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the diversity-aware selection of returned solutions (SolutionPool.selectDiverse).
+ *
+ * selection: on the candidate pool left by LocalSearchSolver on SchoolGenerator instances, the K solutions
+ *            picked for each diversity weight (0 = plain top-K): mean and worst score, minimum and mean
+ *            pairwise distance (units with another teacher or period) and the time of distances + selection.
+ * distances: cost of the pairwise distance matrix, sequential and parallel, on pools of growing size made
+ *            of random perturbations of one solution (median of several runs).
+ *
+ * Usage: java [-DlimitMs=5000] benchmark.DiversityBenchmark [units...] (default 100 200 400)
+ */
+public class DiversityBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long LIMIT_MS = Long.getLong("limitMs", 5_000);
+    private static final int K = 10;
+    private static final double[] WEIGHTS = {0, 0.25, 0.5, 0.75, 1};
+    private static final int[] POOL_SIZES = {30, 100, 300, 1000};
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100, 200, 400}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-9s %-6s %5s %6s %10s %6s %8s %9s %9s%n",
+                "case", "units", "pool", "weight", "meanScore", "worst", "minDist", "meanDist", "time(us)");
+        List<SolutionPool> pools = new ArrayList<>();
+        List<SchoolGenerator> schools = new ArrayList<>();
+        for (int units : sizes) {
+            SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+            LocalSearchSolver solver = new LocalSearchSolver(school.teachers, school.classrooms,
+                    school.studentGroups, school.timePeriods);
+            solver.setSeed(SEED);
+            solver.setTimeLimitMs(LIMIT_MS);
+            solver.createSchedule();
+            SolutionPool pool = solver.getSolutionPool();
+            for (double weight : WEIGHTS) selection(units, pool, weight);
+            pools.add(pool);
+            schools.add(school);
+        }
+
+        System.out.printf("%n%-9s %-6s %5s %12s %12s %8s%n", "case", "units", "pool", "seq(us)", "par(us)", "speedup");
+        for (int i = 0; i < sizes.length; i++) {
+            if (pools.get(i).isEmpty()) continue;
+            for (int n : POOL_SIZES) distances(sizes[i], schools.get(i), pools.get(i), n);
+        }
+    }
+
+    private static void selection(int units, SolutionPool pool, double weight) {
+        SolutionPool.Selection s = pool.selectDiverse(K, weight);
+        double mean = s.entries.stream().mapToInt(e -> e.score).average().orElse(Double.NaN);
+        String worst = s.entries.isEmpty() ? "-" : String.valueOf(s.entries.get(s.entries.size() - 1).score);
+        System.out.printf("%-9s %-6d %5d %6.2f %10.1f %6s %8d %9.1f %9d%n", "selection", units, pool.size(), weight,
+                mean, worst, s.minDistance, s.meanDistance, (s.distanceNanos + s.selectNanos) / 1_000);
+    }
+
+    // A pool of n random perturbations (5% of the units get another period) of the engine's best solution
+    private static void distances(int units, SchoolGenerator school, SolutionPool source, int n) {
+        int[][] base = source.assignment(source.top(1).get(0));
+        int numUnits = base[0].length, periods = school.timePeriods.size();
+        SolutionPool pool = new SolutionPool(numUnits, school.teachers.size(), school.classrooms.size(), periods, n);
+        Random random = new Random(SEED);
+        for (int c = 0; pool.size() < n && c < 10 * n; c++) {
+            int[] p = base[2].clone();
+            for (int u = 0; u < numUnits; u++) if (random.nextInt(20) == 0) p[u] = random.nextInt(periods);
+            pool.offer(random.nextInt(100), base[0], base[1], p);
+        }
+        List<SolutionPool.Entry> entries = pool.top(n);
+        long seq = median(() -> pool.distanceMatrix(entries, false));
+        long par = median(() -> pool.distanceMatrix(entries, true));
+        System.out.printf("%-9s %-6d %5d %12d %12d %8.2f%n", "distances", units, entries.size(), seq / 1_000,
+                par / 1_000, (double) seq / Math.max(1, par));
+    }
+
+    private static long median(Runnable task) {
+        task.run(); // warm-up
+        long[] times = new long[RUNS];
+        for (int r = 0; r < RUNS; r++) {
+            long t0 = System.nanoTime();
+            task.run();
+            times[r] = System.nanoTime() - t0;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import business.LocalSearchSolver;
+import business.Schedule;
+import business.ScheduleEngine;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the two ScheduleEngine backends on the same SchoolGenerator instances: the Choco model of
+ * ScheduleSolver (GLOBAL clash encoding) and LocalSearchSolver. Both run createSchedule under the same
+ * wall-clock limit (a watchdog calls cancel()); the table shows the time to the first emitted solution,
+ * the best score returned, the total time, the heap still held by the engine afterwards and the clashes
+ * of the best schedule (0 for a valid one).
+ *
+ * Usage: java [-DlimitMs=30000] benchmark.EngineBenchmark [units...] (default 100 200 400 1000)
+ */
+public class EngineBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long LIMIT_MS = Long.getLong("limitMs", 30_000);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? new int[]{100, 200, 400, 1000}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-6s %-6s %10s %8s %10s %9s %8s%n",
+                "engine", "units", "first(ms)", "best", "total(ms)", "heap(MB)", "clashes");
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "engine-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int units : sizes) {
+            for (ScheduleEngine.Kind kind : ScheduleEngine.Kind.values()) {
+                run(units, kind, watchdog);
+            }
+        }
+        watchdog.shutdownNow();
+    }
+
+    private static void run(int units, ScheduleEngine.Kind kind, ScheduledExecutorService watchdog) throws Exception {
+        SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+        ScheduleEngine engine;
+        if (kind == ScheduleEngine.Kind.CP) {
+            ScheduleSolver solver = school.newSolver();
+            solver.setClashEncoding(ClashEncoding.GLOBAL);
+            engine = solver;
+        } else {
+            LocalSearchSolver solver = new LocalSearchSolver(school.teachers, school.classrooms,
+                    school.studentGroups, school.timePeriods);
+            solver.setSeed(SEED);
+            solver.setTimeLimitMs(LIMIT_MS);
+            engine = solver;
+        }
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long t0 = System.nanoTime();
+        AtomicLong firstMs = new AtomicLong(-1);
+        engine.setUpdateListener(update -> firstMs.compareAndSet(-1, (System.nanoTime() - t0) / 1_000_000));
+        var stop = watchdog.schedule(engine::cancel, LIMIT_MS, TimeUnit.MILLISECONDS);
+        List<Schedule> result = engine.createSchedule();
+        long totalMs = (System.nanoTime() - t0) / 1_000_000;
+        stop.cancel(false);
+        System.gc();
+        long heapMb = (usedHeap() - heapBefore) / (1024 * 1024);
+
+        Schedule best = result.isEmpty() ? null : result.get(0);
+        System.out.printf("%-6s %-6d %10s %8s %10d %9d %8s%n",
+                kind == ScheduleEngine.Kind.CP ? "cp" : "ls", units,
+                firstMs.get() < 0 ? "none" : String.valueOf(firstMs.get()),
+                best == null ? "-" : String.valueOf(best.getScore()), totalMs, heapMb,
+                best == null ? "-" : String.valueOf(SchoolGenerator.countClashes(best)));
+        engine.setUpdateListener(null); // keeps the engine reachable until the heap was measured
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import business.Classroom;
+import business.Schedule;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+import business.StudentGroup;
+import business.Subject;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares solving classrooms inside the CP model against the two-phase mode of ScheduleSolver
+ * (teacher and time first, then classrooms per period by bipartite matching): model size, build time,
+ * time to the first schedule, search nodes and fails, and room cuts added.
+ *
+ * "generic" uses the SchoolGenerator school as is (every group fits some general room). "large" makes all
+ * groups but one 60 students with a lighter week (their last two subjects dropped) and gives them one
+ * 60-seat general room less than there are large groups (dedicated rooms also hold 60), so the first matchings fail until the Hall cut for those rooms is added.
+ *
+ * Usage: java [-DfirstSolutionLimitMs=60000] benchmark.RoomMatchingBenchmark [units...] (default 100 200 400)
+ */
+public class RoomMatchingBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long FIRST_SOLUTION_LIMIT_MS = Long.getLong("firstSolutionLimitMs", 60_000);
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100, 200, 400}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-8s %-7s %-6s %8s %8s %10s %10s %9s %9s %6s %8s%n",
+                "rooms", "mode", "units", "vars", "cstrs", "build(ms)", "first(ms)", "nodes", "fails", "cuts", "clashes");
+        for (int units : sizes) {
+            for (boolean large : new boolean[]{false, true}) {
+                for (boolean matching : new boolean[]{false, true}) {
+                    run(units, large, matching);
+                }
+            }
+        }
+    }
+
+    private static void run(int units, boolean large, boolean matching) {
+        SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+        if (large) {
+            int groups = school.studentGroups.size() - 1;
+            for (int k = 0; k < groups; k++) {
+                StudentGroup group = school.studentGroups.get(k);
+                group.setNumberOfStudents(60);
+                List<Subject> required = group.getRequiredSubjects();
+                group.setRequiredSubjects(new ArrayList<>(required.subList(0, required.size() - 2)));
+            }
+            for (int k = 0; k < groups - 1; k++) school.classrooms.get(k).setCapacity(60);
+            for (Classroom room : school.classrooms) {
+                if (!"General".equals(room.getClassroomType())) room.setCapacity(60);
+            }
+        }
+
+        long t0 = System.nanoTime();
+        ScheduleSolver solver = school.newSolver();
+        solver.setClashEncoding(ClashEncoding.GLOBAL);
+        solver.setRoomMatching(matching);
+        solver.defineVariables();
+        solver.addConstraints();
+        solver.addSoftConstraints();
+        long buildMs = (System.nanoTime() - t0) / 1_000_000;
+        Model model = solver.getModel();
+        int vars = model.getNbVars(), cstrs = model.getNbCstrs();
+
+        long t1 = System.nanoTime();
+        Schedule first = solver.findFirstSchedule(FIRST_SOLUTION_LIMIT_MS);
+        long firstMs = (System.nanoTime() - t1) / 1_000_000;
+        Solver s = model.getSolver();
+
+        System.out.printf("%-8s %-7s %-6d %8d %8d %10d %10s %9d %9d %6s %8s%n",
+                large ? "large" : "generic", matching ? "match" : "cp", solver.getNumUnits(), vars, cstrs, buildMs,
+                first == null ? "none" : String.valueOf(firstMs), s.getNodeCount(), s.getFailCount(),
+                matching ? String.valueOf(solver.getRoomCutCount()) : "-",
+                first == null ? "-" : String.valueOf(SchoolGenerator.countClashes(first)));
+    }
+}
@@ -0,0 +1,144 @@
+package benchmark;
+
+import business.Classroom;
+import business.Schedule;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+import business.StudentGroup;
+import business.Subject;
+import business.Teacher;
+import business.TimePeriod;
+import org.chocosolver.solver.Solver;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the symmetry breaking between units of the same (group, subject) in ScheduleSolver:
+ * search nodes, fails and time with and without it.
+ *
+ * enumerate:  every solution of a tiny school (one group, teacher and room, one lesson per day per subject).
+ *             Without symmetry breaking each schedule is found once per permutation of its units.
+ * pigeonhole: the same school with one subject needing one more hour than there are days; the search
+ *             has to prove that no schedule exists.
+ * first:      first solution on SchoolGenerator instances, one run per seed.
+ *
+ * Usage: java [-DlimitMs=30000] benchmark.SymmetryBenchmark [units...] (default 100 200)
+ */
+public class SymmetryBenchmark {
+
+    private static final long LIMIT_MS = Long.getLong("limitMs", 30_000);
+    private static final long[] SEEDS = {1L, 2L, 3L};
+    private static final String[] DAYS = {"Lunes", "Martes", "Miércoles", "Jueves", "Viernes"};
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100, 200}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-11s %-14s %-5s %10s %10s %10s %10s%n",
+                "case", "instance", "sym", "solutions", "nodes", "fails", "time(ms)");
+        for (int[] hours : new int[][]{{3, 2}, {3, 3}, {4, 3}}) {
+            for (boolean sym : new boolean[]{false, true}) {
+                enumerate(hours, sym);
+            }
+        }
+        for (int days : new int[]{4, 5}) {
+            for (boolean sym : new boolean[]{false, true}) {
+                pigeonhole(days, sym);
+            }
+        }
+        for (int units : sizes) {
+            for (long seed : SEEDS) {
+                for (boolean sym : new boolean[]{false, true}) {
+                    first(units, seed, sym);
+                }
+            }
+        }
+    }
+
+    private static void enumerate(int[] hours, boolean sym) {
+        TinySchool school = new TinySchool(5, 2, hours);
+        ScheduleSolver solver = school.newSolver(sym);
+        long t0 = System.nanoTime();
+        int count = solver.findFirstSchedule(LIMIT_MS) == null ? 0 : 1;
+        Solver s = solver.getModel().getSolver();
+        while (count > 0 && s.solve()) count++;
+        print("enumerate", "hours=" + java.util.Arrays.toString(hours), sym, String.valueOf(count), s, t0);
+    }
+
+    private static void pigeonhole(int days, boolean sym) {
+        TinySchool school = new TinySchool(days, 2, new int[]{days + 1, 2});
+        ScheduleSolver solver = school.newSolver(sym);
+        long t0 = System.nanoTime();
+        Schedule found = solver.findFirstSchedule(LIMIT_MS);
+        print("pigeonhole", "days=" + days, sym, found == null ? "0" : "1", solver.getModel().getSolver(), t0);
+    }
+
+    private static void first(int units, long seed, boolean sym) {
+        ScheduleSolver solver = SchoolGenerator.withUnits(units, seed).newSolver();
+        solver.setClashEncoding(ClashEncoding.GLOBAL);
+        solver.setSymmetryBreaking(sym);
+        solver.defineVariables();
+        solver.addConstraints();
+        solver.addSoftConstraints();
+        long t0 = System.nanoTime();
+        Schedule found = solver.findFirstSchedule(LIMIT_MS);
+        print("first", units + "u seed=" + seed, sym, found == null ? "0" : "1", solver.getModel().getSolver(), t0);
+    }
+
+    private static void print(String kase, String instance, boolean sym, String solutions, Solver s, long t0) {
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        String time = s.isStopCriterionMet() ? ms + " (limit)" : String.valueOf(ms);
+        System.out.printf("%-11s %-14s %-5s %10s %10d %10d %10s%n",
+                kase, instance, sym, solutions, s.getNodeCount(), s.getFailCount(), time);
+    }
+
+    /** One group, one teacher and one classroom; each subject at most one hour per day. */
+    private static final class TinySchool {
+        final List<Teacher> teachers = new ArrayList<>();
+        final List<Classroom> classrooms = new ArrayList<>();
+        final List<StudentGroup> studentGroups = new ArrayList<>();
+        final List<TimePeriod> timePeriods = new ArrayList<>();
+
+        TinySchool(int days, int hoursPerDay, int[] subjectHours) {
+            for (int d = 0; d < days; d++) {
+                for (int h = 0; h < hoursPerDay; h++) {
+                    LocalTime start = LocalTime.of(8 + h, 0);
+                    timePeriods.add(new TimePeriod(DAYS[d] + "-" + h, DAYS[d],
+                            start, start.plusHours(1)));
+                }
+            }
+            Teacher teacher = new Teacher("T0", "Profesor 0", "T0");
+            teacher.setHoursWork(days * hoursPerDay);
+            List<Subject> subjects = new ArrayList<>();
+            for (int s = 0; s < subjectHours.length; s++) {
+                Subject subject = new Subject("S" + s, "Asignatura " + s, "S" + s);
+                subject.setWeeklyAssignedHours(subjectHours[s]);
+                subject.setMaxDailyHours(1);
+                subjects.add(subject);
+                teacher.addPossibleSubject(subject);
+            }
+            teachers.add(teacher);
+
+            Classroom room = new Classroom("R0", "Aula 0", "R0");
+            room.setCapacity(30);
+            classrooms.add(room);
+
+            StudentGroup group = new StudentGroup("G0", "Grupo 0", "G0");
+            group.setNumberOfStudents(25);
+            group.setRequiredSubjects(subjects);
+            studentGroups.add(group);
+        }
+
+        ScheduleSolver newSolver(boolean sym) {
+            ScheduleSolver solver = new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+            solver.setClashEncoding(ClashEncoding.GLOBAL);
+            solver.setSymmetryBreaking(sym);
+            solver.defineVariables();
+            solver.addConstraints();
+            return solver;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import business.Schedule;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.ScheduleSolver.TeacherPrePhase;
+import business.SchoolGenerator;
+import business.StudentGroup;
+import business.Subject;
+import business.Teacher;
+import org.chocosolver.solver.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the min-cost flow teacher pre-phase of ScheduleSolver (see TeacherAssignment):
+ * time to the first schedule with the pre-phase OFF, as HINT and as FIX, and how fast an instance
+ * without enough teacher hours is reported compared with the CP search. In the "short" instance the
+ * teachers qualified for the first subject lack one hour for its demand while the school as a whole
+ * has enough hours (the others get the difference).
+ *
+ * Usage: java [-DfirstSolutionLimitMs=30000] benchmark.TeacherFlowBenchmark [units...] (default 100 200 400)
+ */
+public class TeacherFlowBenchmark {
+
+    private static final long SEED = 42L;
+    private static final long FIRST_SOLUTION_LIMIT_MS = Long.getLong("firstSolutionLimitMs", 30_000);
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100, 200, 400}
+                : java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-10s %-5s %-6s %10s %10s %9s %9s  %s%n",
+                "instance", "phase", "units", "build(ms)", "first(ms)", "nodes", "fails", "pre-phase");
+        for (int units : sizes) {
+            for (boolean shortOfHours : new boolean[]{false, true}) {
+                for (TeacherPrePhase phase : TeacherPrePhase.values()) {
+                    run(units, shortOfHours, phase);
+                }
+            }
+        }
+    }
+
+    private static void run(int units, boolean shortOfHours, TeacherPrePhase phase) {
+        SchoolGenerator school = SchoolGenerator.withUnits(units, SEED);
+        if (shortOfHours) makeFirstSubjectShort(school);
+
+        long t0 = System.nanoTime();
+        ScheduleSolver solver = school.newSolver();
+        solver.setClashEncoding(ClashEncoding.GLOBAL);
+        solver.setTeacherPrePhase(phase);
+        solver.defineVariables();
+        solver.addConstraints();
+        solver.addSoftConstraints();
+        long buildMs = (System.nanoTime() - t0) / 1_000_000;
+
+        long t1 = System.nanoTime();
+        Schedule first = solver.findFirstSchedule(FIRST_SOLUTION_LIMIT_MS);
+        long firstMs = (System.nanoTime() - t1) / 1_000_000;
+        Solver s = solver.getModel().getSolver();
+        String outcome = first != null ? String.valueOf(firstMs)
+                : s.isStopCriterionMet() ? "timeout" : "none@" + firstMs;
+
+        System.out.printf("%-10s %-5s %-6d %10d %10s %9d %9d  %s%n",
+                shortOfHours ? "short" : "normal", phase, solver.getNumUnits(), buildMs, outcome,
+                s.getNodeCount(), s.getFailCount(),
+                solver.getTeacherAssignment() == null ? "-" : solver.getTeacherAssignment().report());
+    }
+
+    // Teachers of subject 0 get (demand - 1) hours between them; the others get the hours taken away
+    static void makeFirstSubjectShort(SchoolGenerator school) {
+        Subject s0 = school.subjects.get(0);
+        int groups = 0;
+        for (StudentGroup g : school.studentGroups) if (g.getRequiredSubjects().contains(s0)) groups++;
+        int demand = groups * s0.getWeeklyAssignedHours() * Math.max(1, s0.getDuration());
+        List<Teacher> qualified = new ArrayList<>();
+        List<Teacher> others = new ArrayList<>();
+        for (Teacher t : school.teachers) (t.canTeach(s0) ? qualified : others).add(t);
+        int removed = 0;
+        for (int k = 0; k < qualified.size(); k++) {
+            Teacher t = qualified.get(k);
+            int hours = (demand - 1) / qualified.size() + (k < (demand - 1) % qualified.size() ? 1 : 0);
+            removed += t.getHoursWork() - hours;
+            t.setHoursWork(hours);
+        }
+        for (int k = 0; k < others.size(); k++) {
+            others.get(k).setHoursWork(others.get(k).getHoursWork() + removed / others.size() + (k < removed % others.size() ? 1 : 0));
+        }
+    }
+}
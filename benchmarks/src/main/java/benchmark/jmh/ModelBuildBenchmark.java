@@ -0,0 +1,115 @@
+package benchmark.jmh;
+
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.SchoolGenerator;
+import org.chocosolver.solver.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of each model-building step of ScheduleSolver: buildModel creates the solver and runs
+ * defineVariables, addConstraints and addSoftConstraints; the other benchmarks time a single step,
+ * with the previous ones run in a per-invocation setup outside the timed region.
+ *
+ * Allocation per model is buildModel's gc.alloc.rate.norm. For the single steps the GC profiler also
+ * counts what their setup allocates, so only their time is meaningful.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ModelBuildBenchmark {
+
+    public static class SolverState extends SchoolParams {
+
+        @Param({"PAIRWISE", "GLOBAL"})
+        public ClashEncoding encoding;
+
+        SchoolGenerator school;
+        ScheduleSolver solver;
+
+        // The solver does not modify the entities, so one instance serves every invocation
+        @Setup(Level.Trial)
+        public void generate() {
+            school = newSchool();
+        }
+
+        ScheduleSolver newSolver() {
+            ScheduleSolver s = school.newSolver();
+            s.setClashEncoding(encoding);
+            return s;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Shape extends SolverState {
+    }
+
+    @State(Scope.Thread)
+    public static class Fresh extends SolverState {
+        @Setup(Level.Invocation)
+        public void fresh() {
+            solver = newSolver();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Defined extends SolverState {
+        @Setup(Level.Invocation)
+        public void defined() {
+            solver = newSolver();
+            solver.defineVariables();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Constrained extends SolverState {
+        @Setup(Level.Invocation)
+        public void constrained() {
+            solver = newSolver();
+            solver.defineVariables();
+            solver.addConstraints();
+        }
+    }
+
+    @Benchmark
+    public Model buildModel(Shape state) {
+        ScheduleSolver solver = state.newSolver();
+        solver.defineVariables();
+        solver.addConstraints();
+        solver.addSoftConstraints();
+        return solver.getModel();
+    }
+
+    @Benchmark
+    public Model defineVariables(Fresh state) {
+        state.solver.defineVariables();
+        return state.solver.getModel();
+    }
+
+    @Benchmark
+    public Model addConstraints(Defined state) {
+        state.solver.addConstraints();
+        return state.solver.getModel();
+    }
+
+    @Benchmark
+    public Model addSoftConstraints(Constrained state) {
+        state.solver.addSoftConstraints();
+        return state.solver.getModel();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark.jmh;
+
+import business.SchoolGenerator;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shape of the generated instance, shared by every benchmark (see SchoolGenerator.Params). Each group
+ * takes a 25-hour curriculum, so groups=8 is 200 units. Override from the command line, e.g.
+ * {@code -p groups=4,8,16,40 -p preferenceDensity=0,1,4}.
+ */
+@State(Scope.Benchmark)
+public class SchoolParams {
+
+    @Param({"4", "8", "16"})
+    public int groups;
+
+    /** Teacher hours over each department's demand (1.25 = 25% slack); fewer teachers when lower. */
+    @Param({"1.25"})
+    public double teacherSlack;
+
+    /** General classrooms per group (at least 1). */
+    @Param({"1.1"})
+    public double roomFactor;
+
+    /** Periods per day over 5 days. */
+    @Param({"6"})
+    public int hoursPerDay;
+
+    /** Multiplier of the teachers' conditions (1 = 2.5 per teacher on average). */
+    @Param({"1.0"})
+    public double preferenceDensity;
+
+    @Param({"42"})
+    public long seed;
+
+    /** A fresh instance: the solvers keep state on the entities, so every run gets its own. */
+    public SchoolGenerator newSchool() {
+        SchoolGenerator.Params p = new SchoolGenerator.Params();
+        p.groups = groups;
+        p.teacherSlack = teacherSlack;
+        p.roomFactor = roomFactor;
+        p.hoursPerDay = hoursPerDay;
+        p.preferencesPerTeacher = 2.5 * preferenceDensity;
+        p.seed = seed;
+        return SchoolGenerator.generate(p);
+    }
+}
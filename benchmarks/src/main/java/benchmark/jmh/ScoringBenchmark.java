@@ -0,0 +1,109 @@
+package benchmark.jmh;
+
+import business.ConditionScorer;
+import business.Lesson;
+import business.LocalSearchSolver;
+import business.Schedule;
+import business.SchoolGenerator;
+import business.Teacher;
+import business.TimePeriod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of scoring a fixed schedule (found once per trial with LocalSearchSolver):
+ *
+ *   scorerBuild          - new ConditionScorer(teachers, schedule).getScore(), i.e. a full rescore.
+ *   calculateConditions  - Schedule.calculateConditions (rescore plus the per-teacher totals and the
+ *                          report string; its console output is discarded).
+ *   moveAndUndo          - an incremental ConditionScorer.moveLesson to a random teacher and period,
+ *                          and back.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ScoringBenchmark {
+
+    private static final int MOVES = 1 << 12;
+
+    @State(Scope.Thread)
+    public static class Scored extends SchoolParams {
+        List<Teacher> teachers;
+        Schedule schedule;
+        ConditionScorer scorer;
+        Lesson[] lessons = new Lesson[MOVES];
+        Teacher[] toTeacher = new Teacher[MOVES];
+        TimePeriod[] toPeriod = new TimePeriod[MOVES];
+        int next;
+        PrintStream console;
+
+        @Setup(Level.Trial)
+        public void solve() {
+            console = System.out;
+            SchoolGenerator school = newSchool();
+            LocalSearchSolver ls = new LocalSearchSolver(school.teachers, school.classrooms, school.studentGroups, school.timePeriods);
+            ls.setSeed(seed);
+            ls.setTimeLimitMs(3000);
+            ls.setStagnationMs(500);
+            List<Schedule> result = ls.createSchedule();
+            if (result.isEmpty()) throw new IllegalStateException("no schedule for " + school.unitCount() + " units");
+            teachers = school.teachers;
+            schedule = result.get(0);
+            scorer = new ConditionScorer(teachers, schedule);
+
+            Random r = new Random(seed);
+            List<Lesson> all = schedule.getLessons();
+            for (int i = 0; i < MOVES; i++) {
+                lessons[i] = all.get(r.nextInt(all.size()));
+                toTeacher[i] = teachers.get(r.nextInt(teachers.size()));
+                toPeriod[i] = school.timePeriods.get(r.nextInt(school.timePeriods.size()));
+            }
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @TearDown(Level.Trial)
+        public void restoreConsole() {
+            System.setOut(console);
+        }
+    }
+
+    @Benchmark
+    public int scorerBuild(Scored state) {
+        return new ConditionScorer(state.teachers, state.schedule).getScore();
+    }
+
+    @Benchmark
+    public int calculateConditions(Scored state) {
+        state.schedule.calculateConditions(state.teachers);
+        return state.schedule.getWeightedConditions();
+    }
+
+    @Benchmark
+    public int moveAndUndo(Scored state) {
+        int i = state.next++ & (MOVES - 1);
+        Lesson lesson = state.lessons[i];
+        Teacher teacher = lesson.getTeacher();
+        TimePeriod period = lesson.getTimePeriod();
+        int delta = state.scorer.moveLesson(lesson, state.toTeacher[i], state.toPeriod[i]);
+        state.scorer.moveLesson(lesson, teacher, period);
+        return delta;
+    }
+}
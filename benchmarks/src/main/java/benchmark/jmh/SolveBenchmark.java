@@ -0,0 +1,147 @@
+package benchmark.jmh;
+
+import business.LocalSearchSolver;
+import business.Schedule;
+import business.ScheduleEngine;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.ScheduleSolver.SearchStrategy;
+import business.SchoolGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search quality and speed, one run per iteration (single shot):
+ *
+ *   firstFeasible     - time for ScheduleSolver.findFirstSchedule on a model built outside the timed
+ *                       region (GLOBAL encoding), stopped at firstLimitMs, for each search strategy.
+ *   bestScoreAtBudget - createSchedule of each engine cancelled after budgetMs (model build included),
+ *                       keeping the best score it returns. The CP search strategy is DEFAULT; compare
+ *                       the others with e.g. {@code -p engine=CP -p strategy=MOST_CONSTRAINED,ACTIVITY}.
+ *
+ * The counters are secondary results in the JSON output, next to the time. JMH adds them up over the
+ * measurement iterations: "solved" is the number of runs that found a schedule and "scoreSum" the sum
+ * of their best scores, so the mean best score is scoreSum / solved.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SolveBenchmark {
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long solved;
+        public long scoreSum;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            solved = 0;
+            scoreSum = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FirstFeasible extends SchoolParams {
+        @Param({"30000"})
+        public long firstLimitMs;
+
+        @Param({"DEFAULT", "MOST_CONSTRAINED", "DOM_WDEG_REF", "ACTIVITY", "MIN_DOM", "RANDOM"})
+        public SearchStrategy strategy;
+
+        ScheduleSolver solver;
+
+        @Setup(Level.Iteration)
+        public void build() {
+            solver = newSchool().newSolver();
+            solver.setClashEncoding(ClashEncoding.GLOBAL);
+            solver.setSearchStrategy(strategy);
+            solver.defineVariables();
+            solver.addConstraints();
+            solver.addSoftConstraints();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Budget extends SchoolParams {
+        @Param({"CP", "LOCAL_SEARCH"})
+        public ScheduleEngine.Kind engine;
+
+        @Param({"3000"})
+        public long budgetMs;
+
+        /** Only for the CP engine. */
+        @Param({"DEFAULT"})
+        public SearchStrategy strategy;
+
+        ScheduleEngine solver;
+        ScheduledExecutorService watchdog;
+
+        @Setup(Level.Trial)
+        public void startWatchdog() {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "budget-watchdog");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Setup(Level.Iteration)
+        public void create() {
+            SchoolGenerator school = newSchool();
+            solver = ScheduleEngine.create(engine, school.teachers, school.classrooms, school.studentGroups, school.timePeriods);
+            if (solver instanceof ScheduleSolver cp) {
+                cp.setClashEncoding(ClashEncoding.GLOBAL);
+                cp.setSearchStrategy(strategy);
+            }
+            if (solver instanceof LocalSearchSolver ls) {
+                ls.setSeed(seed);
+                ls.setTimeLimitMs(budgetMs);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stopWatchdog() {
+            watchdog.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public Schedule firstFeasible(FirstFeasible state, Outcome outcome) {
+        Schedule first = state.solver.findFirstSchedule(state.firstLimitMs);
+        if (first != null) outcome.solved = 1;
+        return first;
+    }
+
+    @Benchmark
+    public List<Schedule> bestScoreAtBudget(Budget state, Outcome outcome) throws Exception {
+        ScheduledFuture<?> stop = state.watchdog.schedule(state.solver::cancel, state.budgetMs, TimeUnit.MILLISECONDS);
+        List<Schedule> result = state.solver.createSchedule();
+        stop.cancel(false);
+        if (result != null && !result.isEmpty()) {
+            outcome.solved = 1;
+            outcome.scoreSum = result.stream().mapToInt(Schedule::getScore).max().getAsInt();
+        }
+        return result;
+    }
+}
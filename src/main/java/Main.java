@@ -7,6 +7,12 @@ import javax.swing.*;
 public class Main {
 
     public static void main (String[] args) throws Exception {
+        // Headless: solve many schools without the UI (see batch.BatchSolver for the options)
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch.BatchSolver.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> {
             try {
                 PresentationController pc = new PresentationController();
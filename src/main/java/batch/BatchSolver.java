@@ -0,0 +1,466 @@
+package batch;
+
+import business.BusinessController;
+import business.FeasibilityDiagnostics;
+import business.Lesson;
+import business.LocalSearchSolver;
+import business.Schedule;
+import business.ScheduleEngine;
+import business.ScheduleSolver;
+import business.ScheduleSolver.ClashEncoding;
+import business.ScheduleSolver.SearchStrategy;
+import business.SchoolGenerator;
+import business.SearchTelemetry;
+import business.SolverRunStats;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point: solves many school configurations concurrently without the Swing UI.
+ *
+ * Each source becomes one job on a bounded pool (the submitter blocks while the queue is full). Every job
+ * gets the same wall-clock budget: a timer cancels the engine when it runs out and the best schedules
+ * found so far are kept.
+ *
+ * Memory guards: each job reserves an estimate of its heap (see {@link #estimateBytes}) before it starts
+ * and waits while the reservations of the running jobs would exceed the heap limit; a job whose estimate
+ * alone exceeds it is not run (status MEMORY). While jobs run, if the heap stays over the limit after a
+ * collection the largest job still searching is cancelled and keeps its best schedules. Cancelling cannot
+ * interrupt the construction of a Choco model, which is why the admission estimate matters.
+ *
+ * Writes {@code <out>/<name>.csv} with the lessons of every schedule of each instance and
+ * {@code <out>/summary.csv} with one row per instance (status, duration, score and unit counts).
+ *
+ * Usage: java batch.BatchSolver [options] source...
+ *   source: a .school file (see SchoolFile), a directory of them, "db" (the MySQL database of the
+ *           application) or "generated:UNITS[:SEED]" (realistic school from business.SchoolGenerator)
+ *   --threads N     concurrent jobs (default: available processors)
+ *   --queue N       jobs waiting for a thread before the submitter blocks (default 2 x threads)
+ *   --time-ms MS    budget per job (default 60000)
+ *   --engine E      CP or LOCAL_SEARCH (default CP)
+ *   --clash-encoding PAIRWISE|GLOBAL  CP clash constraints (default GLOBAL: its model grows linearly,
+ *                   PAIRWISE grows with the square of the units)
+ *   --search S      CP search strategy (ScheduleSolver.SearchStrategy, default DEFAULT); summary.csv has
+ *                   the time to the first schedule and the score to compare them
+ *   --heap-limit F  fraction of the max heap that triggers the memory guard (default 0.85)
+ *   --out DIR       output directory (default batch-out)
+ *   --trace F       CSV or JSON: write the search telemetry of each CP job to {@code <out>/<name>.trace.<f>}
+ *   --export        write every source as a .school file to --out instead of solving
+ *   --verbose       print each engine's progress and run summary (interleaved between jobs)
+ */
+public class BatchSolver {
+
+    /** Outcome of one job, as written to summary.csv. */
+    enum Status { SOLVED, BUDGET, MEMORY, INFEASIBLE, NO_SOLUTION, OUT_OF_MEMORY, ERROR }
+
+    static final class Result {
+        String name, source, message = "";
+        Status status;
+        int units, teachers, classrooms, groups, periods, schedules;
+        long loadMs, durationMs, firstSolutionMs = -1, buildMs = -1, nodes, fails;
+        Integer bestScore;
+    }
+
+    private interface Source {
+        String label();
+        SchoolInstance load() throws Exception;
+    }
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queue = -1;
+    private long timeMs = 60_000;
+    private ScheduleEngine.Kind engine = ScheduleEngine.Kind.CP;
+    private ClashEncoding clashEncoding = ClashEncoding.GLOBAL;
+    private SearchStrategy searchStrategy = SearchStrategy.DEFAULT;
+    private double heapLimit = 0.85;
+    private Path out = Paths.get("batch-out");
+    private boolean export;
+    private boolean verbose;
+    private SearchTelemetry.Format trace;
+    private final List<Source> sources = new ArrayList<>();
+
+    private final ConcurrentHashMap<ScheduleEngine, Integer> running = new ConcurrentHashMap<>();
+    private final Set<ScheduleEngine> cancelledForMemory = ConcurrentHashMap.newKeySet();
+    private final Set<String> usedNames = new HashSet<>();
+    private final AtomicInteger done = new AtomicInteger();
+    private long reservedBytes;
+    private int admitted;
+
+    public static void main(String[] args) throws Exception {
+        BatchSolver batch = new BatchSolver();
+        try {
+            batch.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java batch.BatchSolver [--threads N] [--queue N] [--time-ms MS] [--engine CP|LOCAL_SEARCH]"
+                    + " [--clash-encoding PAIRWISE|GLOBAL] [--search S] [--heap-limit F] [--out DIR] [--trace CSV|JSON] [--export] [--verbose] source...");
+            System.exit(2);
+        }
+        System.exit(batch.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":    threads = Integer.parseInt(value(args, ++i, arg)); break;
+                case "--queue":      queue = Integer.parseInt(value(args, ++i, arg)); break;
+                case "--time-ms":    timeMs = Long.parseLong(value(args, ++i, arg)); break;
+                case "--engine":     engine = ScheduleEngine.Kind.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)); break;
+                case "--clash-encoding": clashEncoding = ClashEncoding.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)); break;
+                case "--search":     searchStrategy = SearchStrategy.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)); break;
+                case "--heap-limit": heapLimit = Double.parseDouble(value(args, ++i, arg)); break;
+                case "--out":        out = Paths.get(value(args, ++i, arg)); break;
+                case "--trace":      trace = SearchTelemetry.Format.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)); break;
+                case "--export":     export = true; break;
+                case "--verbose":    verbose = true; break;
+                default:
+                    if (arg.startsWith("--")) throw new IllegalArgumentException("Unknown option " + arg);
+                    addSource(arg);
+            }
+        }
+        if (sources.isEmpty()) throw new IllegalArgumentException("No sources given");
+        if (threads < 1) throw new IllegalArgumentException("--threads must be at least 1");
+        if (queue < 0) queue = 2 * threads;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    private void addSource(String arg) throws IOException {
+        if (arg.equals("db")) {
+            sources.add(source("db", BatchSolver::loadDatabase));
+        } else if (arg.startsWith("generated:")) {
+            String[] parts = arg.split(":");
+            int units = Integer.parseInt(parts[1]);
+            long seed = parts.length > 2 ? Long.parseLong(parts[2]) : 42L;
+            sources.add(source(arg, () -> generated(units, seed)));
+        } else {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    for (Path file : files.filter(p -> p.toString().endsWith(SchoolFile.EXTENSION)).sorted().toList()) {
+                        sources.add(source(file.toString(), () -> SchoolFile.read(file)));
+                    }
+                }
+            } else if (Files.isRegularFile(path)) {
+                sources.add(source(arg, () -> SchoolFile.read(path)));
+            } else {
+                throw new IllegalArgumentException("No such file, directory or source: " + arg);
+            }
+        }
+    }
+
+    private static Source source(String label, java.util.concurrent.Callable<SchoolInstance> loader) {
+        return new Source() {
+            public String label() { return label; }
+            public SchoolInstance load() throws Exception { return loader.call(); }
+        };
+    }
+
+    private static SchoolInstance loadDatabase() throws Exception {
+        BusinessController controller = new BusinessController();
+        SchoolInstance school = new SchoolInstance("db", "db");
+        school.teachers.addAll(controller.getTeachers());
+        school.classrooms.addAll(controller.getClassrooms());
+        school.studentGroups.addAll(controller.getStudentGroups());
+        school.subjects.addAll(controller.getSubjects());
+        school.timePeriods.addAll(controller.getTimePeriods());
+        return school;
+    }
+
+    private static SchoolInstance generated(int units, long seed) {
+        SchoolGenerator s = SchoolGenerator.withUnits(units, seed);
+        SchoolInstance school = new SchoolInstance("generated-" + units + "-" + seed, "generated:" + units + ":" + seed);
+        school.teachers.addAll(s.teachers);
+        school.classrooms.addAll(s.classrooms);
+        school.studentGroups.addAll(s.studentGroups);
+        school.subjects.addAll(s.subjects);
+        school.timePeriods.addAll(s.timePeriods);
+        return school;
+    }
+
+    // ========================= Run =========================
+
+    private boolean run() throws Exception {
+        Files.createDirectories(out);
+        if (export) return exportAll();
+
+        System.out.printf("Batch: %d sources, %d threads, queue %d, %s, %d ms per job, heap limit %.0f%% of %d MB -> %s%n",
+                sources.size(), threads, queue, engine, timeMs, heapLimit * 100, Runtime.getRuntime().maxMemory() >> 20, out);
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::guardMemory, 250, 250, TimeUnit.MILLISECONDS);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> new Thread(r, "batch-" + threadNo.incrementAndGet()),
+                (r, executor) -> {
+                    // Bounded queue: block the submitter until a slot frees up
+                    try {
+                        executor.getQueue().put(r);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+
+        List<Result> results = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (Source source : sources) {
+            Result result = new Result();
+            result.source = source.label();
+            synchronized (results) { results.add(result); }
+            pool.execute(() -> solve(source, result, timer));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        timer.shutdownNow();
+
+        long wallMs = System.currentTimeMillis() - start;
+        writeSummary(results);
+        long cpuMs = results.stream().mapToLong(r -> r.durationMs).sum();
+        System.out.printf("Done: %d jobs in %.1f s (%.1f s of solving, %.1fx parallel). Summary: %s%n",
+                results.size(), wallMs / 1000.0, cpuMs / 1000.0, wallMs == 0 ? 0 : (double) cpuMs / wallMs,
+                out.resolve("summary.csv"));
+        return results.stream().noneMatch(r -> r.status == Status.ERROR || r.status == Status.OUT_OF_MEMORY);
+    }
+
+    private void solve(Source source, Result result, ScheduledExecutorService timer) {
+        ScheduleEngine solver = null;
+        ScheduledFuture<?> budget = null;
+        long reserved = -1;
+        try {
+            long t0 = System.currentTimeMillis();
+            SchoolInstance school = source.load();
+            result.loadMs = System.currentTimeMillis() - t0;
+            result.name = uniqueName(school.name);
+            result.units = school.getUnitCount();
+            result.teachers = school.teachers.size();
+            result.classrooms = school.classrooms.size();
+            result.groups = school.studentGroups.size();
+            result.periods = school.timePeriods.size();
+
+            long estimate = estimateBytes(school, engine, clashEncoding);
+            if (estimate > heapLimitBytes()) {
+                result.status = Status.MEMORY;
+                result.message = "needs about " + (estimate >> 20) + " MB, heap limit " + (heapLimitBytes() >> 20) + " MB";
+                return;
+            }
+            admit(estimate);
+            reserved = estimate;
+            long start = System.currentTimeMillis();
+            FeasibilityDiagnostics diagnostics = FeasibilityDiagnostics.check(
+                    school.teachers, school.classrooms, school.studentGroups, school.timePeriods);
+            if (!diagnostics.isFeasible()) {
+                result.durationMs = System.currentTimeMillis() - start;
+                result.status = Status.INFEASIBLE;
+                result.message = diagnostics.getReasons().get(0).getMessage();
+                return;
+            }
+
+            ScheduleEngine engineRun = school.newEngine(engine);
+            solver = engineRun;
+            if (engineRun instanceof LocalSearchSolver ls) ls.setTimeLimitMs(timeMs);
+            if (engineRun instanceof ScheduleSolver cp) {
+                cp.setTimeBudgetMs(timeMs);
+                cp.setLnsTimeLimitMs(timeMs);
+                cp.setClashEncoding(clashEncoding);
+                cp.setSearchStrategy(searchStrategy);
+            }
+            engineRun.setVerbose(verbose);
+            engineRun.setUpdateListener(update -> {
+                if (result.firstSolutionMs < 0) result.firstSolutionMs = System.currentTimeMillis() - start;
+            });
+            running.put(engineRun, result.units);
+            budget = timer.schedule(engineRun::cancel, timeMs, TimeUnit.MILLISECONDS);
+
+            List<Schedule> schedules = engineRun.createSchedule();
+            result.durationMs = System.currentTimeMillis() - start;
+            SolverRunStats stats = engineRun.getRunStats();
+            if (stats != null) {
+                result.buildMs = stats.getBuildMs();
+                result.nodes = stats.getNodes();
+                result.fails = stats.getFails();
+            }
+            if (trace != null && engineRun instanceof ScheduleSolver cp && cp.getTelemetry() != null) {
+                String ext = trace.name().toLowerCase(Locale.ROOT);
+                cp.getTelemetry().writeTrace(out.resolve(result.name + ".trace." + ext), trace);
+            }
+            if (schedules == null) schedules = List.of();
+            result.schedules = schedules.size();
+            result.bestScore = schedules.stream().map(Schedule::getScore).max(Comparator.naturalOrder()).orElse(null);
+            if (cancelledForMemory.contains(engineRun)) {
+                result.status = Status.MEMORY;
+                result.message = "cancelled by the memory guard";
+            } else if (engineRun.isCancelled()) {
+                result.status = Status.BUDGET;
+            } else {
+                result.status = schedules.isEmpty() ? Status.NO_SOLUTION : Status.SOLVED;
+            }
+            if (!schedules.isEmpty()) writeSchedules(result.name, schedules);
+        } catch (OutOfMemoryError e) {
+            if (solver != null) running.remove(solver);
+            solver = null; // let the model go before doing anything else
+            result.status = Status.OUT_OF_MEMORY;
+            result.message = "OutOfMemoryError";
+        } catch (Throwable e) {
+            result.status = Status.ERROR;
+            result.message = String.valueOf(e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (budget != null) budget.cancel(false);
+            if (solver != null) {
+                solver.setUpdateListener(null);
+                running.remove(solver);
+                cancelledForMemory.remove(solver);
+            }
+            if (reserved >= 0) release(reserved);
+            if (result.name == null) result.name = result.source;
+            System.out.printf("[%d/%d] %-28s %-12s units=%-6d %7d ms  best=%s%s%n", done.incrementAndGet(), sources.size(),
+                    result.name, result.status, result.units, result.durationMs,
+                    result.bestScore == null ? "-" : result.bestScore, result.message.isEmpty() ? "" : "  " + result.message);
+        }
+    }
+
+    private synchronized String uniqueName(String name) {
+        String unique = name;
+        for (int k = 2; !usedNames.add(unique); k++) unique = name + "-" + k;
+        return unique;
+    }
+
+    // ========================= Memory guard =========================
+
+    // Heap still in use after the last collection of each pool: what the jobs really hold
+    private static long liveHeap() {
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage usage = pool.isCollectionUsageThresholdSupported() ? pool.getCollectionUsage() : pool.getUsage();
+            if (usage != null) live += usage.getUsed();
+        }
+        return live;
+    }
+
+    private long heapLimitBytes() {
+        return (long) (Runtime.getRuntime().maxMemory() * heapLimit);
+    }
+
+    /**
+     * Rough heap a job needs, measured on synthetic benchmark models (defineVariables + constraints):
+     * GLOBAL takes about 2 KB per unit and candidate value (teachers + classrooms + time periods),
+     * 275 MB at 1000 units; PAIRWISE about 4.6 KB per pair of units, 190 MB at 200 units and
+     * 2.9 GB at 800. Local search keeps int arrays and needs a small fraction.
+     */
+    static long estimateBytes(SchoolInstance school, ScheduleEngine.Kind kind, ClashEncoding encoding) {
+        long units = school.getUnitCount();
+        long values = units * (school.teachers.size() + school.classrooms.size() + school.timePeriods.size());
+        if (kind == ScheduleEngine.Kind.LOCAL_SEARCH) return (1L << 20) + values * 64;
+        return (8L << 20) + (encoding == ClashEncoding.PAIRWISE ? units * units * 4700 : values * 2048);
+    }
+
+    // Waits until the reservations of the running jobs leave room for this one (or nothing else runs)
+    private synchronized void admit(long bytes) throws InterruptedException {
+        while (admitted > 0 && reservedBytes + bytes > heapLimitBytes()) wait(200);
+        admitted++;
+        reservedBytes += bytes;
+    }
+
+    private synchronized void release(long bytes) {
+        admitted--;
+        reservedBytes -= bytes;
+        notifyAll();
+    }
+
+    // Over the limit after a collection: cancel the largest running job still searching
+    private void guardMemory() {
+        if (running.isEmpty() || liveHeap() <= heapLimitBytes()) return;
+        running.entrySet().stream()
+                .filter(e -> !e.getKey().isCancelled())
+                .max(java.util.Map.Entry.comparingByValue())
+                .ifPresent(e -> {
+                    cancelledForMemory.add(e.getKey());
+                    e.getKey().cancel();
+                });
+    }
+
+    // ========================= Output =========================
+
+    private void writeSchedules(String name, List<Schedule> schedules) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out.resolve(name + ".csv"), StandardCharsets.UTF_8))) {
+            w.println("rank,score,weekday,start,end,period,group,subject,teacher,classroom");
+            int rank = 0;
+            for (Schedule schedule : schedules) {
+                rank++;
+                for (Lesson l : schedule.getLessons()) {
+                    w.println(rank + "," + schedule.getScore() + "," + l.getTimePeriod().getWeekday() + ","
+                            + l.getTimePeriod().getInitialHour() + "," + l.getTimePeriod().getFinalHour() + ","
+                            + csv(l.getTimePeriod().getId()) + "," + csv(l.getStudentGroup().getId()) + ","
+                            + csv(l.getSubject().getId()) + "," + csv(l.getTeacher().getId()) + ","
+                            + csv(l.getClassroom().getId()));
+                }
+            }
+        }
+    }
+
+    private void writeSummary(List<Result> results) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out.resolve("summary.csv"), StandardCharsets.UTF_8))) {
+            w.println("name,source,engine,status,units,teachers,classrooms,groups,periods,load_ms,duration_ms,"
+                    + "build_ms,first_solution_ms,nodes,fails,schedules,best_score,message");
+            for (Result r : results) {
+                w.println(csv(r.name) + "," + csv(r.source) + "," + engine + "," + r.status + "," + r.units + ","
+                        + r.teachers + "," + r.classrooms + "," + r.groups + "," + r.periods + "," + r.loadMs + ","
+                        + r.durationMs + "," + (r.buildMs < 0 ? "" : r.buildMs) + ","
+                        + (r.firstSolutionMs < 0 ? "" : r.firstSolutionMs) + "," + r.nodes + "," + r.fails + ","
+                        + r.schedules + "," + (r.bestScore == null ? "" : r.bestScore) + "," + csv(r.message));
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private boolean exportAll() throws Exception {
+        for (Source source : sources) {
+            SchoolInstance school = source.load();
+            Path file = out.resolve(uniqueName(school.name) + SchoolFile.EXTENSION);
+            SchoolFile.write(school, file);
+            System.out.println("Exported " + source.label() + " (" + school.getUnitCount() + " units) -> " + file);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,294 @@
+package batch;
+
+import business.Classroom;
+import business.Condition;
+import business.StudentGroup;
+import business.Subject;
+import business.Teacher;
+import business.TimePeriod;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Plain-text school file (".school"), one entity per line, so a batch does not need the MySQL database:
+ *
+ * <pre>
+ * # comment
+ * period  Lunes-0 Lunes 08:00 09:00
+ * room    R0 capacity=30 [subjects=S1,S2] [name="Aula 0"]
+ * subject S0 hours=4 [maxDaily=2] [duration=1] [room=R0] [name="Matemáticas"]
+ * group   G0 students=25 subjects=S0,S1 [course=C0] [name="1A"]
+ * teacher T0 hours=20 subjects=S0,S1 [unavailable=Lunes-0,Martes-3] [name="Ana"]
+ * prefer  T0 period|subject|group Lunes-1 3
+ * avoid   T0 period|subject|group G0 2
+ * </pre>
+ *
+ * Ids cannot contain spaces; names with spaces go between double quotes. References may point to
+ * entities defined later in the file.
+ */
+public final class SchoolFile {
+
+    private SchoolFile() {}
+
+    public static final String EXTENSION = ".school";
+
+    /** Reads a school file; the instance is named after the file without its extension. */
+    public static SchoolInstance read(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        String name = fileName.endsWith(EXTENSION) ? fileName.substring(0, fileName.length() - EXTENSION.length()) : fileName;
+        SchoolInstance school = new SchoolInstance(name, path.toString());
+
+        // First pass: create every entity; second pass: resolve the references between them
+        List<String[]> links = new ArrayList<>();
+        Map<String, TimePeriod> periods = new HashMap<>();
+        Map<String, Classroom> rooms = new HashMap<>();
+        Map<String, Subject> subjects = new HashMap<>();
+        Map<String, StudentGroup> groups = new HashMap<>();
+        Map<String, Teacher> teachers = new HashMap<>();
+        Map<Object, Map<String, String>> options = new HashMap<>();
+
+        int lineNo = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNo++;
+            List<String> tokens = tokenize(line);
+            if (tokens.isEmpty()) continue;
+            String where = path + ":" + lineNo;
+            String kind = tokens.get(0);
+            try {
+                switch (kind) {
+                    case "period": {
+                        TimePeriod tp = new TimePeriod(tokens.get(1), tokens.get(2),
+                                LocalTime.parse(tokens.get(3)), LocalTime.parse(tokens.get(4)));
+                        periods.put(tp.getId(), tp);
+                        school.timePeriods.add(tp);
+                        break;
+                    }
+                    case "room": {
+                        Map<String, String> opts = options(tokens);
+                        Classroom room = new Classroom(tokens.get(1), opts.getOrDefault("name", tokens.get(1)), tokens.get(1));
+                        room.setCapacity(Integer.parseInt(require(opts, "capacity")));
+                        rooms.put(room.getId(), room);
+                        options.put(room, opts);
+                        school.classrooms.add(room);
+                        break;
+                    }
+                    case "subject": {
+                        Map<String, String> opts = options(tokens);
+                        Subject subject = new Subject(tokens.get(1), opts.getOrDefault("name", tokens.get(1)), tokens.get(1));
+                        subject.setWeeklyAssignedHours(Integer.parseInt(require(opts, "hours")));
+                        if (opts.containsKey("maxDaily")) subject.setMaxDailyHours(Integer.parseInt(opts.get("maxDaily")));
+                        if (opts.containsKey("duration")) subject.setDuration(Integer.parseInt(opts.get("duration")));
+                        subjects.put(subject.getId(), subject);
+                        options.put(subject, opts);
+                        school.subjects.add(subject);
+                        break;
+                    }
+                    case "group": {
+                        Map<String, String> opts = options(tokens);
+                        StudentGroup group = new StudentGroup(tokens.get(1), opts.getOrDefault("name", tokens.get(1)), tokens.get(1));
+                        group.setNumberOfStudents(Integer.parseInt(require(opts, "students")));
+                        if (opts.containsKey("course")) group.setCourse(opts.get("course"));
+                        group.setRequiredSubjects(new ArrayList<>());
+                        groups.put(group.getId(), group);
+                        options.put(group, opts);
+                        school.studentGroups.add(group);
+                        break;
+                    }
+                    case "teacher": {
+                        Map<String, String> opts = options(tokens);
+                        Teacher teacher = new Teacher(tokens.get(1), opts.getOrDefault("name", tokens.get(1)), tokens.get(1));
+                        teacher.setHoursWork(Integer.parseInt(require(opts, "hours")));
+                        teachers.put(teacher.getId(), teacher);
+                        options.put(teacher, opts);
+                        school.teachers.add(teacher);
+                        break;
+                    }
+                    case "prefer":
+                    case "avoid":
+                        if (tokens.size() < 5) throw new IllegalArgumentException("expected: " + kind + " <teacher> <type> <id> <weight>");
+                        links.add(new String[]{where, kind, tokens.get(1), tokens.get(2), tokens.get(3), tokens.get(4)});
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown line type '" + kind + "'");
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException(where + ": missing fields in '" + line.trim() + "'");
+            } catch (RuntimeException e) {
+                throw new IOException(where + ": " + e.getMessage(), e);
+            }
+        }
+
+        try {
+            for (Classroom room : school.classrooms) {
+                for (String id : list(options.get(room).get("subjects"))) room.addAssignedSubject(find(subjects, id, "subject"));
+            }
+            for (Subject subject : school.subjects) {
+                String room = options.get(subject).get("room");
+                if (room != null) subject.setAssignedClassroom(find(rooms, room, "room"));
+            }
+            for (StudentGroup group : school.studentGroups) {
+                for (String id : list(require(options.get(group), "subjects"))) group.addRequiredSubject(find(subjects, id, "subject"));
+            }
+            for (Teacher teacher : school.teachers) {
+                Map<String, String> opts = options.get(teacher);
+                for (String id : list(require(opts, "subjects"))) teacher.addPossibleSubject(find(subjects, id, "subject"));
+                for (String id : list(opts.get("unavailable"))) teacher.addUnavailableTimePeriod(find(periods, id, "period"));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+
+        for (String[] l : links) {
+            try {
+                Teacher teacher = find(teachers, l[2], "teacher");
+                int weight = Integer.parseInt(l[5]);
+                boolean prefer = l[1].equals("prefer");
+                switch (l[3]) {
+                    case "period": {
+                        TimePeriod tp = find(periods, l[4], "period");
+                        if (prefer) teacher.addPreferredTimePeriod(tp, weight); else teacher.addUnPreferredTimePeriod(tp, weight);
+                        break;
+                    }
+                    case "subject": {
+                        Subject s = find(subjects, l[4], "subject");
+                        if (prefer) teacher.addPreferredSubject(s, weight);
+                        else teacher.getUnPreferredConditions().add(new Condition(teacher, weight, s));
+                        break;
+                    }
+                    case "group": {
+                        StudentGroup g = find(groups, l[4], "group");
+                        if (prefer) teacher.addPreferredStudentGroup(g, weight); else teacher.addUnPreferredStudentGroup(g, weight);
+                        break;
+                    }
+                    default:
+                        throw new IllegalArgumentException("unknown condition type '" + l[3] + "'");
+                }
+            } catch (RuntimeException e) {
+                throw new IOException(l[0] + ": " + e.getMessage(), e);
+            }
+        }
+        return school;
+    }
+
+    /** Writes the instance in the format read by {@link #read}. */
+    public static void write(SchoolInstance school, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("# " + school.name + " (" + school.source + "), " + school.getUnitCount() + " units");
+            for (TimePeriod tp : school.timePeriods) {
+                out.println("period " + tp.getId() + " " + tp.getWeekday() + " " + tp.getInitialHour() + " " + tp.getFinalHour());
+            }
+            for (Classroom room : school.classrooms) {
+                out.println("room " + room.getId() + " capacity=" + room.getCapacity()
+                        + ids("subjects", room.getAssignedSubjects(), Subject::getId) + name(room.getName(), room.getId()));
+            }
+            for (Subject s : school.subjects) {
+                out.println("subject " + s.getId() + " hours=" + s.getWeeklyAssignedHours() + " maxDaily=" + s.getMaxDailyHours()
+                        + " duration=" + s.getDuration()
+                        + (s.getAssignedClassroom() == null ? "" : " room=" + s.getAssignedClassroom().getId())
+                        + name(s.getName(), s.getId()));
+            }
+            for (StudentGroup g : school.studentGroups) {
+                out.println("group " + g.getId() + " students=" + g.getNumberOfStudents()
+                        + " subjects=" + String.join(",", g.getRequiredSubjects().stream().map(Subject::getId).toList())
+                        + (g.getCourse() == null ? "" : " course=" + quote(g.getCourse())) + name(g.getName(), g.getId()));
+            }
+            for (Teacher t : school.teachers) {
+                out.println("teacher " + t.getId() + " hours=" + t.getHoursWork()
+                        + " subjects=" + String.join(",", t.getPossibleSubjects().stream().map(Subject::getId).toList())
+                        + ids("unavailable", t.getUnavailableTimePeriods(), TimePeriod::getId) + name(t.getName(), t.getId()));
+            }
+            for (Teacher t : school.teachers) {
+                for (Condition c : t.getPreferredConditions()) writeCondition(out, "prefer", t, c);
+                for (Condition c : t.getUnPreferredConditions()) writeCondition(out, "avoid", t, c);
+            }
+        }
+    }
+
+    private static void writeCondition(PrintWriter out, String kind, Teacher t, Condition c) {
+        String target;
+        if ("TimePeriod".equals(c.getConditionType()) && c.getTimePeriod() != null) target = "period " + c.getTimePeriod().getId();
+        else if ("Subject".equals(c.getConditionType()) && c.getSubject() != null) target = "subject " + c.getSubject().getId();
+        else if ("StudentGroup".equals(c.getConditionType()) && c.getStudentGroup() != null) target = "group " + c.getStudentGroup().getId();
+        else return; // "None" never matches anything
+        out.println(kind + " " + t.getId() + " " + target + " " + c.getWeight());
+    }
+
+    private static <T> String ids(String key, List<T> entities, Function<T, String> id) {
+        if (entities == null || entities.isEmpty()) return "";
+        return " " + key + "=" + String.join(",", entities.stream().map(id).toList());
+    }
+
+    private static String name(String name, String id) {
+        return name == null || name.equals(id) ? "" : " name=" + quote(name);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "'") + "\"";
+    }
+
+    // --- Parsing helpers ---
+
+    // Splits on whitespace, keeping "double quoted" parts together (quotes removed); '#' starts a comment
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false, any = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') {
+                quoted = !quoted;
+                any = true;
+            } else if (!quoted && ch == '#') {
+                break;
+            } else if (!quoted && Character.isWhitespace(ch)) {
+                if (any) tokens.add(current.toString());
+                current.setLength(0);
+                any = false;
+            } else {
+                current.append(ch);
+                any = true;
+            }
+        }
+        if (any) tokens.add(current.toString());
+        return tokens;
+    }
+
+    private static Map<String, String> options(List<String> tokens) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 2; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            int eq = token.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("expected key=value, got '" + token + "'");
+            opts.put(token.substring(0, eq), token.substring(eq + 1));
+        }
+        return opts;
+    }
+
+    private static String require(Map<String, String> opts, String key) {
+        String value = opts.get(key);
+        if (value == null) throw new IllegalArgumentException("missing " + key + "=");
+        return value;
+    }
+
+    private static List<String> list(String value) {
+        if (value == null || value.isEmpty()) return List.of();
+        return List.of(value.split(","));
+    }
+
+    private static <T> T find(Map<String, T> byId, String id, String what) {
+        T entity = byId.get(id);
+        if (entity == null) throw new IllegalArgumentException("unknown " + what + " '" + id + "'");
+        return entity;
+    }
+}
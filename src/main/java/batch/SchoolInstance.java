@@ -0,0 +1,45 @@
+package batch;
+
+import business.Classroom;
+import business.ScheduleEngine;
+import business.StudentGroup;
+import business.Subject;
+import business.Teacher;
+import business.TimePeriod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One school configuration to solve in a batch: its entities plus a name (used for the result files)
+ * and where it came from (file path, "db" or "generated:...").
+ */
+public class SchoolInstance {
+
+    public final String name;
+    public final String source;
+    public final List<Teacher> teachers = new ArrayList<>();
+    public final List<Classroom> classrooms = new ArrayList<>();
+    public final List<StudentGroup> studentGroups = new ArrayList<>();
+    public final List<Subject> subjects = new ArrayList<>();
+    public final List<TimePeriod> timePeriods = new ArrayList<>();
+
+    public SchoolInstance(String name, String source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    /** Number of ScheduledUnits the solver will create (one per group, required subject and weekly hour). */
+    public int getUnitCount() {
+        int units = 0;
+        for (StudentGroup g : studentGroups) {
+            if (g.getRequiredSubjects() == null) continue;
+            for (Subject s : g.getRequiredSubjects()) units += s.getWeeklyAssignedHours();
+        }
+        return units;
+    }
+
+    public ScheduleEngine newEngine(ScheduleEngine.Kind kind) {
+        return ScheduleEngine.create(kind, teachers, classrooms, studentGroups, timePeriods);
+    }
+}
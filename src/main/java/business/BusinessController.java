@@ -6,6 +6,11 @@ import persistence.PersistenceController;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class BusinessController {
 
@@ -18,6 +23,15 @@ public class BusinessController {
     private List<Classroom> classrooms;
     private List<TimePeriod> timePeriods;
     private List<Schedule> schedules;
+    private ScheduleEngine.Kind engineKind = ScheduleEngine.Kind.CP;
+    private final ScheduleModelCache modelCache = new ScheduleModelCache();
+
+    // Background schedule jobs run here, one at a time, never on the caller's (UI) thread
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "schedule-job");
+        thread.setDaemon(true);
+        return thread;
+    });
 
 
     public BusinessController() throws Exception {
@@ -54,6 +68,18 @@ public class BusinessController {
     public List<Subject> getSubjects()           { return subjects; }
     public List<TimePeriod> getTimePeriods()     { return timePeriods; }
 
+    /** Engine used by the next generateSchedules/streamSchedules: the Choco model (CP) or local search. */
+    public ScheduleEngine.Kind getEngineKind()   { return engineKind; }
+    public void setEngineKind(ScheduleEngine.Kind engineKind) { this.engineKind = engineKind; }
+
+    /** Compiled CP model kept between runs while only teacher preferences change; can be disabled. */
+    public ScheduleModelCache getModelCache()    { return modelCache; }
+
+    /** Metrics of every solver run in this process (phase timings, model size, search statistics). */
+    public SolverMetrics getSolverMetrics()      { return SolverMetrics.global(); }
+    /** Structured metrics of the most recent solver run, or null if none ran yet. */
+    public SolverRunStats getLastRunStats()      { return SolverMetrics.global().getLastRun(); }
+
     public List<String> getTeachersNames() {
         return teachers.stream().map(Teacher::getName).toList();
     }
@@ -412,7 +438,12 @@ public class BusinessController {
     /** Delete a schedule ID from all owners (teachers, groups, rooms) and persist owners. */
     public void deleteSchedule(String id) {
         if (id == null) return;
+        removeSchedule(id);
+        persistOwners();
+    }
 
+    // Removes the schedule from the owners' lists, without persisting
+    private void removeSchedule(String id) {
         if (teachers != null) {
             for (Teacher t : teachers) {
                 if (t.getSchedules() != null) {
@@ -434,8 +465,9 @@ public class BusinessController {
                 }
             }
         }
+    }
 
-        // Persist owners
+    private void persistOwners() {
         try {
             if (teachers != null) for (Teacher t : teachers) persistenceController.update(t);
             if (studentGroups != null) for (StudentGroup g : studentGroups) persistenceController.update(g);
@@ -454,12 +486,12 @@ public class BusinessController {
     }
 
     /**
-     * Generates schedules using ScheduleSolver.
+     * Generates schedules with the selected engine (see setEngineKind).
      * If test==true, it prints/calculates only.
      * If test==false, it attaches schedules to owners and persists them.
      */
     public void generateSchedules(boolean test) throws ContradictionException {
-        ScheduleSolver solver = new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+        ScheduleEngine solver = newEngine();
         List<Schedule> generated = solver.createSchedule();
         if (generated == null) generated = List.of();
         schedules = generated; // cache last generated
@@ -474,92 +506,190 @@ public class BusinessController {
             return;
         }
 
+        storeGenerated(generated);
+    }
+
+    /**
+     * Streaming variant of generateSchedules(false): the returned publisher emits every solution
+     * the solver accepts (score, elapsed time and search statistics) while the search runs, so the
+     * first valid timetable can be shown right away. The search starts on the first subscription;
+     * when it ends the final schedules are attached and persisted exactly as generateSchedules does,
+     * and then subscribers get onComplete. Call cancel() on the stream to stop early and keep the
+     * schedules found so far.
+     */
+    public ScheduleStream streamSchedules() {
+        // The engine (and the cached model it may lease) is taken when the first subscriber starts the run
+        return new ScheduleStream(this::newEngine, generated -> {
+            schedules = generated; // cache last generated
+            storeGenerated(generated);
+        });
+    }
+
+    /**
+     * Background variant of regenerateSchedules for the UI: runs the engine and the persistence on a
+     * dedicated executor and reports the phase, the solutions found and the best score so far to
+     * {@code progressListener} (called on the job thread). job.cancel() stops the search cleanly and
+     * the best schedules found so far replace the old ones; if nothing was found by then, the old
+     * schedules are kept.
+     *
+     * The owners' schedule lists and the cached schedules are replaced on {@code uiExecutor} (the
+     * thread the views read them from, e.g. SwingUtilities::invokeLater), never on the job thread;
+     * only the persistence runs on the job thread afterwards. The job waits for that thread, so it must
+     * not block waiting for the job.
+     */
+    public ScheduleJob startRegeneration(Consumer<ScheduleJob.Progress> progressListener, Executor uiExecutor) {
+        ScheduleEngine engine = newEngine();
+        ScheduleJob job = new ScheduleJob(engine, generated -> {
+            if (generated.isEmpty() && engine.isCancelled()) return;
+            CompletableFuture.runAsync(() -> {
+                for (String sid : new ArrayList<>(getScheduleIds())) removeSchedule(sid);
+                schedules = generated; // cache last generated
+                for (Schedule global : generated) attachSchedule(global);
+            }, uiExecutor).join();
+            persistOwners();
+        }, progressListener);
+        return job.start(jobExecutor);
+    }
+
+    /**
+     * Structural feasibility check of the current business data (see FeasibilityDiagnostics), without
+     * building the solver model. Runs in milliseconds; when it is not feasible, getReasons() names the
+     * subjects, teachers, groups or rooms that make any timetable impossible.
+     */
+    public FeasibilityDiagnostics diagnoseFeasibility() {
+        return FeasibilityDiagnostics.check(teachers, classrooms, studentGroups, timePeriods);
+    }
+
+    private ScheduleEngine newEngine() {
+        // Preference-only edits between runs reuse the compiled CP model (see ScheduleModelCache)
+        if (engineKind == ScheduleEngine.Kind.CP) return modelCache.acquire(teachers, classrooms, studentGroups, timePeriods);
+        return ScheduleEngine.create(engineKind, teachers, classrooms, studentGroups, timePeriods);
+    }
+
+    /** Attaches the per-entity projections of the generated schedules and persists the owners. */
+    private void storeGenerated(List<Schedule> generated) {
         // For each global schedule, build per-entity projections and attach them.
-        for (Schedule global : generated) {
-            if (global == null || global.getLessons() == null) continue;
+        for (Schedule global : generated) attachSchedule(global);
 
-            // Ensure the global schedule has an id/name (solver might set them; if not, set here)
-            if (global.getId() == null)   global.setId(java.util.UUID.randomUUID().toString());
-            if (global.getName() == null) global.setName("Solución " + global.getId().substring(0, 8));
+        // Persist owners after attaching
+        persistOwners();
+    }
 
-            // Prepare empty schedules per entity (they will share the same id & name)
-            Map<Teacher, Schedule> tMap = new HashMap<>();
-            for (Teacher t : teachers) {
-                Schedule s = new Schedule();
-                s.setId(global.getId());
-                s.setName(global.getName());
-                tMap.put(t, s);
+
+    /** Builds the per-teacher, per-classroom and per-group projections of a global schedule and attaches them. */
+    private void attachSchedule(Schedule global) {
+        if (global == null || global.getLessons() == null) return;
+
+        // Ensure the global schedule has an id/name (solver might set them; if not, set here)
+        if (global.getId() == null)   global.setId(java.util.UUID.randomUUID().toString());
+        if (global.getName() == null) global.setName("Solución " + global.getId().substring(0, 8));
+
+        // Prepare empty schedules per entity (they will share the same id & name)
+        Map<Teacher, Schedule> tMap = new HashMap<>();
+        for (Teacher t : teachers) {
+            Schedule s = new Schedule();
+            s.setId(global.getId());
+            s.setName(global.getName());
+            tMap.put(t, s);
+        }
+        Map<Classroom, Schedule> cMap = new HashMap<>();
+        for (Classroom c : classrooms) {
+            Schedule s = new Schedule();
+            s.setId(global.getId());
+            s.setName(global.getName());
+            cMap.put(c, s);
+        }
+        Map<StudentGroup, Schedule> gMap = new HashMap<>();
+        for (StudentGroup g : studentGroups) {
+            Schedule s = new Schedule();
+            s.setId(global.getId());
+            s.setName(global.getName());
+            gMap.put(g, s);
+        }
+
+        // Distribute lessons into the right per-entity schedules
+        for (Lesson l : global.getLessons()) {
+            if (l.getTeacher() != null) {
+                Schedule ts = tMap.get(l.getTeacher());
+                if (ts != null) ts.addLesson(l);
             }
-            Map<Classroom, Schedule> cMap = new HashMap<>();
-            for (Classroom c : classrooms) {
-                Schedule s = new Schedule();
-                s.setId(global.getId());
-                s.setName(global.getName());
-                cMap.put(c, s);
+            if (l.getClassroom() != null) {
+                Schedule cs = cMap.get(l.getClassroom());
+                if (cs != null) cs.addLesson(l);
             }
-            Map<StudentGroup, Schedule> gMap = new HashMap<>();
-            for (StudentGroup g : studentGroups) {
-                Schedule s = new Schedule();
-                s.setId(global.getId());
-                s.setName(global.getName());
-                gMap.put(g, s);
-            }
-
-            // Distribute lessons into the right per-entity schedules
-            for (Lesson l : global.getLessons()) {
-                if (l.getTeacher() != null) {
-                    Schedule ts = tMap.get(l.getTeacher());
-                    if (ts != null) ts.addLesson(l);
-                }
-                if (l.getClassroom() != null) {
-                    Schedule cs = cMap.get(l.getClassroom());
-                    if (cs != null) cs.addLesson(l);
-                }
-                if (l.getStudentGroup() != null) {
-                    Schedule gs = gMap.get(l.getStudentGroup());
-                    if (gs != null) gs.addLesson(l);
-                }
+            if (l.getStudentGroup() != null) {
+                Schedule gs = gMap.get(l.getStudentGroup());
+                if (gs != null) gs.addLesson(l);
             }
+        }
 
-            // Attach per-entity schedules to owners (skip empty ones)
-            for (var e : tMap.entrySet()) {
-                Teacher t = e.getKey();
-                Schedule s = e.getValue();
-                if (s.getLessons() != null && !s.getLessons().isEmpty()) {
-                    if (t.getSchedules() == null) t.setSchedules(new ArrayList<>());
-                    boolean exists = t.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
-                    if (!exists) t.getSchedules().add(s);
-                }
+        // Attach per-entity schedules to owners (skip empty ones)
+        for (var e : tMap.entrySet()) {
+            Teacher t = e.getKey();
+            Schedule s = e.getValue();
+            if (s.getLessons() != null && !s.getLessons().isEmpty()) {
+                if (t.getSchedules() == null) t.setSchedules(new ArrayList<>());
+                boolean exists = t.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
+                if (!exists) t.getSchedules().add(s);
             }
-            for (var e : cMap.entrySet()) {
-                Classroom c = e.getKey();
-                Schedule s = e.getValue();
-                if (s.getLessons() != null && !s.getLessons().isEmpty()) {
-                    if (c.getSchedules() == null) c.setSchedules(new ArrayList<>());
-                    boolean exists = c.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
-                    if (!exists) c.getSchedules().add(s);
-                }
+        }
+        for (var e : cMap.entrySet()) {
+            Classroom c = e.getKey();
+            Schedule s = e.getValue();
+            if (s.getLessons() != null && !s.getLessons().isEmpty()) {
+                if (c.getSchedules() == null) c.setSchedules(new ArrayList<>());
+                boolean exists = c.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
+                if (!exists) c.getSchedules().add(s);
             }
-            for (var e : gMap.entrySet()) {
-                StudentGroup g = e.getKey();
-                Schedule s = e.getValue();
-                if (s.getLessons() != null && !s.getLessons().isEmpty()) {
-                    if (g.getSchedules() == null) g.setSchedules(new ArrayList<>());
-                    boolean exists = g.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
-                    if (!exists) g.getSchedules().add(s);
-                }
+        }
+        for (var e : gMap.entrySet()) {
+            StudentGroup g = e.getKey();
+            Schedule s = e.getValue();
+            if (s.getLessons() != null && !s.getLessons().isEmpty()) {
+                if (g.getSchedules() == null) g.setSchedules(new ArrayList<>());
+                boolean exists = g.getSchedules().stream().anyMatch(sc -> global.getId().equals(sc.getId()));
+                if (!exists) g.getSchedules().add(s);
             }
         }
+    }
 
-        // Persist owners after attaching
-        try {
-            if (teachers != null)      for (Teacher t : teachers)      persistenceController.update(t);
-            if (studentGroups != null) for (StudentGroup g : studentGroups) persistenceController.update(g);
-            if (classrooms != null)    for (Classroom c : classrooms)    persistenceController.update(c);
-        } catch (Exception ignore) {}
-
+    /**
+     * Repairs every existing schedule after a small data change (e.g. a teacher's new unavailable
+     * TimePeriod) instead of regenerating all of them: lessons that do not touch the changed entities
+     * keep their teacher, classroom and time (see ScheduleSolver.repairSchedule).
+     * Schedules that cannot be repaired are left as they are.
+     */
+    public void repairSchedules(Collection<?> changedEntities) {
+        List<String> ids = new ArrayList<>(getScheduleIds());
+        if (ids.isEmpty()) return;
+        ScheduleSolver solver = new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+        List<Schedule> repairedAll = new ArrayList<>();
+        for (String sid : ids) {
+            Schedule previous = collectGlobalSchedule(sid);
+            Schedule repaired = solver.repairSchedule(previous, changedEntities);
+            if (repaired == null) continue;
+            removeSchedule(sid);
+            attachSchedule(repaired);
+            repairedAll.add(repaired);
+        }
+        schedules = repairedAll;
+        persistOwners();
     }
 
+    /** Rebuilds a global schedule from the per-group projections (every lesson belongs to exactly one group). */
+    private Schedule collectGlobalSchedule(String id) {
+        Schedule global = new Schedule();
+        global.setId(id);
+        for (StudentGroup g : studentGroups) {
+            if (g.getSchedules() == null) continue;
+            for (Schedule s : g.getSchedules()) {
+                if (!id.equals(s.getId())) continue;
+                global.setName(s.getName());
+                for (Lesson l : s.getLessons()) global.addLesson(l);
+            }
+        }
+        return global;
+    }
 
     // ========================= Teacher preferences / possible subjects =========================
     // (Delegated to Teacher to avoid immutable list issues)
@@ -893,6 +1023,38 @@ public class BusinessController {
     }
 
 
+    /**
+     * Seed a generated school of any size (see SchoolGenerator) instead of the fixed demo dataset.
+     * The instance is built in memory and streamed to the DB in batches of {@code batchSize} rows inside
+     * one transaction; if that fails nothing is written and the in-memory lists are left unchanged.
+     * Returns the generator, so callers can report its size.
+     */
+    public SchoolGenerator seedGeneratedData(SchoolGenerator.Params params, boolean clearExisting, int batchSize) throws Exception {
+        SchoolGenerator school = SchoolGenerator.generate(params);
+        if (clearExisting) {
+            deleteAllEntities();
+        }
+
+        long start = System.nanoTime();
+        int rows = persistenceController.addAllBatched(school.timePeriods, school.classrooms, school.subjects,
+                school.studentGroups, school.teachers, batchSize);
+
+        if (subjects == null) subjects = new ArrayList<>();
+        if (teachers == null) teachers = new ArrayList<>();
+        if (studentGroups == null) studentGroups = new ArrayList<>();
+        if (classrooms == null) classrooms = new ArrayList<>();
+        if (timePeriods == null) timePeriods = new ArrayList<>();
+        timePeriods.addAll(school.timePeriods);
+        classrooms.addAll(school.classrooms);
+        subjects.addAll(school.subjects);
+        studentGroups.addAll(school.studentGroups);
+        teachers.addAll(school.teachers);
+
+        System.out.printf("Seeded %s (%d rows in %d ms)%n", school, rows, (System.nanoTime() - start) / 1_000_000);
+        return school;
+    }
+
+
     /** Danger: deletes ALL existing entities currently loaded, then clears in-memory lists. */
     private void deleteAllEntities() throws Exception {
         if (teachers != null)      for (Teacher t : new java.util.ArrayList<>(teachers))      persistenceController.delete(t);
@@ -931,37 +1093,32 @@ public class BusinessController {
     }
 
     // ---- public API: per-teacher summary for a given schedule id ----
+    /** One hit per (condition, lesson) pair that achieves a preferred or violates an unpreferred condition. */
     public Map<Teacher, ConditionSummary> summarizeConditionsByTeacher(String scheduleId) {
         Schedule schedule = findScheduleById(scheduleId);
         Map<Teacher, ConditionSummary> out = new LinkedHashMap<>();
         if (schedule == null || schedule.getLessons() == null) return out;
 
-        // Make sure all teachers present in memory have an entry
-        for (Teacher t : teachers) out.put(t, new ConditionSummary());
-
-        for (Lesson l : schedule.getLessons()) {
-            Teacher t = l.getTeacher();
-            if (t == null) continue;
-            ConditionSummary sum = out.computeIfAbsent(t, k -> new ConditionSummary());
-
-            // Preferred achieved?
+        ConditionScorer scorer = new ConditionScorer(teachers, schedule);
+        for (Teacher t : teachers) {
+            ConditionSummary sum = new ConditionSummary();
             if (t.getPreferredConditions() != null) {
                 for (Condition c : t.getPreferredConditions()) {
-                    if (matches(c, l)) {
+                    for (Lesson l : scorer.witnesses(c)) {
                         sum.preferredAchieved.add(new ConditionHit(c, l));
                         sum.preferredScore += c.getWeight();
                     }
                 }
             }
-            // Unpreferred violated?
             if (t.getUnPreferredConditions() != null) {
                 for (Condition c : t.getUnPreferredConditions()) {
-                    if (matches(c, l)) {
+                    for (Lesson l : scorer.witnesses(c)) {
                         sum.unpreferredViolated.add(new ConditionHit(c, l));
                         sum.unpreferredPenalty += c.getWeight();
                     }
                 }
             }
+            out.put(t, sum);
         }
         return out;
     }
@@ -1047,19 +1204,13 @@ public class BusinessController {
 
         if (schedule == null || teacher == null || schedule.getLessons() == null) return report;
 
-        // Collect this teacher's lessons in the schedule
-        List<Lesson> myLessons = new ArrayList<>();
-        for (Lesson l : schedule.getLessons()) {
-            if (l.getTeacher() != null && teacherId.equals(l.getTeacher().getId())) {
-                myLessons.add(l);
-            }
-        }
+        // Only this teacher's conditions are looked up, each in O(1)
+        ConditionScorer scorer = new ConditionScorer(List.of(teacher), schedule);
 
         // Preferred: achieved (matched) vs unmet (no witness)
         if (teacher.getPreferredConditions() != null) {
             for (Condition c : teacher.getPreferredConditions()) {
-                List<Lesson> witnesses = new ArrayList<>();
-                for (Lesson l : myLessons) if (matches(c, l)) witnesses.add(l);
+                List<Lesson> witnesses = new ArrayList<>(scorer.witnesses(c));
                 report.preferred.add(new ConditionCheck(c, !witnesses.isEmpty(), witnesses));
             }
         }
@@ -1067,8 +1218,7 @@ public class BusinessController {
         // Unpreferred: violated (matched) vs respected (no witness)
         if (teacher.getUnPreferredConditions() != null) {
             for (Condition c : teacher.getUnPreferredConditions()) {
-                List<Lesson> witnesses = new ArrayList<>();
-                for (Lesson l : myLessons) if (matches(c, l)) witnesses.add(l);
+                List<Lesson> witnesses = new ArrayList<>(scorer.witnesses(c));
                 report.unpreferred.add(new ConditionCheck(c, !witnesses.isEmpty(), witnesses));
             }
         }
@@ -1076,25 +1226,6 @@ public class BusinessController {
         return report;
     }
 
-    // ---- helpers re-used ----
-    private boolean matches(Condition c, Lesson l) {
-        if (c == null || l == null) return false;
-        String type = c.getConditionType();
-        if ("Subject".equals(type)) {
-            return c.getSubject() != null && l.getSubject() != null &&
-                    Objects.equals(c.getSubject().getId(), l.getSubject().getId());
-        }
-        if ("TimePeriod".equals(type)) {
-            return c.getTimePeriod() != null && l.getTimePeriod() != null &&
-                    Objects.equals(c.getTimePeriod().getId(), l.getTimePeriod().getId());
-        }
-        if ("StudentGroup".equals(type)) {
-            return c.getStudentGroup() != null && l.getStudentGroup() != null &&
-                    Objects.equals(c.getStudentGroup().getId(), l.getStudentGroup().getId());
-        }
-        return false; // "None" or unknown
-    }
-
     // existing helper from before (or keep this here)
     private Schedule findScheduleById(String id) {
         if (id == null) return null;
@@ -73,6 +73,7 @@ public class Classroom extends Entity{
         if (assignedSubjects == null || assignedSubjects.isEmpty()) {
             return true; // If no subjects are assigned, the classroom is available
         }
-        return !assignedSubjects.contains(subject);
+        // Otherwise only its assigned subjects may use it (same rule as ScheduleSolver)
+        return assignedSubjects.stream().anyMatch(s -> s.getId().equals(subject.getId()));
     }
 }
@@ -0,0 +1,222 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Evaluación de las condiciones (preferidas y no preferidas) de los profesores sobre un horario.
+ *
+ * Indexa las lecciones en una sola pasada por (profesor, periodo), (profesor, asignatura) y
+ * (profesor, grupo), con los índices densos de una ProblemInstance, así que cada condición se resuelve
+ * con una consulta: el coste total es O(lecciones + condiciones) en lugar de recorrer todas las
+ * lecciones por cada condición.
+ *
+ * Una condición se cumple (preferida) o se viola (no preferida) si el profesor tiene alguna lección
+ * con su periodo, asignatura o grupo. La puntuación es la del solver (addSoftConstraints): pesos de las
+ * preferidas cumplidas menos los de las no preferidas violadas, solo con pesos positivos.
+ *
+ * {@link #moveLesson} cambia el profesor o el periodo de una lección y actualiza índices y puntuaciones
+ * tocando solo las claves de esa lección.
+ */
+public class ConditionScorer {
+
+    // Per (teacher, target): lessons that match it, and the conditions that look at it
+    private static final class Slot {
+        final List<Lesson> lessons = new ArrayList<>(2);
+        final List<Condition> preferred = new ArrayList<>(1);
+        final List<Condition> unpreferred = new ArrayList<>(1);
+    }
+
+    /** Totales de un profesor (pesos negativos cuentan como 0, igual que en el solver). */
+    public static final class TeacherScore {
+        int preferredCount, unpreferredCount, unpreferredTotalWeight;
+        int preferredMet, unpreferredViolated, preferredWeight, unpreferredWeight;
+
+        /** Pesos de preferidas cumplidas menos pesos de no preferidas violadas. */
+        public int getScore() { return preferredWeight - unpreferredWeight; }
+
+        /** Condiciones logradas: preferidas cumplidas más no preferidas evitadas. */
+        public int getAchieved() { return preferredMet + unpreferredCount - unpreferredViolated; }
+
+        /** Peso de las condiciones logradas. */
+        public int getAchievedWeight() { return preferredWeight + unpreferredTotalWeight - unpreferredWeight; }
+
+        public int getPreferredMet() { return preferredMet; }
+        public int getUnpreferredViolated() { return unpreferredViolated; }
+        public int getPreferredWeight() { return preferredWeight; }
+        public int getUnpreferredWeight() { return unpreferredWeight; }
+        public int getConditionCount() { return preferredCount + unpreferredCount; }
+    }
+
+    private final ProblemInstance instance;
+    private final int[] targets = new int[3];     // por tipo de término (ProblemInstance.PERIOD...): destinos
+    private final Slot[][] slots = new Slot[3][]; // [tipo][profesor * destinos + destino], null si ninguna condición lo mira
+    private final TeacherScore[] byTeacher;       // [profesor]; null para un id repetido (cuenta en el primero)
+    private final Map<Condition, Slot> slotOf = new IdentityHashMap<>();
+    private int score;
+
+    /** Puntúa las lecciones con los índices de la instancia; los profesores son los de la instancia. */
+    public ConditionScorer(ProblemInstance instance, List<Lesson> lessons) {
+        this.instance = instance;
+        int nT = instance.numTeachers();
+        targets[ProblemInstance.PERIOD] = instance.numTimePeriods();
+        targets[ProblemInstance.SUBJECT] = instance.numSubjects();
+        targets[ProblemInstance.GROUP] = instance.numGroups();
+        for (int kind = 0; kind < slots.length; kind++) slots[kind] = new Slot[nT * targets[kind]];
+        byTeacher = new TeacherScore[nT];
+        for (Teacher teacher : instance.getTeachers()) {
+            int t = instance.indexOf(teacher);
+            if (byTeacher[t] == null) byTeacher[t] = new TeacherScore();
+            index(t, teacher.getPreferredConditions(), true, byTeacher[t]);
+            index(t, teacher.getUnPreferredConditions(), false, byTeacher[t]);
+        }
+        if (lessons != null) for (Lesson l : lessons) add(l);
+    }
+
+    public ConditionScorer(List<Teacher> teachers, List<Lesson> lessons) {
+        this(ProblemInstance.forLessons(teachers, lessons), lessons);
+    }
+
+    public ConditionScorer(List<Teacher> teachers, Schedule schedule) {
+        this(teachers, schedule == null ? null : schedule.getLessons());
+    }
+
+    private void index(int t, List<Condition> conditions, boolean preferred, TeacherScore ts) {
+        if (conditions == null) return;
+        for (Condition c : conditions) {
+            if (preferred) {
+                ts.preferredCount++;
+            } else {
+                ts.unpreferredCount++;
+                ts.unpreferredTotalWeight += Math.max(0, c.getWeight());
+            }
+            Slot slot = conditionSlot(t, c);
+            if (slot == null) continue; // "None", incomplete or outside the instance: never matched
+            slotOf.put(c, slot);
+            (preferred ? slot.preferred : slot.unpreferred).add(c);
+        }
+    }
+
+    private Slot conditionSlot(int t, Condition c) {
+        String type = c.getConditionType();
+        // indexOf is -1 for a missing target, which gives no slot
+        if ("TimePeriod".equals(type)) return slot(ProblemInstance.PERIOD, t, instance.indexOf(c.getTimePeriod()), true);
+        if ("Subject".equals(type)) return slot(ProblemInstance.SUBJECT, t, instance.indexOf(c.getSubject()), true);
+        if ("StudentGroup".equals(type)) return slot(ProblemInstance.GROUP, t, instance.indexOf(c.getStudentGroup()), true);
+        return null;
+    }
+
+    private Slot slot(int kind, int t, int target, boolean create) {
+        if (target < 0) return null;
+        int i = t * targets[kind] + target;
+        if (slots[kind][i] == null && create) slots[kind][i] = new Slot();
+        return slots[kind][i];
+    }
+
+    // --- Índices ---
+
+    private void add(Lesson l) {
+        int t = instance.indexOf(l.getTeacher());
+        if (t < 0) return;
+        attach(slot(ProblemInstance.PERIOD, t, instance.indexOf(l.getTimePeriod()), false), l, t);
+        attach(slot(ProblemInstance.SUBJECT, t, instance.indexOf(l.getSubject()), false), l, t);
+        attach(slot(ProblemInstance.GROUP, t, instance.indexOf(l.getStudentGroup()), false), l, t);
+    }
+
+    private void remove(Lesson l) {
+        int t = instance.indexOf(l.getTeacher());
+        if (t < 0) return;
+        detach(slot(ProblemInstance.PERIOD, t, instance.indexOf(l.getTimePeriod()), false), l, t);
+        detach(slot(ProblemInstance.SUBJECT, t, instance.indexOf(l.getSubject()), false), l, t);
+        detach(slot(ProblemInstance.GROUP, t, instance.indexOf(l.getStudentGroup()), false), l, t);
+    }
+
+    private void attach(Slot slot, Lesson l, int teacher) {
+        if (slot == null) return; // no condition looks at this target
+        slot.lessons.add(l);
+        if (slot.lessons.size() == 1) toggle(slot, teacher, 1);
+    }
+
+    private void detach(Slot slot, Lesson l, int teacher) {
+        if (slot == null || !slot.lessons.remove(l)) return;
+        if (slot.lessons.isEmpty()) toggle(slot, teacher, -1);
+    }
+
+    // The target just became matched (sign 1) or unmatched (sign -1)
+    private void toggle(Slot slot, int teacher, int sign) {
+        TeacherScore ts = byTeacher[teacher];
+        for (Condition c : slot.preferred) {
+            int w = Math.max(0, c.getWeight());
+            ts.preferredMet += sign;
+            ts.preferredWeight += sign * w;
+            score += sign * w;
+        }
+        for (Condition c : slot.unpreferred) {
+            int w = Math.max(0, c.getWeight());
+            ts.unpreferredViolated += sign;
+            ts.unpreferredWeight += sign * w;
+            score -= sign * w;
+        }
+    }
+
+    // --- Consultas ---
+
+    /** Puntuación total del horario (igual que la del solver para el mismo horario). */
+    public int getScore() {
+        return score;
+    }
+
+    /** Totales del profesor; null si no estaba en la lista de profesores. */
+    public TeacherScore getTeacherScore(Teacher teacher) {
+        int t = instance.indexOf(teacher);
+        return t < 0 ? null : byTeacher[t];
+    }
+
+    /** true si la condición tiene alguna lección: cumplida si es preferida, violada si no lo es. */
+    public boolean isMatched(Condition c) {
+        return !witnesses(c).isEmpty();
+    }
+
+    /** Lecciones que cumplen (o violan) la condición. */
+    public List<Lesson> witnesses(Condition c) {
+        Slot slot = slotOf.get(c);
+        return slot == null ? List.of() : Collections.unmodifiableList(slot.lessons);
+    }
+
+    /** Número de condiciones logradas (preferidas cumplidas y no preferidas evitadas) de todos los profesores. */
+    public int getAchievedConditions() {
+        int n = 0;
+        for (TeacherScore ts : byTeacher) if (ts != null) n += ts.getAchieved();
+        return n;
+    }
+
+    /** Peso de las condiciones logradas de todos los profesores. */
+    public int getWeightedConditions() {
+        int n = 0;
+        for (TeacherScore ts : byTeacher) if (ts != null) n += ts.getAchievedWeight();
+        return n;
+    }
+
+    // --- Movimientos ---
+
+    /**
+     * Cambia el profesor y/o el periodo de una lección del horario (null deja el valor actual) y actualiza
+     * índices y puntuaciones. Devuelve el cambio de la puntuación total.
+     */
+    public int moveLesson(Lesson lesson, Teacher teacher, TimePeriod timePeriod) {
+        int before = score;
+        remove(lesson);
+        if (teacher != null) lesson.setTeacher(teacher);
+        if (timePeriod != null) lesson.setTimePeriod(timePeriod);
+        add(lesson);
+        return score - before;
+    }
+
+    /** Cambio de puntuación que tendría moveLesson, dejando la lección como estaba. */
+    public int deltaIfMoved(Lesson lesson, Teacher teacher, TimePeriod timePeriod) {
+        Teacher oldTeacher = lesson.getTeacher();
+        TimePeriod oldPeriod = lesson.getTimePeriod();
+        int delta = moveLesson(lesson, teacher, timePeriod);
+        moveLesson(lesson, oldTeacher, oldPeriod);
+        return delta;
+    }
+}
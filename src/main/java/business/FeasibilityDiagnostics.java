@@ -0,0 +1,300 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Diagnóstico estructural de infactibilidad, antes de crear el modelo: comprobaciones necesarias (no
+ * suficientes) que se resuelven en milisegundos y devuelven motivos concretos en lugar de dejar que la
+ * búsqueda agote su tiempo sin encontrar nada.
+ *
+ * Comprobaciones:
+ * - dominios vacíos (UnitDomains): unidades sin profesor, aula o periodo posibles;
+ * - horas de cada grupo frente a los periodos en los que puede tener clase;
+ * - por oferta (grupo, asignatura): horas semanales frente a días x horas por día (maxDailyHours, y
+ *   como mucho dos seguidas, ver la sección 5 de ScheduleSolver.addConstraints);
+ * - por profesor: horas que solo él puede dar frente a sus horas de trabajo y sus periodos disponibles;
+ * - por asignatura: horas pedidas frente a la capacidad de los profesores que pueden darla (condición de
+ *   Hall de cada asignatura), y la condición de Hall completa con el flujo de TeacherAssignment;
+ * - aulas: para cada conjunto de aulas posibles de una oferta y para cada umbral de capacidad, las
+ *   unidades que solo pueden usar esas aulas frente a aulas x periodos.
+ *
+ * Sin motivos no se garantiza que exista horario; con alguno, seguro que no existe.
+ */
+public class FeasibilityDiagnostics {
+
+    /** Tipo de motivo. */
+    public enum Kind { EMPTY_DOMAIN, GROUP_HOURS, DAILY_LIMIT, TEACHER_LOAD, SUBJECT_TEACHERS, TEACHER_FLOW, ROOMS }
+
+    /** Motivo de infactibilidad: tipo, explicación y entidades implicadas. */
+    public static final class Reason {
+        private final Kind kind;
+        private final String message;
+        private final List<Object> entities;
+
+        Reason(Kind kind, String message, List<?> entities) {
+            this.kind = kind;
+            this.message = message;
+            this.entities = List.copyOf(entities);
+        }
+
+        public Kind getKind() { return kind; }
+        public String getMessage() { return message; }
+        public List<Object> getEntities() { return entities; }
+
+        @Override
+        public String toString() {
+            return kind + ": " + message;
+        }
+    }
+
+    private final List<Reason> reasons = new ArrayList<>();
+    private long elapsedMs;
+
+    private FeasibilityDiagnostics() {
+    }
+
+    public static FeasibilityDiagnostics check(List<Teacher> teachers, List<Classroom> classrooms,
+                                               List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        return check(ProblemInstance.compile(teachers, classrooms, studentGroups, timePeriods));
+    }
+
+    static FeasibilityDiagnostics checkUnits(List<ScheduledUnit> units, List<Teacher> teachers,
+                                             List<Classroom> classrooms, List<TimePeriod> timePeriods) {
+        return check(ProblemInstance.compileUnits(units, teachers, classrooms, timePeriods));
+    }
+
+    public static FeasibilityDiagnostics check(ProblemInstance instance) {
+        long start = System.nanoTime();
+        FeasibilityDiagnostics d = new FeasibilityDiagnostics();
+        if (instance.numUnits() > 0) {
+            UnitDomains domains = UnitDomains.compute(instance);
+            d.checkDomains(instance, domains);
+            d.checkGroupHours(instance, domains);
+            d.checkDailyLimits(instance, domains);
+            d.checkTeacherLoad(instance, domains);
+            d.checkSubjectTeachers(instance, domains);
+            if (d.reasons.isEmpty()) {
+                // Hall condition over all subjects at once (min cut); skipped when a cheaper check already failed
+                TeacherAssignment flow = TeacherAssignment.solve(instance, domains);
+                if (!flow.isFeasible()) d.add(Kind.TEACHER_FLOW, flow.report(), List.of());
+            }
+            d.checkRooms(instance, domains);
+        }
+        d.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return d;
+    }
+
+    // First unit and number of units of an offering (group, subject)
+    private static int firstUnit(ProblemInstance instance, int o) {
+        return instance.offeringUnits[instance.offeringStart[o]];
+    }
+
+    private static int offeringSize(ProblemInstance instance, int o) {
+        return instance.offeringStart[o + 1] - instance.offeringStart[o];
+    }
+
+    private void add(Kind kind, String message, List<?> entities) {
+        reasons.add(new Reason(kind, message, entities));
+    }
+
+    // One reason per (group, subject) with an empty domain
+    private void checkDomains(ProblemInstance instance, UnitDomains domains) {
+        for (int o = 0; o < instance.numOfferings; o++) {
+            int u = firstUnit(instance, o);
+            ScheduledUnit unit = instance.getUnits().get(u);
+            List<String> missing = new ArrayList<>();
+            if (domains.teachers[u].length == 0) missing.add("teacher");
+            if (domains.classrooms[u].length == 0) missing.add("classroom");
+            if (domains.timePeriods[u].length == 0) missing.add("time period");
+            if (!missing.isEmpty()) {
+                add(Kind.EMPTY_DOMAIN, unit.getStudentGroup().getName() + "/" + unit.getSubject().getName()
+                                + " has no possible " + String.join(", ", missing),
+                        List.of(unit.getStudentGroup(), unit.getSubject()));
+            }
+        }
+    }
+
+    // A group cannot have two lessons in one period
+    private void checkGroupHours(ProblemInstance instance, UnitDomains domains) {
+        BitSet[] periods = new BitSet[instance.numGroups()];
+        int[] hours = new int[instance.numGroups()];
+        for (int u = 0; u < instance.numUnits(); u++) {
+            int g = instance.unitGroup[u];
+            if (periods[g] == null) periods[g] = new BitSet(instance.numTimePeriods());
+            for (int p : domains.timePeriods[u]) periods[g].set(p);
+            hours[g]++;
+        }
+        for (int g = 0; g < periods.length; g++) {
+            if (periods[g] == null) continue;
+            int slots = periods[g].cardinality();
+            if (hours[g] > slots) {
+                StudentGroup group = instance.getStudentGroups().get(g);
+                add(Kind.GROUP_HOURS, group.getName() + " needs " + hours[g] + " hours but can only have lessons in "
+                        + slots + " time periods", List.of(group));
+            }
+        }
+    }
+
+    // Per day an offering fits at most min(maxDailyHours, 2) units (two of them only in consecutive periods)
+    private void checkDailyLimits(ProblemInstance instance, UnitDomains domains) {
+        int nD = instance.numDays;
+        for (int o = 0; o < instance.numOfferings; o++) {
+            int u = firstUnit(instance, o);
+            int maxDailyHours = instance.maxDaily[instance.offeringSubject[o]];
+            int[] perDayPeriods = new int[nD];
+            boolean[] consecutive = new boolean[nD];
+            boolean[] allowed = new boolean[instance.numTimePeriods()];
+            for (int p : domains.timePeriods[u]) allowed[p] = true;
+            int days = 0;
+            for (int p : domains.timePeriods[u]) {
+                int day = instance.periodDay[p];
+                if (perDayPeriods[day]++ == 0) days++;
+                if (p + 1 < allowed.length && allowed[p + 1] && instance.periodDay[p + 1] == day) consecutive[day] = true;
+            }
+            int max = 0;
+            for (int day = 0; day < nD; day++) {
+                if (perDayPeriods[day] == 0) continue;
+                int perDay = consecutive[day] ? 2 : 1;
+                if (maxDailyHours > 0) perDay = Math.min(perDay, maxDailyHours);
+                max += Math.min(perDay, perDayPeriods[day]);
+            }
+            int size = offeringSize(instance, o);
+            if (size > max && days > 0) {
+                ScheduledUnit unit = instance.getUnits().get(u);
+                StudentGroup group = unit.getStudentGroup();
+                Subject subject = unit.getSubject();
+                add(Kind.DAILY_LIMIT, group.getName() + "/" + subject.getName() + " needs " + size
+                        + " hours but fits at most " + max + " over " + days + " days (maxDailyHours "
+                        + subject.getMaxDailyHours() + ", at most two consecutive per day)", List.of(group, subject));
+            }
+        }
+    }
+
+    // Hours only one teacher can give, against that teacher's hours of work and available periods
+    private void checkTeacherLoad(ProblemInstance instance, UnitDomains domains) {
+        int nT = instance.numTeachers();
+        int[] forcedHours = new int[nT], forcedUnits = new int[nT];
+        for (int o = 0; o < instance.numOfferings; o++) {
+            int u = firstUnit(instance, o);
+            if (domains.teachers[u].length != 1) continue;
+            int t = domains.teachers[u][0];
+            forcedHours[t] += offeringSize(instance, o) * instance.duration[instance.offeringSubject[o]];
+            forcedUnits[t] += offeringSize(instance, o);
+        }
+        for (int t = 0; t < nT; t++) {
+            if (forcedUnits[t] == 0) continue;
+            Teacher teacher = instance.getTeachers().get(t);
+            if (forcedHours[t] > instance.hoursWork[t]) {
+                add(Kind.TEACHER_LOAD, teacher.getName() + " is the only teacher for " + forcedHours[t]
+                        + " hours but works " + teacher.getHoursWork(), List.of(teacher));
+            }
+            if (forcedUnits[t] > instance.availableCount[t]) {
+                add(Kind.TEACHER_LOAD, teacher.getName() + " is the only teacher for " + forcedUnits[t]
+                        + " lessons but is available in " + instance.availableCount[t] + " time periods", List.of(teacher));
+            }
+        }
+    }
+
+    // Hall condition per subject: its hours and lessons against every teacher who can give it
+    // (hours of work as in section 4 of addConstraints; one lesson per available period)
+    private void checkSubjectTeachers(ProblemInstance instance, UnitDomains domains) {
+        int nS = instance.numSubjects();
+        int[] needHours = new int[nS], needLessons = new int[nS];
+        int[][] qualified = new int[nS][];
+        for (int u = 0; u < instance.numUnits(); u++) {
+            int s = instance.unitSubject[u];
+            needHours[s] += instance.duration[s];
+            needLessons[s]++;
+            if (qualified[s] == null) qualified[s] = domains.teachers[u];
+        }
+        for (int s = 0; s < nS; s++) {
+            int[] ts = qualified[s];
+            if (ts == null || ts.length == 0) continue; // no units, or already an empty domain
+            Subject subj = instance.getSubjects().get(s);
+            int hours = 0, lessons = 0;
+            List<Object> involved = new ArrayList<>(List.of(subj));
+            for (int t : ts) {
+                hours += instance.hoursWork[t];
+                lessons += instance.availableCount[t];
+                involved.add(instance.getTeachers().get(t));
+            }
+            String subject = subj.getName();
+            if (needHours[s] > hours) {
+                add(Kind.SUBJECT_TEACHERS, subject + " needs " + needHours[s] + " hours but its " + ts.length
+                        + " qualified teachers work " + hours + " hours in total", involved);
+            } else if (needLessons[s] > lessons) {
+                add(Kind.SUBJECT_TEACHERS, subject + " needs " + needLessons[s] + " lessons but its " + ts.length
+                        + " qualified teachers are available in " + lessons + " time periods in total", involved);
+            }
+        }
+    }
+
+    // Hall condition on rooms: units that can only use the rooms of a set R need |R| x periods slots
+    private void checkRooms(ProblemInstance instance, UnitDomains domains) {
+        List<Classroom> classrooms = instance.getClassrooms();
+        Set<Set<Integer>> roomSets = new LinkedHashSet<>();
+        for (int o = 0; o < instance.numOfferings; o++) {
+            Set<Integer> rooms = new TreeSet<>();
+            for (int r : domains.classrooms[firstUnit(instance, o)]) rooms.add(r);
+            if (!rooms.isEmpty()) roomSets.add(rooms);
+        }
+        // Capacity thresholds: the rooms with at least each capacity
+        SortedSet<Integer> capacities = new TreeSet<>();
+        for (Classroom c : classrooms) capacities.add(c.getCapacity());
+        for (int cap : capacities) {
+            Set<Integer> rooms = new TreeSet<>();
+            for (int r = 0; r < classrooms.size(); r++) if (classrooms.get(r).getCapacity() >= cap) rooms.add(r);
+            roomSets.add(rooms);
+        }
+
+        for (Set<Integer> rooms : roomSets) {
+            int need = 0;
+            boolean[] periods = new boolean[instance.numTimePeriods()];
+            for (int o = 0; o < instance.numOfferings; o++) {
+                int u = firstUnit(instance, o);
+                if (domains.classrooms[u].length == 0 || !containsAll(rooms, domains.classrooms[u])) continue;
+                need += offeringSize(instance, o);
+                for (int p : domains.timePeriods[u]) periods[p] = true;
+            }
+            int slots = 0;
+            for (boolean ok : periods) if (ok) slots++;
+            if (need > rooms.size() * slots) {
+                List<Object> names = new ArrayList<>();
+                for (int r : rooms) names.add(classrooms.get(r));
+                add(Kind.ROOMS, need + " lessons can only use " + rooms.size() + " classrooms "
+                        + describe(names) + " in " + slots + " time periods (" + rooms.size() * slots + " slots)", names);
+            }
+        }
+    }
+
+    private static boolean containsAll(Set<Integer> set, int[] values) {
+        for (int v : values) if (!set.contains(v)) return false;
+        return true;
+    }
+
+    private static String describe(List<Object> rooms) {
+        List<String> names = new ArrayList<>();
+        for (Object r : rooms.subList(0, Math.min(5, rooms.size()))) names.add(((Classroom) r).getName());
+        return names + (rooms.size() > 5 ? "..." : "");
+    }
+
+    /** false si algún motivo demuestra que no hay horario. */
+    public boolean isFeasible() {
+        return reasons.isEmpty();
+    }
+
+    public List<Reason> getReasons() {
+        return reasons;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public String report() {
+        if (reasons.isEmpty()) return "Diagnostics (" + elapsedMs + "ms): no structural infeasibility found";
+        StringBuilder sb = new StringBuilder("Diagnostics (" + elapsedMs + "ms): no schedule exists");
+        for (Reason r : reasons) sb.append(System.lineSeparator()).append(" - ").append(r);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,659 @@
+package business;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Motor de búsqueda local (recocido simulado) para instancias grandes, alternativo al modelo de Choco
+ * de ScheduleSolver (ver ScheduleEngine). No crea variables ni restricciones: la asignación vive en arrays
+ * planos de enteros (profesor por oferta grupo-asignatura, aula y periodo por unidad) y unos contadores
+ * de ocupación que dan en O(1) por unidad tocada el cambio de las violaciones duras y de la puntuación.
+ *
+ * Restricciones duras (las mismas que addConstraints): profesor, aula y grupo sin solapes; profesor
+ * disponible en el periodo; horas de trabajo del profesor; por oferta y día, como mucho maxDailyHours
+ * unidades y, si hay dos, en periodos consecutivos; el mismo profesor para toda la oferta. Los dominios
+ * (profesores, aulas y periodos posibles) salen de UnitDomains y los movimientos no salen de ellos.
+ *
+ * Puntuación blanda: la de addSoftConstraints (condiciones preferidas y no preferidas de periodo,
+ * asignatura y grupo de cada profesor), y solo se registran soluciones sin violaciones duras.
+ *
+ * Movimientos: cambiar el periodo o el aula de una unidad, intercambiar los periodos de dos unidades del
+ * mismo grupo y cambiar el profesor de una oferta. Cada movimiento se aplica sobre los contadores y se
+ * deshace si se rechaza; el bucle principal no reserva memoria.
+ */
+public class LocalSearchSolver implements ScheduleEngine {
+
+    static final int HARD_WEIGHT = 100;         // coste de cada violación dura frente a un punto de puntuación
+    static final double START_TEMPERATURE = 20;
+    static final double END_TEMPERATURE = 0.3;
+    static final long CYCLE_ITERATIONS = 2_000_000; // enfriamiento de START a END; después se recalienta
+    static final int CHECK_INTERVAL = 1 << 12;  // iteraciones entre comprobaciones de tiempo y registro
+
+    private final List<Teacher> teachers;
+    private final List<Classroom> classrooms;
+    private final List<TimePeriod> timePeriods;
+    private final List<ScheduledUnit> units;
+    private final ProblemInstance instance;
+
+    private long timeLimitMs = ScheduleSolver.TIME_BUDGET_MS;
+    private long stagnationMs = 3_000;
+    private long seed = System.nanoTime();
+
+    private volatile Consumer<ScheduleUpdate> updateListener;
+    private volatile boolean cancelled;
+    private volatile Consumer<Phase> phaseListener;
+    private boolean verbose = true;
+
+    // Tamaños
+    private int nU, nT, nR, nP, nD, nO, nG, nS;
+
+    // Datos fijos de la instancia
+    private int[] unitOffering, unitGroup, unitSubject, unitDuration, periodDay;
+    private int[] offeringStart, offeringUnits; // unidades de cada oferta (CSR)
+    private int[] groupStart, groupUnits;       // unidades de cada grupo (CSR)
+    private int[][] offeringTeachers, offeringRooms, offeringPeriods; // dominios por oferta
+    private boolean[] periodAllowed;            // [oferta * nP + periodo]
+    private boolean[] available;                // [profesor * nP + periodo]
+    private int[] hoursWork, maxDaily;
+    private int[] periodWeight, subjectWeight, groupWeight; // [profesor * nP|nS|nG + x]: preferidas - no preferidas
+
+    // Estado
+    private int[] teacherOf, roomOf, periodOf;  // teacherOf por oferta; roomOf y periodOf por unidad
+    private int[] teacherSlot, roomSlot, groupSlot, load;
+    private int[] dayCount, daySum, daySquares; // [oferta * nD + día]: unidades, suma y suma de cuadrados de periodos
+    private int[] teacherSubject, teacherGroup;
+    private int hard, soft;
+
+    // Último movimiento, para deshacerlo
+    private int moveKind, moveA, moveB, moveOld;
+    private static final int PERIOD = 0, SWAP = 1, ROOM = 2, TEACHER = 3;
+    private long random;
+
+    // Resultados
+    private final SolutionPool pool;
+    private double selectionDiversity = ScheduleSolver.SELECTION_DIVERSITY;
+    private int[] recordTeachers, recordRooms, recordPeriods; // scratch for record(): the pool packs what it keeps
+    private long iterations, rejected, searchStart, firstFeasibleMs = -1;
+    private int updatesSent;
+    private final long createUnitsMs;
+    private SolverRunStats runStats;
+    private SolverMetrics metrics = SolverMetrics.global();
+
+    public LocalSearchSolver(List<Teacher> teachers, List<Classroom> classrooms, List<StudentGroup> studentGroups,
+                             List<TimePeriod> timePeriods) {
+        this.teachers = teachers;
+        this.classrooms = classrooms;
+        this.timePeriods = timePeriods;
+        long t0 = System.nanoTime();
+        this.instance = ProblemInstance.compile(teachers, classrooms, studentGroups, timePeriods);
+        this.units = instance.getUnits();
+        this.createUnitsMs = (System.nanoTime() - t0) / 1_000_000;
+        this.pool = new SolutionPool(instance, ScheduleSolver.MAX_SOLUTIONS * ScheduleSolver.KEEP_FACTOR);
+    }
+
+    /**
+     * Busca los horarios. Las métricas (fases, movimientos, tiempos a la primera y a la mejor solución)
+     * quedan en getRunStats() y se publican en el registro de métricas al terminar.
+     */
+    @Override
+    public List<Schedule> createSchedule() {
+        searchStart = System.currentTimeMillis();
+        pool.clear();
+        iterations = rejected = 0;
+        firstFeasibleMs = -1;
+        updatesSent = 0;
+        runStats = new SolverRunStats("LOCAL_SEARCH", units.size(), teachers.size(), classrooms.size(), timePeriods.size());
+        runStats.addPhase("createScheduleUnits", createUnitsMs);
+        List<Schedule> result = null;
+        boolean infeasible = false;
+        try {
+            enterPhase(Phase.MODEL_BUILD);
+            if (units.isEmpty() || teachers.isEmpty() || classrooms.isEmpty() || timePeriods.isEmpty()) {
+                System.err.println("Error: nothing to schedule or no teachers, classrooms or time periods.");
+                infeasible = true;
+                return result = new ArrayList<>();
+            }
+
+            long t0 = System.nanoTime();
+            FeasibilityDiagnostics diagnostics = FeasibilityDiagnostics.check(instance);
+            if (verbose) System.out.println(diagnostics.report());
+            runStats.endPhase("diagnostics", t0);
+            if (!diagnostics.isFeasible()) {
+                infeasible = true;
+                return result = new ArrayList<>();
+            }
+
+            runStats.buildStarted();
+            t0 = System.nanoTime();
+            UnitDomains domains = UnitDomains.compute(instance);
+            if (verbose) System.out.println(domains.report(5));
+            runStats.endPhase("unitDomains", t0);
+            t0 = System.nanoTime();
+            TeacherAssignment flow = TeacherAssignment.solve(instance, domains);
+            runStats.endPhase("teacherFlow", t0);
+            if (!flow.isFeasible()) {
+                infeasible = true;
+                return result = new ArrayList<>(); // reported by the diagnostics already
+            }
+
+            t0 = System.nanoTime();
+            index(domains);
+            runStats.endPhase("index", t0);
+            runStats.buildFinished();
+            enterPhase(Phase.SEARCH);
+            t0 = System.nanoTime();
+            construct(flow);
+            runStats.endPhase("construct", t0);
+            t0 = System.nanoTime();
+            search();
+            runStats.endPhase("search", t0);
+            log("Local search: " + iterations + " moves, " + rejected + " rejected, " + pool.size()
+                    + " candidates, first feasible " + (firstFeasibleMs < 0 ? "never" : firstFeasibleMs + "ms"));
+            return result = buildResult();
+        } finally {
+            finishRun(result, infeasible);
+        }
+    }
+
+    private void finishRun(List<Schedule> result, boolean infeasible) {
+        runStats.addCounter("moves", iterations);
+        runStats.addCounter("rejectedMoves", rejected);
+        runStats.addCounter("candidates", pool.size());
+        runStats.addCounter("poolOffered", pool.getOffered());
+        runStats.addCounter("poolDuplicates", pool.getDuplicates());
+        runStats.addCounter("poolEvicted", pool.getEvicted());
+        SolverRunStats.Outcome outcome;
+        if (result == null) outcome = SolverRunStats.Outcome.ERROR;
+        else if (!result.isEmpty()) outcome = SolverRunStats.Outcome.SOLVED;
+        else if (infeasible) outcome = SolverRunStats.Outcome.INFEASIBLE;
+        else if (cancelled) outcome = SolverRunStats.Outcome.CANCELLED;
+        else outcome = SolverRunStats.Outcome.NO_SOLUTION;
+        runStats.finish(outcome, cancelled);
+        log("Run: " + runStats.summary());
+        if (metrics != null) metrics.record(runStats);
+    }
+
+    // --- Datos de la instancia ---
+
+    private void index(UnitDomains domains) {
+        nU = units.size();
+        nT = teachers.size();
+        nR = classrooms.size();
+        nP = timePeriods.size();
+        nD = instance.numDays();
+        nO = instance.numOfferings();
+        nG = instance.numGroups();
+        nS = instance.numSubjects();
+
+        // Shared with the compiled instance: read only
+        periodDay = instance.periodDay;
+        unitOffering = instance.unitOffering;
+        unitGroup = instance.unitGroup;
+        unitSubject = instance.unitSubject;
+        offeringStart = instance.offeringStart;
+        offeringUnits = instance.offeringUnits;
+        unitDuration = new int[nU];
+        for (int u = 0; u < nU; u++) unitDuration[u] = instance.duration[unitSubject[u]];
+
+        groupStart = new int[nG + 1];
+        groupUnits = csr(unitGroup, nG, groupStart);
+
+        offeringTeachers = new int[nO][];
+        offeringRooms = new int[nO][];
+        offeringPeriods = new int[nO][];
+        periodAllowed = new boolean[nO * nP];
+        maxDaily = new int[nO];
+        for (int o = 0; o < nO; o++) {
+            int u = offeringUnits[offeringStart[o]];
+            offeringTeachers[o] = domains.teachers[u];
+            offeringRooms[o] = domains.classrooms[u];
+            offeringPeriods[o] = domains.timePeriods[u];
+            for (int p : domains.timePeriods[u]) periodAllowed[o * nP + p] = true;
+            int size = offeringStart[o + 1] - offeringStart[o];
+            int subjectMax = instance.maxDaily[instance.offeringSubject[o]];
+            maxDaily[o] = subjectMax > 0 ? subjectMax : size;
+        }
+
+        available = new boolean[nT * nP];
+        hoursWork = new int[nT];
+        for (int t = 0; t < nT; t++) {
+            hoursWork[t] = instance.hoursWork[t];
+            BitSet free = instance.available[t];
+            for (int p = free.nextSetBit(0); p >= 0; p = free.nextSetBit(p + 1)) available[t * nP + p] = true;
+        }
+
+        // Same terms as addSoftConstraints: only positive weights, one per (teacher, period|subject|group)
+        periodWeight = new int[nT * nP];
+        subjectWeight = new int[nT * nS];
+        groupWeight = new int[nT * nG];
+        for (int i = 0; i < instance.numTerms(); i++) {
+            int t = instance.termTeacher[i], x = instance.termTarget[i], w = instance.termWeight[i];
+            switch (instance.termKind[i]) {
+                case ProblemInstance.PERIOD -> periodWeight[t * nP + x] += w;
+                case ProblemInstance.SUBJECT -> subjectWeight[t * nS + x] += w;
+                default -> groupWeight[t * nG + x] += w;
+            }
+        }
+
+        teacherOf = new int[nO];
+        roomOf = new int[nU];
+        periodOf = new int[nU];
+        teacherSlot = new int[nT * nP];
+        roomSlot = new int[nR * nP];
+        groupSlot = new int[nG * nP];
+        load = new int[nT];
+        dayCount = new int[nO * nD];
+        daySum = new int[nO * nD];
+        daySquares = new int[nO * nD];
+        teacherSubject = new int[nT * nS];
+        teacherGroup = new int[nT * nG];
+        recordTeachers = new int[nU];
+        recordRooms = new int[nU];
+        recordPeriods = new int[nU];
+        hard = soft = 0;
+    }
+
+    private static int[] csr(int[] keyOf, int numKeys, int[] start) {
+        for (int k : keyOf) start[k + 1]++;
+        for (int k = 0; k < numKeys; k++) start[k + 1] += start[k];
+        int[] fill = Arrays.copyOf(start, numKeys);
+        int[] items = new int[keyOf.length];
+        for (int i = 0; i < keyOf.length; i++) items[fill[keyOf[i]]++] = i;
+        return items;
+    }
+
+    // --- Contadores incrementales ---
+
+    // Adds (sign = 1) or removes (sign = -1) unit u with its current teacher, room and period
+    private void touch(int u, int sign) {
+        int o = unitOffering[u], t = teacherOf[o], r = roomOf[u], p = periodOf[u];
+
+        int c = teacherSlot[t * nP + p] += sign;
+        if (sign > 0 ? c > 1 : c > 0) hard += sign;
+        if (c == (sign > 0 ? 1 : 0)) soft += sign * periodWeight[t * nP + p];
+
+        c = roomSlot[r * nP + p] += sign;
+        if (sign > 0 ? c > 1 : c > 0) hard += sign;
+
+        c = groupSlot[unitGroup[u] * nP + p] += sign;
+        if (sign > 0 ? c > 1 : c > 0) hard += sign;
+
+        if (!available[t * nP + p]) hard += sign;
+
+        int before = Math.max(0, load[t] - hoursWork[t]);
+        load[t] += sign * unitDuration[u];
+        hard += Math.max(0, load[t] - hoursWork[t]) - before;
+
+        int cell = o * nD + periodDay[p];
+        before = dayViolations(o, cell);
+        dayCount[cell] += sign;
+        daySum[cell] += sign * p;
+        daySquares[cell] += sign * p * p;
+        hard += dayViolations(o, cell) - before;
+
+        c = teacherSubject[t * nS + unitSubject[u]] += sign;
+        if (c == (sign > 0 ? 1 : 0)) soft += sign * subjectWeight[t * nS + unitSubject[u]];
+        c = teacherGroup[t * nG + unitGroup[u]] += sign;
+        if (c == (sign > 0 ? 1 : 0)) soft += sign * groupWeight[t * nG + unitGroup[u]];
+    }
+
+    // Units of an offering in one day: at most maxDaily, and two of them must be in consecutive periods
+    // (section 5 of addConstraints makes every pair adjacent, so three or more never fit)
+    private int dayViolations(int o, int cell) {
+        int c = dayCount[cell];
+        int v = Math.max(0, c - maxDaily[o]);
+        if (c == 2) {
+            // (p1 - p2)^2 = 2 (p1^2 + p2^2) - (p1 + p2)^2
+            if (2 * daySquares[cell] - daySum[cell] * daySum[cell] != 1) v++;
+        } else if (c > 2) {
+            v += c - 1;
+        }
+        return v;
+    }
+
+    private void setPeriod(int u, int p) {
+        touch(u, -1);
+        periodOf[u] = p;
+        touch(u, 1);
+    }
+
+    private void setRoom(int u, int r) {
+        touch(u, -1);
+        roomOf[u] = r;
+        touch(u, 1);
+    }
+
+    private void setTeacher(int o, int t) {
+        for (int k = offeringStart[o]; k < offeringStart[o + 1]; k++) touch(offeringUnits[k], -1);
+        teacherOf[o] = t;
+        for (int k = offeringStart[o]; k < offeringStart[o + 1]; k++) touch(offeringUnits[k], 1);
+    }
+
+    private long cost() {
+        return (long) HARD_WEIGHT * hard - soft;
+    }
+
+    // --- Construcción y búsqueda ---
+
+    // Teachers from the flow rounding (or least loaded); every unit to its cheapest period and room
+    private void construct(TeacherAssignment flow) {
+        random = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        for (int o = 0; o < nO; o++) {
+            int u0 = offeringUnits[offeringStart[o]];
+            int t = flow.teacherOfUnit(u0);
+            if (t < 0) {
+                t = offeringTeachers[o][0];
+                for (int cand : offeringTeachers[o]) if (load[cand] < load[t]) t = cand;
+            }
+            teacherOf[o] = t;
+            for (int k = offeringStart[o]; k < offeringStart[o + 1]; k++) {
+                int u = offeringUnits[k];
+                roomOf[u] = offeringRooms[o][0];
+                periodOf[u] = offeringPeriods[o][0];
+                load[t] += unitDuration[u]; // provisional, only to spread the fallback choice
+            }
+        }
+        Arrays.fill(load, 0);
+
+        for (int u = 0; u < nU; u++) {
+            int o = unitOffering[u];
+            touch(u, 1);
+            long best = cost();
+            int bestP = periodOf[u];
+            for (int p : offeringPeriods[o]) {
+                setPeriod(u, p);
+                if (cost() < best) {
+                    best = cost();
+                    bestP = p;
+                }
+            }
+            setPeriod(u, bestP);
+            int bestR = roomOf[u];
+            for (int r : offeringRooms[o]) {
+                setRoom(u, r);
+                if (cost() < best) {
+                    best = cost();
+                    bestR = r;
+                }
+            }
+            setRoom(u, bestR);
+        }
+    }
+
+    private void search() {
+        long deadline = searchStart + timeLimitMs;
+        long lastImprovement = System.currentTimeMillis();
+        int bestScore = Integer.MIN_VALUE, publishedBest = Integer.MIN_VALUE;
+        long current = cost();
+
+        while (!cancelled) {
+            double progress = (double) (iterations % CYCLE_ITERATIONS) / CYCLE_ITERATIONS;
+            double temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+            for (int i = 0; i < CHECK_INTERVAL; i++) {
+                if (!randomMove()) continue;
+                long delta = cost() - current;
+                if (delta <= 0 || nextDouble() < Math.exp(-delta / temperature)) {
+                    current += delta;
+                    if (hard == 0 && soft > bestScore) {
+                        bestScore = soft;
+                        record();
+                    }
+                } else {
+                    undo();
+                    rejected++;
+                }
+            }
+            iterations += CHECK_INTERVAL;
+
+            long now = System.currentTimeMillis();
+            if (hard == 0) {
+                if (firstFeasibleMs < 0) firstFeasibleMs = now - searchStart;
+                if (soft >= bestScore - ScheduleSolver.TOLERANCE) record();
+            }
+            if (bestScore > publishedBest) {
+                runStats.solutionFound(bestScore);
+                publishedBest = bestScore;
+                lastImprovement = now;
+                publishBest();
+            }
+            if (now >= deadline || (bestScore > Integer.MIN_VALUE && now - lastImprovement >= stagnationMs)) break;
+        }
+    }
+
+    // Picks and applies a random move; false if it changes nothing
+    private boolean randomMove() {
+        int u = nextInt(nU), o = unitOffering[u];
+        int kind = nextInt(100);
+        if (kind < 45) {
+            int p = offeringPeriods[o][nextInt(offeringPeriods[o].length)];
+            if (p == periodOf[u]) return false;
+            moveKind = PERIOD;
+            moveA = u;
+            moveOld = periodOf[u];
+            setPeriod(u, p);
+        } else if (kind < 70) {
+            int g = unitGroup[u];
+            int v = groupUnits[groupStart[g] + nextInt(groupStart[g + 1] - groupStart[g])];
+            int pu = periodOf[u], pv = periodOf[v];
+            if (pu == pv || !periodAllowed[o * nP + pv] || !periodAllowed[unitOffering[v] * nP + pu]) return false;
+            moveKind = SWAP;
+            moveA = u;
+            moveB = v;
+            setPeriod(u, pv);
+            setPeriod(v, pu);
+        } else if (kind < 85) {
+            int r = offeringRooms[o][nextInt(offeringRooms[o].length)];
+            if (r == roomOf[u]) return false;
+            moveKind = ROOM;
+            moveA = u;
+            moveOld = roomOf[u];
+            setRoom(u, r);
+        } else {
+            int t = offeringTeachers[o][nextInt(offeringTeachers[o].length)];
+            if (t == teacherOf[o]) return false;
+            moveKind = TEACHER;
+            moveA = o;
+            moveOld = teacherOf[o];
+            setTeacher(o, t);
+        }
+        return true;
+    }
+
+    private void undo() {
+        switch (moveKind) {
+            case PERIOD:
+                setPeriod(moveA, moveOld);
+                break;
+            case SWAP:
+                int pa = periodOf[moveA];
+                setPeriod(moveA, periodOf[moveB]);
+                setPeriod(moveB, pa);
+                break;
+            case ROOM:
+                setRoom(moveA, moveOld);
+                break;
+            default:
+                setTeacher(moveA, moveOld);
+        }
+    }
+
+    // xorshift64*: no allocation and reproducible with setSeed
+    private int nextInt(int bound) {
+        random ^= random >>> 12;
+        random ^= random << 25;
+        random ^= random >>> 27;
+        return (int) (((random * 0x2545F4914F6CDD1DL) >>> 33) % bound);
+    }
+
+    private double nextDouble() {
+        return nextInt(1 << 30) / (double) (1 << 30);
+    }
+
+    // --- Soluciones ---
+
+    // Offers the current (feasible) assignment to the pool; rooms are ignored for uniqueness as in CP.
+    // Units of an offering are interchangeable: they are offered with increasing periods (section 7 of
+    // addConstraints), so permutations of the same schedule get the same hash.
+    private void record() {
+        int[] periods = recordPeriods, rooms = recordRooms, t = recordTeachers;
+        System.arraycopy(periodOf, 0, periods, 0, nU);
+        System.arraycopy(roomOf, 0, rooms, 0, nU);
+        for (int o = 0; o < nO; o++) {
+            for (int i = offeringStart[o] + 1; i < offeringStart[o + 1]; i++) {
+                for (int j = i; j > offeringStart[o] && periods[offeringUnits[j - 1]] > periods[offeringUnits[j]]; j--) {
+                    int a = offeringUnits[j - 1], b = offeringUnits[j];
+                    int p = periods[a]; periods[a] = periods[b]; periods[b] = p;
+                    int r = rooms[a]; rooms[a] = rooms[b]; rooms[b] = r;
+                }
+            }
+        }
+        for (int u = 0; u < nU; u++) t[u] = teacherOf[unitOffering[u]];
+        pool.offer(soft, t, rooms, periods);
+    }
+
+    private Schedule toSchedule(SolutionPool.Entry e) {
+        int[][] a = pool.assignment(e);
+        Schedule schedule = new Schedule();
+        for (int u = 0; u < nU; u++) {
+            schedule.addAssignment(units.get(u), teachers.get(a[0][u]), classrooms.get(a[1][u]), timePeriods.get(a[2][u]));
+        }
+        schedule.setScore(e.score);
+        return schedule;
+    }
+
+    private void publishBest() {
+        Consumer<ScheduleUpdate> listener = updateListener;
+        if (listener == null || pool.isEmpty()) return;
+        SolutionPool.Entry best = pool.top(1).get(0);
+        Schedule schedule = toSchedule(best);
+        updatesSent++;
+        schedule.setId(UUID.randomUUID().toString());
+        schedule.setName("Solución parcial " + updatesSent + " (score=" + best.score + ")");
+        listener.accept(new ScheduleUpdate(schedule, best.score, best.score, System.currentTimeMillis() - searchStart,
+                iterations, rejected, updatesSent));
+    }
+
+    private List<Schedule> buildResult() {
+        SolutionPool.Selection selection = pool.selectDiverse(ScheduleSolver.MAX_SOLUTIONS, selectionDiversity);
+        List<SolutionPool.Entry> top = selection.entries;
+        runStats.addCounter("selectionMinDistance", selection.minDistance);
+        runStats.addCounter("selectionUs", (selection.distanceNanos + selection.selectNanos) / 1_000);
+        List<Schedule> result = new ArrayList<>();
+        for (SolutionPool.Entry e : top) {
+            Schedule schedule = toSchedule(e);
+            schedule.setId(UUID.randomUUID().toString());
+            schedule.setName("Solución " + (result.size() + 1) + " (score=" + e.score + ")");
+            result.add(schedule);
+        }
+        log("Selected " + result.size() + " solutions; best=" + (top.isEmpty() ? "-" : top.get(0).score));
+        return result;
+    }
+
+    /**
+     * Comprueba los contadores: al quitar todas las unidades, violaciones y puntuación deben volver a 0.
+     * Devuelve lo que queda (0 si son coherentes) y deja el estado como estaba.
+     */
+    int counterDrift() {
+        int h = hard, s = soft;
+        for (int u = 0; u < nU; u++) touch(u, -1);
+        int drift = Math.abs(hard) + Math.abs(soft);
+        for (int u = 0; u < nU; u++) touch(u, 1);
+        hard = h;
+        soft = s;
+        return drift;
+    }
+
+    // --- Configuración ---
+
+    @Override
+    public void setUpdateListener(Consumer<ScheduleUpdate> updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    @Override
+    public void setPhaseListener(Consumer<Phase> phaseListener) {
+        this.phaseListener = phaseListener;
+    }
+
+    private void enterPhase(Phase phase) {
+        Consumer<Phase> listener = phaseListener;
+        if (listener != null) listener.accept(phase);
+    }
+
+    /** Progreso por consola de cada ejecución (ver ScheduleSolver.setVerbose). */
+    @Override
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Tiempo máximo de búsqueda (por defecto ScheduleSolver.TIME_BUDGET_MS). */
+    public void setTimeLimitMs(long timeLimitMs) {
+        this.timeLimitMs = timeLimitMs;
+    }
+
+    /** La búsqueda termina antes si lleva este tiempo con soluciones pero sin mejorar la mejor. */
+    public void setStagnationMs(long stagnationMs) {
+        this.stagnationMs = stagnationMs;
+    }
+
+    /** Métrica y distancia mínima entre candidatas retenidas (ver ScheduleSolver.setPoolDiversity). */
+    public void setPoolDiversity(SolutionPool.Diversity diversity, int minDistance) {
+        pool.setDiversity(diversity, minDistance);
+    }
+
+    /** Peso de la diversidad al elegir las soluciones devueltas (ver ScheduleSolver.setSelectionDiversity). */
+    public void setSelectionDiversity(double selectionDiversity) {
+        this.selectionDiversity = selectionDiversity;
+    }
+
+    /** Pool de candidatas (el de la última ejecución tras createSchedule). */
+    public SolutionPool getSolutionPool() {
+        return pool;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public SolverRunStats getRunStats() {
+        return runStats;
+    }
+
+    /** Registro donde se publica cada ejecución (por defecto SolverMetrics.global(); null para ninguno). */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getNumUnits() {
+        return units.size();
+    }
+
+    /** Milisegundos hasta la primera asignación sin violaciones duras de la última ejecución, -1 si ninguna. */
+    public long getFirstFeasibleMs() {
+        return firstFeasibleMs;
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    /** Violaciones duras de la asignación final de la última ejecución (0 si terminó en una solución). */
+    public int getHardViolations() {
+        return hard;
+    }
+}
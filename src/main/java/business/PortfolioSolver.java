@@ -0,0 +1,305 @@
+package business;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.monitors.IMonitorOpenNode;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * PortfolioSolver lanza varias copias del modelo de ScheduleSolver en paralelo, cada una con una
+ * estrategia de búsqueda, semilla y política de reinicios distinta, bajo el mismo presupuesto global
+ * de tiempo (ScheduleSolver.setTimeBudgetMs). Todas alimentan un único conjunto de candidatos sin
+ * duplicados y comparten la mejor puntuación encontrada como cota.
+ *
+ * Cada hilo construye su propio Model (Choco no es thread-safe), así que la memoria crece con el
+ * número de hilos. Los trabajadores reciben la configuración del ScheduleSolver que los lanza (ver
+ * setSettings): con una estrategia de búsqueda elegida, todos la usan con semillas distintas, y en modo
+ * LNS cada uno mejora sus soluciones por vecindarios. Se detienen en cuanto se cancela (ver setCancellation).
+ */
+public class PortfolioSolver {
+
+    public enum RestartKind { NONE, LUBY, GEOMETRIC, FAIL_LIMIT }
+
+    private final List<Teacher> teachers;
+    private final List<Classroom> classrooms;
+    private final List<StudentGroup> studentGroups;
+    private final List<TimePeriod> timePeriods;
+    private final int threads;
+    private long baseSeed = System.nanoTime();
+    private ScheduleSolver settings;
+    private BooleanSupplier cancelled = () -> false;
+    private double selectionDiversity = ScheduleSolver.SELECTION_DIVERSITY;
+
+    private final List<WorkerStats> workerStats = new ArrayList<>();
+
+    public PortfolioSolver(List<Teacher> teachers, List<Classroom> classrooms, List<StudentGroup> studentGroups,
+                           List<TimePeriod> timePeriods, int threads) {
+        this.teachers = teachers;
+        this.classrooms = classrooms;
+        this.studentGroups = studentGroups;
+        this.timePeriods = timePeriods;
+        this.threads = Math.max(1, threads);
+    }
+
+    /** Solver cuya configuración (codificación, aulas, pool, prefase...) se copia a cada trabajador. */
+    public void setSettings(ScheduleSolver settings) {
+        this.settings = settings;
+    }
+
+    /** Condición de parada compartida por todos los trabajadores; se comprueba durante la búsqueda. */
+    public void setCancellation(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /** Peso de la diversidad al elegir las soluciones devueltas (ver ScheduleSolver.setSelectionDiversity). */
+    public void setSelectionDiversity(double selectionDiversity) {
+        this.selectionDiversity = selectionDiversity;
+    }
+
+    public void setBaseSeed(long baseSeed) {
+        this.baseSeed = baseSeed;
+    }
+
+    public List<WorkerStats> getWorkerStats() {
+        return workerStats;
+    }
+
+    /**
+     * Ejecuta todos los trabajadores y devuelve MAX_SOLUTIONS soluciones únicas, buenas y diversas.
+     */
+    public List<Schedule> solve() {
+        // Only the sizes are needed to pack the candidates; every worker compiles its own copy of the units
+        int capacity = ScheduleSolver.MAX_SOLUTIONS * ScheduleSolver.KEEP_FACTOR;
+        SolutionPool pool = settings != null ? settings.newSolutionPool(capacity)
+                : new SolutionPool(ProblemInstance.compile(teachers, classrooms, studentGroups, timePeriods), capacity);
+        pool.setTolerance(ScheduleSolver.TOLERANCE);
+        CountDownLatch built = new CountDownLatch(threads);
+        AtomicLong deadline = new AtomicLong(0);
+        ScheduleSolver[] solvers = new ScheduleSolver[threads];
+
+        workerStats.clear();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            WorkerStats stats = new WorkerStats(i, fixedStrategy() ? settings.getSearchStrategy() : strategyFor(i), restartKindFor(i), baseSeed + 7919L * i);
+            workerStats.add(stats);
+            final int idx = i;
+            workers.add(() -> {
+                runWorker(idx, stats, solvers, pool, built, deadline);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "schedule-portfolio");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            executor.invokeAll(workers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        boolean verbose = settings == null || settings.isVerbose();
+        if (verbose) for (WorkerStats ws : workerStats) System.out.println(ws);
+
+        // Any worker's solver can rebuild Schedules: they all share the same entity lists and unit order
+        ScheduleSolver builder = Arrays.stream(solvers).filter(Objects::nonNull).findFirst().orElse(null);
+        List<Schedule> result = new ArrayList<>();
+        if (builder == null) return result;
+
+        int idx = 1;
+        for (SolutionPool.Entry e : pool.selectDiverse(ScheduleSolver.MAX_SOLUTIONS, selectionDiversity).entries) {
+            Schedule sch = builder.buildScheduleFromAssignment(pool.assignment(e));
+            if (sch == null) continue; // rooms could not be matched
+            sch.setId(UUID.randomUUID().toString());
+            sch.setName("Solución " + (idx++) + " (score=" + e.score + ")");
+            sch.setScore(e.score);
+            result.add(sch);
+        }
+        if (verbose) System.out.println("Portfolio selected " + result.size() + " solutions from " + threads
+                + " workers; bestSeen=" + pool.bestScore());
+        return result;
+    }
+
+    private void runWorker(int idx, WorkerStats stats, ScheduleSolver[] solvers, SolutionPool pool,
+                           CountDownLatch built, AtomicLong deadline) {
+        ScheduleSolver ss;
+        try {
+            long t0 = System.currentTimeMillis();
+            ss = new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+            if (settings != null) settings.copySettingsTo(ss);
+            ss.defineVariables();
+            ss.addConstraints();
+            ss.addSoftConstraints();
+            solvers[idx] = ss;
+            stats.buildMs = System.currentTimeMillis() - t0;
+        } catch (RuntimeException e) {
+            stats.error = e.toString();
+            System.err.println("Error: portfolio worker " + idx + " could not build its model: " + e);
+            return;
+        } finally {
+            built.countDown();
+        }
+
+        try {
+            built.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (cancelled.getAsBoolean()) return;
+        // The budget starts once every copy of the model exists, as in the sequential solveModel
+        long budgetMs = settings != null ? settings.getTimeBudgetMs() : ScheduleSolver.TIME_BUDGET_MS;
+        deadline.compareAndSet(0, System.currentTimeMillis() + budgetMs);
+        long end = deadline.get();
+
+        long t1 = System.currentTimeMillis();
+        try {
+            search(ss, stats, pool, end);
+        } catch (RuntimeException e) {
+            stats.error = e.toString();
+            System.err.println("Error: portfolio worker " + idx + " failed during the search: " + e);
+        }
+        stats.searchMs = System.currentTimeMillis() - t1;
+    }
+
+    private void search(ScheduleSolver ss, WorkerStats stats, SolutionPool pool, long end) {
+        Model model = ss.getModel();
+        Solver solver = model.getSolver();
+        IntVar scoreVar = ss.getScoreVar();
+        boolean lns = settings != null && settings.getSearchMode() == ScheduleSolver.SearchMode.LNS;
+        IntVar[] unitVars = lns ? java.util.stream.Stream.of(ss.getUnitTeacherVars(), ss.getUnitClassroomVars(),
+                ss.getUnitTimePeriodVars()).flatMap(Arrays::stream).toArray(IntVar[]::new) : null;
+        boolean optimizing = model.getResolutionPolicy() != ResolutionPolicy.SATISFACTION;
+
+        // Shared bound: never look for solutions the pool would reject anyway
+        if (optimizing) {
+            solver.plugMonitor(new IMonitorOpenNode() {
+                @Override
+                public void beforeOpenNode() {
+                    int shared = pool.bestScore();
+                    if (shared != Integer.MIN_VALUE) {
+                        solver.getObjectiveManager().updateBestSolution(shared - ScheduleSolver.TOLERANCE - 1);
+                    }
+                }
+            });
+        }
+
+        long seed = stats.seed;
+        ScheduleSolver.SearchStrategy strategy = stats.strategy;
+        RestartKind restartKind = stats.restartKind;
+        int round = 0;
+        int[][] current = new int[3][ss.getNumUnits()];
+        while (System.currentTimeMillis() < end && !cancelled.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+            // reset() drops the stop criteria: add the time limit and the cancellation again every round
+            solver.reset();
+            solver.limitTime(Math.max(100, end - System.currentTimeMillis()));
+            solver.addStopCriterion(cancelled::getAsBoolean);
+            ss.postPendingRoomCuts(); // Hall cuts found by the previous round (room matching)
+            ss.clearLns(solver);
+            configure(ss, solver, model, strategy, restartKind, seed);
+            // LNS mode: every round improves its last solution by neighbourhoods, as solveModelLns does
+            if (lns) ss.setLns(solver, unitVars, seed);
+
+            while (System.currentTimeMillis() < end && solver.solve()) {
+                stats.solutions++;
+                int s = optimizing ? scoreVar.getValue() : 0;
+                stats.bestScore = Math.max(stats.bestScore, s);
+                // With room matching the classrooms are placeholders until matched, as in solveModel
+                ss.snapshotAssignment(current);
+                if (ss.matchRooms(current) && pool.offer(s, current)) stats.accepted++;
+            }
+            stats.nodes += solver.getNodeCount();
+            stats.fails += solver.getFailCount();
+            stats.backtracks += solver.getBackTrackCount();
+            stats.restarts += solver.getRestartCount();
+            stats.rounds = ++round;
+
+            // Primary strategy exhausted (or fail limit hit): diversify with fresh random rounds, unless the
+            // run chose its strategy
+            if (!fixedStrategy()) strategy = ScheduleSolver.SearchStrategy.RANDOM;
+            restartKind = RestartKind.FAIL_LIMIT;
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+        }
+    }
+
+    // A strategy chosen for the run (ScheduleSolver.setSearchStrategy) is used by every worker, each with its seed
+    private boolean fixedStrategy() {
+        return settings != null && settings.getSearchStrategy() != ScheduleSolver.SearchStrategy.DEFAULT;
+    }
+
+    // Every strategy in its seeded variant (see TimetableSearch): workers with the same one still differ
+    private static void configure(ScheduleSolver ss, Solver solver, Model model,
+                                  ScheduleSolver.SearchStrategy strategy, RestartKind restartKind, long seed) {
+        solver.setSearch(ss.seededSearch(strategy, seed));
+        switch (restartKind) {
+            case LUBY:       solver.setLubyRestart(500, new FailCounter(model, 0), 10_000); break;
+            case GEOMETRIC:  solver.setGeometricalRestart(200, 1.2, new FailCounter(model, 0), 10_000); break;
+            case FAIL_LIMIT: solver.limitFail(ScheduleSolver.FAIL_LIMIT); break;
+            default: break;
+        }
+    }
+
+    // Choco's default search is avoided on purpose: under an objective it picks values by propagating
+    // every candidate (IntDomainBest), which on this model can run for minutes between time-limit checks.
+    // The first workers vary the strategy, later ones only the seed.
+    static ScheduleSolver.SearchStrategy strategyFor(int worker) {
+        ScheduleSolver.SearchStrategy[] kinds = {ScheduleSolver.SearchStrategy.MIN_DOM,
+                ScheduleSolver.SearchStrategy.DOM_WDEG_REF, ScheduleSolver.SearchStrategy.ACTIVITY,
+                ScheduleSolver.SearchStrategy.MOST_CONSTRAINED};
+        return worker < kinds.length ? kinds[worker] : ScheduleSolver.SearchStrategy.RANDOM;
+    }
+
+    static RestartKind restartKindFor(int worker) {
+        RestartKind[] kinds = {RestartKind.NONE, RestartKind.LUBY, RestartKind.GEOMETRIC, RestartKind.LUBY};
+        if (worker < kinds.length) return kinds[worker];
+        return worker % 2 == 0 ? RestartKind.FAIL_LIMIT : RestartKind.LUBY;
+    }
+
+    /**
+     * Estadísticas de un trabajador del portfolio.
+     */
+    public static final class WorkerStats {
+        public final int index;
+        public final ScheduleSolver.SearchStrategy strategy;
+        public final RestartKind restartKind;
+        public final long seed;
+        public long buildMs;
+        public long searchMs;
+        public int rounds;
+        public int solutions;
+        public int accepted;
+        public int bestScore = Integer.MIN_VALUE;
+        public long nodes;
+        public long fails;
+        public long backtracks;
+        public long restarts;
+        public String error;
+
+        WorkerStats(int index, ScheduleSolver.SearchStrategy strategy, RestartKind restartKind, long seed) {
+            this.index = index;
+            this.strategy = strategy;
+            this.restartKind = restartKind;
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Worker %d [%s/%s] build=%dms search=%dms rounds=%d solutions=%d accepted=%d best=%s "
+                            + "nodes=%d fails=%d backtracks=%d restarts=%d%s",
+                    index, strategy, restartKind, buildMs, searchMs, rounds, solutions, accepted,
+                    bestScore == Integer.MIN_VALUE ? "-" : String.valueOf(bestScore),
+                    nodes, fails, backtracks, restarts, error == null ? "" : " error=" + error);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Instancia compilada: cada entidad (profesor, aula, grupo, asignatura, periodo) recibe un índice denso
+ * y los datos que usan el modelo, la búsqueda local, la puntuación y los diagnósticos quedan en arrays de
+ * enteros y BitSets: cualificaciones, disponibilidad, capacidades, currículos, unidades y condiciones.
+ *
+ * Se construye en O(entidades + relaciones) a partir de las listas de BusinessController: las relaciones
+ * (asignaturas posibles, periodos no disponibles, asignaturas de un aula) se resuelven por id con un mapa,
+ * sin indexOf ni contains sobre listas. Los índices siguen el orden de las listas, igual que las variables
+ * de ScheduleSolver; las asignaturas se numeran por orden de aparición en los currículos, después en las
+ * cualificaciones y después en las aulas.
+ *
+ * Es inmutable (las listas son copias y los arrays no se modifican tras compile), así que varios hilos de
+ * solver pueden compartirla. Es una foto: si cambian los datos (también las preferencias), hay que compilar
+ * otra.
+ */
+public final class ProblemInstance {
+
+    /** Tipo de término de una condición: profesor en un periodo, con una asignatura o con un grupo. */
+    public static final int PERIOD = 0, SUBJECT = 1, GROUP = 2;
+
+    private final List<Teacher> teachers;
+    private final List<Classroom> classrooms;
+    private final List<StudentGroup> groups;
+    private final List<TimePeriod> periods;
+    private final List<Subject> subjects;
+    private final List<ScheduledUnit> units;
+
+    private final Map<String, Integer> teacherIndex, classroomIndex, groupIndex, periodIndex, subjectIndex;
+
+    // Periodos
+    final int numDays;
+    final int[] periodDay;          // [periodo] -> día (por orden de aparición del weekday)
+
+    // Profesores
+    final int[] hoursWork;
+    final BitSet[] qualified;       // [profesor] -> asignaturas que puede dar
+    final BitSet[] available;       // [profesor] -> periodos disponibles
+    final int[] availableCount;
+    final int[][] subjectTeachers;  // [asignatura] -> profesores cualificados
+
+    // Aulas
+    final int[] capacity;
+    final BitSet[] roomSubjects;    // [aula] -> asignaturas permitidas; null: cualquiera
+
+    // Asignaturas
+    final int[] weeklyHours, duration, maxDaily;
+    final int[] assignedRoom;       // [asignatura] -> aula fija, -1 si no tiene (-2 si no está en la lista)
+
+    // Grupos
+    final int[] groupSize;
+    final int[][] curriculum;       // [grupo] -> asignaturas requeridas
+
+    // Unidades y ofertas (grupo, asignatura)
+    final int[] unitGroup, unitSubject, unitOffering;
+    final int numOfferings;
+    final int[] offeringGroup, offeringSubject, offeringStart, offeringUnits; // unidades de cada oferta (CSR)
+
+    // Términos de las condiciones (los de addSoftConstraints: pesos positivos con destino conocido)
+    final int[] termTeacher, termKind, termTarget, termWeight; // termWeight con signo: preferida + / no preferida -
+
+    private ProblemInstance(List<Teacher> teachers, List<Classroom> classrooms, List<StudentGroup> groups,
+                            List<TimePeriod> periods, List<ScheduledUnit> units) {
+        this.teachers = List.copyOf(teachers);
+        this.classrooms = List.copyOf(classrooms);
+        this.groups = List.copyOf(groups);
+        this.periods = List.copyOf(periods);
+        this.units = List.copyOf(units);
+        int nT = teachers.size(), nR = classrooms.size(), nG = groups.size(), nP = periods.size(), nU = units.size();
+
+        teacherIndex = index(this.teachers, Teacher::getId);
+        classroomIndex = index(this.classrooms, Classroom::getId);
+        groupIndex = index(this.groups, StudentGroup::getId);
+        periodIndex = index(this.periods, TimePeriod::getId);
+
+        // Subjects in order of appearance: curricula, then qualifications, then classrooms
+        Map<String, Integer> subjectIds = new HashMap<>();
+        List<Subject> subjectList = new ArrayList<>();
+        for (StudentGroup g : this.groups) addSubjects(g.getRequiredSubjects(), subjectIds, subjectList);
+        for (Teacher t : this.teachers) addSubjects(t.getPossibleSubjects(), subjectIds, subjectList);
+        for (Classroom c : this.classrooms) addSubjects(c.getAssignedSubjects(), subjectIds, subjectList);
+        this.subjects = List.copyOf(subjectList);
+        this.subjectIndex = Collections.unmodifiableMap(subjectIds);
+        int nS = subjectList.size();
+
+        Map<String, Integer> days = new HashMap<>();
+        periodDay = new int[nP];
+        for (int p = 0; p < nP; p++) periodDay[p] = days.computeIfAbsent(this.periods.get(p).getWeekday(), k -> days.size());
+        numDays = days.size();
+
+        hoursWork = new int[nT];
+        qualified = new BitSet[nT];
+        available = new BitSet[nT];
+        availableCount = new int[nT];
+        int[] qualifiedCount = new int[nS];
+        for (int t = 0; t < nT; t++) {
+            Teacher teacher = this.teachers.get(t);
+            hoursWork[t] = teacher.getHoursWork();
+            qualified[t] = new BitSet(nS);
+            for (Subject s : teacher.getPossibleSubjects()) qualified[t].set(subjectIds.get(s.getId()));
+            available[t] = new BitSet(nP);
+            available[t].set(0, nP);
+            for (TimePeriod tp : teacher.getUnavailableTimePeriods()) {
+                Integer p = tp == null ? null : periodIndex.get(tp.getId());
+                if (p != null) available[t].clear(p);
+            }
+            availableCount[t] = available[t].cardinality();
+            for (int s = qualified[t].nextSetBit(0); s >= 0; s = qualified[t].nextSetBit(s + 1)) qualifiedCount[s]++;
+        }
+        subjectTeachers = new int[nS][];
+        for (int s = 0; s < nS; s++) subjectTeachers[s] = new int[qualifiedCount[s]];
+        int[] fill = new int[nS];
+        for (int t = 0; t < nT; t++) {
+            for (int s = qualified[t].nextSetBit(0); s >= 0; s = qualified[t].nextSetBit(s + 1)) subjectTeachers[s][fill[s]++] = t;
+        }
+
+        capacity = new int[nR];
+        roomSubjects = new BitSet[nR];
+        for (int r = 0; r < nR; r++) {
+            Classroom c = this.classrooms.get(r);
+            capacity[r] = c.getCapacity();
+            if (c.getAssignedSubjects() == null || c.getAssignedSubjects().isEmpty()) continue;
+            roomSubjects[r] = new BitSet(nS);
+            for (Subject s : c.getAssignedSubjects()) roomSubjects[r].set(subjectIds.get(s.getId()));
+        }
+
+        weeklyHours = new int[nS];
+        duration = new int[nS];
+        maxDaily = new int[nS];
+        assignedRoom = new int[nS];
+        for (int s = 0; s < nS; s++) {
+            Subject subject = subjectList.get(s);
+            weeklyHours[s] = subject.getWeeklyAssignedHours();
+            duration[s] = subject.getDuration();
+            maxDaily[s] = subject.getMaxDailyHours();
+            Classroom room = subject.getAssignedClassroom();
+            assignedRoom[s] = room == null ? -1 : classroomIndex.getOrDefault(room.getId(), -2);
+        }
+
+        groupSize = new int[nG];
+        curriculum = new int[nG][];
+        for (int g = 0; g < nG; g++) {
+            StudentGroup group = this.groups.get(g);
+            groupSize[g] = group.getNumberOfStudents();
+            List<Subject> required = group.getRequiredSubjects() == null ? List.of() : group.getRequiredSubjects();
+            curriculum[g] = new int[required.size()];
+            for (int i = 0; i < required.size(); i++) curriculum[g][i] = subjectIds.get(required.get(i).getId());
+        }
+
+        // Offerings (group, subject) numbered by their first unit
+        unitGroup = new int[nU];
+        unitSubject = new int[nU];
+        unitOffering = new int[nU];
+        Map<Long, Integer> offeringIds = new HashMap<>();
+        List<int[]> offeringList = new ArrayList<>();
+        for (int u = 0; u < nU; u++) {
+            ScheduledUnit unit = this.units.get(u);
+            int g = groupIndex.get(unit.getStudentGroup().getId());
+            int s = subjectIds.get(unit.getSubject().getId());
+            unitGroup[u] = g;
+            unitSubject[u] = s;
+            int o = offeringIds.computeIfAbsent(((long) g << 32) | s, k -> offeringList.size());
+            if (o == offeringList.size()) offeringList.add(new int[]{g, s});
+            unitOffering[u] = o;
+        }
+        numOfferings = offeringList.size();
+        offeringGroup = new int[numOfferings];
+        offeringSubject = new int[numOfferings];
+        for (int o = 0; o < numOfferings; o++) {
+            offeringGroup[o] = offeringList.get(o)[0];
+            offeringSubject[o] = offeringList.get(o)[1];
+        }
+        offeringStart = new int[numOfferings + 1];
+        for (int o : unitOffering) offeringStart[o + 1]++;
+        for (int o = 0; o < numOfferings; o++) offeringStart[o + 1] += offeringStart[o];
+        offeringUnits = new int[nU];
+        int[] next = Arrays.copyOf(offeringStart, numOfferings);
+        for (int u = 0; u < nU; u++) offeringUnits[next[unitOffering[u]]++] = u;
+
+        List<int[]> terms = new ArrayList<>();
+        for (int t = 0; t < nT; t++) {
+            addTerms(terms, t, this.teachers.get(t).getPreferredConditions(), 1);
+            addTerms(terms, t, this.teachers.get(t).getUnPreferredConditions(), -1);
+        }
+        termTeacher = new int[terms.size()];
+        termKind = new int[terms.size()];
+        termTarget = new int[terms.size()];
+        termWeight = new int[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            int[] term = terms.get(i);
+            termTeacher[i] = term[0];
+            termKind[i] = term[1];
+            termTarget[i] = term[2];
+            termWeight[i] = term[3];
+        }
+    }
+
+    /** Compila las listas de BusinessController; las unidades son las de ScheduledUnit.forGroups. */
+    public static ProblemInstance compile(List<Teacher> teachers, List<Classroom> classrooms,
+                                          List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        return new ProblemInstance(teachers, classrooms, studentGroups, timePeriods, ScheduledUnit.forGroups(studentGroups));
+    }
+
+    /** Compila unas unidades ya creadas; los grupos son los de las unidades, por orden de aparición. */
+    static ProblemInstance compileUnits(List<ScheduledUnit> units, List<Teacher> teachers, List<Classroom> classrooms,
+                                        List<TimePeriod> timePeriods) {
+        Map<String, StudentGroup> groups = new LinkedHashMap<>();
+        for (ScheduledUnit u : units) groups.putIfAbsent(u.getStudentGroup().getId(), u.getStudentGroup());
+        return new ProblemInstance(teachers, classrooms, new ArrayList<>(groups.values()), timePeriods, units);
+    }
+
+    /**
+     * Instancia para puntuar un horario ya hecho (ver ConditionScorer): los profesores dados, los grupos y
+     * periodos de las lecciones y los periodos de las condiciones de los profesores, sin aulas ni unidades.
+     */
+    static ProblemInstance forLessons(List<Teacher> teachers, List<Lesson> lessons) {
+        Map<String, StudentGroup> groups = new LinkedHashMap<>();
+        Map<String, TimePeriod> periods = new LinkedHashMap<>();
+        if (lessons != null) {
+            for (Lesson l : lessons) {
+                if (l.getStudentGroup() != null) groups.putIfAbsent(l.getStudentGroup().getId(), l.getStudentGroup());
+                if (l.getTimePeriod() != null) periods.putIfAbsent(l.getTimePeriod().getId(), l.getTimePeriod());
+            }
+        }
+        // ConditionScorer.moveLesson can take a lesson to any period a condition looks at
+        for (Teacher t : teachers) {
+            addPeriods(t.getPreferredConditions(), periods);
+            addPeriods(t.getUnPreferredConditions(), periods);
+        }
+        return new ProblemInstance(teachers, List.of(), new ArrayList<>(groups.values()), new ArrayList<>(periods.values()), List.of());
+    }
+
+    private static void addPeriods(List<Condition> conditions, Map<String, TimePeriod> periods) {
+        if (conditions == null) return;
+        for (Condition c : conditions) {
+            if (c.getTimePeriod() != null) periods.putIfAbsent(c.getTimePeriod().getId(), c.getTimePeriod());
+        }
+    }
+
+    private static <E> Map<String, Integer> index(List<E> entities, java.util.function.Function<E, String> id) {
+        Map<String, Integer> map = new HashMap<>(entities.size() * 2);
+        for (int i = 0; i < entities.size(); i++) map.putIfAbsent(id.apply(entities.get(i)), i);
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static void addSubjects(List<Subject> list, Map<String, Integer> ids, List<Subject> out) {
+        if (list == null) return;
+        for (Subject s : list) {
+            if (ids.putIfAbsent(s.getId(), out.size()) == null) out.add(s);
+        }
+    }
+
+    // One term per target of the condition, as in addSoftConstraints (only positive weights)
+    private void addTerms(List<int[]> terms, int t, List<Condition> conditions, int sign) {
+        if (conditions == null) return;
+        for (Condition c : conditions) {
+            if (c.getWeight() <= 0) continue;
+            int w = sign * c.getWeight();
+            if (c.getTimePeriod() != null) {
+                Integer p = periodIndex.get(c.getTimePeriod().getId());
+                if (p != null) terms.add(new int[]{t, PERIOD, p, w});
+            }
+            if (c.getSubject() != null) {
+                Integer s = subjectIndex.get(c.getSubject().getId());
+                if (s != null) terms.add(new int[]{t, SUBJECT, s, w});
+            }
+            if (c.getStudentGroup() != null) {
+                Integer g = groupIndex.get(c.getStudentGroup().getId());
+                if (g != null) terms.add(new int[]{t, GROUP, g, w});
+            }
+        }
+    }
+
+    // --- Consultas ---
+
+    public List<Teacher> getTeachers() { return teachers; }
+    public List<Classroom> getClassrooms() { return classrooms; }
+    public List<StudentGroup> getStudentGroups() { return groups; }
+    public List<TimePeriod> getTimePeriods() { return periods; }
+    /** Asignaturas de currículos, cualificaciones y aulas, sin repetir. */
+    public List<Subject> getSubjects() { return subjects; }
+    public List<ScheduledUnit> getUnits() { return units; }
+
+    public int numTeachers() { return teachers.size(); }
+    public int numClassrooms() { return classrooms.size(); }
+    public int numGroups() { return groups.size(); }
+    public int numTimePeriods() { return periods.size(); }
+    public int numSubjects() { return subjects.size(); }
+    public int numUnits() { return units.size(); }
+    public int numDays() { return numDays; }
+    public int numOfferings() { return numOfferings; }
+    public int numTerms() { return termTeacher.length; }
+
+    /** Índice de la entidad por su id, -1 si no está en la instancia (o es null). */
+    public int indexOf(Teacher teacher) { return lookup(teacherIndex, teacher == null ? null : teacher.getId()); }
+    public int indexOf(Classroom classroom) { return lookup(classroomIndex, classroom == null ? null : classroom.getId()); }
+    public int indexOf(StudentGroup group) { return lookup(groupIndex, group == null ? null : group.getId()); }
+    public int indexOf(TimePeriod period) { return lookup(periodIndex, period == null ? null : period.getId()); }
+    public int indexOf(Subject subject) { return lookup(subjectIndex, subject == null ? null : subject.getId()); }
+
+    private static int lookup(Map<String, Integer> index, String id) {
+        if (id == null) return -1;
+        Integer i = index.get(id);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Suma de los pesos de las condiciones de un tipo (PERIOD, SUBJECT o GROUP) por profesor y destino,
+     * como matriz densa [profesor * destinos + destino]. Es una copia nueva.
+     */
+    public int[] termWeights(int kind) {
+        int targets = kind == PERIOD ? numTimePeriods() : kind == SUBJECT ? numSubjects() : numGroups();
+        int[] w = new int[numTeachers() * targets];
+        for (int i = 0; i < termTeacher.length; i++) {
+            if (termKind[i] == kind) w[termTeacher[i] * targets + termTarget[i]] += termWeight[i];
+        }
+        return w;
+    }
+
+    public int dayOf(int period) { return periodDay[period]; }
+    public boolean canTeach(int teacher, int subject) { return qualified[teacher].get(subject); }
+    public boolean isAvailable(int teacher, int period) { return available[teacher].get(period); }
+    public int availableCount(int teacher) { return availableCount[teacher]; }
+    public int hoursWork(int teacher) { return hoursWork[teacher]; }
+    public int capacity(int classroom) { return capacity[classroom]; }
+    public int groupSize(int group) { return groupSize[group]; }
+    public int unitGroup(int unit) { return unitGroup[unit]; }
+    public int unitSubject(int unit) { return unitSubject[unit]; }
+    public int unitOffering(int unit) { return unitOffering[unit]; }
+    public int duration(int subject) { return duration[subject]; }
+    public int maxDaily(int subject) { return maxDaily[subject]; }
+
+    /** Profesores cualificados para la asignatura (copia). */
+    public int[] subjectTeachers(int subject) { return subjectTeachers[subject].clone(); }
+
+    /** Periodos disponibles del profesor (copia). */
+    public BitSet availablePeriods(int teacher) { return (BitSet) available[teacher].clone(); }
+
+    /** El aula puede acoger la asignatura: es su aula fija, si la tiene, y está abierta a ella (Classroom.isAvailableForSubject). */
+    public boolean roomAllows(int classroom, int subject) {
+        if (assignedRoom[subject] != -1 && assignedRoom[subject] != classroom) return false;
+        return roomSubjects[classroom] == null || roomSubjects[classroom].get(subject);
+    }
+
+    /** Aula permitida para la asignatura y con capacidad para el grupo (la regla de UnitDomains). */
+    public boolean roomFits(int classroom, int subject, int group) {
+        return roomAllows(classroom, subject) && capacity[classroom] >= groupSize[group];
+    }
+
+    @Override
+    public String toString() {
+        return "ProblemInstance[" + numUnits() + " units, " + numOfferings + " offerings, " + numTeachers() + " teachers, "
+                + numClassrooms() + " classrooms, " + numGroups() + " groups, " + numSubjects() + " subjects, "
+                + numTimePeriods() + " periods, " + numTerms() + " condition terms]";
+    }
+}
@@ -0,0 +1,128 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Segunda fase del modo de asignación de aulas por emparejamiento (ver ScheduleSolver.setRoomMatching):
+ * con profesor y periodo ya fijados, asigna las aulas periodo a periodo mediante emparejamiento bipartito
+ * máximo (caminos aumentantes) entre las unidades del periodo y sus aulas permitidas (UnitDomains).
+ * Los periodos son independientes y pueden resolverse en paralelo.
+ *
+ * Si un periodo no admite emparejamiento completo, devuelve un conjunto de Hall violado: un conjunto de
+ * aulas R tal que hay más unidades que solo pueden usar aulas de R que aulas tiene R.
+ */
+final class RoomMatcher {
+
+    /** Periodos con al menos estas unidades en total se resuelven en paralelo. */
+    static final int PARALLEL_THRESHOLD = 2_000;
+
+    /** Conjunto de Hall violado en un periodo: las unidades de {@code units} solo pueden usar {@code rooms}. */
+    static final class HallViolation {
+        final int period;
+        final int[] units;
+        final int[] rooms;
+
+        HallViolation(int period, int[] units, int[] rooms) {
+            this.period = period;
+            this.units = units;
+            this.rooms = rooms;
+        }
+
+        @Override
+        public String toString() {
+            return "period " + period + ": " + units.length + " units for rooms " + Arrays.toString(rooms);
+        }
+    }
+
+    private final int[][] allowed; // [unidad] -> aulas permitidas
+    private final int numRooms;
+
+    RoomMatcher(int[][] allowed, int numRooms) {
+        this.allowed = allowed;
+        this.numRooms = numRooms;
+    }
+
+    /**
+     * Asigna aula a cada unidad según su periodo. {@code rooms} trae el aula preferida de cada unidad
+     * (se intenta primero si está permitida, p. ej. la de un horario anterior; -1 si no hay) y se
+     * sobrescribe con la asignación. Devuelve null si todos los periodos tienen emparejamiento completo,
+     * o la violación de Hall del primer periodo que no lo tiene (rooms queda entonces sin modificar).
+     */
+    HallViolation assign(int[] periods, int[] rooms, int numPeriods) {
+        List<List<Integer>> byPeriod = new ArrayList<>();
+        for (int p = 0; p < numPeriods; p++) byPeriod.add(new ArrayList<>());
+        for (int u = 0; u < periods.length; u++) byPeriod.get(periods[u]).add(u);
+
+        int[] result = rooms.clone();
+        IntStream range = IntStream.range(0, numPeriods);
+        if (periods.length >= PARALLEL_THRESHOLD) range = range.parallel();
+        HallViolation violation = range
+                .mapToObj(p -> matchPeriod(p, byPeriod.get(p), rooms, result))
+                .filter(v -> v != null)
+                .findFirst().orElse(null);
+        if (violation == null) System.arraycopy(result, 0, rooms, 0, rooms.length);
+        return violation;
+    }
+
+    // Kuhn's augmenting paths over the units of one period; writes the rooms of those units into result
+    private HallViolation matchPeriod(int period, List<Integer> units, int[] preferred, int[] result) {
+        int n = units.size();
+        if (n == 0) return null;
+        int[] unitOfRoom = new int[numRooms];
+        Arrays.fill(unitOfRoom, -1);
+        int[] roomOfUnit = new int[n];
+        Arrays.fill(roomOfUnit, -1);
+
+        // Preferred rooms first, without augmenting paths, so that valid previous rooms are kept
+        for (int k = 0; k < n; k++) {
+            int room = preferred[units.get(k)];
+            if (room >= 0 && unitOfRoom[room] < 0 && contains(allowed[units.get(k)], room)) {
+                unitOfRoom[room] = k;
+                roomOfUnit[k] = room;
+            }
+        }
+
+        boolean[] visitedRoom = new boolean[numRooms];
+        for (int k = 0; k < n; k++) {
+            if (roomOfUnit[k] >= 0) continue;
+            Arrays.fill(visitedRoom, false);
+            if (!augment(k, units, unitOfRoom, roomOfUnit, visitedRoom)) {
+                // The failed search visited a set of rooms, all matched to units that can only reach them:
+                // those units plus k need more rooms than the visited ones
+                List<Integer> hallUnits = new ArrayList<>();
+                List<Integer> hallRooms = new ArrayList<>();
+                hallUnits.add(units.get(k));
+                for (int r = 0; r < numRooms; r++) {
+                    if (!visitedRoom[r]) continue;
+                    hallRooms.add(r);
+                    hallUnits.add(units.get(unitOfRoom[r]));
+                }
+                return new HallViolation(period, hallUnits.stream().mapToInt(Integer::intValue).toArray(),
+                        hallRooms.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        for (int k = 0; k < n; k++) result[units.get(k)] = roomOfUnit[k];
+        return null;
+    }
+
+    private boolean augment(int k, List<Integer> units, int[] unitOfRoom, int[] roomOfUnit, boolean[] visitedRoom) {
+        for (int room : allowed[units.get(k)]) {
+            if (visitedRoom[room]) continue;
+            visitedRoom[room] = true;
+            if (unitOfRoom[room] < 0 || augment(unitOfRoom[room], units, unitOfRoom, roomOfUnit, visitedRoom)) {
+                unitOfRoom[room] = k;
+                roomOfUnit[k] = room;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int v) {
+        for (int x : values) if (x == v) return true;
+        return false;
+    }
+}
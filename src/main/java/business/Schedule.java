@@ -8,6 +8,7 @@ public class Schedule {
     private List<String> assignments; // Example: storing assignments as strings
     private int achievedConditions; // número de condiciones cumplidas
     private int weightedConditions;// condiciones ponderadas cumplidas
+    private int score; // puntuación de las restricciones blandas según el solver
 
     private List<Lesson> lessons; // Lista de lecciones asignadas
 
@@ -35,6 +36,14 @@ public class Schedule {
         this.weightedConditions = weightedConditions;
     }
 
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
     public void addAssignment(ScheduledUnit unit, Teacher teacher, Classroom classroom, TimePeriod timePeriod) {
         String assignment = String.format("%s: Teacher=%s, Classroom=%s, Time=%s",
                 unit.toString(), teacher.getId(), classroom.getId(), timePeriod.getId());
@@ -52,66 +61,29 @@ public class Schedule {
         System.out.println("--------------------------");
     }
 
+    /**
+     * Calcula las condiciones logradas (preferidas cumplidas y no preferidas evitadas) de cada profesor
+     * y del horario, con un ConditionScorer (una pasada por las lecciones), y las imprime.
+     */
     public void calculateConditions(List<Teacher> teachers) {
-        int totalAchieved = 0;
-        int totalWeighted = 0;
-
+        ConditionScorer scorer = new ConditionScorer(teachers, lessons);
+        StringBuilder report = new StringBuilder();
         for (Teacher teacher : teachers) {
-            List<Condition> preferredConditions = teacher.getPreferredConditions();
-            List<Condition> unPreferredConditions = teacher.getUnPreferredConditions();
-
-            int achieved = 0;
-            int weighted = 0;
-
-            // --- Preferred conditions: reward if fulfilled ---
-            for (Condition condition : preferredConditions) {
-                boolean matched = false;
-                for (Lesson lesson : lessons) {
-                    if (lesson.getTeacher().equals(teacher) &&
-                            condition.getTimePeriod() != null &&
-                            condition.getTimePeriod().equals(lesson.getTimePeriod())) {
-                        matched = true;
-                        break;
-                    }
-                }
-                if (matched) {
-                    achieved += 1;
-                    weighted += condition.getWeight();
-                }
-            }
-
-            // --- Unpreferred conditions: reward if avoided ---
-            for (Condition condition : unPreferredConditions) {
-                boolean violated = false;
-                for (Lesson lesson : lessons) {
-                    if (lesson.getTeacher().equals(teacher) &&
-                            condition.getTimePeriod() != null &&
-                            condition.getTimePeriod().equals(lesson.getTimePeriod())) {
-                        violated = true;
-                        break;
-                    }
-                }
-                if (!violated) {
-                    achieved += 1;
-                    weighted += condition.getWeight();
-                }
-            }
-
-            // --- Track totals ---
-            teacher.setAchievedConditions(achieved);
-            teacher.setWeightedConditions(weighted);
-
-            totalAchieved += achieved;
-            totalWeighted += weighted;
-
-            System.out.println("Teacher: " + teacher.getId() +
-                    ", Achieved Conditions: " + achieved +
-                    ", Achieved Weighted Conditions: " + achieved +
-                    ", Total Conditions Defined: " + weighted);
+            ConditionScorer.TeacherScore ts = scorer.getTeacherScore(teacher);
+            teacher.setAchievedConditions(ts.getAchieved());
+            teacher.setWeightedConditions(ts.getAchievedWeight());
+            report.append("Teacher: ").append(teacher.getId())
+                    .append(", Achieved Conditions: ").append(ts.getAchieved())
+                    .append(", Achieved Weighted Conditions: ").append(ts.getAchievedWeight())
+                    .append(", Total Conditions Defined: ").append(ts.getConditionCount())
+                    .append(System.lineSeparator());
         }
+        this.achievedConditions = scorer.getAchievedConditions();
+        this.weightedConditions = scorer.getWeightedConditions();
 
-        System.out.println("Total Achieved Weighted Conditions: " + totalAchieved);
-        System.out.println("Total Weighted Conditions: " + totalWeighted);
+        report.append("Total Achieved Conditions: ").append(achievedConditions).append(System.lineSeparator())
+                .append("Total Achieved Weighted Conditions: ").append(weightedConditions);
+        System.out.println(report);
     }
 
     public List<Lesson> getLessons() {
@@ -0,0 +1,252 @@
+package business;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ScheduleDecomposer divide el problema en subproblemas independientes: dos grupos están en el mismo
+ * componente si alguna de sus unidades puede tener el mismo profesor cualificado, y las aulas se reparten
+ * entre componentes (ver findComponents). Componentes distintos no comparten recursos, así que cada uno se
+ * resuelve con su propio ScheduleSolver en paralelo y las soluciones se unen sin conflictos.
+ */
+public class ScheduleDecomposer {
+
+    /** Subproblema independiente: sus grupos, los profesores que pueden darles clase y las aulas asignadas. */
+    public static final class Component {
+        public final List<Teacher> teachers = new ArrayList<>();
+        public final List<Classroom> classrooms = new ArrayList<>();
+        public final List<StudentGroup> studentGroups = new ArrayList<>();
+        public int numUnits;
+
+        @Override
+        public String toString() {
+            return studentGroups.size() + " groups, " + teachers.size() + " teachers, "
+                    + classrooms.size() + " classrooms, " + numUnits + " units";
+        }
+    }
+
+    private final List<Teacher> teachers;
+    private final List<Classroom> classrooms;
+    private final List<StudentGroup> studentGroups;
+    private final List<TimePeriod> timePeriods;
+
+    static final long CANCEL_WAIT_MS = 10_000; // for the components to return their schedules once cancelled
+
+    private final List<ScheduleSolver> solvers = new CopyOnWriteArrayList<>(); // one per component, once created
+    private volatile boolean cancelled;
+
+    public ScheduleDecomposer(List<Teacher> teachers, List<Classroom> classrooms, List<StudentGroup> studentGroups,
+                              List<TimePeriod> timePeriods) {
+        this.teachers = teachers;
+        this.classrooms = classrooms;
+        this.studentGroups = studentGroups;
+        this.timePeriods = timePeriods;
+    }
+
+    /**
+     * Componentes conexos del grafo grupo-profesor (profesores cualificados para alguna asignatura del grupo),
+     * del mayor al menor número de unidades. Las aulas no unen componentes: un aula que solo un componente
+     * puede usar es suya, y las compartidas se reparten. Un componente nunca ocupa más aulas a la vez que
+     * grupos tiene, así que primero se le asignan aulas hasta cubrir ese número (con aulas suficientes el
+     * reparto no pierde soluciones) y el resto se reparte por turnos.
+     */
+    public List<Component> findComponents() {
+        int nG = studentGroups.size(), nT = teachers.size(), nC = classrooms.size();
+        // Nodes: groups [0, nG), teachers [nG, nG + nT)
+        int[] parent = new int[nG + nT];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        boolean[] used = new boolean[parent.length];
+        int[] groupUnits = new int[nG];
+
+        for (int g = 0; g < nG; g++) {
+            StudentGroup group = studentGroups.get(g);
+            if (group.getRequiredSubjects() == null) continue;
+            for (Subject subject : group.getRequiredSubjects()) {
+                if (subject.getWeeklyAssignedHours() <= 0) continue;
+                groupUnits[g] += subject.getWeeklyAssignedHours();
+                used[g] = true;
+                for (int t = 0; t < nT; t++) {
+                    if (teachers.get(t).canTeach(subject)) {
+                        union(parent, g, nG + t);
+                        used[nG + t] = true;
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Component> byRoot = new LinkedHashMap<>();
+        for (int g = 0; g < nG; g++) {
+            if (!used[g]) continue;
+            Component comp = byRoot.computeIfAbsent(find(parent, g), r -> new Component());
+            comp.studentGroups.add(studentGroups.get(g));
+            comp.numUnits += groupUnits[g];
+        }
+        for (int t = 0; t < nT; t++) {
+            Component comp = used[nG + t] ? byRoot.get(find(parent, nG + t)) : null;
+            if (comp != null) comp.teachers.add(teachers.get(t));
+        }
+        List<Component> components = new ArrayList<>(byRoot.values());
+        components.sort((a, b) -> Integer.compare(b.numUnits, a.numUnits));
+
+        // Classrooms: dedicated ones first, then shared ones up to each component's group count, then the rest
+        List<List<Component>> usableBy = new ArrayList<>();
+        boolean[] assigned = new boolean[nC];
+        for (int c = 0; c < nC; c++) {
+            List<Component> users = new ArrayList<>();
+            for (Component comp : components) {
+                if (canUse(comp, classrooms.get(c))) users.add(comp);
+            }
+            usableBy.add(users);
+            if (users.size() == 1) {
+                users.get(0).classrooms.add(classrooms.get(c));
+                assigned[c] = true;
+            }
+        }
+        int turn = 0;
+        for (boolean fillingNeed : new boolean[]{true, false}) {
+            for (int c = 0; c < nC; c++) {
+                List<Component> users = usableBy.get(c);
+                if (users.size() < 2 || assigned[c]) continue;
+                Component target = null;
+                for (int k = 0; k < users.size() && target == null; k++) {
+                    Component u = users.get((turn + k) % users.size());
+                    if (!fillingNeed || u.classrooms.size() < u.studentGroups.size()) target = u;
+                }
+                if (target == null) continue;
+                target.classrooms.add(classrooms.get(c));
+                assigned[c] = true;
+                turn++;
+            }
+        }
+        return components;
+    }
+
+    private static boolean canUse(Component comp, Classroom classroom) {
+        for (StudentGroup group : comp.studentGroups) {
+            for (Subject subject : group.getRequiredSubjects()) {
+                if (subject.getWeeklyAssignedHours() > 0 && UnitDomains.classroomAllowed(classroom, subject, group)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resuelve cada componente en paralelo con la misma configuración que {@code settings} y une las
+     * soluciones: la solución k combina la k-ésima de cada componente (o su última si tiene menos).
+     * Devuelve null si algún componente no tiene solución: puede deberse al reparto de aulas, así que el
+     * llamador debe resolver entonces el modelo completo.
+     *
+     * Todos los componentes comparten un único plazo de settings.getTimeBudgetMs(): cada uno recibe al
+     * arrancar su parte del tiempo restante, y al agotarse el plazo se cancelan y devuelven lo encontrado
+     * hasta entonces. Los componentes se resuelven con un solo hilo y sin volver a descomponerse. El
+     * error de un componente se propaga.
+     */
+    public List<Schedule> solve(List<Component> components, ScheduleSolver settings, int threads) {
+        long start = System.currentTimeMillis();
+        int poolSize = Math.max(1, Math.min(threads, components.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "schedule-component");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long deadline = start + settings.getTimeBudgetMs();
+        boolean verbose = settings.isVerbose();
+        AtomicInteger started = new AtomicInteger();
+        List<Future<List<Schedule>>> futures = new ArrayList<>();
+        for (Component comp : components) {
+            futures.add(executor.submit(() -> {
+                ScheduleSolver solver = new ScheduleSolver(comp.teachers, comp.classrooms, comp.studentGroups, timePeriods);
+                settings.copySettingsTo(solver);
+                // The component pool already uses the threads: no nested portfolio or decomposition
+                solver.setPortfolioThreads(1);
+                solver.setDecomposeComponents(false);
+                // Split what is left of the shared deadline among the waves still to start
+                int pending = components.size() - started.getAndIncrement();
+                long wavesLeft = (pending + poolSize - 1) / poolSize;
+                solver.setTimeBudgetMs(Math.max(1, (deadline - System.currentTimeMillis()) / wavesLeft));
+                solvers.add(solver);
+                if (cancelled) solver.cancel(); // cancel() ran before this solver existed
+                return solver.createSchedule();
+            }));
+        }
+
+        List<List<Schedule>> partials = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                List<Schedule> partial;
+                try {
+                    partial = futures.get(i).get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (!cancelled && verbose) System.out.println("Components over the time budget; cancelling them.");
+                    cancel();
+                    partial = futures.get(i).get(CANCEL_WAIT_MS, TimeUnit.MILLISECONDS);
+                }
+                if (partial == null || partial.isEmpty()) {
+                    if (verbose) System.out.println("Component " + i + " (" + components.get(i) + ") has no solution.");
+                    return null;
+                }
+                partials.add(partial);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            return null;
+        } catch (TimeoutException e) {
+            if (verbose) System.out.println("Components did not stop " + CANCEL_WAIT_MS + "ms after being cancelled.");
+            return null;
+        } catch (ExecutionException e) {
+            // Same failure as a single createSchedule: the caller's run ends with an error
+            cancel();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException("Component solver failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int count = partials.stream().mapToInt(List::size).max().orElse(0);
+        List<Schedule> result = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            Schedule merged = new Schedule();
+            int score = 0;
+            for (List<Schedule> partial : partials) {
+                Schedule part = partial.get(Math.min(k, partial.size() - 1));
+                for (Lesson l : part.getLessons()) merged.addLesson(l);
+                score += part.getScore();
+            }
+            merged.setId(UUID.randomUUID().toString());
+            merged.setName("Solución " + (k + 1) + " (score=" + score + ")");
+            merged.setScore(score);
+            result.add(merged);
+        }
+        if (verbose) System.out.println("Solved " + components.size() + " independent components in "
+                + (System.currentTimeMillis() - start) + "ms; largest: " + components.get(0));
+        return result;
+    }
+
+    /** Detiene los solvers de los componentes; solve() une lo que hayan encontrado. Desde cualquier hilo. */
+    public void cancel() {
+        cancelled = true;
+        for (ScheduleSolver solver : solvers) solver.cancel();
+    }
+
+    /** Si se canceló, por cancel() o por agotar el presupuesto. */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+}
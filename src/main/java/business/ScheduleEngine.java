@@ -0,0 +1,59 @@
+package business;
+
+import org.chocosolver.solver.exception.ContradictionException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Motor de generación de horarios. ScheduleSolver resuelve el modelo de Choco; LocalSearchSolver hace
+ * búsqueda local sobre arrays de enteros y no crea modelo, para instancias que no caben en memoria como CP.
+ * Ambos devuelven las mejores soluciones como List&lt;Schedule&gt; y emiten las intermedias igual.
+ */
+public interface ScheduleEngine {
+
+    /** Motor elegido en cada ejecución (ver BusinessController.setEngineKind). */
+    enum Kind { CP, LOCAL_SEARCH }
+
+    /**
+     * Fase de una generación. Los motores emiten MODEL_BUILD y SEARCH (ver setPhaseListener);
+     * ScheduleJob añade PERSISTENCE y FINISHED.
+     */
+    enum Phase { MODEL_BUILD, SEARCH, PERSISTENCE, FINISHED }
+
+    static ScheduleEngine create(Kind kind, List<Teacher> teachers, List<Classroom> classrooms,
+                                 List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        return kind == Kind.LOCAL_SEARCH
+                ? new LocalSearchSolver(teachers, classrooms, studentGroups, timePeriods)
+                : new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+    }
+
+    /** Genera los horarios, ordenados de mayor a menor puntuación; lista vacía si no encuentra ninguno. */
+    List<Schedule> createSchedule() throws ContradictionException;
+
+    /**
+     * Recibe cada solución aceptada durante la búsqueda (ver ScheduleUpdate). Se llama desde el hilo
+     * de la búsqueda, así que no debe bloquear. null para no emitir nada.
+     */
+    void setUpdateListener(Consumer<ScheduleUpdate> updateListener);
+
+    /** Recibe cada cambio de fase desde el hilo de createSchedule. null para no emitir nada. */
+    void setPhaseListener(Consumer<Phase> phaseListener);
+
+    /**
+     * Métricas de la última ejecución de createSchedule (fases, tamaño del modelo, búsqueda); null si
+     * aún no se ha ejecutado. Cada ejecución también se publica en SolverMetrics.global().
+     */
+    SolverRunStats getRunStats();
+
+    /**
+     * Si está activo (por defecto), cada ejecución escribe su progreso y su resumen por consola; si no,
+     * solo los errores. Las métricas siguen disponibles en getRunStats().
+     */
+    void setVerbose(boolean verbose);
+
+    /** Detiene la búsqueda lo antes posible; createSchedule devuelve lo encontrado hasta entonces. */
+    void cancel();
+
+    boolean isCancelled();
+}
@@ -0,0 +1,142 @@
+package business;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Generación de horarios como tarea en segundo plano (ver BusinessController.startRegeneration).
+ *
+ * La tarea ejecuta el motor y después la persistencia en el executor que se le pasa, nunca en el hilo
+ * que la lanza, e informa de cada cambio con un {@link Progress}: fase, soluciones encontradas y mejor
+ * puntuación hasta el momento. El listener se llama desde el hilo de la tarea; la interfaz debe pasar
+ * a su propio hilo (SwingUtilities.invokeLater) y no bloquear.
+ *
+ * {@link #cancel()} detiene la búsqueda del motor limpiamente: createSchedule devuelve las mejores
+ * soluciones encontradas hasta entonces y la tarea las guarda igual que si hubiera terminado.
+ */
+public class ScheduleJob {
+
+    /** Estado de la tarea en un instante. */
+    public static final class Progress {
+        private final ScheduleEngine.Phase phase;
+        private final int solutionsFound;
+        private final Integer bestScore;
+        private final long elapsedMs;
+        private final boolean cancelled;
+
+        Progress(ScheduleEngine.Phase phase, int solutionsFound, Integer bestScore, long elapsedMs, boolean cancelled) {
+            this.phase = phase;
+            this.solutionsFound = solutionsFound;
+            this.bestScore = bestScore;
+            this.elapsedMs = elapsedMs;
+            this.cancelled = cancelled;
+        }
+
+        public ScheduleEngine.Phase getPhase() { return phase; }
+
+        /** Soluciones emitidas por el motor hasta ahora. */
+        public int getSolutionsFound() { return solutionsFound; }
+
+        /** Mejor puntuación emitida hasta ahora; null si aún no hay ninguna solución. */
+        public Integer getBestScore() { return bestScore; }
+
+        /** Milisegundos desde que empezó la tarea. */
+        public long getElapsedMs() { return elapsedMs; }
+
+        public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public String toString() {
+            return phase + " solutions=" + solutionsFound + " best=" + (bestScore == null ? "-" : bestScore)
+                    + " " + elapsedMs + "ms" + (cancelled ? " (cancelled)" : "");
+        }
+    }
+
+    private final ScheduleEngine engine;
+    private final Consumer<List<Schedule>> store;
+    private final Consumer<Progress> progressListener;
+    private final CompletableFuture<List<Schedule>> result = new CompletableFuture<>();
+
+    private volatile ScheduleEngine.Phase phase = ScheduleEngine.Phase.MODEL_BUILD;
+    private volatile int solutionsFound;
+    private volatile Integer bestScore;
+    private volatile Progress lastProgress;
+    private long start;
+
+    /**
+     * @param store            guarda la lista final (fase PERSISTENCE); recibe también la parcial si se cancela
+     * @param progressListener recibe cada Progress (puede ser null)
+     */
+    public ScheduleJob(ScheduleEngine engine, Consumer<List<Schedule>> store, Consumer<Progress> progressListener) {
+        this.engine = engine;
+        this.store = store;
+        this.progressListener = progressListener;
+    }
+
+    /** Lanza la tarea en {@code executor} y devuelve this. */
+    public ScheduleJob start(ExecutorService executor) {
+        executor.execute(this::run);
+        return this;
+    }
+
+    /** Detiene la búsqueda; la tarea guarda lo encontrado hasta ahora y termina normalmente. */
+    public void cancel() {
+        engine.cancel();
+    }
+
+    public boolean isCancelled() {
+        return engine.isCancelled();
+    }
+
+    /** Horarios guardados; se completa al final de la persistencia (o con la excepción del motor). */
+    public CompletableFuture<List<Schedule>> getResult() {
+        return result;
+    }
+
+    /** Último Progress emitido (null antes de empezar). */
+    public Progress getLastProgress() {
+        return lastProgress;
+    }
+
+    private void run() {
+        start = System.currentTimeMillis();
+        engine.setPhaseListener(p -> {
+            phase = p;
+            emit();
+        });
+        engine.setUpdateListener(update -> {
+            solutionsFound = update.getSequence();
+            bestScore = update.getBestScore();
+            emit();
+        });
+        try {
+            emit();
+            List<Schedule> generated = engine.createSchedule();
+            if (generated == null) generated = List.of();
+
+            phase = ScheduleEngine.Phase.PERSISTENCE;
+            emit();
+            if (store != null) store.accept(generated);
+
+            phase = ScheduleEngine.Phase.FINISHED;
+            emit();
+            result.complete(generated);
+        } catch (Throwable e) {
+            phase = ScheduleEngine.Phase.FINISHED;
+            emit();
+            result.completeExceptionally(e);
+        } finally {
+            engine.setUpdateListener(null);
+            engine.setPhaseListener(null);
+        }
+    }
+
+    private void emit() {
+        Progress progress = new Progress(phase, solutionsFound, bestScore,
+                start == 0 ? 0 : System.currentTimeMillis() - start, engine.isCancelled());
+        lastProgress = progress;
+        if (progressListener != null) progressListener.accept(progress);
+    }
+}
@@ -0,0 +1,130 @@
+package business;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Caché del modelo de Choco compilado entre ejecuciones. La clave es un fingerprint (SHA-256) de todo lo
+ * que determina el modelo duro: unidades (grupos, asignaturas, horas, duración, máximo diario y aula fija),
+ * cualificaciones y horas de los profesores, su disponibilidad, aulas (capacidad y asignaturas) y periodos.
+ * Las preferencias no entran: si solo cambian ellas, el mismo ScheduleSolver se reutiliza y solo se rehace
+ * el submodelo de puntuación (ver ScheduleSolver.rebuildSoftConstraints).
+ *
+ * Guarda una única entrada, prestada mientras su ejecución está en curso; si se pide otra a la vez, se
+ * entrega un solver nuevo sin cachear. Los solvers que entrega tienen la configuración por defecto (sin
+ * prefase de profesores, que lee los pesos de las preferencias, ni portfolio ni descomposición).
+ */
+public final class ScheduleModelCache {
+
+    /** Reconstrucciones de preferencias sobre un mismo modelo antes de descartarlo (las vistas viejas se acumulan). */
+    static final int MAX_SOFT_REBUILDS = 20;
+
+    private String fingerprint;
+    private ScheduleSolver solver;
+    private boolean leased;
+    private boolean enabled = true;
+    private long hits, misses;
+
+    /**
+     * Solver para estos datos: el cacheado si el fingerprint coincide y está libre, o uno nuevo que pasa a
+     * ser la entrada de la caché. Se devuelve a la caché solo al terminar su createSchedule.
+     */
+    public synchronized ScheduleSolver acquire(List<Teacher> teachers, List<Classroom> classrooms,
+                                               List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        if (!enabled) return new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+        String key = fingerprint(teachers, classrooms, studentGroups, timePeriods);
+        if (solver != null && !leased && key.equals(fingerprint) && solver.getSoftRebuilds() < MAX_SOFT_REBUILDS) {
+            hits++;
+            leased = true;
+            solver.prepareReuse(teachers, classrooms, studentGroups, timePeriods);
+            return solver;
+        }
+        misses++;
+        ScheduleSolver fresh = new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+        if (leased) return fresh; // the cached model is busy: this one is not kept
+        fingerprint = key;
+        solver = fresh;
+        leased = true;
+        fresh.setAfterRun(stats -> release(fresh, stats));
+        return fresh;
+    }
+
+    // A run that failed may have left the model half built: it is dropped instead of reused
+    private synchronized void release(ScheduleSolver released, SolverRunStats stats) {
+        if (released != solver) return;
+        leased = false;
+        if (stats.getOutcome() == SolverRunStats.Outcome.ERROR) {
+            solver = null;
+            fingerprint = null;
+        }
+    }
+
+    public synchronized void clear() {
+        if (!leased) {
+            solver = null;
+            fingerprint = null;
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) clear();
+    }
+
+    /** Ejecuciones que reutilizaron el modelo cacheado y las que tuvieron que construirlo. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Fingerprint de las entradas del modelo duro. Sigue el orden de las listas, igual que los índices
+     * de las variables del modelo: reordenar una lista cambia el fingerprint.
+     */
+    public static String fingerprint(List<Teacher> teachers, List<Classroom> classrooms,
+                                     List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("P");
+        for (TimePeriod tp : timePeriods) {
+            sb.append('|').append(tp.getId()).append(',').append(tp.getWeekday())
+                    .append(',').append(tp.getInitialHour()).append(',').append(tp.getFinalHour());
+        }
+        sb.append("\nC");
+        for (Classroom c : classrooms) {
+            sb.append('|').append(c.getId()).append(',').append(c.getCapacity());
+            if (c.getAssignedSubjects() != null) for (Subject s : c.getAssignedSubjects()) sb.append(',').append(s.getId());
+        }
+        sb.append("\nG");
+        for (StudentGroup g : studentGroups) {
+            sb.append('|').append(g.getId()).append(',').append(g.getNumberOfStudents());
+            if (g.getRequiredSubjects() == null) continue;
+            for (Subject s : g.getRequiredSubjects()) {
+                sb.append(';').append(s.getId()).append(',').append(s.getWeeklyAssignedHours())
+                        .append(',').append(s.getDuration()).append(',').append(s.getMaxDailyHours())
+                        .append(',').append(s.getAssignedClassroom() == null ? "" : s.getAssignedClassroom().getId());
+            }
+        }
+        sb.append("\nT");
+        for (Teacher t : teachers) {
+            sb.append('|').append(t.getId()).append(',').append(t.getHoursWork());
+            for (Subject s : t.getPossibleSubjects()) sb.append(",s").append(s.getId());
+            for (TimePeriod tp : t.getUnavailableTimePeriods()) sb.append(",u").append(tp.getId());
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package business;
+
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.lns.neighbors.IntNeighbor;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Random;
+
+/**
+ * Vecindario LNS construido sobre el dominio del horario. A partir de la última solución, libera
+ * todas las unidades de dos profesores, de un grupo, de un día de la semana o un subconjunto
+ * aleatorio de unidades, y deja fijadas (profesor, aula y periodo) todas las demás.
+ *
+ * Las variables deben venir en el orden {profesores[], aulas[], periodos[]}, numUnits de cada tipo.
+ */
+class ScheduleNeighborhood extends IntNeighbor {
+
+    public enum Kind { TEACHER, STUDENT_GROUP, WEEKDAY, RANDOM }
+
+    private static final double INITIAL_RANDOM_FRACTION = 0.05;
+    private static final double MAX_RANDOM_FRACTION = 0.5;
+
+    private final int numUnits;
+    private final int[] unitGroup;   // índice del grupo de cada unidad
+    private final int[] periodDay;   // índice del día de cada periodo
+    private final Random rnd;
+    private final boolean[] free;
+
+    private double randomFraction = INITIAL_RANDOM_FRACTION;
+    private int round;
+    private Kind lastKind;
+    private final int[] relaxations = new int[Kind.values().length];
+    private final int[] improvements = new int[Kind.values().length];
+
+    ScheduleNeighborhood(IntVar[] unitVars, int numUnits, int[] unitGroup, int[] periodDay, long seed) {
+        super(unitVars);
+        this.numUnits = numUnits;
+        this.unitGroup = unitGroup;
+        this.periodDay = periodDay;
+        this.rnd = new Random(seed);
+        this.free = new boolean[numUnits];
+    }
+
+    @Override
+    public void recordSolution() {
+        super.recordSolution();
+        if (lastKind != null) improvements[lastKind.ordinal()]++;
+        randomFraction = INITIAL_RANDOM_FRACTION;
+    }
+
+    @Override
+    public void fixSomeVariables() throws ContradictionException {
+        java.util.Arrays.fill(free, false);
+        // Round-robin over the kinds so that every neighbourhood gets the same share of the budget
+        lastKind = Kind.values()[round++ % Kind.values().length];
+        relaxations[lastKind.ordinal()]++;
+
+        switch (lastKind) {
+            case TEACHER: {
+                // Two teachers, so that units can also be exchanged between them
+                int t1 = values[rnd.nextInt(numUnits)];
+                int t2 = values[rnd.nextInt(numUnits)];
+                for (int i = 0; i < numUnits; i++) free[i] = values[i] == t1 || values[i] == t2;
+                break;
+            }
+            case STUDENT_GROUP: {
+                int g = unitGroup[rnd.nextInt(numUnits)];
+                for (int i = 0; i < numUnits; i++) free[i] = unitGroup[i] == g;
+                break;
+            }
+            case WEEKDAY: {
+                int d = periodDay[values[2 * numUnits + rnd.nextInt(numUnits)]];
+                for (int i = 0; i < numUnits; i++) free[i] = periodDay[values[2 * numUnits + i]] == d;
+                break;
+            }
+            default: {
+                for (int i = 0; i < numUnits; i++) free[i] = rnd.nextDouble() < randomFraction;
+                break;
+            }
+        }
+
+        for (int i = 0; i < numUnits; i++) {
+            if (!free[i]) {
+                freeze(i);
+                freeze(numUnits + i);
+                freeze(2 * numUnits + i);
+            }
+        }
+    }
+
+    @Override
+    public void restrictLess() {
+        // No improvement within the fail limit: let the random neighbourhood grow
+        randomFraction = Math.min(MAX_RANDOM_FRACTION, randomFraction * 1.2);
+    }
+
+    /** Resumen de vecindarios probados y mejoras obtenidas por tipo. */
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Kind k : Kind.values()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(k).append('=').append(improvements[k.ordinal()]).append('/').append(relaxations[k.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
@@ -6,12 +6,14 @@ import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.constraints.extension.Tuples;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 
 
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -19,7 +21,7 @@ import java.util.stream.Stream;
  * Utiliza las entidades Teacher, Classroom, StudentGroup, Subject y TimePeriod.
  */
 
-public class ScheduleSolver {
+public class ScheduleSolver implements ScheduleEngine {
 
     // Listas de entidades del problema
     private List<Teacher> teachers;
@@ -27,6 +29,7 @@ public class ScheduleSolver {
     private List<StudentGroup> studentGroups;
     private List<TimePeriod> timePeriods;
     private List<ScheduledUnit> scheduledUnits; // Unidades a programar (grupo + asignatura + id único)
+    private ProblemInstance instance; // índices densos y datos compilados de las listas (ver createScheduleUnits)
     private Model model; // Modelo de Choco Solver
 
     // Variables de tamaño
@@ -43,6 +46,108 @@ public class ScheduleSolver {
     private List<BoolVar> teacherUnPreferencesPenalty; // Penalizaciones por no preferencias de profesores
 
     private IntVar totalScore;
+    private org.chocosolver.solver.constraints.Constraint softSum; // totalScore = suma de preferencias
+    private int softRebuilds; // veces que se ha rehecho el submodelo de preferencias (rebuildSoftConstraints)
+    private UnitDomains unitDomains; // dominios prefiltrados de cada unidad (defineVariables)
+
+    // Capas de indicadores compartidas entre restricciones (se crean bajo demanda, ver teaches/atPeriod/...)
+    private BoolVar[][] unitTeacherBools;   // [unidad][profesor]: la unidad la imparte el profesor
+    private BoolVar[][] unitPeriodBools;    // [unidad][periodo]: la unidad está en el periodo
+    private BoolVar[][] teacherPeriodBools; // [profesor][periodo]: el profesor da alguna clase en el periodo
+    private BoolVar[][] teacherSubjectBools; // [profesor][asignatura de ProblemInstance]: la imparte alguna vez
+    private BoolVar[][] teacherGroupBools;   // [profesor][grupo]: da clase al grupo alguna vez
+
+    /**
+     * Codificación de las restricciones de solapamiento (profesor, aula y grupo en el mismo periodo).
+     * PAIRWISE: un ifThen por cada par de unidades (O(n²) restricciones reificadas).
+     * GLOBAL: allDifferent sobre claves compuestas (recurso, periodo) y sobre los periodos de cada grupo.
+     */
+    public enum ClashEncoding { PAIRWISE, GLOBAL }
+
+    private ClashEncoding clashEncoding = ClashEncoding.PAIRWISE;
+
+    private int portfolioThreads = 1;
+    private boolean decomposeComponents = false;
+    private boolean symmetryBreaking = true; // ver sección 7 de addConstraints
+    private boolean verbose = true;          // ver setVerbose
+
+    // Asignación de aulas en dos fases (ver setRoomMatching)
+    private boolean roomMatching = false;
+    private RoomMatcher roomMatcher;
+    private final List<RoomMatcher.HallViolation> roomViolations = new ArrayList<>(); // cuts not posted yet
+    private final Set<String> postedRoomCuts = new HashSet<>();
+    static final int MAX_ROOM_CUT_ROUNDS = 5; // createSchedule re-solves at most this many times after new cuts
+
+    // Diversidad del pool de candidatas (ver setPoolDiversity)
+    private SolutionPool.Diversity poolDiversity = SolutionPool.Diversity.TEACHER_PERIOD;
+    private int poolMinDistance = 0;
+    private double selectionDiversity = SELECTION_DIVERSITY;
+    private SolutionPool solutionPool; // of the last run
+
+    /**
+     * Prefase de asignación de profesores por flujo de coste mínimo (ver TeacherAssignment).
+     * OFF: sin prefase. HINT: el profesor de cada oferta se da como pista a la búsqueda.
+     * FIX: se fija (si el reparto redondeado respeta las capacidades; si no, queda como pista).
+     * En HINT y FIX, si el flujo no cubre la demanda, createSchedule termina sin buscar.
+     */
+    public enum TeacherPrePhase { OFF, HINT, FIX }
+
+    private TeacherPrePhase teacherPrePhase = TeacherPrePhase.OFF;
+    private TeacherAssignment teacherAssignment;
+    private FeasibilityDiagnostics diagnostics;
+
+    /**
+     * Modo de búsqueda de solveModel.
+     * RESTARTS: reinicios aleatorios que recogen soluciones cercanas a la mejor vista.
+     * LNS: parte de la primera solución factible y la mejora relajando vecindarios (ver ScheduleNeighborhood).
+     */
+    public enum SearchMode { RESTARTS, LNS }
+
+    private SearchMode searchMode = SearchMode.RESTARTS;
+
+    /**
+     * Estrategia de búsqueda sobre las variables de las unidades (ver TimetableSearch).
+     * DEFAULT: dom/wdeg para la primera solución, búsqueda aleatoria en los reinicios y FirstFail con
+     *          valores aleatorios en el LNS.
+     * MOST_CONSTRAINED: primero la unidad con menos combinaciones de profesor, periodo y aula; valores según
+     *          las preferencias de los profesores (empates al azar en reinicios y LNS).
+     * DOM_WDEG_REF: dom/wdeg refinado (pesos según la reducción de dominio de cada fallo) en todas las fases;
+     *          en reinicios y LNS con empates y valores al azar.
+     * ACTIVITY: búsqueda basada en actividad en todas las fases, con otra semilla en cada reinicio.
+     * MIN_DOM: dominio mínimo y valor mínimo en todas las fases; en reinicios y LNS, empates al azar.
+     * RANDOM: variables y valores aleatorios en todas las fases.
+     */
+    public enum SearchStrategy { DEFAULT, MOST_CONSTRAINED, DOM_WDEG_REF, ACTIVITY, MIN_DOM, RANDOM }
+
+    private SearchStrategy searchStrategy = SearchStrategy.DEFAULT;
+    private long timeBudgetMs = TIME_BUDGET_MS;
+    private long lnsTimeLimitMs = TIME_BUDGET_MS;
+    private long lnsStagnationMs = 3_000;
+    private final List<ScoreSample> scoreTrajectory = new ArrayList<>();
+
+    // Emisión de soluciones durante la búsqueda (ver setUpdateListener y ScheduleStream)
+    private volatile java.util.function.Consumer<ScheduleUpdate> updateListener;
+    private volatile boolean cancelled;
+    private volatile ScheduleDecomposer activeDecomposer; // while the components are solved, for cancel()
+    private volatile java.util.function.Consumer<Phase> phaseListener;
+    private long searchStart;
+    private long nodesBefore, failsBefore, backtracksBefore, restartsBefore; // stats of the searches already reset
+    private int updatesSent;
+    private int bestSent = Integer.MIN_VALUE;
+
+    // Métricas de la ejecución en curso (ver SolverRunStats) y registro donde se publican
+    private long createUnitsMs;
+    private SolverRunStats runStats;
+    private SolverMetrics metrics = SolverMetrics.global();
+    private java.util.function.Consumer<SolverRunStats> afterRun; // ScheduleModelCache: devuelve el modelo
+
+    // Telemetría en vivo de la búsqueda (ver SearchTelemetry): JMX mientras dura y traza opcional al terminar
+    private SearchTelemetry telemetry;
+    private boolean telemetryJmx = Boolean.parseBoolean(System.getProperty("solver.telemetry.jmx", "true"));
+    private java.nio.file.Path traceDir = System.getProperty("solver.traceDir") == null ? null
+            : java.nio.file.Paths.get(System.getProperty("solver.traceDir"));
+    private SearchTelemetry.Format traceFormat = SearchTelemetry.Format.valueOf(
+            System.getProperty("solver.traceFormat", "CSV").toUpperCase(java.util.Locale.ROOT));
 
     /**
      * Constructor principal. Inicializa listas y modelo.
@@ -53,7 +158,9 @@ public class ScheduleSolver {
         this.studentGroups = studentGroups;
         this.timePeriods = timePeriods;
         this.model = new Model("SchoolScheduler");
+        long t0 = System.nanoTime();
         createScheduleUnits();
+        this.createUnitsMs = (System.nanoTime() - t0) / 1_000_000;
 
         this.numUnits = scheduledUnits.size();
         this.numTeachers = teachers.size();
@@ -69,23 +176,13 @@ public class ScheduleSolver {
      * Crea las unidades a programar (ScheduledUnit) a partir de los grupos y sus asignaturas requeridas.
      */
     public void createScheduleUnits() {
-        // A ScheduledUnit is a specific StudentGroup needing a specific Subject.
-        List<ScheduledUnit> scheduledUnits = new ArrayList<>();
-        int unitIdCounter = 0;
-        for (StudentGroup sg : studentGroups) {
-            if (sg.getRequiredSubjects() != null) {
-                for (Subject subj : sg.getRequiredSubjects()) {
-                    for (int i = 0; i < subj.getWeeklyAssignedHours(); i++) {
-                        // Una unidad por cada hora semanal requerida
-                        //System.out.println("Creating unit for StudentGroup: " + sg.getId() + ", Subject: " + subj.getId() + ", Unit ID: " + unitIdCounter);
-                        scheduledUnits.add(new ScheduledUnit(sg, subj, unitIdCounter++));
-                    }
-                }
-            }
-        }
+        // A ScheduledUnit is a specific StudentGroup needing a specific Subject, one per weekly hour.
+        // The compiled instance creates them (ScheduledUnit.forGroups) along with the index arrays.
+        this.instance = ProblemInstance.compile(teachers, classrooms, studentGroups, timePeriods);
+        List<ScheduledUnit> scheduledUnits = instance.getUnits();
 
         if (scheduledUnits.isEmpty()) {
-            System.out.println("No units to schedule (e.g., no student groups or no required subjects defined).");
+            log("No units to schedule (e.g., no student groups or no required subjects defined).");
 
         }
         if (teachers.isEmpty() || classrooms.isEmpty() || timePeriods.isEmpty()) {
@@ -102,10 +199,43 @@ public class ScheduleSolver {
      */
     public void defineVariables() {
 
-        this.unitTeacherVars = model.intVarArray("unit_teacher", numUnits, 0, numTeachers - 1);
-        this.unitClassroomVars = model.intVarArray("unit_classroom", numUnits, 0, numClassrooms - 1);
-        this.unitTimePeriodVars = model.intVarArray("unit_timeperiod", numUnits, 0, numTimePeriods - 1);
+        // Presolve: los dominios ya excluyen profesores no cualificados o sin disponibilidad, aulas no
+        // permitidas o sin capacidad y periodos sin ningún profesor posible (ver UnitDomains)
+        this.unitDomains = UnitDomains.compute(instance);
+        if (verbose) System.out.println(unitDomains.report(5));
+
+        this.unitTeacherVars = new IntVar[numUnits];
+        this.unitClassroomVars = new IntVar[numUnits];
+        this.unitTimePeriodVars = new IntVar[numUnits];
+        for (int i = 0; i < numUnits; i++) {
+            unitTeacherVars[i] = domainVar("unit_teacher[" + i + "]", unitDomains.teachers[i]);
+            // With room matching the classroom is chosen after the search: a constant placeholder here
+            unitClassroomVars[i] = roomMatching && unitDomains.classrooms[i].length > 0
+                    ? model.intVar("unit_classroom[" + i + "]", unitDomains.classrooms[i][0])
+                    : domainVar("unit_classroom[" + i + "]", unitDomains.classrooms[i]);
+            unitTimePeriodVars[i] = domainVar("unit_timeperiod[" + i + "]", unitDomains.timePeriods[i]);
+        }
+        if (roomMatching) roomMatcher = new RoomMatcher(unitDomains.classrooms, numClassrooms);
+        if (!unitDomains.emptyUnits().isEmpty()) {
+            ScheduledUnit unit = scheduledUnits.get(unitDomains.emptyUnits().get(0));
+            System.err.println("Error: No qualified teacher, allowed classroom or time period for " + unit +
+                    ". Schedule will be infeasible.");
+        }
+
+        this.unitTeacherBools = new BoolVar[numUnits][numTeachers];
+        this.unitPeriodBools = new BoolVar[numUnits][numTimePeriods];
+        this.teacherPeriodBools = new BoolVar[numTeachers][numTimePeriods];
+        this.teacherSubjectBools = new BoolVar[numTeachers][instance.numSubjects()];
+        this.teacherGroupBools = new BoolVar[numTeachers][instance.numGroups()];
+
+    }
 
+    // Variable con dominio enumerado; con un dominio vacío el modelo queda infactible
+    private IntVar domainVar(String name, int[] values) {
+        if (values.length > 0) return model.intVar(name, values);
+        IntVar var = model.intVar(name, 0);
+        model.falseConstraint().post();
+        return var;
     }
 
     /**
@@ -124,15 +254,11 @@ public class ScheduleSolver {
 
             // Recorrer todos los profesores
             for (int tIdx = 0; tIdx < numTeachers; tIdx++) {
-                Teacher teacher = teachers.get(tIdx);
-
                 // Recorrer todos los periodos de tiempo
                 for (int tpIdx = 0; tpIdx < numTimePeriods; tpIdx++) {
-                    TimePeriod timePeriod = timePeriods.get(tpIdx);
-
                     // Si el profesor está disponible en ese periodo, añadir la tupla (profesor, periodo)
                     // Esto significa que esa combinación está permitida en el modelo.
-                    if (teacher.isAvailable(timePeriod)) {
+                    if (instance.isAvailable(tIdx, tpIdx)) {
                         allowTeacherTimePeriodsPairs.add(tIdx, tpIdx);
                     }
                 }
@@ -154,48 +280,31 @@ public class ScheduleSolver {
 
 
             // 2 - Control de las habilitaciones de los profesores
-
-            // Solo profesores cualificados pueden impartir la asignatura
+            // Solo profesores cualificados pueden impartir la asignatura: ya lo garantiza el dominio de
+            // unitTeacherVars (UnitDomains), así que no hace falta ninguna restricción
 
             // Obtiene la unidad actual a programar (grupo y asignatura)
             ScheduledUnit currentUnit = scheduledUnits.get(i);
 
-            // Lista para almacenar los índices de profesores cualificados para la asignatura de la unidad actual
-            List<Integer> qualifiedTeacherIndices = new ArrayList<>();
-            for (int tIdx = 0; tIdx < numTeachers; tIdx++) {
-                // Verifica si el profesor puede impartir la asignatura
-                if (teachers.get(tIdx).canTeach(currentUnit.subject)) {
-                    qualifiedTeacherIndices.add(tIdx);
-                }
-            }
-
-            // Si ningún profesor es cualificado, muestra error y hace la unidad no asignable (modelo infactible)
-            if (qualifiedTeacherIndices.isEmpty()) {
-                System.err.println("Error: No teacher is qualified to teach " + currentUnit.subject +
-                        " for " + currentUnit.studentGroup + ". Schedule might be infeasible.");
-                // Restringe la variable para que no pueda tomar ningún valor (ningún profesor puede ser asignado)// Make this unit unschedulable for teachers, effectively making the model infeasible if this unit must be scheduled.
-                model.member(unitTeacherVars[i], new int[]{}).post();
-            } else {
-                // Restringe la variable para que solo pueda tomar los valores de profesores cualificados
-                model.member(unitTeacherVars[i], qualifiedTeacherIndices.stream().mapToInt(Integer::intValue).toArray()).post();
-            }
-
 
             // 3 - Solapamiento de recursos y restricciones de aula
 
             // Recorre todas las unidades posteriores para evitar solapamientos de recursos
-            for (int j = i + 1; j < numUnits; j++) {
+            // (con la codificación GLOBAL se publican después del bucle, ver addGlobalClashConstraints)
+            for (int j = i + 1; clashEncoding == ClashEncoding.PAIRWISE && j < numUnits; j++) {
                 ScheduledUnit otherUnit = scheduledUnits.get(j);
 
                 // Si dos unidades se programan en el mismo periodo:
                 // C1: No pueden tener el mismo profesor
-                // C2: No pueden tener el mismo aula
+                // C2: No pueden tener el mismo aula (con emparejamiento de aulas, lo resuelve RoomMatcher)
                 model.ifThen(
                         model.arithm(unitTimePeriodVars[i], "=", unitTimePeriodVars[j]),
-                        model.and(
-                                model.arithm(unitTeacherVars[i], "!=", unitTeacherVars[j]),
-                                model.arithm(unitClassroomVars[i], "!=", unitClassroomVars[j])
-                        )
+                        roomMatching
+                                ? model.arithm(unitTeacherVars[i], "!=", unitTeacherVars[j])
+                                : model.and(
+                                        model.arithm(unitTeacherVars[i], "!=", unitTeacherVars[j]),
+                                        model.arithm(unitClassroomVars[i], "!=", unitClassroomVars[j])
+                                )
                 );
 
                 // C3: Si dos unidades tienen el mismo grupo de alumnos, no pueden estar en el mismo periodo
@@ -204,66 +313,21 @@ public class ScheduleSolver {
                 }
             }
 
-            // Si la asignatura tiene aula asignada, fuerza su uso
-            Subject subject = currentUnit.getSubject();
-            Classroom assignedClassroom = subject.getAssignedClassroom();
-            if (assignedClassroom != null) {
-                int index = -1;
-                for (int cIdx = 0; cIdx < numClassrooms; cIdx++) {
-                    if (classrooms.get(cIdx).getId().equals(assignedClassroom.getId())) {
-                        index = cIdx;
-                        break;
-                    }
-                }
-                if (index != -1) {
-                    // If the subject has an assigned classroom, enforce that this unit must use that classroom.
-                    model.arithm(unitClassroomVars[i], "=", index).post();
-                } else {
-                    System.err.println("Error: Assigned classroom for subject " + subject.getId() +
-                            " not found in the list of classrooms. This unit may not be scheduled correctly.");
-                    model.member(unitClassroomVars[i], new int[]{}).post();
-                }
-            }
-
-
-            // Solo se pueden usar aulas permitidas para la asignatura
-            if (numClassrooms > 0) {
-                List<Integer> allowedClassroomIndices = new ArrayList<>();
-                for (int cIdx = 0; cIdx < numClassrooms; cIdx++) {
-                    Classroom classroom = classrooms.get(cIdx);
-                    List<Subject> assignedSubjects = classroom.getAssignedSubjects();
-
-                    // Permite el aula si no tiene asignaturas asignadas o incluye la actual
-                    if (assignedSubjects == null || assignedSubjects.isEmpty() ||
-                            assignedSubjects.stream().anyMatch(subj ->
-                                    subj.getId().equals(currentUnit.getSubject().getId()))) {
-                        allowedClassroomIndices.add(cIdx);
-                    }
-                }
-
-                if (!allowedClassroomIndices.isEmpty()) {
-                    model.member(unitClassroomVars[i],
-                            allowedClassroomIndices.stream().mapToInt(Integer::intValue).toArray()).post();
-                } else {
-                    System.err.println("Error: No classrooms available for subject " +
-                            currentUnit.getSubject().getId() + ". This unit may not be scheduled correctly.");
-                    model.member(unitClassroomVars[i], new int[]{}).post();
-                }
-            }
+            // Aula asignada a la asignatura, aulas permitidas y capacidad suficiente para el grupo:
+            // todo ello está ya en el dominio de unitClassroomVars (UnitDomains)
+        }
 
-            // El aula debe tener capacidad suficiente para el grupo
-            if (numClassrooms > 0 && currentUnit.getStudentGroup() != null) {
-                int studentGroupSize = currentUnit.getStudentGroup().getNumberOfStudents();
-                int[] allClassroomCapacities = classrooms.stream()
-                        .mapToInt(Classroom::getCapacity)
-                        .toArray();
-                int maxCapacity = Arrays.stream(allClassroomCapacities).max().orElse(0);
-                IntVar classroomCapacityVar = model.intVar("classroom_capacity_" + i, 0, maxCapacity);
-                model.element(classroomCapacityVar, allClassroomCapacities, unitClassroomVars[i]).post();
-                model.arithm(classroomCapacityVar, ">=", studentGroupSize).post();
-            }
+        if (clashEncoding == ClashEncoding.GLOBAL) {
+            addGlobalClashConstraints();
+        }
 
+        // Primera fase del emparejamiento de aulas: en ningún periodo puede haber más unidades que aulas
+        if (roomMatching) {
+            postRoomCut(IntStream.range(0, numClassrooms).toArray());
+        }
 
+        if (teacherPrePhase != TeacherPrePhase.OFF) {
+            applyTeacherPrePhase();
         }
 
         // 4 - Restricciones de horas de trabajo de los profesores
@@ -274,22 +338,25 @@ public class ScheduleSolver {
             for (int tIdx = 0; tIdx < numTeachers; tIdx++) {
                 Teacher teacher = teachers.get(tIdx);
 
-                // Array de variables booleanas: indica si el profesor tIdx imparte cada unidad (1 = sí, 0 = no)
-                IntVar[] unitsTaughtByTeacher = new IntVar[numUnits];
+                // Variables booleanas: indica si el profesor tIdx imparte cada unidad (1 = sí, 0 = no),
+                // solo para las unidades que tienen al profesor en su dominio
+                List<IntVar> unitsTaughtByTeacherList = new ArrayList<>();
 
-                // Array con la duración de cada unidad (en horas)
-                int[] unitDurations = new int[numUnits];
+                // Duración de cada una de esas unidades (en horas)
+                List<Integer> unitDurationsList = new ArrayList<>();
 
                 for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                    // Crea una variable booleana para la unidad uIdx y el profesor tIdx
-                    unitsTaughtByTeacher[uIdx] = model.boolVar("teaches_unit_" + uIdx + "_by_teacher_" + tIdx);
+                    if (!unitTeacherVars[uIdx].contains(tIdx)) continue;
 
-                    // Relaciona la variable booleana con la asignación real del profesor a la unidad
-                    model.arithm(unitTeacherVars[uIdx], "=", tIdx).reifyWith((BoolVar) unitsTaughtByTeacher[uIdx]);
+                    // Indicador (compartido) de que el profesor tIdx imparte la unidad uIdx
+                    unitsTaughtByTeacherList.add(teaches(uIdx, tIdx));
 
                     // Obtiene la duración de la unidad (en horas)
-                    unitDurations[uIdx] = scheduledUnits.get(uIdx).getSubject().getDuration(); // Assumed method
+                    unitDurationsList.add(instance.duration[instance.unitSubject[uIdx]]);
                 }
+                if (unitsTaughtByTeacherList.isEmpty()) continue;
+                IntVar[] unitsTaughtByTeacher = unitsTaughtByTeacherList.toArray(new IntVar[0]);
+                int[] unitDurations = unitDurationsList.stream().mapToInt(Integer::intValue).toArray();
 
                 // Suma ponderada: total de horas impartidas por el profesor en la semana
                 // La suma de (unidades impartidas * duración unidad) debe ser menor o igual a su máximo de horas
@@ -300,75 +367,65 @@ public class ScheduleSolver {
 
 
         // 5 - Restricciones de horas de asignatura por día y consecutividad
-        for (StudentGroup sg : studentGroups) {
-            if (sg.getRequiredSubjects() == null) continue;
-            for (Subject subj : sg.getRequiredSubjects()) {
-                // Obtener índices de unidades para esta combinación grupo-asignatura
-                List<Integer> unitIndices = new ArrayList<>();
-                for (int i = 0; i < numUnits; i++) {
-                    ScheduledUnit unit = scheduledUnits.get(i);
-                    if (unit.getStudentGroup().equals(sg) && unit.getSubject().equals(subj)) {
-                        unitIndices.add(i);
-                    }
-                }
-
-                if (unitIndices.isEmpty()) continue;
-
-                // Agrupar periodos por día
-                Map<String, List<Integer>> tpByDay = new HashMap<>();
-                for (int tp = 0; tp < numTimePeriods; tp++) {
-                    String day = timePeriods.get(tp).getWeekday();
-                    tpByDay.computeIfAbsent(day, k -> new ArrayList<>()).add(tp);
-                }
+        // Periodos agrupados por día (índices de día de ProblemInstance)
+        List<List<Integer>> tpByDay = new ArrayList<>();
+        for (int d = 0; d < instance.numDays(); d++) tpByDay.add(new ArrayList<>());
+        for (int tp = 0; tp < numTimePeriods; tp++) tpByDay.get(instance.dayOf(tp)).add(tp);
+
+        // Una vez por oferta (grupo, asignatura), con sus unidades de offeringUnits
+        for (int o = 0; o < instance.numOfferings(); o++) {
+            List<Integer> unitIndices = new ArrayList<>();
+            for (int k = instance.offeringStart[o]; k < instance.offeringStart[o + 1]; k++) {
+                unitIndices.add(instance.offeringUnits[k]);
+            }
 
-                // Restricciones por día
-                int maxHoursPerDay = subj.getMaxDailyHours() > 0 ? subj.getMaxDailyHours() : unitIndices.size();
+            // Restricciones por día
+            int maxDaily = instance.maxDaily[instance.offeringSubject[o]];
+            int maxHoursPerDay = maxDaily > 0 ? maxDaily : unitIndices.size();
 
-                for (String day : tpByDay.keySet()) {
-                    List<Integer> dayPeriods = tpByDay.get(day);
+            for (List<Integer> dayPeriods : tpByDay) {
+                String day = timePeriods.get(dayPeriods.get(0)).getWeekday();
 
-                    // Para cada unidad, ¿está asignada a este día?
-                    List<BoolVar> unitsInThisDay = new ArrayList<>();
-                    for (int uIdx : unitIndices) {
-                        BoolVar isInDay = model.boolVar("unit_" + uIdx + "_in_day_" + day);
+                // Para cada unidad, ¿está asignada a este día?
+                List<BoolVar> unitsInThisDay = new ArrayList<>();
+                for (int uIdx : unitIndices) {
+                    BoolVar isInDay = model.boolVar("unit_" + uIdx + "_in_day_" + day);
 
-                        // Array de BoolVars: unidad está en algún periodo de este día
-                        BoolVar[] inAnyPeriod = new BoolVar[dayPeriods.size()];
-                        for (int i = 0; i < dayPeriods.size(); i++) {
-                            int tp = dayPeriods.get(i);
-                            inAnyPeriod[i] = model.boolVar("unit_" + uIdx + "_tp_" + tp);
-                            model.arithm(unitTimePeriodVars[uIdx], "=", tp).reifyWith(inAnyPeriod[i]);
-                        }
-
-                        // La unidad está en este día si está en algún periodo del día
-                        model.max(isInDay, inAnyPeriod).post();
-                        unitsInThisDay.add(isInDay);
+                    // Array de BoolVars: unidad está en algún periodo de este día
+                    BoolVar[] inAnyPeriod = new BoolVar[dayPeriods.size()];
+                    for (int i = 0; i < dayPeriods.size(); i++) {
+                        int tp = dayPeriods.get(i);
+                        inAnyPeriod[i] = atPeriod(uIdx, tp);
                     }
 
-                    // Limitar unidades por día
-                    model.sum(unitsInThisDay.toArray(new BoolVar[0]), "<=", maxHoursPerDay).post();
-
-                    // Restricción de consecutividad
-                    if (dayPeriods.size() >= 2) {
-                        // Para cada par de unidades asignadas a este día
-                        for (int i = 0; i < unitIndices.size(); i++) {
-                            for (int j = i + 1; j < unitIndices.size(); j++) {
-                                int uIdxA = unitIndices.get(i);
-                                int uIdxB = unitIndices.get(j);
-
-                                // Si ambas unidades están en este día
-                                BoolVar bothInDay = model.boolVar("both_in_day_" + uIdxA + "_" + uIdxB);
-                                model.and(unitsInThisDay.get(i), unitsInThisDay.get(j)).reifyWith(bothInDay);
-
-                                // Si ambas están en el día, el periodo B debe ser el periodo A + 1
-                                model.ifThen(
-                                        bothInDay,
-                                        model.or(
-                                                model.arithm(unitTimePeriodVars[uIdxB], "=", model.intOffsetView(unitTimePeriodVars[uIdxA], 1)),
-                                                model.arithm(unitTimePeriodVars[uIdxA], "=", model.intOffsetView(unitTimePeriodVars[uIdxB], 1))
-                                        )
-                                );
-                            }
+                    // La unidad está en este día si está en algún periodo del día
+                    model.max(isInDay, inAnyPeriod).post();
+                    unitsInThisDay.add(isInDay);
+                }
+
+                // Limitar unidades por día
+                model.sum(unitsInThisDay.toArray(new BoolVar[0]), "<=", maxHoursPerDay).post();
+
+                // Restricción de consecutividad
+                if (dayPeriods.size() >= 2) {
+                    // Para cada par de unidades asignadas a este día
+                    for (int i = 0; i < unitIndices.size(); i++) {
+                        for (int j = i + 1; j < unitIndices.size(); j++) {
+                            int uIdxA = unitIndices.get(i);
+                            int uIdxB = unitIndices.get(j);
+
+                            // Si ambas unidades están en este día
+                            BoolVar bothInDay = model.boolVar("both_in_day_" + uIdxA + "_" + uIdxB);
+                            model.and(unitsInThisDay.get(i), unitsInThisDay.get(j)).reifyWith(bothInDay);
+
+                            // Si ambas están en el día, el periodo B debe ser el periodo A + 1
+                            model.ifThen(
+                                    bothInDay,
+                                    model.or(
+                                            model.arithm(unitTimePeriodVars[uIdxB], "=", model.offset(unitTimePeriodVars[uIdxA], 1)),
+                                            model.arithm(unitTimePeriodVars[uIdxA], "=", model.offset(unitTimePeriodVars[uIdxB], 1))
+                                    )
+                            );
                         }
                     }
                 }
@@ -376,28 +433,69 @@ public class ScheduleSolver {
         }
 
         // 6 - Restricción de mismo profesor para todas las unidades de la misma asignatura y grupo
-        Map<String, List<Integer>> unitsByGroupSubject = new HashMap<>();
+        // (las ofertas grupo-asignatura de ProblemInstance, con sus unidades en orden creciente)
+        for (int o = 0; o < instance.numOfferings(); o++) {
+            int firstUnit = instance.offeringUnits[instance.offeringStart[o]];
+            for (int k = instance.offeringStart[o] + 1; k < instance.offeringStart[o + 1]; k++) {
+                // La unidad actual debe tener el mismo profesor que la primera unidad del grupo
+                model.arithm(unitTeacherVars[firstUnit], "=", unitTeacherVars[instance.offeringUnits[k]]).post();
+            }
+        }
 
-// Agrupar unidades por combinación grupo-asignatura
-        for (int i = 0; i < numUnits; i++) {
-            ScheduledUnit unit = scheduledUnits.get(i);
-            String key = unit.getStudentGroup().getId() + "-" + unit.getSubject().getId();
-            unitsByGroupSubject.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
-        }
-
-// Para cada grupo de unidades del mismo grupo-asignatura, forzar el mismo profesor
-        for (List<Integer> relatedUnits : unitsByGroupSubject.values()) {
-            if (relatedUnits.size() > 1) {
-                for (int i = 1; i < relatedUnits.size(); i++) {
-                    // La unidad actual debe tener el mismo profesor que la primera unidad del grupo
-                    int firstUnit = relatedUnits.get(0);
-                    int currentUnit = relatedUnits.get(i);
-                    model.arithm(unitTeacherVars[firstUnit], "=", unitTeacherVars[currentUnit]).post();
+        // 7 - Ruptura de simetrías
+        // Las unidades de un mismo grupo-asignatura son intercambiables (solo difieren en uniqueId): cualquier
+        // permutación de sus (profesor, aula, periodo) es el mismo horario. Como no pueden coincidir en periodo
+        // (C3), exigir periodos estrictamente crecientes deja una sola de las k! permutaciones.
+        if (symmetryBreaking) {
+            for (int o = 0; o < instance.numOfferings(); o++) {
+                for (int k = instance.offeringStart[o] + 1; k < instance.offeringStart[o + 1]; k++) {
+                    model.arithm(unitTimePeriodVars[instance.offeringUnits[k - 1]], "<",
+                            unitTimePeriodVars[instance.offeringUnits[k]]).post();
                 }
             }
         }
     }
 
+    /**
+     * Versión lineal de las restricciones C1, C2 y C3 de addConstraints.
+     * Cada unidad recibe una clave (recurso * numTimePeriods + periodo); dos unidades comparten
+     * profesor (o aula) en el mismo periodo si y solo si sus claves coinciden, así que basta un
+     * allDifferent por tipo de recurso. Para los grupos, un allDifferent sobre sus periodos.
+     */
+    private void addGlobalClashConstraints() {
+        if (numUnits < 2 || numTimePeriods == 0) return;
+
+        if (numTeachers > 0) {
+            IntVar[] teacherSlots = new IntVar[numUnits];
+            for (int i = 0; i < numUnits; i++) {
+                teacherSlots[i] = model.intVar("unit_teacher_slot_" + i, 0, numTeachers * numTimePeriods - 1);
+                model.scalar(new IntVar[]{unitTeacherVars[i], unitTimePeriodVars[i]},
+                        new int[]{numTimePeriods, 1}, "=", teacherSlots[i]).post();
+            }
+            model.allDifferent(teacherSlots).post();
+        }
+
+        if (numClassrooms > 0 && !roomMatching) {
+            IntVar[] classroomSlots = new IntVar[numUnits];
+            for (int i = 0; i < numUnits; i++) {
+                classroomSlots[i] = model.intVar("unit_classroom_slot_" + i, 0, numClassrooms * numTimePeriods - 1);
+                model.scalar(new IntVar[]{unitClassroomVars[i], unitTimePeriodVars[i]},
+                        new int[]{numTimePeriods, 1}, "=", classroomSlots[i]).post();
+            }
+            model.allDifferent(classroomSlots).post();
+        }
+
+        Map<String, List<IntVar>> periodsByGroup = new LinkedHashMap<>();
+        for (int i = 0; i < numUnits; i++) {
+            StudentGroup sg = scheduledUnits.get(i).getStudentGroup();
+            periodsByGroup.computeIfAbsent(sg.getId(), k -> new ArrayList<>()).add(unitTimePeriodVars[i]);
+        }
+        for (List<IntVar> groupPeriods : periodsByGroup.values()) {
+            if (groupPeriods.size() > 1) {
+                model.allDifferent(groupPeriods.toArray(new IntVar[0])).post();
+            }
+        }
+    }
 
     // Añade las restricciones soft basadas en las preferencias de los profesores
     public void addSoftConstraints() {
@@ -408,216 +506,200 @@ public class ScheduleSolver {
 
         List<IntVar> softScores = new ArrayList<>();
 
-        for (int tIdx = 0; tIdx < numTeachers; tIdx++) {
-            Teacher teacher = teachers.get(tIdx);
-
-            List<Condition> preferredConditions = teacher.getPreferredConditions();
-            List<Condition> unPreferredConditions = teacher.getUnPreferredConditions();
-
-            // === Preferred Time Periods ===
-            if (preferredConditions != null) {
-                for (Condition condition : preferredConditions) {
-                    TimePeriod period = condition.getTimePeriod();
-                    int weight = condition.getWeight();
-                    int periodIdx = timePeriods.indexOf(period);
-
-                    if (period != null && weight > 0 && periodIdx != -1) {
-                        BoolVar[] matches = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            matches[uIdx] = model.and(
-                                    model.arithm(unitTeacherVars[uIdx], "=", tIdx),
-                                    model.arithm(unitTimePeriodVars[uIdx], "=", periodIdx)
-                            ).reify();
-                        }
-                        BoolVar fulfilled = model.boolVar("fulfilled_pref_time_t" + tIdx + "_p" + periodIdx);
-                        model.max(fulfilled, matches).post();
+        // One term per (condition, period|subject|group) with a positive weight, compiled in ProblemInstance.
+        // All of them use the shared teacher×period, teacher×subject and teacher×group layers: each pair is
+        // channelled once even if several conditions name it.
+        for (int i = 0; i < instance.numTerms(); i++) {
+            int t = instance.termTeacher[i], target = instance.termTarget[i];
+            BoolVar indicator = switch (instance.termKind[i]) {
+                case ProblemInstance.PERIOD -> teacherAtPeriod(t, target);
+                case ProblemInstance.SUBJECT -> teacherTeachesSubject(t, target);
+                default -> teacherTeachesGroup(t, target);
+            };
+            softScores.add(model.mul(indicator, instance.termWeight[i]));
+        }
 
-                        softScores.add(model.intScaleView(fulfilled, weight));
-                    }
-                }
-            }
+        if (!softScores.isEmpty()) {
+            int min = softScores.stream().mapToInt(IntVar::getLB).sum();
+            int max = softScores.stream().mapToInt(IntVar::getUB).sum();
+            this.totalScore = model.intVar("soft_score", min, max);
+            this.softSum = model.sum(softScores.toArray(new IntVar[0]), "=", totalScore);
+            softSum.post();
+            model.setObjective(Model.MAXIMIZE, totalScore);
+        } else {
+            log("No soft constraints to optimize.");
+        }
+    }
 
-            // === Unpreferred Time Periods ===
-            if (unPreferredConditions != null) {
-                for (Condition condition : unPreferredConditions) {
-                    TimePeriod period = condition.getTimePeriod();
-                    int weight = condition.getWeight();
-                    int periodIdx = timePeriods.indexOf(period);
-
-                    if (period != null && weight > 0 && periodIdx != -1) {
-                        BoolVar[] violations = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            violations[uIdx] = model.and(
-                                    model.arithm(unitTeacherVars[uIdx], "=", tIdx),
-                                    model.arithm(unitTimePeriodVars[uIdx], "=", periodIdx)
-                            ).reify();
-                        }
-                        BoolVar violated = model.boolVar("violated_unpref_time_t" + tIdx + "_p" + periodIdx);
-                        model.max(violated, violations).post();
+    /**
+     * Rehace el submodelo de preferencias sobre el modelo duro ya construido: retira la suma de
+     * puntuación y el objetivo y los vuelve a crear con las condiciones actuales de los profesores.
+     * Las capas de indicadores se conservan (solo dependen de las variables duras); las que pidan
+     * condiciones nuevas se añaden. Las vistas de peso anteriores y las sumas parciales en que Choco
+     * descompone una suma larga quedan en el modelo, ya sin efecto sobre la puntuación (Choco no elimina
+     * variables): por eso ScheduleModelCache limita las reutilizaciones de un mismo modelo.
+     */
+    public void rebuildSoftConstraints() {
+        // Back to the root node; the measures of the previous run are discarded, not carried over
+        Solver solver = model.getSolver();
+        solver.reset();
+        solver.addStopCriterion(() -> cancelled);
+        clearLns(solver);
+        if (softSum != null) model.unpost(softSum);
+        softSum = null;
+        totalScore = null;
+        model.clearObjective();
+        addSoftConstraints();
+        softRebuilds++;
+    }
 
-                        softScores.add(model.intScaleView(violated, -weight));
-                    }
-                }
-            }
+    void setAfterRun(java.util.function.Consumer<SolverRunStats> afterRun) {
+        this.afterRun = afterRun;
+    }
 
-            // === Preferred Subjects ===
-            if (preferredConditions != null) {
-                for (Condition condition : preferredConditions) {
-                    Subject subject = condition.getSubject();
-                    int weight = condition.getWeight();
-                    if (subject != null && weight > 0) {
-                        BoolVar[] matches = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            if (!scheduledUnits.get(uIdx).getSubject().equals(subject)) {
-                                matches[uIdx] = model.boolVar(false);
-                            } else {
-                                matches[uIdx] = model.arithm(unitTeacherVars[uIdx], "=", tIdx).reify();
-                            }
-                        }
-                        BoolVar fulfilled = model.boolVar("fulfilled_pref_subj_t" + tIdx + "_s" + subject.getId());
-                        model.max(fulfilled, matches).post();
+    int getSoftRebuilds() {
+        return softRebuilds;
+    }
 
-                        softScores.add(model.intScaleView(fulfilled, weight));
-                    }
-                }
-            }
+    /**
+     * Prepara un modelo ya construido para otra ejecución con datos equivalentes (mismo fingerprint de
+     * ScheduleModelCache): toma las entidades nuevas, de las que se leerán las preferencias, y anula una
+     * cancelación anterior. Las unidades se recrean en el mismo orden, así que los índices no cambian.
+     */
+    void prepareReuse(List<Teacher> teachers, List<Classroom> classrooms, List<StudentGroup> studentGroups, List<TimePeriod> timePeriods) {
+        this.teachers = teachers;
+        this.classrooms = classrooms;
+        this.studentGroups = studentGroups;
+        this.timePeriods = timePeriods;
+        long t0 = System.nanoTime();
+        createScheduleUnits();
+        this.createUnitsMs = (System.nanoTime() - t0) / 1_000_000;
+        this.cancelled = false;
+    }
 
-            // === Unpreferred Subjects ===
-            if (unPreferredConditions != null) {
-                for (Condition condition : unPreferredConditions) {
-                    Subject subject = condition.getSubject();
-                    int weight = condition.getWeight();
-                    if (subject != null && weight > 0) {
-                        BoolVar[] violations = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            if (!scheduledUnits.get(uIdx).getSubject().equals(subject)) {
-                                violations[uIdx] = model.boolVar(false);
-                            } else {
-                                violations[uIdx] = model.arithm(unitTeacherVars[uIdx], "=", tIdx).reify();
-                            }
-                        }
-                        BoolVar violated = model.boolVar("violated_unpref_subj_t" + tIdx + "_s" + subject.getId());
-                        model.max(violated, violations).post();
+    // --- Capas de indicadores compartidas ---
 
-                        softScores.add(model.intScaleView(violated, -weight));
-                    }
-                }
-            }
+    /** Vista booleana "la unidad u la imparte el profesor t" (sin restricción propia). */
+    BoolVar teaches(int u, int t) {
+        if (unitTeacherBools[u][t] == null) unitTeacherBools[u][t] = model.isEq(unitTeacherVars[u], t);
+        return unitTeacherBools[u][t];
+    }
 
-            // === Preferred Student Groups ===
-            if (preferredConditions != null) {
-                for (Condition condition : preferredConditions) {
-                    StudentGroup group = condition.getStudentGroup();
-                    int weight = condition.getWeight();
-                    if (group != null && weight > 0) {
-                        BoolVar[] matches = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            if (!scheduledUnits.get(uIdx).getStudentGroup().equals(group)) {
-                                matches[uIdx] = model.boolVar(false);
-                            } else {
-                                matches[uIdx] = model.arithm(unitTeacherVars[uIdx], "=", tIdx).reify();
-                            }
-                        }
-                        BoolVar fulfilled = model.boolVar("fulfilled_pref_group_t" + tIdx + "_g" + group.getId());
-                        model.max(fulfilled, matches).post();
+    /** Vista booleana "la unidad u está en el periodo p". */
+    BoolVar atPeriod(int u, int p) {
+        if (unitPeriodBools[u][p] == null) unitPeriodBools[u][p] = model.isEq(unitTimePeriodVars[u], p);
+        return unitPeriodBools[u][p];
+    }
 
-                        softScores.add(model.intScaleView(fulfilled, weight));
-                    }
-                }
+    /**
+     * Ocupación profesor×periodo: verdadera si alguna unidad que el profesor puede impartir está
+     * asignada a él en ese periodo. Se canaliza con cláusulas una sola vez por par.
+     */
+    BoolVar teacherAtPeriod(int t, int p) {
+        if (teacherPeriodBools[t][p] == null) {
+            List<BoolVar> terms = new ArrayList<>();
+            for (int u = 0; u < numUnits; u++) {
+                if (!instance.canTeach(t, instance.unitSubject[u])) continue;
+                BoolVar both = model.boolVar("teacher_" + t + "_unit_" + u + "_tp_" + p);
+                model.addClausesBoolAndEqVar(teaches(u, t), atPeriod(u, p), both);
+                terms.add(both);
             }
+            teacherPeriodBools[t][p] = anyOf(terms, "teacher_" + t + "_at_tp_" + p);
+        }
+        return teacherPeriodBools[t][p];
+    }
 
-            // === Unpreferred Student Groups ===
-            if (unPreferredConditions != null) {
-                for (Condition condition : unPreferredConditions) {
-                    StudentGroup group = condition.getStudentGroup();
-                    int weight = condition.getWeight();
-                    if (group != null && weight > 0) {
-                        BoolVar[] violations = new BoolVar[numUnits];
-                        for (int uIdx = 0; uIdx < numUnits; uIdx++) {
-                            if (!scheduledUnits.get(uIdx).getStudentGroup().equals(group)) {
-                                violations[uIdx] = model.boolVar(false);
-                            } else {
-                                violations[uIdx] = model.arithm(unitTeacherVars[uIdx], "=", tIdx).reify();
-                            }
-                        }
-                        BoolVar violated = model.boolVar("violated_unpref_group_t" + tIdx + "_g" + group.getId());
-                        model.max(violated, violations).post();
-
-                        softScores.add(model.intScaleView(violated, -weight));
-                    }
-                }
+    /** Indicador profesor×asignatura (índice de ProblemInstance): el profesor imparte al menos una unidad de la asignatura. */
+    BoolVar teacherTeachesSubject(int t, int s) {
+        if (teacherSubjectBools[t][s] == null) {
+            List<BoolVar> terms = new ArrayList<>();
+            for (int u = 0; u < numUnits; u++) {
+                if (instance.unitSubject[u] == s) terms.add(teaches(u, t));
             }
+            teacherSubjectBools[t][s] = anyOf(terms, "teacher_" + t + "_subject_" + s);
         }
+        return teacherSubjectBools[t][s];
+    }
 
-        if (!softScores.isEmpty()) {
-            int min = softScores.stream().mapToInt(IntVar::getLB).sum();
-            int max = softScores.stream().mapToInt(IntVar::getUB).sum();
-            this.totalScore = model.intVar("soft_score", min, max);
-            model.sum(softScores.toArray(new IntVar[0]), "=", totalScore).post();
-            model.setObjective(Model.MAXIMIZE, totalScore);
-        } else {
-            System.out.println("No soft constraints to optimize.");
+    /** Indicador profesor×grupo (índice de ProblemInstance): el profesor imparte al menos una unidad del grupo. */
+    BoolVar teacherTeachesGroup(int t, int g) {
+        if (teacherGroupBools[t][g] == null) {
+            List<BoolVar> terms = new ArrayList<>();
+            for (int u = 0; u < numUnits; u++) {
+                if (instance.unitGroup[u] == g) terms.add(teaches(u, t));
+            }
+            teacherGroupBools[t][g] = anyOf(terms, "teacher_" + t + "_group_" + g);
         }
+        return teacherGroupBools[t][g];
+    }
+
+    private BoolVar anyOf(List<BoolVar> terms, String name) {
+        if (terms.isEmpty()) return model.boolVar(false);
+        BoolVar any = model.boolVar(name);
+        model.addClausesBoolOrArrayEqVar(terms.toArray(new BoolVar[0]), any);
+        return any;
     }
 
+    /**
+     * Diagnóstico estructural antes de crear el modelo (ver FeasibilityDiagnostics): si demuestra que no
+     * hay horario, createSchedule devuelve una lista vacía en milisegundos con los motivos impresos.
+     */
     private boolean quickFeasibilityCheck() {
-        // groups need ≤ available slots
-        int slots = timePeriods.size();
-        for (StudentGroup g : studentGroups) {
-            int need = g.getRequiredSubjects().stream()
-                    .mapToInt(Subject::getWeeklyAssignedHours).sum();
-            if (need > slots) {
-                System.out.printf("Infeasible: %s needs %d > %d slots%n", g.getName(), need, slots);
-                return false;
-            }
-        }
-        // teacher capacity rough bound (sum of hoursWork ≥ sum of group demand)
-        int totalDemand = studentGroups.stream()
-                .flatMap(g -> g.getRequiredSubjects().stream())
-                .mapToInt(Subject::getWeeklyAssignedHours).sum();
-        int totalTeacherCap = teachers.stream()
-                .mapToInt(Teacher::getHoursWork).sum();
-        if (totalTeacherCap < totalDemand) {
-            System.out.printf("Likely infeasible: teacher capacity %d < demand %d%n", totalTeacherCap, totalDemand);
-            // still continue if you want; or return false to fail fast
-        }
-        return true;
+        diagnostics = FeasibilityDiagnostics.check(instance);
+        if (verbose) System.out.println(diagnostics.report());
+        return diagnostics.isFeasible();
     }
 
+    /** Resultado del último diagnóstico de createSchedule (null si aún no se ha ejecutado). */
+    public FeasibilityDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
 
 
-    private List<Schedule> solveModel() {
-        final int  MAX_SOLUTIONS   = 10;     // how many to return
-        final int  KEEP_FACTOR     = 3;      // keep up to 3x, then trim to top 10
-        final int  TOLERANCE       = 10;      // accept solutions within (bestSeen - TOLERANCE)
-        final int  MAX_RESTARTS    = 6;      // random restarts
-        final int  FAIL_LIMIT      = 50_000; // per-restart fail limit
-        final long TIME_BUDGET_MS  = 10_000;  // total time budget
 
-        long deadline = System.currentTimeMillis() + TIME_BUDGET_MS;
+    // Parámetros de la búsqueda (compartidos con PortfolioSolver)
+    static final int  MAX_SOLUTIONS   = 10;     // how many to return
+    static final int  KEEP_FACTOR     = 3;      // keep up to 3x, then select 10 (see selectDiverse)
+    static final double SELECTION_DIVERSITY = 0.5; // weight of diversity vs score when selecting them
+    static final int  TOLERANCE       = 10;      // accept solutions within (bestSeen - TOLERANCE)
+    static final int  MAX_RESTARTS    = 6;      // random restarts
+    static final int  FAIL_LIMIT      = 50_000; // per-restart fail limit
+    static final long TIME_BUDGET_MS  = 10_000;  // default total time budget (see setTimeBudgetMs)
+
+    private List<Schedule> solveModel() {
+        long deadline = System.currentTimeMillis() + timeBudgetMs;
 
         List<Schedule> result = new ArrayList<>();
-        List<Candidate> pool = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
+        SolutionPool pool = newSolutionPool(MAX_SOLUTIONS * KEEP_FACTOR);
 
         // Make sure objective exists and grab it
         IntVar scoreVar = ensureObjectiveVar();
 
         // Solver setup and baseline feasible
+        // The baseline may use the whole budget (there is nothing to return without it), but no more:
+        // generateSchedules and streamSchedules wait for this call. Choco's default search under an
+        // objective tries every value of each variable (IntDomainBest), so search the unit variables
+        // with dom/wdeg instead.
         Solver solver = model.getSolver();
-        solver.reset();
-        solver.limitTime(Math.max(1000, TIME_BUDGET_MS / 3) + "ms");
+        resetSearch(solver);
+        solver.limitTime(Math.max(1, deadline - System.currentTimeMillis()));
+        solver.setSearch(firstSolutionSearch());
 
+        long t0 = System.nanoTime();
         Solution feasible = solver.findSolution();
+        runStats.endPhase("baseline", t0);
         if (feasible == null) {
-            System.out.println("No feasible solution under current hard constraints.");
+            log(solver.isStopCriterionMet() ? "No feasible solution within the time budget."
+                    : "No feasible solution under current hard constraints.");
             return result;
         }
 
         // Snapshot baseline
         int bestSeen = feasible.getIntVal(scoreVar);
-        Solution snap = new Solution(model); snap.record();
-        addCandidateIfUnique(pool, seen, snap, scoreVar, Integer.MAX_VALUE); // force-accept baseline
+        runStats.solutionFound(bestSeen);
+        int[][] baseline = assignmentOf(feasible);
+        if (matchRooms(baseline) && pool.offer(bestSeen, baseline)) publish(baseline, bestSeen, solver);
+        int[][] current = new int[3][numUnits]; // reused for every solution: the pool packs what it keeps
 
         // Variables to randomize
         IntVar[] allVars = java.util.stream.Stream.concat(
@@ -629,48 +711,65 @@ public class ScheduleSolver {
         ).toArray(IntVar[]::new);
 
         // Randomized restarts within a global time budget
-        int poolCap = MAX_SOLUTIONS * KEEP_FACTOR;
-        for (int r = 0; r < MAX_RESTARTS && System.currentTimeMillis() < deadline; r++) {
+        for (int r = 0; r < MAX_RESTARTS && System.currentTimeMillis() < deadline && !cancelled; r++) {
             long remaining = deadline - System.currentTimeMillis();
             if (remaining <= 0) break;
 
-            solver.reset();
+            resetSearch(solver);
+            if (telemetry != null) telemetry.restart();
             solver.limitFail(FAIL_LIMIT);
-            solver.limitTime(Math.max(500, remaining) + "ms");
+            solver.limitTime(Math.max(500, remaining));
 
             long seed = System.nanoTime() ^ java.util.concurrent.ThreadLocalRandom.current().nextLong();
-            solver.setSearch(org.chocosolver.solver.search.strategy.Search.randomSearch(allVars, seed));
+            AbstractStrategy<IntVar> restartSearch = searchStrategy(true, seed);
+            solver.setSearch(restartSearch != null ? restartSearch : Search.randomSearch(allVars, seed));
 
+            long restartStart = System.nanoTime();
+            int restartSolutions = 0;
             while (solver.solve()) {
                 if (System.currentTimeMillis() >= deadline) break;
 
                 int s = scoreVar.getValue();
                 if (s > bestSeen) bestSeen = s;
+                runStats.solutionFound(s);
+                restartSolutions++;
 
                 // snapshot promising and unique solutions
                 if (s >= bestSeen - TOLERANCE) {
-                    Solution sh = new Solution(model);
-                    sh.record();
-                    addCandidateIfUnique(pool, seen, sh, scoreVar, TOLERANCE);
-                    if (pool.size() >= poolCap) break; // enough for this run
+                    snapshotAssignment(current);
+                    if (matchRooms(current) && pool.offer(s, current)) publish(current, s, solver);
+                    if (pool.size() >= pool.capacity()) break; // enough for this run
                 }
             }
+            runStats.addRestart((System.nanoTime() - restartStart) / 1_000_000, solver.getNodeCount(),
+                    solver.getFailCount(), restartSolutions);
         }
 
-        // If somehow nothing in pool (shouldn't happen), keep baseline
-        if (pool.isEmpty()) addCandidateIfUnique(pool, seen, feasible, scoreVar, Integer.MAX_VALUE);
+        // Schedules only for the winners (NO restore)
+        result = buildResult(pool);
+        log("Selected " + result.size() + " solutions; bestSeen=" + bestSeen);
+        return result;
+    }
 
-        // Sort by score desc and trim to MAX_SOLUTIONS
-        pool.sort((a, b) -> Integer.compare(b.score, a.score));
-        if (pool.size() > MAX_SOLUTIONS) pool = pool.subList(0, MAX_SOLUTIONS);
+    /** Pool de candidatas con la métrica de diversidad configurada y la capacidad dada. */
+    SolutionPool newSolutionPool(int capacity) {
+        SolutionPool pool = new SolutionPool(instance, capacity);
+        pool.setDiversity(poolDiversity, poolMinDistance);
+        return pool;
+    }
 
-        // Build schedules from snapshots (NO restore)
+    // MAX_SOLUTIONS good and diverse candidates as Schedules; the pool and selection counters go to the run stats
+    private List<Schedule> buildResult(SolutionPool pool) {
+        solutionPool = pool;
+        SolutionPool.Selection selection = pool.selectDiverse(MAX_SOLUTIONS, selectionDiversity);
+        List<Schedule> result = new ArrayList<>();
         int idx = 1;
-        for (Candidate c : pool) {
-            Schedule sch = buildScheduleFromSolution(c.sol);
-            String id = java.util.UUID.randomUUID().toString();
-            sch.setId(id);
-            sch.setName("Solución " + (idx++) + " (score=" + c.score + ")");
+        for (SolutionPool.Entry e : selection.entries) {
+            Schedule sch = buildScheduleFromAssignment(pool.assignment(e));
+            if (sch == null) continue; // rooms could not be matched
+            sch.setId(java.util.UUID.randomUUID().toString());
+            sch.setName("Solución " + (idx++) + " (score=" + e.score + ")");
+            sch.setScore(e.score);
 
             // If your BusinessController.generateSchedules(false) already attaches schedules
             // after solveModel() returns, do NOT attach here. Otherwise, uncomment:
@@ -678,46 +777,451 @@ public class ScheduleSolver {
 
             result.add(sch);
         }
+        runStats.addCounter("poolOffered", pool.getOffered());
+        runStats.addCounter("poolDuplicates", pool.getDuplicates());
+        runStats.addCounter("poolEvicted", pool.getEvicted());
+        runStats.addCounter("selectionMinDistance", selection.minDistance);
+        runStats.addCounter("selectionUs", (selection.distanceNanos + selection.selectNanos) / 1_000);
+        return result;
+    }
+
+    static final int LNS_FAIL_LIMIT = 200; // fails per neighbourhood before moving to the next one
+
+    /**
+     * Optimización por LNS: tras la primera solución, cada vecindario libera las unidades de un profesor,
+     * un grupo, un día o un subconjunto aleatorio, y el resto queda fijado. Se detiene por tiempo
+     * (lnsTimeLimitMs) o por estancamiento (lnsStagnationMs sin mejora). Cada mejora queda en scoreTrajectory.
+     */
+    private List<Schedule> solveModelLns() {
+        List<Schedule> result = new ArrayList<>();
+        if (model.getResolutionPolicy() == org.chocosolver.solver.ResolutionPolicy.SATISFACTION) {
+            // Nothing to improve without an objective
+            return solveModel();
+        }
+        IntVar scoreVar = ensureObjectiveVar();
+        IntVar[] allVars = Stream.of(unitTeacherVars, unitClassroomVars, unitTimePeriodVars)
+                .flatMap(Arrays::stream).toArray(IntVar[]::new);
+
+        long seed = ThreadLocalRandom.current().nextLong();
+
+        long start = System.currentTimeMillis();
+        long deadline = start + lnsTimeLimitMs;
+        long[] lastImprovement = {Long.MAX_VALUE}; // stagnation only counts once there is a first solution
 
-        System.out.println("Selected " + result.size() + " solutions; bestSeen=" + bestSeen);
+        Solver solver = model.getSolver();
+        resetSearch(solver);
+        clearLns(solver);
+        AbstractStrategy<IntVar> lnsSearch = searchStrategy(true, seed);
+        solver.setSearch(lnsSearch != null ? lnsSearch : Search.intVarSearch(
+                new org.chocosolver.solver.search.strategy.selectors.variables.FirstFail(model),
+                new org.chocosolver.solver.search.strategy.selectors.values.IntDomainRandom(seed), allVars));
+        ScheduleNeighborhood neighborhood = setLns(solver, allVars, seed);
+        // Own clock instead of limitTime(): the LNS restarts would otherwise run past the budget
+        org.chocosolver.util.criteria.Criterion stop = () -> System.currentTimeMillis() > deadline
+                || System.currentTimeMillis() - lastImprovement[0] > lnsStagnationMs;
+        solver.addStopCriterion(stop);
+
+        scoreTrajectory.clear();
+        // Every LNS solution improves the previous one: the pool keeps the last ones
+        SolutionPool pool = newSolutionPool(MAX_SOLUTIONS * KEEP_FACTOR);
+        int[][] current = new int[3][numUnits];
+        long t0 = System.nanoTime();
+        while (solver.solve()) {
+            long now = System.currentTimeMillis();
+            lastImprovement[0] = now;
+            int s = scoreVar.getValue();
+            runStats.solutionFound(s);
+            scoreTrajectory.add(new ScoreSample(now - start, s));
+            snapshotAssignment(current);
+            if (matchRooms(current)) pool.offer(s, current);
+            publish(current, s, solver);
+        }
+        solver.removeStopCriterion(stop);
+        runStats.endPhase("lns", t0);
+
+        if (scoreTrajectory.isEmpty()) {
+            log("No feasible solution under current hard constraints.");
+            return result;
+        }
+        result = buildResult(pool);
+
+        log("LNS: " + scoreTrajectory.size() + " improvements in " + (System.currentTimeMillis() - start)
+                + "ms; trajectory " + scoreTrajectory + "; neighbourhoods improved/tried " + neighborhood.summary());
         return result;
     }
 
-    // --- Small helper holder ---
-    private static final class Candidate {
-        final int score; final Solution sol; final String sig;
-        Candidate(int score, Solution sol, String sig) { this.score = score; this.sol = sol; this.sig = sig; }
+    static final long REPAIR_TIME_MS = 1_000;   // search budget per repair round
+    static final int MAX_REPAIR_WIDENINGS = 3;  // after these, the repair frees every unit
+
+    /**
+     * Reparación en caliente de un horario existente tras un cambio pequeño de datos (p. ej. un nuevo
+     * periodo no disponible de un profesor). Las unidades que no tocan ninguna entidad cambiada se fijan a
+     * su profesor, aula y periodo actuales y solo se busca sobre las demás, prefiriendo sus valores previos.
+     * Si no hay reparación, el conjunto libre se amplía con las unidades que comparten profesor o grupo con
+     * las liberadas, y al final se libera todo.
+     *
+     * Puede llamarse varias veces sobre el mismo ScheduleSolver; el modelo se construye solo la primera vez.
+     * Devuelve null si ni siquiera liberando todas las unidades se encuentra solución.
+     */
+    public Schedule repairSchedule(Schedule previous, Collection<?> changedEntities) {
+        if (unitTeacherVars == null) {
+            // Repair keeps the previous teachers: the teacher pre-phase would contradict them
+            TeacherPrePhase prePhase = teacherPrePhase;
+            teacherPrePhase = TeacherPrePhase.OFF;
+            defineVariables();
+            addConstraints();
+            addSoftConstraints();
+            teacherPrePhase = prePhase;
+        }
+        long start = System.currentTimeMillis();
+        int[][] prev = previousAssignment(previous);
+        boolean[] free = affectedUnits(prev, changedEntities);
+
+        for (int round = 0; ; round++) {
+            int numFree = 0;
+            for (boolean f : free) if (f) numFree++;
+
+            int[][] assignment = solveRepair(prev, free);
+            if (assignment != null && roomMatching) {
+                // Keep the previous rooms where the matching allows it
+                for (int i = 0; i < numUnits; i++) if (prev[1][i] >= 0) assignment[1][i] = prev[1][i];
+            }
+            Schedule repaired = assignment == null ? null : buildScheduleFromAssignment(assignment);
+            if (repaired != null) {
+                repaired.setId(previous.getId());
+                repaired.setName(previous.getName());
+                repaired.setScore(new ConditionScorer(instance, repaired.getLessons()).getScore());
+                log("Repair: " + numFree + "/" + numUnits + " units freed (round " + round + "), "
+                        + countMoved(prev, assignment) + " lessons moved, " + (System.currentTimeMillis() - start) + "ms");
+                return repaired;
+            }
+            if (cancelled) {
+                log("Repair cancelled.");
+                return null;
+            }
+            if (numFree == numUnits) {
+                log("Repair: no solution even with every unit free.");
+                return null;
+            }
+            free = round < MAX_REPAIR_WIDENINGS ? widenFreeUnits(prev, free) : allFree();
+        }
+    }
+
+    // Previous {teacher[], classroom[], period[]} per unit, matched by (group, subject); -1 when unknown
+    private int[][] previousAssignment(Schedule previous) {
+        Map<String, Integer> teacherIdx = new HashMap<>();
+        Map<String, Integer> classroomIdx = new HashMap<>();
+        Map<String, Integer> periodIdx = new HashMap<>();
+        for (int i = 0; i < numTeachers; i++) teacherIdx.put(teachers.get(i).getId(), i);
+        for (int i = 0; i < numClassrooms; i++) classroomIdx.put(classrooms.get(i).getId(), i);
+        for (int i = 0; i < numTimePeriods; i++) periodIdx.put(timePeriods.get(i).getId(), i);
+
+        Map<String, Deque<Lesson>> byGroupSubject = new HashMap<>();
+        if (previous != null && previous.getLessons() != null) {
+            for (Lesson l : previous.getLessons()) {
+                if (l.getStudentGroup() == null || l.getSubject() == null) continue;
+                byGroupSubject.computeIfAbsent(l.getStudentGroup().getId() + "|" + l.getSubject().getId(),
+                        k -> new ArrayDeque<>()).add(l);
+            }
+        }
+
+        // Lessons of a family in period order, so that the fixed units respect the symmetry breaking (section 7)
+        Comparator<Lesson> byPeriod = Comparator.comparingInt(l ->
+                l.getTimePeriod() == null ? Integer.MAX_VALUE : periodIdx.getOrDefault(l.getTimePeriod().getId(), Integer.MAX_VALUE));
+        for (Map.Entry<String, Deque<Lesson>> e : byGroupSubject.entrySet()) {
+            List<Lesson> sorted = new ArrayList<>(e.getValue());
+            sorted.sort(byPeriod);
+            e.setValue(new ArrayDeque<>(sorted));
+        }
+
+        int[][] a = new int[3][numUnits];
+        for (int i = 0; i < numUnits; i++) {
+            ScheduledUnit u = scheduledUnits.get(i);
+            Deque<Lesson> lessons = byGroupSubject.get(u.getStudentGroup().getId() + "|" + u.getSubject().getId());
+            Lesson l = lessons == null ? null : lessons.poll();
+            a[0][i] = l == null || l.getTeacher() == null ? -1 : teacherIdx.getOrDefault(l.getTeacher().getId(), -1);
+            a[1][i] = l == null || l.getClassroom() == null ? -1 : classroomIdx.getOrDefault(l.getClassroom().getId(), -1);
+            a[2][i] = l == null || l.getTimePeriod() == null ? -1 : periodIdx.getOrDefault(l.getTimePeriod().getId(), -1);
+        }
+        return a;
+    }
+
+    // Units with no complete previous assignment, or whose group, subject, teacher, classroom or period changed
+    private boolean[] affectedUnits(int[][] prev, Collection<?> changedEntities) {
+        Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> changedIds = new HashSet<>();
+        for (Object o : changedEntities) {
+            changed.add(o);
+            if (o instanceof Entity) changedIds.add(o.getClass().getSimpleName() + ":" + ((Entity) o).getId());
+            else if (o instanceof TimePeriod) changedIds.add("TimePeriod:" + ((TimePeriod) o).getId());
+        }
+
+        boolean[] free = new boolean[numUnits];
+        for (int i = 0; i < numUnits; i++) {
+            if (prev[0][i] < 0 || prev[1][i] < 0 || prev[2][i] < 0) {
+                free[i] = true;
+                continue;
+            }
+            ScheduledUnit u = scheduledUnits.get(i);
+            free[i] = changedIds.contains("StudentGroup:" + u.getStudentGroup().getId())
+                    || changedIds.contains("Subject:" + u.getSubject().getId())
+                    || changedIds.contains("Teacher:" + teachers.get(prev[0][i]).getId())
+                    || changedIds.contains("Classroom:" + classrooms.get(prev[1][i]).getId())
+                    || changedIds.contains("TimePeriod:" + timePeriods.get(prev[2][i]).getId());
+        }
+        return free;
     }
 
-    // Add if unique (by signature), using the given tolerance only for informational filtering upstream.
-    private void addCandidateIfUnique(List<Candidate> pool, Set<String> seen, Solution sol, IntVar scoreVar, int tol) {
-        String sig = buildSignatureIgnoringClassrooms(sol);
-        if (seen.add(sig)) {
-            pool.add(new Candidate(sol.getIntVal(scoreVar), sol, sig));
+    // One hop further: every unit sharing a (previous) teacher or a group with a free unit
+    private boolean[] widenFreeUnits(int[][] prev, boolean[] free) {
+        Set<Integer> teachersHit = new HashSet<>();
+        Set<StudentGroup> groupsHit = new HashSet<>();
+        for (int i = 0; i < numUnits; i++) {
+            if (!free[i]) continue;
+            if (prev[0][i] >= 0) teachersHit.add(prev[0][i]);
+            groupsHit.add(scheduledUnits.get(i).getStudentGroup());
         }
+        boolean[] wider = free.clone();
+        for (int i = 0; i < numUnits; i++) {
+            wider[i] |= teachersHit.contains(prev[0][i]) || groupsHit.contains(scheduledUnits.get(i).getStudentGroup());
+        }
+        return wider;
     }
 
+    private boolean[] allFree() {
+        boolean[] free = new boolean[numUnits];
+        Arrays.fill(free, true);
+        return free;
+    }
 
-    // Build a Schedule using values from a Solution snapshot (no variable restoration)
+    // Fix the non-free units and search the free ones, previous values first. The first solution is kept:
+    // improving the score would move free units away from their previous values.
+    private int[][] solveRepair(int[][] prev, boolean[] free) {
+        IntVar[][] vars = {unitTeacherVars, unitClassroomVars, unitTimePeriodVars};
+        List<org.chocosolver.solver.constraints.Constraint> fixes = new ArrayList<>();
+        Map<IntVar, Integer> preferred = new HashMap<>();
+        for (int i = 0; i < numUnits; i++) {
+            for (int k = 0; k < 3; k++) {
+                if (k == 1 && roomMatching) continue; // rooms are matched afterwards
+                if (!free[i]) {
+                    org.chocosolver.solver.constraints.Constraint c = model.arithm(vars[k][i], "=", prev[k][i]);
+                    c.post();
+                    fixes.add(c);
+                } else if (prev[k][i] >= 0) {
+                    preferred.put(vars[k][i], prev[k][i]);
+                }
+            }
+        }
+
+        Solver solver = model.getSolver();
+        solver.reset();
+        solver.addStopCriterion(() -> cancelled);
+        postPendingRoomCuts();
+        solver.setSearch(Search.intVarSearch(
+                new org.chocosolver.solver.search.strategy.selectors.variables.FirstFail(model),
+                v -> {
+                    Integer p = preferred.get(v);
+                    return p != null && v.contains(p) ? p : v.getLB();
+                },
+                Stream.of(unitTeacherVars, unitTimePeriodVars, unitClassroomVars).flatMap(Arrays::stream).toArray(IntVar[]::new)));
+        solver.limitTime(REPAIR_TIME_MS);
+
+        int[][] best = solver.solve() ? snapshotAssignment() : null;
+
+        solver.reset();
+        model.unpost(fixes.toArray(new org.chocosolver.solver.constraints.Constraint[0]));
+        return best;
+    }
+
+    private int countMoved(int[][] prev, int[][] now) {
+        int moved = 0;
+        for (int i = 0; i < numUnits; i++) {
+            if (prev[0][i] != now[0][i] || prev[1][i] != now[1][i] || prev[2][i] != now[2][i]) moved++;
+        }
+        return moved;
+    }
+
+    /** Punto de la trayectoria de la puntuación: milisegundos desde el inicio y puntuación alcanzada. */
+    public static final class ScoreSample {
+        public final long elapsedMs;
+        public final int score;
+
+        ScoreSample(long elapsedMs, int score) {
+            this.elapsedMs = elapsedMs;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return elapsedMs + "ms:" + score;
+        }
+    }
+
+    // First feasible solution: the configured strategy, or dom/wdeg on the unit variables (see solveModel)
+    private AbstractStrategy<IntVar> firstSolutionSearch() {
+        AbstractStrategy<IntVar> search = searchStrategy(false, ThreadLocalRandom.current().nextLong());
+        return search != null ? search : Search.domOverWDegSearch(Stream.of(unitTeacherVars, unitTimePeriodVars,
+                unitClassroomVars).flatMap(Arrays::stream).toArray(IntVar[]::new));
+    }
+
+    // Configured strategy (randomized for restarts and LNS); null with DEFAULT, each search keeps its own
+    private AbstractStrategy<IntVar> searchStrategy(boolean randomized, long seed) {
+        return TimetableSearch.build(searchStrategy, unitTeacherVars, unitTimePeriodVars, unitClassroomVars,
+                instance, randomized, seed);
+    }
+
+    // Seeded (randomized) search of a strategy over the unit variables, for PortfolioSolver's workers
+    AbstractStrategy<IntVar> seededSearch(SearchStrategy strategy, long seed) {
+        return TimetableSearch.build(strategy, unitTeacherVars, unitTimePeriodVars, unitClassroomVars,
+                instance, true, seed);
+    }
+
+    // solver.reset() drops the stop criteria and the search measures: keep the counts and the cancellation
+    private void resetSearch(Solver solver) {
+        nodesBefore += solver.getNodeCount();
+        failsBefore += solver.getFailCount();
+        backtracksBefore += solver.getBackTrackCount();
+        restartsBefore += solver.getRestartCount();
+        solver.reset();
+        solver.addStopCriterion(() -> cancelled);
+        postPendingRoomCuts();
+    }
+
+    // LNS over the unit variables (teacher, classroom, period blocks) with the schedule neighbourhoods;
+    // also used by PortfolioSolver's workers in LNS mode. Call clearLns before setting the search.
+    ScheduleNeighborhood setLns(Solver solver, IntVar[] allVars, long seed) {
+        ScheduleNeighborhood neighborhood = new ScheduleNeighborhood(allVars, numUnits, instance.unitGroup.clone(),
+                instance.periodDay.clone(), seed);
+        solver.setLNS(neighborhood, new org.chocosolver.solver.search.limits.FailCounter(model, LNS_FAIL_LIMIT));
+        return neighborhood;
+    }
+
+    // setLNS wraps the current move and posts its own propagator: drop those of an earlier LNS search first
+    void clearLns(Solver solver) {
+        if (!(solver.getMove() instanceof org.chocosolver.solver.search.loop.move.MoveLNS)) return;
+        solver.setMove(new org.chocosolver.solver.search.loop.move.MoveBinaryDFS());
+        for (org.chocosolver.solver.constraints.Constraint c : model.getCstrs()) {
+            if ("LNS".equals(c.getName())) model.unpost(c);
+        }
+    }
+
+    private void publish(int[][] assignment, int score, Solver solver) {
+        if (updateListener != null) publish(buildScheduleFromAssignment(assignment), score, solver);
+    }
+
+    private void publish(Schedule schedule, int score, Solver solver) {
+        java.util.function.Consumer<ScheduleUpdate> listener = updateListener;
+        if (listener == null || schedule == null) return;
+        bestSent = Math.max(bestSent, score);
+        updatesSent++;
+        schedule.setId(java.util.UUID.randomUUID().toString());
+        schedule.setName("Solución parcial " + updatesSent + " (score=" + score + ")");
+        schedule.setScore(score);
+        long nodes = nodesBefore + (solver == null ? 0 : solver.getNodeCount());
+        long fails = failsBefore + (solver == null ? 0 : solver.getFailCount());
+        listener.accept(new ScheduleUpdate(schedule, score, bestSent,
+                System.currentTimeMillis() - searchStart, nodes, fails, updatesSent));
+    }
+
+
+    // Build a Schedule using values from a Solution snapshot (no variable restoration); null if rooms do not fit
     private Schedule buildScheduleFromSolution(Solution sol) {
-        Schedule schedule = new Schedule();
+        return buildScheduleFromAssignment(assignmentOf(sol));
+    }
+
+    private int[][] assignmentOf(Solution sol) {
+        int[][] a = new int[3][numUnits];
         for (int i = 0; i < numUnits; i++) {
-            int teacherIdx    = sol.getIntVal(unitTeacherVars[i]);
-            int classroomIdx  = sol.getIntVal(unitClassroomVars[i]);
-            int timePeriodIdx = sol.getIntVal(unitTimePeriodVars[i]);
+            a[0][i] = sol.getIntVal(unitTeacherVars[i]);
+            a[1][i] = sol.getIntVal(unitClassroomVars[i]);
+            a[2][i] = sol.getIntVal(unitTimePeriodVars[i]);
+        }
+        return a;
+    }
 
-            Teacher    teacher    = teachers.get(teacherIdx);
-            Classroom  classroom  = classrooms.get(classroomIdx);
-            TimePeriod timePeriod = timePeriods.get(timePeriodIdx);
-            ScheduledUnit unit    = scheduledUnits.get(i);
+    // Min-cost flow over (group, subject) offerings; fixes or hints the teacher of every unit
+    private void applyTeacherPrePhase() {
+        teacherAssignment = TeacherAssignment.solve(instance, unitDomains);
+        if (verbose) System.out.println(teacherAssignment.report());
+        if (!teacherAssignment.isFeasible()) {
+            model.falseConstraint().post();
+            return;
+        }
+        boolean fix = teacherPrePhase == TeacherPrePhase.FIX && teacherAssignment.isIntegral();
+        for (int u = 0; u < numUnits; u++) {
+            int t = teacherAssignment.teacherOfUnit(u);
+            if (t < 0) continue;
+            if (fix) model.arithm(unitTeacherVars[u], "=", t).post();
+            else model.getSolver().addHint(unitTeacherVars[u], t);
+        }
+    }
 
-            schedule.addAssignment(unit, teacher, classroom, timePeriod);
+    // --- Emparejamiento de aulas (segunda fase) ---
+
+    // Assigns the rooms of a[1] by matching when roomMatching is on (current values are preferred);
+    // false, with the violated Hall set queued as a cut, when some period has no complete matching
+    boolean matchRooms(int[][] a) {
+        if (!roomMatching) return true;
+        RoomMatcher.HallViolation v = roomMatcher.assign(a[2], a[1], numTimePeriods);
+        if (v == null) return true;
+        roomViolations.add(v);
+        return false;
+    }
+
+    void postPendingRoomCuts() {
+        for (RoomMatcher.HallViolation v : roomViolations) postRoomCut(v.rooms);
+        roomViolations.clear();
+    }
+
+    /**
+     * Corte de Hall para un conjunto de aulas R: las unidades que solo pueden usar aulas de R no pueden
+     * ser más de |R| en ningún periodo. Con R = todas las aulas es el límite agregado de la primera fase.
+     */
+    private void postRoomCut(int[] rooms) {
+        int[] sorted = rooms.clone();
+        Arrays.sort(sorted);
+        if (!postedRoomCuts.add(Arrays.toString(sorted))) return;
+        boolean[] inR = new boolean[numClassrooms];
+        for (int r : sorted) inR[r] = true;
+        List<Integer> units = new ArrayList<>();
+        for (int u = 0; u < numUnits; u++) {
+            boolean within = true;
+            for (int r : unitDomains.classrooms[u]) within &= inR[r];
+            if (within) units.add(u);
+        }
+        if (units.size() <= sorted.length) return;
+        for (int p = 0; p < numTimePeriods; p++) {
+            final int period = p;
+            BoolVar[] atP = units.stream().map(u -> atPeriod(u, period)).toArray(BoolVar[]::new);
+            model.sum(atP, "<=", sorted.length).post();
         }
-        return schedule;
     }
 
 
 
+    // Copia de la asignación actual, independiente del modelo: {profesor[], aula[], periodo[]} por unidad
+    int[][] snapshotAssignment() {
+        return snapshotAssignment(new int[3][numUnits]);
+    }
+
+    int[][] snapshotAssignment(int[][] a) {
+        for (int i = 0; i < numUnits; i++) {
+            a[0][i] = unitTeacherVars[i].getValue();
+            a[1][i] = unitClassroomVars[i].getValue();
+            a[2][i] = unitTimePeriodVars[i].getValue();
+        }
+        return a;
+    }
+
+    Schedule buildScheduleFromAssignment(int[][] a) {
+        if (!matchRooms(a)) return null;
+        Schedule schedule = new Schedule();
+        for (int i = 0; i < numUnits; i++) {
+            schedule.addAssignment(scheduledUnits.get(i), teachers.get(a[0][i]), classrooms.get(a[1][i]), timePeriods.get(a[2][i]));
+        }
+        return schedule;
+    }
+
     private Schedule buildScheduleFromCurrentAssign() {
         Schedule schedule = new Schedule();
         for (int i = 0; i < numUnits; i++) {
@@ -763,7 +1267,7 @@ public class ScheduleSolver {
     /**
     private List<Schedule> solveModel() {
         if (!quickFeasibilityCheck()) {
-            System.out.println("Quick feasibility check failed. Aborting solve.");
+            log("Quick feasibility check failed. Aborting solve.");
             return new ArrayList<>();
         }
         final int MAX_SOLUTIONS   = 10;   // N best you want to return
@@ -801,11 +1305,11 @@ public class ScheduleSolver {
         IntVar scoreVar = ensureObjectiveVar();
         Solution optimalSolution = model.getSolver().findOptimalSolution(scoreVar, Model.MAXIMIZE);
         if (optimalSolution == null) {
-            System.out.println("No optimal solution found.");
+            log("No optimal solution found.");
             return new ArrayList<>();
         }
         int bestScore = optimalSolution.getIntVal(scoreVar);
-        System.out.println("Best soft score found: " + bestScore);
+        log("Best soft score found: " + bestScore);
 
         // Prepare arrays for random search
         IntVar[] allVars = Stream.concat(
@@ -864,7 +1368,7 @@ public class ScheduleSolver {
                 if (seen.add(sig)) {
                     pool.add(new Candidate(currentScore, schedule, teacherSchedules, classroomSchedules, studentGroupSchedules, sig));
                     collected++;
-                    System.out.println("Collected candidate #" + collected + " with score " + currentScore);
+                    log("Collected candidate #" + collected + " with score " + currentScore);
                     if (pool.size() >= POOL_LIMIT) break; // enough unique candidates
                 }
             }
@@ -913,9 +1417,9 @@ public class ScheduleSolver {
         }
 
         // Debug
-        System.out.println("Selected " + result.size() + " best unique schedules by soft score.");
+        log("Selected " + result.size() + " best unique schedules by soft score.");
         for (int i = 0; i < result.size(); i++) {
-            System.out.println("Solution " + (i+1) + " score=" + top.get(i).score);
+            log("Solution " + (i+1) + " score=" + top.get(i).score);
         }
         return result;
     }
@@ -929,44 +1433,491 @@ public class ScheduleSolver {
         return totalScore;
     }
 
-    /** Build a uniqueness signature from the current solution that IGNORES classrooms,
-     *  so two solutions that only change a classroom are considered the same (encourages diversity).
+    public ClashEncoding getClashEncoding() {
+        return clashEncoding;
+    }
+
+    /** Selecciona la codificación de solapamientos; debe llamarse antes de addConstraints(). */
+    public void setClashEncoding(ClashEncoding clashEncoding) {
+        this.clashEncoding = clashEncoding;
+    }
+
+    public int getPortfolioThreads() {
+        return portfolioThreads;
+    }
+
+    /**
+     * Número de hilos de búsqueda. Con más de uno, createSchedule() delega en PortfolioSolver:
+     * cada hilo construye su propia copia del modelo y todas comparten el presupuesto de tiempo.
      */
-    // Signature that ignores classrooms to promote diversity by teacher/timePeriod per unit & group
-    private String buildSignatureIgnoringClassrooms(Solution sol) {
-        StringBuilder sb = new StringBuilder(numUnits * 8);
-        for (int i = 0; i < numUnits; i++) {
-            int tIdx  = sol.getIntVal(unitTeacherVars[i]);
-            int tpIdx = sol.getIntVal(unitTimePeriodVars[i]);
+    public void setPortfolioThreads(int portfolioThreads) {
+        this.portfolioThreads = Math.max(1, portfolioThreads);
+    }
 
-            // Tie the unit to its student group to avoid permutations of the same plan
-            StudentGroup g = scheduledUnits.get(i).getStudentGroup();
-            int gIdx = (g == null) ? -1 : studentGroups.indexOf(g);
+    public boolean isDecomposeComponents() {
+        return decomposeComponents;
+    }
 
-            sb.append('[').append(gIdx).append(':').append(tIdx).append('@').append(tpIdx).append(']');
-        }
-        return sb.toString();
+    /**
+     * Si está activo, createSchedule() resuelve por separado y en paralelo los grupos que no comparten
+     * ningún profesor ni aula posibles (ver ScheduleDecomposer) y une las soluciones.
+     */
+    public void setDecomposeComponents(boolean decomposeComponents) {
+        this.decomposeComponents = decomposeComponents;
     }
 
+    // Configuración de búsqueda para los solvers de los subproblemas (sin volver a descomponer)
+    void copySettingsTo(ScheduleSolver other) {
+        other.clashEncoding = clashEncoding;
+        other.portfolioThreads = portfolioThreads;
+        other.searchMode = searchMode;
+        other.searchStrategy = searchStrategy;
+        other.timeBudgetMs = timeBudgetMs;
+        other.lnsTimeLimitMs = lnsTimeLimitMs;
+        other.lnsStagnationMs = lnsStagnationMs;
+        other.symmetryBreaking = symmetryBreaking;
+        other.roomMatching = roomMatching;
+        other.poolDiversity = poolDiversity;
+        other.poolMinDistance = poolMinDistance;
+        other.selectionDiversity = selectionDiversity;
+        other.teacherPrePhase = teacherPrePhase;
+        other.metrics = metrics;
+        other.telemetryJmx = telemetryJmx;
+        other.traceDir = traceDir;
+        other.traceFormat = traceFormat;
+        other.verbose = verbose;
+    }
 
+    public TeacherPrePhase getTeacherPrePhase() {
+        return teacherPrePhase;
+    }
+
+    /** Activa la prefase de asignación de profesores; debe llamarse antes de addConstraints(). */
+    public void setTeacherPrePhase(TeacherPrePhase teacherPrePhase) {
+        this.teacherPrePhase = teacherPrePhase;
+    }
+
+    /** Resultado de la prefase de profesores (null si está desactivada o aún no se ha construido el modelo). */
+    public TeacherAssignment getTeacherAssignment() {
+        return teacherAssignment;
+    }
+
+    /** Cortes de aulas añadidos al modelo (incluido el límite agregado por periodo). */
+    public int getRoomCutCount() {
+        return postedRoomCuts.size();
+    }
+
+    public boolean isRoomMatching() {
+        return roomMatching;
+    }
 
+    /**
+     * Asignación de aulas en dos fases; debe llamarse antes de defineVariables().
+     * Fase 1: la búsqueda fija profesor y periodo, con solo un límite agregado de aulas por periodo.
+     * Fase 2: RoomMatcher asigna las aulas de cada periodo por emparejamiento bipartito. Si un periodo no
+     * tiene emparejamiento, el conjunto de Hall violado se añade al modelo como corte (ver postRoomCut)
+     * antes del siguiente reinicio o, si no quedó ninguna solución, antes de volver a resolver.
+     */
+    public void setRoomMatching(boolean roomMatching) {
+        this.roomMatching = roomMatching;
+    }
 
+    public SolutionPool.Diversity getPoolDiversity() {
+        return poolDiversity;
+    }
 
+    public int getPoolMinDistance() {
+        return poolMinDistance;
+    }
 
+    /**
+     * Métrica y distancia mínima (unidades distintas) entre las candidatas que se retienen; con 0, el valor
+     * por defecto, solo se descartan las repetidas (mismo profesor y periodo en todas las unidades).
+     */
+    public void setPoolDiversity(SolutionPool.Diversity diversity, int minDistance) {
+        this.poolDiversity = diversity;
+        this.poolMinDistance = minDistance;
+    }
 
+    public double getSelectionDiversity() {
+        return selectionDiversity;
+    }
 
+    /**
+     * Peso de la diversidad frente a la puntuación al elegir las MAX_SOLUTIONS soluciones que se devuelven,
+     * entre 0 (las mejores por puntuación) y 1 (las más separadas); ver SolutionPool.selectDiverse.
+     */
+    public void setSelectionDiversity(double selectionDiversity) {
+        this.selectionDiversity = selectionDiversity;
+    }
 
+    /** Pool de candidatas de la última ejecución (null si aún no ha buscado). */
+    public SolutionPool getSolutionPool() {
+        return solutionPool;
+    }
+
+    public boolean isSymmetryBreaking() {
+        return symmetryBreaking;
+    }
+
+    /** Activa la ruptura de simetrías entre unidades del mismo grupo-asignatura; antes de addConstraints(). */
+    public void setSymmetryBreaking(boolean symmetryBreaking) {
+        this.symmetryBreaking = symmetryBreaking;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public SearchStrategy getSearchStrategy() {
+        return searchStrategy;
+    }
+
+    /** Selecciona la estrategia de búsqueda; se aplica en la siguiente búsqueda (no cambia el modelo). */
+    public void setSearchStrategy(SearchStrategy searchStrategy) {
+        this.searchStrategy = searchStrategy;
+    }
+
+    public long getTimeBudgetMs() {
+        return timeBudgetMs;
+    }
+
+    /**
+     * Tiempo de búsqueda tras construir el modelo (por defecto TIME_BUDGET_MS): primera solución y
+     * reinicios, portfolio y descomposición. El modo LNS usa setLnsTimeLimitMs.
+     */
+    public void setTimeBudgetMs(long timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    public void setLnsTimeLimitMs(long lnsTimeLimitMs) {
+        this.lnsTimeLimitMs = lnsTimeLimitMs;
+    }
+
+    public void setLnsStagnationMs(long lnsStagnationMs) {
+        this.lnsStagnationMs = lnsStagnationMs;
+    }
+
+    /** Trayectoria de la puntuación de la última ejecución en modo LNS. */
+    public List<ScoreSample> getScoreTrajectory() {
+        return scoreTrajectory;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    /** Métricas de la última ejecución de createSchedule (null si aún no se ha ejecutado). */
+    @Override
+    public SolverRunStats getRunStats() {
+        return runStats;
+    }
+
+    /**
+     * Telemetría de la búsqueda en curso o de la última (null si no llegó a buscar). Se puede consultar
+     * desde otro hilo mientras la búsqueda avanza.
+     */
+    public SearchTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /** Publica cada búsqueda por JMX mientras dura (por defecto sí; propiedad {@code solver.telemetry.jmx}). */
+    public void setTelemetryJmx(boolean telemetryJmx) {
+        this.telemetryJmx = telemetryJmx;
+    }
+
+    /**
+     * Directorio donde cada búsqueda deja su traza {@code <runId>.csv} o {@code .json} al terminar (null: sin
+     * traza). Por defecto, las propiedades {@code solver.traceDir} y {@code solver.traceFormat}.
+     */
+    public void setTrace(java.nio.file.Path traceDir, SearchTelemetry.Format traceFormat) {
+        this.traceDir = traceDir;
+        this.traceFormat = traceFormat;
+    }
+
+    /** Registro donde se publica cada ejecución (por defecto SolverMetrics.global(); null para ninguno). */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    IntVar[] getUnitTeacherVars() { return unitTeacherVars; }
+    IntVar[] getUnitClassroomVars() { return unitClassroomVars; }
+    IntVar[] getUnitTimePeriodVars() { return unitTimePeriodVars; }
+
+    IntVar getScoreVar() {
+        return ensureObjectiveVar();
+    }
+
+    /** Dominios prefiltrados de las unidades (disponibles tras defineVariables). */
+    public UnitDomains getUnitDomains() {
+        return unitDomains;
+    }
+
+    public int getNumUnits() {
+        return numUnits;
+    }
+
+    /**
+     * Busca solo la primera solución factible (sin optimizar) sobre el modelo ya construido,
+     * ramificando con domOverWDeg únicamente sobre las variables de decisión de las unidades.
+     * Con emparejamiento de aulas, si las aulas no encajan vuelve a buscar con el corte añadido.
+     * Devuelve null si no hay solución dentro del límite de tiempo.
+     */
+    public Schedule findFirstSchedule(long timeLimitMs) {
+        if (teacherAssignment != null && !teacherAssignment.isFeasible()) return null;
+        Solver solver = model.getSolver();
+        long deadline = System.currentTimeMillis() + timeLimitMs;
+        for (int round = 0; round <= MAX_ROOM_CUT_ROUNDS; round++) {
+            if (round > 0) {
+                // Rooms did not fit: search again with the new cut
+                solver.reset();
+                postPendingRoomCuts();
+            }
+            solver.setSearch(firstSolutionSearch());
+            solver.limitTime(Math.max(1, deadline - System.currentTimeMillis()));
+            Solution feasible = solver.findSolution();
+            if (feasible == null) return null;
+            Schedule schedule = buildScheduleFromSolution(feasible);
+            if (schedule != null) return schedule;
+        }
+        return null;
+    }
+
+    /**
+     * Construye el modelo y busca los horarios. Las métricas de la ejecución quedan en getRunStats() y
+     * se publican en el registro de métricas (ver setMetrics) al terminar, también si falla.
+     */
+    @Override
     public List<Schedule> createSchedule() throws ContradictionException {
+        searchStart = System.currentTimeMillis();
+        nodesBefore = failsBefore = backtracksBefore = restartsBefore = 0;
+        updatesSent = 0;
+        bestSent = Integer.MIN_VALUE;
+        runStats = new SolverRunStats("CP", numUnits, numTeachers, numClassrooms, numTimePeriods);
+        telemetry = null;
+        runStats.addPhase("createScheduleUnits", createUnitsMs);
+        List<Schedule> result = null;
+        long budgetMs = timeBudgetMs; // solveRun lowers it for the fallback after a failed decomposition
+        try {
+            result = solveRun();
+            return result;
+        } finally {
+            timeBudgetMs = budgetMs;
+            finishRun(result);
+        }
+    }
 
-        defineVariables();
-        addConstraints();
-        addSoftConstraints();
-        System.out.println("Model created with " + numUnits + " units, " + numTeachers + " teachers, " +
-                numClassrooms + " classrooms, and " + numTimePeriods + " time periods.");
-        return solveModel();
+    private List<Schedule> solveRun() throws ContradictionException {
+        enterPhase(Phase.MODEL_BUILD);
+
+        long t0;
+        if (unitTeacherVars != null) {
+            // Hard model kept from a previous run (see ScheduleModelCache): only the preferences are rebuilt
+            runStats.buildStarted();
+            t0 = System.nanoTime();
+            rebuildSoftConstraints();
+            runStats.endPhase("rebuildSoftConstraints", t0);
+            runStats.buildFinished();
+            runStats.addCounter("hardModelReused", 1);
+            countModel();
+            log("Reusing the hard model (" + softRebuilds + " preference rebuilds).");
+        } else {
+            t0 = System.nanoTime();
+            boolean feasible = quickFeasibilityCheck();
+            runStats.endPhase("diagnostics", t0);
+            if (!feasible) {
+                return new ArrayList<>();
+            }
 
+            if (decomposeComponents) {
+                ScheduleDecomposer decomposer = new ScheduleDecomposer(teachers, classrooms, studentGroups, timePeriods);
+                List<ScheduleDecomposer.Component> components = decomposer.findComponents();
+                if (components.size() > 1) {
+                    enterPhase(Phase.SEARCH);
+                    t0 = System.nanoTime();
+                    activeDecomposer = decomposer;
+                    if (cancelled) decomposer.cancel();
+                    List<Schedule> merged;
+                    try {
+                        merged = decomposer.solve(components, this, Runtime.getRuntime().availableProcessors());
+                    } finally {
+                        activeDecomposer = null;
+                    }
+                    runStats.endPhase("decomposition", t0);
+                    if (merged != null) return publishAll(merged);
+                    if (decomposer.isCancelled()) return new ArrayList<>(); // cancelled or budget spent
+                    // The whole model gets what is left of the budget, not a second one
+                    long leftMs = timeBudgetMs - (System.currentTimeMillis() - searchStart);
+                    if (leftMs <= 0) {
+                        log("Decomposition failed and the time budget is spent.");
+                        return new ArrayList<>();
+                    }
+                    timeBudgetMs = leftMs;
+                    log("Decomposition failed; solving the whole model.");
+                }
+            }
 
+            if (portfolioThreads > 1) {
+                PortfolioSolver portfolio = new PortfolioSolver(teachers, classrooms, studentGroups, timePeriods, portfolioThreads);
+                portfolio.setSettings(this);
+                portfolio.setCancellation(this::isCancelled);
+                portfolio.setSelectionDiversity(selectionDiversity);
+                enterPhase(Phase.SEARCH);
+                t0 = System.nanoTime();
+                List<Schedule> schedules = portfolio.solve();
+                runStats.endPhase("portfolio", t0);
+                return publishAll(schedules);
+            }
+
+            runStats.buildStarted();
+            t0 = System.nanoTime();
+            defineVariables();
+            runStats.endPhase("defineVariables", t0);
+            t0 = System.nanoTime();
+            addConstraints();
+            runStats.endPhase("addConstraints", t0);
+            if (teacherAssignment != null && !teacherAssignment.isFeasible()) {
+                // Known in milliseconds: no need to wait for the search to time out
+                log("No schedule: " + teacherAssignment.report());
+                return new ArrayList<>();
+            }
+            t0 = System.nanoTime();
+            addSoftConstraints();
+            runStats.endPhase("addSoftConstraints", t0);
+            runStats.buildFinished();
+            countModel();
+            log("Model created with " + numUnits + " units, " + numTeachers + " teachers, " +
+                    numClassrooms + " classrooms, and " + numTimePeriods + " time periods.");
+        }
+        enterPhase(Phase.SEARCH);
+        telemetry = new SearchTelemetry("CP", model.getSolver(), totalScore);
+        telemetry.attach();
+        if (telemetryJmx) telemetry.register();
+        for (int round = 0; ; round++) {
+            List<Schedule> result = searchMode == SearchMode.LNS ? solveModelLns() : solveModel();
+            if (!result.isEmpty() || roomViolations.isEmpty() || round == MAX_ROOM_CUT_ROUNDS || cancelled) {
+                return result;
+            }
+            log("No schedule fits the classrooms; re-solving with " + roomViolations.size()
+                    + " new room cuts (" + roomViolations.get(0) + ")");
+        }
+    }
+
+    // Variables by kind and constraints by Choco name of the model just built
+    private void countModel() {
+        for (org.chocosolver.solver.variables.Variable v : model.getVars()) {
+            int typeAndKind = v.getTypeAndKind();
+            int kind = typeAndKind & org.chocosolver.solver.variables.Variable.KIND;
+            String name = (kind & org.chocosolver.solver.variables.Variable.BOOL) == org.chocosolver.solver.variables.Variable.BOOL ? "bool"
+                    : (kind & org.chocosolver.solver.variables.Variable.INT) != 0 ? "int"
+                    : (kind & org.chocosolver.solver.variables.Variable.SET) != 0 ? "set"
+                    : (kind & org.chocosolver.solver.variables.Variable.REAL) != 0 ? "real" : "other";
+            int type = typeAndKind & org.chocosolver.solver.variables.Variable.TYPE;
+            if (type == org.chocosolver.solver.variables.Variable.CSTE) name += " constant";
+            else if (type == org.chocosolver.solver.variables.Variable.VIEW) name += " view";
+            runStats.countVariable(name);
+        }
+        for (org.chocosolver.solver.constraints.Constraint c : model.getCstrs()) runStats.countConstraint(c.getName());
+    }
+
+    private void finishRun(List<Schedule> result) {
+        Solver solver = model.getSolver();
+        runStats.setSearchCounts(nodesBefore + solver.getNodeCount(), failsBefore + solver.getFailCount(),
+                backtracksBefore + solver.getBackTrackCount(),
+                restartsBefore + solver.getRestartCount() + runStats.getRestarts().size());
+        SolverRunStats.Outcome outcome;
+        if (result == null) outcome = SolverRunStats.Outcome.ERROR;
+        else if (!result.isEmpty()) outcome = SolverRunStats.Outcome.SOLVED;
+        else if (cancelled) outcome = SolverRunStats.Outcome.CANCELLED;
+        else if ((diagnostics != null && !diagnostics.isFeasible())
+                || (teacherAssignment != null && !teacherAssignment.isFeasible())) outcome = SolverRunStats.Outcome.INFEASIBLE;
+        else outcome = SolverRunStats.Outcome.NO_SOLUTION;
+        runStats.finish(outcome, cancelled);
+        if (telemetry != null) finishTelemetry();
+        log("Run: " + runStats.summary());
+        if (metrics != null) metrics.record(runStats);
+        if (afterRun != null) afterRun.accept(runStats);
+    }
+
+    private void finishTelemetry() {
+        telemetry.detach();
+        if (traceDir == null) return;
+        java.nio.file.Path file = traceDir.resolve(telemetry.getRunId() + "." + traceFormat.name().toLowerCase(java.util.Locale.ROOT));
+        try {
+            telemetry.writeTrace(file, traceFormat);
+        } catch (java.io.IOException e) {
+            System.err.println("Search trace not written to " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Portfolio and decomposition only have their schedules at the end: emit them then (copies, in score order)
+    private List<Schedule> publishAll(List<Schedule> schedules) {
+        if (schedules != null) for (Schedule sch : schedules) runStats.solutionFound(sch.getScore());
+        if (updateListener == null || schedules == null) return schedules;
+        List<Schedule> byScore = new ArrayList<>(schedules);
+        byScore.sort(Comparator.comparingInt(Schedule::getScore));
+        for (Schedule sch : byScore) {
+            Schedule copy = new Schedule();
+            for (Lesson l : sch.getLessons()) copy.addLesson(l);
+            publish(copy, sch.getScore(), null);
+        }
+        return schedules;
+    }
+
+    /**
+     * Recibe cada solución aceptada en cuanto se registra (ver ScheduleUpdate). Se llama desde el hilo
+     * de la búsqueda, así que no debe bloquear. null para no emitir nada.
+     */
+    @Override
+    public void setUpdateListener(java.util.function.Consumer<ScheduleUpdate> updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    @Override
+    public void setPhaseListener(java.util.function.Consumer<Phase> phaseListener) {
+        this.phaseListener = phaseListener;
+    }
+
+    private void enterPhase(Phase phase) {
+        java.util.function.Consumer<Phase> listener = phaseListener;
+        if (listener != null) listener.accept(phase);
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * Si está activo (por defecto), cada ejecución escribe su progreso por consola: dominios, trayectoria
+     * de LNS, reparaciones, estadísticas del portfolio y el resumen "Run:". Los errores salen igualmente.
+     */
+    @Override
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    /**
+     * Detiene la búsqueda en curso lo antes posible; createSchedule devuelve las soluciones
+     * encontradas hasta ese momento. Puede llamarse desde cualquier hilo.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        ScheduleDecomposer decomposer = activeDecomposer;
+        if (decomposer != null) decomposer.cancel();
+    }
 
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
     }
 
 
@@ -0,0 +1,112 @@
+package business;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Publica como Flow.Publisher las soluciones de un ScheduleEngine (ScheduleSolver o LocalSearchSolver)
+ * a medida que se encuentran.
+ *
+ * La búsqueda arranca en un hilo propio con la primera suscripción y termina con onComplete cuando
+ * createSchedule devuelve (tras pasar la lista final a {@code onResult}), o con onError si falla. Con un
+ * proveedor de motores, el motor se pide al arrancar: un stream sin suscriptores no retiene ninguno (por
+ * ejemplo, el solver prestado por ScheduleModelCache).
+ *
+ * Contrapresión: cada suscriptor recibe solo lo que pide con request(n) y tiene un búfer de
+ * {@link #BUFFER_SIZE} emisiones; si lo llena, las emisiones intermedias se descartan para él (la
+ * búsqueda nunca se bloquea esperando a un suscriptor lento, y cada solución supera a las anteriores).
+ *
+ * Cancelación: {@link #cancel()}, o que todos los suscriptores cancelen su suscripción, detiene la
+ * búsqueda; createSchedule devuelve entonces las soluciones encontradas hasta ese momento. Si se cancela
+ * antes de arrancar, no se pide el motor ni se busca: los suscriptores reciben onComplete sin resultado.
+ */
+public class ScheduleStream implements Flow.Publisher<ScheduleUpdate> {
+
+    static final int BUFFER_SIZE = 16;
+
+    private final Supplier<? extends ScheduleEngine> engines;
+    private final Consumer<List<Schedule>> onResult;
+    private final SubmissionPublisher<ScheduleUpdate> publisher;
+    private volatile boolean started;
+    private volatile boolean cancelled;
+    private volatile ScheduleEngine solver; // once the run has started
+
+    /**
+     * @param onResult recibe la lista final de createSchedule antes de onComplete (puede ser null)
+     */
+    public ScheduleStream(ScheduleEngine solver, Consumer<List<Schedule>> onResult) {
+        this(solver, onResult, ForkJoinPool.commonPool());
+    }
+
+    /** Igual, entregando las emisiones a los suscriptores desde {@code executor}. */
+    public ScheduleStream(ScheduleEngine solver, Consumer<List<Schedule>> onResult, Executor executor) {
+        this(() -> solver, onResult, executor);
+    }
+
+    /** Pide el motor a {@code engines} al arrancar la búsqueda, con la primera suscripción. */
+    public ScheduleStream(Supplier<? extends ScheduleEngine> engines, Consumer<List<Schedule>> onResult) {
+        this(engines, onResult, ForkJoinPool.commonPool());
+    }
+
+    public ScheduleStream(Supplier<? extends ScheduleEngine> engines, Consumer<List<Schedule>> onResult, Executor executor) {
+        this.engines = engines;
+        this.onResult = onResult;
+        this.publisher = new SubmissionPublisher<>(executor, BUFFER_SIZE);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ScheduleUpdate> subscriber) {
+        publisher.subscribe(subscriber);
+        synchronized (this) {
+            if (started) return;
+            started = true;
+        }
+        Thread thread = new Thread(this::run, "schedule-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Detiene la búsqueda; los suscriptores reciben igualmente onComplete. */
+    public void cancel() {
+        cancelled = true;
+        ScheduleEngine running = solver;
+        if (running != null) running.cancel();
+    }
+
+    private void run() {
+        if (cancelled) {
+            publisher.close(); // cancelled before it started: no engine is taken
+            return;
+        }
+        ScheduleEngine solver;
+        try {
+            solver = engines.get();
+        } catch (Throwable e) {
+            publisher.closeExceptionally(e);
+            return;
+        }
+        this.solver = solver;
+        if (cancelled) solver.cancel(); // cancel() ran before the engine was visible
+        solver.setUpdateListener(update -> {
+            if (publisher.getNumberOfSubscribers() == 0) {
+                solver.cancel(); // everybody cancelled their subscription
+                return;
+            }
+            publisher.offer(update, (subscriber, dropped) -> false);
+        });
+        try {
+            List<Schedule> result = solver.createSchedule();
+            if (onResult != null) onResult.accept(result == null ? List.of() : result);
+            publisher.close();
+        } catch (Throwable e) {
+            publisher.closeExceptionally(e);
+        } finally {
+            solver.setUpdateListener(null);
+        }
+    }
+}
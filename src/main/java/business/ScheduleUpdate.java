@@ -0,0 +1,66 @@
+package business;
+
+/**
+ * Solución emitida por ScheduleSolver en cuanto se acepta durante la búsqueda (ver
+ * ScheduleSolver.setUpdateListener y ScheduleStream): el horario, su puntuación, la mejor puntuación
+ * vista hasta ese momento, el tiempo transcurrido y las estadísticas acumuladas de la búsqueda.
+ */
+public final class ScheduleUpdate {
+
+    private final Schedule schedule;
+    private final int score;
+    private final int bestScore;
+    private final long elapsedMs;
+    private final long nodeCount;
+    private final long failCount;
+    private final int sequence;
+
+    ScheduleUpdate(Schedule schedule, int score, int bestScore, long elapsedMs, long nodeCount, long failCount, int sequence) {
+        this.schedule = schedule;
+        this.score = score;
+        this.bestScore = bestScore;
+        this.elapsedMs = elapsedMs;
+        this.nodeCount = nodeCount;
+        this.failCount = failCount;
+        this.sequence = sequence;
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /** Mejor puntuación emitida hasta ahora (incluida esta). */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /** Milisegundos desde el inicio de createSchedule. */
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /** Nodos explorados desde el inicio, sumando todos los reinicios. */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /** Fallos desde el inicio, sumando todos los reinicios. */
+    public long getFailCount() {
+        return failCount;
+    }
+
+    /** Número de orden de la emisión, empezando en 1. */
+    public int getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " score=" + score + " best=" + bestScore + " " + elapsedMs + "ms nodes=" + nodeCount
+                + " fails=" + failCount;
+    }
+}
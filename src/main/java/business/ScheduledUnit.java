@@ -1,5 +1,8 @@
 package business;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ScheduledUnit {
     StudentGroup studentGroup;
     Subject subject;
@@ -10,6 +13,20 @@ public class ScheduledUnit {
         this.subject = subject;        this.uniqueId = uniqueId;
     }
 
+    /** Una unidad por cada hora semanal de cada asignatura requerida por cada grupo, numeradas desde 0. */
+    static List<ScheduledUnit> forGroups(List<StudentGroup> studentGroups) {
+        List<ScheduledUnit> units = new ArrayList<>();
+        for (StudentGroup sg : studentGroups) {
+            if (sg.getRequiredSubjects() == null) continue;
+            for (Subject subj : sg.getRequiredSubjects()) {
+                for (int i = 0; i < subj.getWeeklyAssignedHours(); i++) {
+                    units.add(new ScheduledUnit(sg, subj, units.size()));
+                }
+            }
+        }
+        return units;
+    }
+
     public StudentGroup getStudentGroup() {
         return studentGroup;
     }
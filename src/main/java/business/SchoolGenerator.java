@@ -0,0 +1,443 @@
+package business;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Generador de centros sintéticos realistas en memoria (sin BD), para probar el solver y la persistencia
+ * con instancias grandes; también genera las instancias de BatchSolver y de las pruebas de rendimiento.
+ * Es la versión parametrizada de BusinessController.seedDemoData: misma semilla, misma instancia (también
+ * los ids, incluidos los de las condiciones).
+ *
+ * Forma de la instancia:
+ * - cursos con su propio currículo: asignaturas del catálogo (las troncales siempre) con 2-5 horas
+ *   semanales que suman {@link Params#weeklyHours};
+ * - grupos repartidos entre los cursos, con alumnos entre {@link Params#minStudents} y
+ *   {@link Params#maxStudents};
+ * - aulas generales con capacidades que siguen a los tamaños de los grupos (cada grupo tiene al menos un
+ *   aula en la que cabe) y aulas dedicadas por tipo (laboratorio, gimnasio, taller...) reservadas a las
+ *   asignaturas de ese tipo;
+ * - profesores por departamento y curso, con holgura sobre la demanda, habilitados para las asignaturas
+ *   de su departamento en su curso y, con cierta probabilidad, en un curso vecino o en otro departamento;
+ * - indisponibilidades (bloques al principio o al final del día, o periodos sueltos) y condiciones de
+ *   preferencia con pesos 1-5: mañanas preferidas, últimas horas evitadas, asignaturas y grupos;
+ * - opcionalmente, varios campus ({@link Params#campuses}) que solo comparten los periodos.
+ *
+ * Con los parámetros por defecto la instancia es factible por construcción (aulas y profesores con
+ * holgura, indisponibilidad acotada por las horas de trabajo); las condiciones solo cambian la
+ * puntuación. Escala linealmente con el número de grupos: 400 grupos son 10.000 ScheduledUnits.
+ */
+public class SchoolGenerator {
+
+    static final String[] DAYS = {"Lunes", "Martes", "Miércoles", "Jueves", "Viernes", "Sábado"};
+    static final String[] COURSE_NAMES = {"1º ESO", "2º ESO", "3º ESO", "4º ESO", "1º Bach", "2º Bach"};
+
+    /** Asignatura del catálogo: nombre, abreviatura, departamento y tipo de aula dedicada (null: general). */
+    private record CatalogSubject(String name, String abbreviation, String department, String roomType) { }
+
+    /** Las tres primeras forman parte de todos los currículos. */
+    private static final List<CatalogSubject> CATALOG = List.of(
+            new CatalogSubject("Matemáticas", "MAT", "Matemáticas", null),
+            new CatalogSubject("Lengua", "LEN", "Lengua", null),
+            new CatalogSubject("Inglés", "ING", "Idiomas", null),
+            new CatalogSubject("Historia", "HIS", "Ciencias Sociales", null),
+            new CatalogSubject("Geografía", "GEO", "Ciencias Sociales", null),
+            new CatalogSubject("Física", "FIS", "Ciencias", "Laboratorio"),
+            new CatalogSubject("Química", "QUI", "Ciencias", "Laboratorio"),
+            new CatalogSubject("Biología", "BIO", "Ciencias", "Laboratorio"),
+            new CatalogSubject("Tecnología", "TEC", "Tecnología", "Taller"),
+            new CatalogSubject("Informática", "INF", "Tecnología", "Aula de informática"),
+            new CatalogSubject("Educación Física", "EF", "Educación Física", "Gimnasio"),
+            new CatalogSubject("Música", "MUS", "Música", "Aula de música"),
+            new CatalogSubject("Francés", "FRA", "Idiomas", null),
+            new CatalogSubject("Plástica", "PLA", "Dibujo", null),
+            new CatalogSubject("Filosofía", "FIL", "Filosofía", null));
+    private static final int CORE_SUBJECTS = 3;
+    private static final int MIN_SUBJECT_HOURS = 2;
+    private static final int MAX_SUBJECT_HOURS = 5;
+
+    /** Forma del centro generado. Los valores por defecto dan un instituto de tamaño medio (20 grupos). */
+    public static final class Params {
+        public int groups = 20;
+        /**
+         * Partes independientes del centro: los grupos se reparten entre ellas y cada una tiene sus propios
+         * cursos, asignaturas, profesores y aulas (ids con el prefijo "K" + campus + "-").
+         */
+        public int campuses = 1;
+        /** Cursos (grupos repartidos por igual); los seis primeros tienen nombre de ESO/Bachillerato. */
+        public int courses = 4;
+        /** Asignaturas del currículo de cada curso (entre 3 y el tamaño del catálogo). */
+        public int subjectsPerCourse = 8;
+        /** Horas semanales de cada grupo (suma de su currículo, no más que días x horas por día). */
+        public int weeklyHours = 25;
+        /** Días de la semana (como mucho 6) y periodos de una hora por día (como mucho 12, desde las 8:00). */
+        public int days = 5;
+        public int hoursPerDay = 6;
+        public int minStudents = 18;
+        public int maxStudents = 32;
+        /** Aulas generales por grupo (al menos 1). */
+        public double roomFactor = 1.1;
+        /** Ocupación objetivo de las aulas dedicadas: menos ocupación, más aulas de cada tipo. */
+        public double dedicatedRoomLoad = 0.6;
+        /** Horas de trabajo de cada profesor. */
+        public int teacherHours = 20;
+        /** Horas de profesor sobre la demanda de cada departamento y curso (1.25 = 25% de holgura). */
+        public double teacherSlack = 1.25;
+        /** Probabilidad de que un profesor también pueda dar su departamento en un curso vecino. */
+        public double courseOverlap = 0.5;
+        /** Probabilidad de que un profesor también pueda dar una asignatura de otro departamento. */
+        public double crossQualification = 0.15;
+        /** Fracción media de periodos no disponibles por profesor (acotada por sus horas de trabajo). */
+        public double unavailability = 0.1;
+        /** Condiciones de preferencia por profesor, de media. */
+        public double preferencesPerTeacher = 2.5;
+        /** Prefijo de todos los ids (vacío: "g" + semilla + "-"), para no chocar con datos ya guardados. */
+        public String idPrefix = "";
+        public long seed = 42L;
+
+        /** Centro con al menos {@code units} ScheduledUnits (grupos enteros de {@link #weeklyHours}). */
+        public static Params ofUnits(int units, long seed) {
+            Params p = new Params();
+            p.groups = Math.max(1, (units + p.weeklyHours - 1) / p.weeklyHours);
+            p.seed = seed;
+            return p;
+        }
+
+        void validate() {
+            if (groups < 1 || courses < 1) throw new IllegalArgumentException("groups and courses must be at least 1");
+            if (campuses < 1 || campuses > groups) throw new IllegalArgumentException("campuses must be 1-" + groups);
+            if (days < 1 || days > DAYS.length || hoursPerDay < 1 || hoursPerDay > 12) {
+                throw new IllegalArgumentException("days must be 1-" + DAYS.length + " and hoursPerDay 1-12");
+            }
+            if (subjectsPerCourse < CORE_SUBJECTS || subjectsPerCourse > CATALOG.size()) {
+                throw new IllegalArgumentException("subjectsPerCourse must be " + CORE_SUBJECTS + "-" + CATALOG.size());
+            }
+            if (weeklyHours < subjectsPerCourse * MIN_SUBJECT_HOURS || weeklyHours > subjectsPerCourse * MAX_SUBJECT_HOURS) {
+                throw new IllegalArgumentException("weeklyHours must be " + subjectsPerCourse * MIN_SUBJECT_HOURS + "-"
+                        + subjectsPerCourse * MAX_SUBJECT_HOURS + " for " + subjectsPerCourse + " subjects");
+            }
+            if (weeklyHours > days * hoursPerDay) {
+                throw new IllegalArgumentException("weeklyHours (" + weeklyHours + ") exceeds the " + days * hoursPerDay + " periods");
+            }
+            if (minStudents < 1 || maxStudents < minStudents) throw new IllegalArgumentException("bad student range");
+            if (teacherHours < 1 || teacherSlack <= 0 || roomFactor < 1 || dedicatedRoomLoad <= 0) {
+                throw new IllegalArgumentException("teacherHours, teacherSlack, roomFactor and dedicatedRoomLoad must be positive (roomFactor >= 1)");
+            }
+        }
+    }
+
+    public final List<Teacher> teachers = new ArrayList<>();
+    public final List<Classroom> classrooms = new ArrayList<>();
+    public final List<StudentGroup> studentGroups = new ArrayList<>();
+    public final List<Subject> subjects = new ArrayList<>();
+    public final List<TimePeriod> timePeriods = new ArrayList<>();
+
+    private final Params params;
+    private final String prefix;
+    private final Random rnd;
+    private int conditionCount;
+
+    /** Campus en construcción: prefijo de sus ids, currículo de cada curso y grupos de cada curso. */
+    private String campusPrefix;
+    private final List<List<Subject>> curricula = new ArrayList<>();
+    private final Map<Subject, CatalogSubject> catalogOf = new HashMap<>();
+    private final List<List<StudentGroup>> groupsByCourse = new ArrayList<>();
+
+    public SchoolGenerator(Params params) {
+        params.validate();
+        this.params = params;
+        this.prefix = params.idPrefix == null || params.idPrefix.isEmpty() ? "g" + params.seed + "-" : params.idPrefix;
+        this.rnd = new Random(params.seed);
+
+        createTimePeriods();
+        for (int campus = 0; campus < params.campuses; campus++) {
+            campusPrefix = params.campuses == 1 ? prefix : prefix + "K" + campus + "-";
+            curricula.clear();
+            groupsByCourse.clear();
+            for (int c = 0; c < params.courses; c++) curricula.add(createCurriculum(c));
+            createGroups(params.groups / params.campuses + (campus < params.groups % params.campuses ? 1 : 0));
+            createClassrooms();
+            createTeachers();
+        }
+    }
+
+    /** Centro con al menos {@code units} ScheduledUnits y los demás parámetros por defecto. */
+    public static SchoolGenerator withUnits(int units, long seed) {
+        return generate(Params.ofUnits(units, seed));
+    }
+
+    /** Como withUnits, repartido en {@code campuses} partes independientes (ver Params#campuses). */
+    public static SchoolGenerator withCampuses(int units, int campuses, long seed) {
+        Params params = Params.ofUnits(units, seed);
+        params.campuses = Math.min(campuses, params.groups);
+        return generate(params);
+    }
+
+    public static SchoolGenerator generate(Params params) {
+        return new SchoolGenerator(params);
+    }
+
+    public Params getParams() {
+        return params;
+    }
+
+    public ScheduleSolver newSolver() {
+        return new ScheduleSolver(teachers, classrooms, studentGroups, timePeriods);
+    }
+
+    /** Número de coincidencias de un profesor, un aula o un grupo en un horario (0 si es válido). */
+    public static int countClashes(Schedule schedule) {
+        Set<String> used = new HashSet<>();
+        int clashes = 0;
+        for (Lesson l : schedule.getLessons()) {
+            String tp = l.getTimePeriod().getId();
+            if (!used.add("t:" + l.getTeacher().getId() + "@" + tp)) clashes++;
+            if (!used.add("c:" + l.getClassroom().getId() + "@" + tp)) clashes++;
+            if (!used.add("g:" + l.getStudentGroup().getId() + "@" + tp)) clashes++;
+        }
+        return clashes;
+    }
+
+    /** Número de ScheduledUnits que creará el solver (una por grupo, asignatura y hora semanal). */
+    public int unitCount() {
+        int units = 0;
+        for (StudentGroup g : studentGroups) for (Subject s : g.getRequiredSubjects()) units += s.getWeeklyAssignedHours();
+        return units;
+    }
+
+    /** Número de condiciones (preferidas y no preferidas) de todos los profesores. */
+    public int conditionCount() {
+        return conditionCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d units: %d groups in %d courses, %d subjects, %d teachers, %d classrooms, %d periods, %d conditions",
+                unitCount(), studentGroups.size(), params.courses, subjects.size(), teachers.size(), classrooms.size(),
+                timePeriods.size(), conditionCount);
+    }
+
+    // ========================= Entidades =========================
+
+    private void createTimePeriods() {
+        for (int d = 0; d < params.days; d++) {
+            for (int h = 0; h < params.hoursPerDay; h++) {
+                LocalTime start = LocalTime.of(8 + h, 0);
+                timePeriods.add(new TimePeriod(prefix + "P" + d + "-" + h, DAYS[d], start, start.plusHours(1)));
+            }
+        }
+    }
+
+    private static String courseName(int c) {
+        return c < COURSE_NAMES.length ? COURSE_NAMES[c] : "Curso " + (c + 1);
+    }
+
+    /** Troncales más optativas al azar; las horas parten de 2 y se reparten hasta sumar weeklyHours. */
+    private List<Subject> createCurriculum(int course) {
+        List<CatalogSubject> optional = new ArrayList<>(CATALOG.subList(CORE_SUBJECTS, CATALOG.size()));
+        Collections.shuffle(optional, rnd);
+        List<CatalogSubject> chosen = new ArrayList<>(CATALOG.subList(0, CORE_SUBJECTS));
+        chosen.addAll(optional.subList(0, params.subjectsPerCourse - CORE_SUBJECTS));
+
+        int[] hours = new int[chosen.size()];
+        Arrays.fill(hours, MIN_SUBJECT_HOURS);
+        int remaining = params.weeklyHours - MIN_SUBJECT_HOURS * hours.length;
+        while (remaining > 0) {
+            // Las troncales reciben el doble de horas extra que las optativas
+            int k = rnd.nextInt(hours.length + CORE_SUBJECTS);
+            if (k >= hours.length) k -= hours.length;
+            if (hours[k] < MAX_SUBJECT_HOURS) {
+                hours[k]++;
+                remaining--;
+            }
+        }
+
+        List<Subject> curriculum = new ArrayList<>();
+        for (int k = 0; k < chosen.size(); k++) {
+            CatalogSubject cs = chosen.get(k);
+            String id = campusPrefix + "S" + course + "-" + cs.abbreviation();
+            Subject subject = new Subject(id, cs.name() + " " + courseName(course), cs.abbreviation() + (course + 1));
+            subject.setDepartment(cs.department());
+            subject.setCourse(courseName(course));
+            subject.setWeeklyAssignedHours(hours[k]);
+            curriculum.add(subject);
+            catalogOf.put(subject, cs);
+        }
+        subjects.addAll(curriculum);
+        return curriculum;
+    }
+
+    private void createGroups(int count) {
+        for (int c = 0; c < params.courses; c++) groupsByCourse.add(new ArrayList<>());
+        for (int g = 0; g < count; g++) {
+            int course = g % params.courses;
+            List<StudentGroup> inCourse = groupsByCourse.get(course);
+            String letter = groupLetter(inCourse.size());
+            StudentGroup group = new StudentGroup(campusPrefix + "G" + course + "-" + letter, courseName(course) + " " + letter,
+                    (course + 1) + letter);
+            group.setCourse(courseName(course));
+            group.setWeeklyGroupHours(params.weeklyHours);
+            group.setNumberOfStudents(params.minStudents + rnd.nextInt(params.maxStudents - params.minStudents + 1));
+            group.setRequiredSubjects(new ArrayList<>(curricula.get(course)));
+            inCourse.add(group);
+            studentGroups.add(group);
+        }
+    }
+
+    private static String groupLetter(int i) {
+        String letter = String.valueOf((char) ('A' + i % 26));
+        return i < 26 ? letter : letter + (i / 26);
+    }
+
+    /**
+     * Aulas generales: la i-ésima tiene capacidad para el i-ésimo grupo más grande (más un margen), así que
+     * cada grupo cabe en al menos una; las que sobran, capacidad al azar. Aulas dedicadas: por tipo, las
+     * necesarias para sus horas con la ocupación objetivo, con capacidad para el grupo más grande.
+     */
+    private void createClassrooms() {
+        int[] sizes = groupsByCourse.stream().flatMap(List::stream).mapToInt(StudentGroup::getNumberOfStudents).sorted().toArray();
+        int general = (int) Math.ceil(sizes.length * params.roomFactor);
+        for (int r = 0; r < general; r++) {
+            int capacity = r < sizes.length
+                    ? sizes[sizes.length - 1 - r] + rnd.nextInt(4)
+                    : params.minStudents + rnd.nextInt(params.maxStudents - params.minStudents + 4);
+            Classroom room = new Classroom(campusPrefix + "R" + r, "Aula " + (r + 1), "A" + (r + 1));
+            room.setClassroomType("General");
+            room.setCapacity(capacity);
+            classrooms.add(room);
+        }
+
+        Map<String, List<Subject>> subjectsByType = new TreeMap<>();
+        Map<String, Integer> hoursByType = new HashMap<>();
+        for (int c = 0; c < params.courses; c++) {
+            for (Subject s : curricula.get(c)) {
+                String type = catalogOf.get(s).roomType();
+                if (type == null) continue;
+                subjectsByType.computeIfAbsent(type, k -> new ArrayList<>()).add(s);
+                hoursByType.merge(type, s.getWeeklyAssignedHours() * groupsByCourse.get(c).size(), Integer::sum);
+            }
+        }
+        int periods = timePeriods.size();
+        int maxSize = sizes[sizes.length - 1];
+        int t = 0;
+        for (Map.Entry<String, List<Subject>> e : subjectsByType.entrySet()) {
+            int count = Math.max(1, (int) Math.ceil(hoursByType.get(e.getKey()) / (periods * params.dedicatedRoomLoad)));
+            for (int k = 0; k < count; k++) {
+                Classroom room = new Classroom(campusPrefix + "D" + t + "-" + k, e.getKey() + " " + (k + 1), "D" + t + "." + (k + 1));
+                room.setClassroomType(e.getKey());
+                room.setCapacity(maxSize);
+                room.setAssignedSubjects(new ArrayList<>(e.getValue()));
+                classrooms.add(room);
+            }
+            t++;
+        }
+    }
+
+    /**
+     * Profesores por (departamento, curso): los necesarios para cubrir sus horas con la holgura pedida.
+     * Cada uno puede dar las asignaturas de su departamento en su curso, y a veces las del curso vecino o
+     * una de otro departamento del mismo curso.
+     */
+    private void createTeachers() {
+        int index = 0;
+        for (int c = 0; c < params.courses; c++) {
+            Map<String, List<Subject>> byDepartment = new LinkedHashMap<>();
+            for (Subject s : curricula.get(c)) byDepartment.computeIfAbsent(s.getDepartment(), k -> new ArrayList<>()).add(s);
+
+            for (Map.Entry<String, List<Subject>> e : byDepartment.entrySet()) {
+                int demand = 0;
+                for (Subject s : e.getValue()) demand += s.getWeeklyAssignedHours() * groupsByCourse.get(c).size();
+                if (demand == 0) continue;
+                int count = Math.max(1, (int) Math.ceil(demand * params.teacherSlack / params.teacherHours));
+                for (int k = 0; k < count; k++) {
+                    Teacher teacher = new Teacher(campusPrefix + "T" + index, "Profesor " + (index + 1), "P" + (index + 1));
+                    index++;
+                    teacher.setDepartment(e.getKey());
+                    teacher.setHoursWork(params.teacherHours);
+                    for (Subject s : e.getValue()) teacher.addPossibleSubject(s);
+                    addOverlap(teacher, c, e.getKey());
+                    addUnavailability(teacher);
+                    addPreferences(teacher, c);
+                    teachers.add(teacher);
+                }
+            }
+        }
+    }
+
+    private void addOverlap(Teacher teacher, int course, String department) {
+        if (params.courses > 1 && rnd.nextDouble() < params.courseOverlap) {
+            int neighbour = course == 0 ? 1 : course == params.courses - 1 ? course - 1 : course + (rnd.nextBoolean() ? 1 : -1);
+            for (Subject s : curricula.get(neighbour)) {
+                if (s.getDepartment().equals(department) && !teacher.getPossibleSubjects().contains(s)) teacher.addPossibleSubject(s);
+            }
+        }
+        if (rnd.nextDouble() < params.crossQualification) {
+            List<Subject> curriculum = curricula.get(course);
+            Subject other = curriculum.get(rnd.nextInt(curriculum.size()));
+            if (!teacher.getPossibleSubjects().contains(other)) teacher.addPossibleSubject(other);
+        }
+    }
+
+    /** La mitad de las veces un bloque al principio o al final de un día; si no, periodos sueltos. */
+    private void addUnavailability(Teacher teacher) {
+        int periods = timePeriods.size();
+        int max = periods - params.teacherHours;
+        int count = Math.min(max, (int) Math.round(params.unavailability * periods * 2 * rnd.nextDouble()));
+        if (count <= 0) return;
+        Set<Integer> chosen = new LinkedHashSet<>();
+        if (rnd.nextBoolean()) {
+            int day = rnd.nextInt(params.days);
+            boolean morning = rnd.nextBoolean();
+            for (int h = 0; h < Math.min(count, params.hoursPerDay); h++) {
+                chosen.add(day * params.hoursPerDay + (morning ? h : params.hoursPerDay - 1 - h));
+            }
+        }
+        while (chosen.size() < count) chosen.add(rnd.nextInt(periods));
+        for (int p : chosen) teacher.addUnavailableTimePeriod(timePeriods.get(p));
+    }
+
+    /**
+     * Condiciones con peso 1-5: 35% mañana preferida, 25% última hora evitada, 20% asignatura preferida
+     * (de las que puede dar), 10% grupo preferido y 10% grupo evitado (de su curso).
+     */
+    private void addPreferences(Teacher teacher, int course) {
+        int n = rnd.nextInt((int) Math.round(2 * params.preferencesPerTeacher) + 1);
+        List<StudentGroup> groups = groupsByCourse.get(course);
+        for (int i = 0; i < n; i++) {
+            int weight = 1 + rnd.nextInt(5);
+            int day = rnd.nextInt(params.days);
+            int kind = rnd.nextInt(20);
+            if (kind < 7) {
+                TimePeriod tp = timePeriods.get(day * params.hoursPerDay + rnd.nextInt((params.hoursPerDay + 1) / 2));
+                if (teacher.getPreferredTimePeriods().contains(tp) || teacher.getUnavailableTimePeriods().contains(tp)) continue;
+                teacher.addPreferredTimePeriod(tp, weight);
+                nameLast(teacher.getPreferredConditions());
+            } else if (kind < 12) {
+                TimePeriod tp = timePeriods.get(day * params.hoursPerDay + params.hoursPerDay - 1 - rnd.nextInt(Math.min(2, params.hoursPerDay)));
+                if (teacher.getUnPreferredTimePeriods().contains(tp)) continue;
+                teacher.addUnPreferredTimePeriod(tp, weight);
+                nameLast(teacher.getUnPreferredConditions());
+            } else if (kind < 16) {
+                Subject s = teacher.getPossibleSubjects().get(rnd.nextInt(teacher.getPossibleSubjects().size()));
+                if (teacher.getPreferredSubjects().contains(s)) continue;
+                teacher.addPreferredSubject(s, weight);
+                nameLast(teacher.getPreferredConditions());
+            } else {
+                StudentGroup g = groups.get(rnd.nextInt(groups.size()));
+                if (teacher.getPreferredStudentGroups().contains(g) || teacher.getUnPreferredStudentGroups().contains(g)) continue;
+                if (kind < 18) {
+                    teacher.addPreferredStudentGroup(g, weight);
+                    nameLast(teacher.getPreferredConditions());
+                } else {
+                    teacher.addUnPreferredStudentGroup(g, weight);
+                    nameLast(teacher.getUnPreferredConditions());
+                }
+            }
+        }
+    }
+
+    // Las condiciones nacen con un UUID aleatorio; se renombran para que la instancia sea reproducible
+    private void nameLast(List<Condition> conditions) {
+        conditions.get(conditions.size() - 1).setId(prefix + "C" + conditionCount++);
+    }
+}
@@ -0,0 +1,260 @@
+package business;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.monitors.IMonitorContradiction;
+import org.chocosolver.solver.search.loop.monitors.IMonitorOpenNode;
+import org.chocosolver.solver.search.loop.monitors.IMonitorRestart;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.variables.IntVar;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Telemetría en vivo de una búsqueda de Choco: monitores enchufados al Solver que cuentan nodos, fallos,
+ * reinicios y soluciones y toman muestras (rendimiento y progreso del objetivo) en un buffer circular.
+ *
+ * Se toma una muestra por cada solución y, como mucho una vez por intervalo ({@code solver.telemetry.sampleMs},
+ * 250 ms por defecto), en los reinicios y durante la búsqueda. Los contadores se actualizan en el hilo del
+ * solver sin sincronizar; solo las muestras se publican a otros hilos, así que el coste por nodo es un
+ * incremento. Con register() la búsqueda se ve por JMX como {@code business:type=SearchTelemetry,name=<runId>}
+ * mientras dura, y writeTrace() vuelca las muestras a un fichero CSV o JSON al terminar.
+ *
+ * Los contadores se acumulan a lo largo de los solver.reset() de una ejecución (Choco mantiene los monitores),
+ * a diferencia de las medidas del propio Solver.
+ */
+public final class SearchTelemetry implements IMonitorOpenNode, IMonitorContradiction, IMonitorSolution,
+        IMonitorRestart, SearchTelemetryMXBean {
+
+    /** Formato del fichero de traza. */
+    public enum Format { CSV, JSON }
+
+    /** Motivo de una muestra. */
+    public enum Event { START, TICK, SOLUTION, RESTART, END }
+
+    /** Una muestra: contadores acumulados en ese instante y tasas desde la muestra anterior. */
+    public static final class Sample {
+        public final long elapsedMs;
+        public final Event event;
+        public final long nodes, fails, restarts;
+        public final int solutions;
+        public final Integer score, bestScore;
+        public final double nodesPerSecond, failRate;
+
+        Sample(long elapsedMs, Event event, long nodes, long fails, long restarts, int solutions,
+               Integer score, Integer bestScore, double nodesPerSecond, double failRate) {
+            this.elapsedMs = elapsedMs;
+            this.event = event;
+            this.nodes = nodes;
+            this.fails = fails;
+            this.restarts = restarts;
+            this.solutions = solutions;
+            this.score = score;
+            this.bestScore = bestScore;
+            this.nodesPerSecond = nodesPerSecond;
+            this.failRate = failRate;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 4096;
+    private static final AtomicLong RUN_IDS = new AtomicLong();
+
+    private final String runId;
+    private final Solver solver;
+    private final IntVar objective;
+    private final long sampleNanos = Long.getLong("solver.telemetry.sampleMs", 250L) * 1_000_000;
+    private final long startNanos = System.nanoTime();
+    private long nextSampleNanos;
+
+    // Counters, written only by the solver thread
+    private long nodes, fails, restarts;
+    private int solutions;
+    private Integer bestScore;
+    private long lastSolutionNanos;
+
+    // Ring buffer of samples, published under the lock
+    private final Sample[] ring;
+    private int head, size;
+    private volatile Sample last;
+    private volatile boolean running = true;
+    private ObjectName objectName;
+
+    /**
+     * @param objective variable de la puntuación; se pasa aparte porque findSolution() retira el objetivo
+     *                  del modelo mientras busca (null: las muestras no llevan puntuación)
+     */
+    public SearchTelemetry(String engine, Solver solver, IntVar objective) {
+        this(engine, solver, objective, DEFAULT_CAPACITY);
+    }
+
+    public SearchTelemetry(String engine, Solver solver, IntVar objective, int capacity) {
+        this.runId = engine + "-" + RUN_IDS.incrementAndGet();
+        this.solver = solver;
+        this.objective = objective;
+        this.ring = new Sample[Math.max(2, capacity)];
+        this.lastSolutionNanos = startNanos;
+        sample(Event.START, null);
+    }
+
+    /** Enchufa los monitores al solver. */
+    public void attach() {
+        solver.plugMonitor(this);
+    }
+
+    /** Desenchufa los monitores, toma la muestra final y retira el MBean. */
+    public void detach() {
+        solver.unplugMonitor(this);
+        sample(Event.END, null);
+        running = false;
+        unregister();
+    }
+
+    // --- Monitores de Choco ---
+
+    @Override
+    public void afterOpenNode() {
+        if ((++nodes & 1023) == 0 && System.nanoTime() >= nextSampleNanos) sample(Event.TICK, null);
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        fails++;
+    }
+
+    @Override
+    public void onSolution() {
+        solutions++;
+        lastSolutionNanos = System.nanoTime();
+        Integer score = null;
+        if (objective != null && objective.isInstantiated()) {
+            score = objective.getValue();
+            if (bestScore == null || score > bestScore) bestScore = score;
+        }
+        sample(Event.SOLUTION, score);
+    }
+
+    @Override
+    public void afterRestart() {
+        restart();
+    }
+
+    /** Un reinicio que Choco no ve como tal (p. ej. los reinicios aleatorios de ScheduleSolver.solveModel). */
+    public void restart() {
+        restarts++;
+        if (System.nanoTime() >= nextSampleNanos) sample(Event.RESTART, null);
+    }
+
+    private void sample(Event event, Integer score) {
+        long now = System.nanoTime();
+        nextSampleNanos = now + sampleNanos;
+        Sample prev = last;
+        double nodesPerSecond = 0, failRate = 0;
+        if (prev != null) {
+            long dNodes = nodes - prev.nodes;
+            long dNanos = now - startNanos - prev.elapsedMs * 1_000_000;
+            if (dNanos > 0) nodesPerSecond = dNodes * 1e9 / dNanos;
+            if (dNodes > 0) failRate = (double) (fails - prev.fails) / dNodes;
+            else if (event == Event.SOLUTION || event == Event.RESTART) {
+                // Too close to the previous sample to measure: keep its rates
+                nodesPerSecond = prev.nodesPerSecond;
+                failRate = prev.failRate;
+            }
+        }
+        Sample s = new Sample((now - startNanos) / 1_000_000, event, nodes, fails, restarts, solutions,
+                score, bestScore, nodesPerSecond, failRate);
+        synchronized (ring) {
+            ring[(head + size) % ring.length] = s;
+            if (size < ring.length) size++;
+            else head = (head + 1) % ring.length;
+        }
+        last = s;
+    }
+
+    /** Muestras en orden cronológico (las más antiguas se pierden al llenarse el buffer). */
+    public List<Sample> getSamples() {
+        synchronized (ring) {
+            List<Sample> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(ring[(head + i) % ring.length]);
+            return out;
+        }
+    }
+
+    // --- JMX ---
+
+    /** Publica esta búsqueda en el MBeanServer de la plataforma; un fallo solo se avisa. */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("business:type=SearchTelemetry,name=" + runId);
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            System.err.println("Search telemetry not registered in JMX: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("Search telemetry not unregistered from JMX: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    @Override public String getRunId() { return runId; }
+    @Override public boolean isRunning() { return running; }
+    @Override public long getElapsedMs() { return last.elapsedMs; }
+    @Override public long getNodes() { return last.nodes; }
+    @Override public long getFails() { return last.fails; }
+    @Override public long getRestarts() { return last.restarts; }
+    @Override public int getSolutions() { return last.solutions; }
+    @Override public int getBestScore() { Integer b = last.bestScore; return b == null ? Integer.MIN_VALUE : b; }
+    @Override public double getNodesPerSecond() { return last.nodesPerSecond; }
+    @Override public double getFailRate() { return last.failRate; }
+    @Override public long getMsSinceLastSolution() { return (System.nanoTime() - lastSolutionNanos) / 1_000_000; }
+    @Override public int getSampleCount() { synchronized (ring) { return size; } }
+
+    // --- Traza ---
+
+    /** Escribe las muestras en {@code file}, en CSV (una fila por muestra) o en JSON (run y lista de muestras). */
+    public void writeTrace(Path file, Format format) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        List<Sample> samples = getSamples();
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            if (format == Format.CSV) {
+                pw.println("elapsed_ms,event,nodes,fails,restarts,solutions,score,best_score,nodes_per_s,fail_rate");
+                for (Sample s : samples) {
+                    pw.println(String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%s,%s,%.1f,%.4f", s.elapsedMs, s.event,
+                            s.nodes, s.fails, s.restarts, s.solutions, s.score == null ? "" : s.score,
+                            s.bestScore == null ? "" : s.bestScore, s.nodesPerSecond, s.failRate));
+                }
+            } else {
+                pw.println("{\"run\":\"" + runId + "\",\"samples\":[");
+                for (int i = 0; i < samples.size(); i++) {
+                    Sample s = samples.get(i);
+                    pw.print(String.format(Locale.ROOT, "{\"elapsedMs\":%d,\"event\":\"%s\",\"nodes\":%d,\"fails\":%d,"
+                                    + "\"restarts\":%d,\"solutions\":%d,\"score\":%s,\"bestScore\":%s,\"nodesPerSecond\":%.1f,"
+                                    + "\"failRate\":%.4f}", s.elapsedMs, s.event, s.nodes, s.fails, s.restarts, s.solutions,
+                            s.score, s.bestScore, s.nodesPerSecond, s.failRate));
+                    pw.println(i + 1 < samples.size() ? "," : "");
+                }
+                pw.println("]}");
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package business;
+
+/**
+ * Vista JMX de una búsqueda de Choco en curso (ver SearchTelemetry). Los valores son los de la última
+ * muestra, así que van como mucho un intervalo de muestreo por detrás de la búsqueda.
+ */
+public interface SearchTelemetryMXBean {
+
+    String getRunId();
+
+    boolean isRunning();
+
+    long getElapsedMs();
+
+    long getNodes();
+
+    long getFails();
+
+    long getRestarts();
+
+    int getSolutions();
+
+    /** Mejor puntuación encontrada; Integer.MIN_VALUE si aún no hay ninguna solución. */
+    int getBestScore();
+
+    /** Nodos por segundo en el último intervalo de muestreo. */
+    double getNodesPerSecond();
+
+    /** Fallos por nodo en el último intervalo de muestreo. */
+    double getFailRate();
+
+    /** Milisegundos desde la última solución (o desde el inicio si no hay ninguna). */
+    long getMsSinceLastSolution();
+
+    /** Muestras guardadas en el buffer circular. */
+    int getSampleCount();
+}
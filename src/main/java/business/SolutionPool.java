@@ -0,0 +1,399 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Conjunto acotado de soluciones candidatas, compartido por los motores. Cada candidata se guarda como un
+ * int[] con una entrada por unidad (profesor, periodo y aula empaquetados en bits) y un hash de 64 bits
+ * del par profesor/periodo de cada unidad, que sirve para descartar duplicados: igual que la antigua firma
+ * "[g:t@p]", dos soluciones que solo cambian de aula cuentan como la misma.
+ *
+ * Retiene las {@code capacity} mejores por puntuación; al llenarse, una candidata nueva desplaza a la peor
+ * si la supera. Opcionalmente exige una distancia mínima (Hamming sobre las partes que elija Diversity)
+ * entre candidatas: una nueva que quede demasiado cerca de otra mejor o igual se descarta, y si es mejor
+ * que todas las cercanas las sustituye. Los horarios (Schedule) se construyen solo para las ganadoras.
+ *
+ * Al terminar, selectDiverse() elige las k que se devuelven: buenas y a la vez distintas entre sí (ver
+ * Selection), en lugar de las k mejores que a menudo solo cambian en una o dos unidades.
+ *
+ * Los métodos son synchronized para que PortfolioSolver pueda compartir un pool entre hilos; bestScore()
+ * se lee sin bloqueo.
+ */
+public final class SolutionPool {
+
+    /** Qué partes de la asignación cuentan en la distancia entre dos soluciones. */
+    public enum Diversity {
+        /** Profesor y periodo de cada unidad (lo mismo que distingue el hash). */
+        TEACHER_PERIOD,
+        /** Solo el periodo. */
+        PERIOD,
+        /** Solo el profesor. */
+        TEACHER,
+        /** Profesor, periodo y aula. */
+        FULL
+    }
+
+    /** Una candidata: puntuación, hash y la asignación empaquetada (no modificar). */
+    public static final class Entry {
+        public final int score;
+        public final long hash;
+        final int[] packed;
+        final long seq; // insertion order, to break score ties in favour of the older candidate
+
+        Entry(int score, long hash, int[] packed, long seq) {
+            this.score = score;
+            this.hash = hash;
+            this.packed = packed;
+            this.seq = seq;
+        }
+    }
+
+    /** Comparaciones de unidades a partir de las que la matriz de distancias se calcula en paralelo. */
+    static final long PARALLEL_MIN_WORK = 1L << 16;
+
+    private final int numUnits, capacity;
+    private final int roomBits, periodBits;
+    private final int roomMask, periodMask;
+    private int tolerance = Integer.MAX_VALUE;
+    private Diversity diversity = Diversity.TEACHER_PERIOD;
+    private volatile int distanceMask;
+    private int minDistance;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<Long> seen = new HashSet<>();
+    private volatile int bestScore = Integer.MIN_VALUE;
+    private long offered, duplicates, rejected, evicted, seq;
+
+    /**
+     * @param capacity candidatas que se retienen como mucho
+     * @throws IllegalArgumentException si profesor, aula y periodo no caben juntos en 32 bits
+     */
+    public SolutionPool(int numUnits, int numTeachers, int numClassrooms, int numTimePeriods, int capacity) {
+        this.numUnits = numUnits;
+        this.capacity = Math.max(1, capacity);
+        this.roomBits = bitsFor(numClassrooms);
+        this.periodBits = bitsFor(numTimePeriods);
+        if (bitsFor(numTeachers) + periodBits + roomBits > 32) {
+            throw new IllegalArgumentException("Instance too large to pack: " + numTeachers + " teachers, "
+                    + numClassrooms + " classrooms, " + numTimePeriods + " periods");
+        }
+        this.roomMask = (1 << roomBits) - 1;
+        this.periodMask = (1 << periodBits) - 1;
+        this.distanceMask = distanceMask(diversity);
+    }
+
+    public SolutionPool(ProblemInstance instance, int capacity) {
+        this(instance.numUnits(), instance.numTeachers(), instance.numClassrooms(), instance.numTimePeriods(), capacity);
+    }
+
+    private static int bitsFor(int n) {
+        return n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    // Layout of a unit, from the high bits: teacher | period | room
+    private int pack(int teacher, int room, int period) {
+        return ((teacher << periodBits | period) << roomBits) | room;
+    }
+
+    private int distanceMask(Diversity d) {
+        long periods = (long) periodMask << roomBits;
+        long teachers = (0xFFFFFFFFL << (periodBits + roomBits)) & 0xFFFFFFFFL;
+        return switch (d) {
+            case TEACHER_PERIOD -> (int) (teachers | periods);
+            case PERIOD -> (int) periods;
+            case TEACHER -> (int) teachers;
+            case FULL -> -1;
+        };
+    }
+
+    // --- Configuración ---
+
+    /**
+     * Solo se aceptan candidatas con puntuación >= mejor vista - tolerance (la primera siempre entra).
+     * Por defecto no hay tolerancia: el filtro queda para quien ofrece.
+     */
+    public synchronized void setTolerance(int tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Métrica de diversidad y distancia mínima entre candidatas retenidas (0, por defecto, solo descarta
+     * duplicados exactos por hash).
+     */
+    public synchronized void setDiversity(Diversity diversity, int minDistance) {
+        this.diversity = diversity;
+        this.distanceMask = distanceMask(diversity);
+        this.minDistance = Math.max(0, minDistance);
+    }
+
+    public synchronized Diversity getDiversity() {
+        return diversity;
+    }
+
+    public synchronized int getMinDistance() {
+        return minDistance;
+    }
+
+    // --- Ofertas ---
+
+    /** Ofrece una asignación {profesor[], aula[], periodo[]} por unidad (ver ScheduleSolver.snapshotAssignment). */
+    public boolean offer(int score, int[][] assignment) {
+        return offer(score, assignment[0], assignment[1], assignment[2]);
+    }
+
+    /**
+     * Ofrece una solución; los arrays no se retienen (se pueden reutilizar) y solo se empaqueta si entra.
+     * Devuelve true si la candidata quedó en el pool.
+     */
+    public synchronized boolean offer(int score, int[] teachers, int[] rooms, int[] periods) {
+        offered++;
+        int best = Math.max(bestScore, score);
+        bestScore = best;
+        if (!entries.isEmpty() && score < (long) best - tolerance) {
+            rejected++;
+            return false;
+        }
+        long hash = hash(teachers, periods);
+        if (seen.contains(hash)) {
+            duplicates++;
+            return false;
+        }
+        // Full of better or equal candidates: not worth packing
+        if (entries.size() >= capacity && entries.get(worst()).score >= score) {
+            rejected++;
+            return false;
+        }
+        int[] packed = new int[numUnits];
+        for (int u = 0; u < numUnits; u++) packed[u] = pack(teachers[u], rooms[u], periods[u]);
+        if (minDistance > 0 && !makeRoom(score, packed)) {
+            rejected++;
+            return false;
+        }
+        seen.add(hash);
+        if (entries.size() >= capacity) {
+            entries.remove(worst());
+            evicted++;
+        }
+        entries.add(new Entry(score, hash, packed, seq++));
+        return true;
+    }
+
+    // Too close to a candidate at least as good: reject; otherwise drop the close (worse) ones
+    private boolean makeRoom(int score, int[] packed) {
+        List<Entry> close = new ArrayList<>();
+        for (Entry e : entries) {
+            if (distance(e.packed, packed, minDistance) < minDistance) {
+                if (e.score >= score) return false;
+                close.add(e);
+            }
+        }
+        entries.removeAll(close);
+        evicted += close.size();
+        return true;
+    }
+
+    private int worst() {
+        int w = 0;
+        for (int i = 1; i < entries.size(); i++) {
+            Entry a = entries.get(i), b = entries.get(w);
+            if (a.score < b.score || a.score == b.score && a.seq > b.seq) w = i;
+        }
+        return w;
+    }
+
+    private long hash(int[] teachers, int[] periods) {
+        long h = 1;
+        for (int u = 0; u < numUnits; u++) h = h * 0x9E3779B97F4A7C15L + ((long) teachers[u] << periodBits | periods[u]);
+        // Final mix (MurmurHash3 fmix64) so close assignments spread over the whole range
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // --- Consultas ---
+
+    /** Mejor puntuación ofrecida hasta ahora (aunque la candidata no entrase). */
+    public int bestScore() {
+        return bestScore;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Las k mejores candidatas, de mayor a menor puntuación (a igualdad, la más antigua primero). */
+    public synchronized List<Entry> top(int k) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : Long.compare(a.seq, b.seq));
+        return sorted.size() > k ? new ArrayList<>(sorted.subList(0, k)) : sorted;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        seen.clear();
+        bestScore = Integer.MIN_VALUE;
+        offered = duplicates = rejected = evicted = seq = 0;
+    }
+
+    /** Asignación desempaquetada {profesor[], aula[], periodo[]}, para construir el Schedule de una ganadora. */
+    public int[][] assignment(Entry e) {
+        int[][] a = new int[3][numUnits];
+        for (int u = 0; u < numUnits; u++) {
+            int v = e.packed[u];
+            a[0][u] = v >>> (periodBits + roomBits);
+            a[1][u] = v & roomMask;
+            a[2][u] = (v >>> roomBits) & periodMask;
+        }
+        return a;
+    }
+
+    /** Distancia de Hamming entre dos candidatas según la métrica configurada: unidades que difieren. */
+    public int distance(Entry a, Entry b) {
+        return distance(a.packed, b.packed, Integer.MAX_VALUE);
+    }
+
+    // Stops counting once the distance reaches bound
+    private int distance(int[] a, int[] b, int bound) {
+        int mask = distanceMask, d = 0;
+        for (int u = 0; u < numUnits && d < bound; u++) if (((a[u] ^ b[u]) & mask) != 0) d++;
+        return d;
+    }
+
+    // --- Selección diversa ---
+
+    /**
+     * Resultado de selectDiverse: las candidatas elegidas (de mayor a menor puntuación) y cómo de
+     * distintas son, para poder medir la selección.
+     */
+    public static final class Selection {
+        public final List<Entry> entries;
+        /** Candidatas del pool más cercanas a cada elegida (ella incluida): cuántas variantes representa. */
+        public final int[] clusterSizes;
+        /** Distancia mínima y media entre pares de elegidas (0 si hay menos de dos). */
+        public final int minDistance;
+        public final double meanDistance;
+        public final long distanceNanos, selectNanos;
+
+        Selection(List<Entry> entries, int[] clusterSizes, int minDistance, double meanDistance,
+                  long distanceNanos, long selectNanos) {
+            this.entries = entries;
+            this.clusterSizes = clusterSizes;
+            this.minDistance = minDistance;
+            this.meanDistance = meanDistance;
+            this.distanceNanos = distanceNanos;
+            this.selectNanos = selectNanos;
+        }
+    }
+
+    /**
+     * Elige k candidatas por max-min voraz: la primera es la mejor y cada siguiente es la que maximiza
+     * {@code (1 - weight) * puntuación + weight * distancia a la elegida más cercana}, ambas normalizadas
+     * a [0, 1] sobre el pool. Con weight 0 es top(k); con weight 1, el recubrimiento de Gonzalez (el punto
+     * más lejano cada vez). Cada candidata no elegida queda en el grupo de su elegida más cercana.
+     */
+    public Selection selectDiverse(int k, double weight) {
+        List<Entry> pool = top(Integer.MAX_VALUE);
+        int n = pool.size();
+        long t0 = System.nanoTime();
+        int[] d = distanceMatrix(pool, (long) n * n * numUnits / 2 >= PARALLEL_MIN_WORK);
+        long t1 = System.nanoTime();
+
+        int maxD = 1;
+        for (int x : d) maxD = Math.max(maxD, x);
+        int bestScore = n == 0 ? 0 : pool.get(0).score, worstScore = n == 0 ? 0 : pool.get(n - 1).score;
+        double scoreRange = Math.max(1, bestScore - worstScore);
+        double w = Math.max(0, Math.min(1, weight));
+
+        List<Integer> chosen = new ArrayList<>();
+        boolean[] taken = new boolean[n];
+        int[] nearest = new int[n]; // distance to the closest chosen candidate
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        while (chosen.size() < Math.min(k, n)) {
+            int pick = -1;
+            double pickValue = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < n; j++) {
+                if (taken[j]) continue;
+                double quality = (pool.get(j).score - worstScore) / scoreRange;
+                double spread = chosen.isEmpty() ? 0 : (double) nearest[j] / maxD;
+                double value = (1 - w) * quality + w * spread;
+                if (value > pickValue) { // ties keep the earlier, better scored one
+                    pick = j;
+                    pickValue = value;
+                }
+            }
+            taken[pick] = true;
+            chosen.add(pick);
+            for (int j = 0; j < n; j++) nearest[j] = Math.min(nearest[j], d[pick * n + j]);
+        }
+
+        int m = chosen.size();
+        int[] clusterSizes = new int[m];
+        for (int j = 0; j < n && m > 0; j++) {
+            int c = 0;
+            for (int i = 1; i < m; i++) if (d[chosen.get(i) * n + j] < d[chosen.get(c) * n + j]) c = i;
+            clusterSizes[c]++;
+        }
+        int minDistance = m < 2 ? 0 : Integer.MAX_VALUE;
+        long sum = 0;
+        for (int a = 0; a < m; a++) {
+            for (int b = a + 1; b < m; b++) {
+                int x = d[chosen.get(a) * n + chosen.get(b)];
+                minDistance = Math.min(minDistance, x);
+                sum += x;
+            }
+        }
+        double meanDistance = m < 2 ? 0 : sum / (m * (m - 1) / 2.0);
+
+        // Best score first, as top(k); the cluster sizes follow their candidate
+        Integer[] order = new Integer[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(chosen.get(a), chosen.get(b)));
+        List<Entry> entries = new ArrayList<>(m);
+        int[] sizes = new int[m];
+        for (int i = 0; i < m; i++) {
+            entries.add(pool.get(chosen.get(order[i])));
+            sizes[i] = clusterSizes[order[i]];
+        }
+        return new Selection(entries, sizes, minDistance, meanDistance, t1 - t0, System.nanoTime() - t1);
+    }
+
+    /**
+     * Matriz de distancias entre las candidatas dadas (n x n por filas) con la métrica configurada. En
+     * paralelo, cada fila i calcula sus pares j > i en el pool común de ForkJoin.
+     */
+    public int[] distanceMatrix(List<Entry> candidates, boolean parallel) {
+        int n = candidates.size();
+        int[] d = new int[n * n];
+        IntStream rows = IntStream.range(0, n);
+        (parallel ? rows.parallel() : rows).forEach(i -> {
+            int[] a = candidates.get(i).packed;
+            for (int j = i + 1; j < n; j++) {
+                int x = distance(a, candidates.get(j).packed, Integer.MAX_VALUE);
+                d[i * n + j] = x;
+                d[j * n + i] = x;
+            }
+        });
+        return d;
+    }
+
+    public synchronized long getOffered() { return offered; }
+    public synchronized long getDuplicates() { return duplicates; }
+    public synchronized long getRejected() { return rejected; }
+    public synchronized long getEvicted() { return evicted; }
+}
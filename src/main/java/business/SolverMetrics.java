@@ -0,0 +1,149 @@
+package business;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Registro de métricas de los motores: cada ejecución publica aquí su SolverRunStats al terminar.
+ * Mantiene agregados por nombre (contadores y temporizadores con número, total y máximo), las últimas
+ * ejecuciones completas y una lista de oyentes para reenviarlas a un sistema externo (logs, JMX...).
+ *
+ * Las ejecuciones más lentas que el umbral (propiedad del sistema {@code solver.slowRunMs}, 30 s por
+ * defecto; 0 lo desactiva) escriben su informe completo en System.err para poder diagnosticarlas.
+ * Es seguro usarlo desde varios hilos (BatchSolver resuelve varios centros a la vez).
+ */
+public final class SolverMetrics {
+
+    private static final SolverMetrics GLOBAL = new SolverMetrics();
+    static final int RECENT_RUNS = 50;
+
+    /** Registro compartido que usan los motores por defecto. */
+    public static SolverMetrics global() {
+        return GLOBAL;
+    }
+
+    /** Temporizador agregado: número de medidas, total y máximo en milisegundos. */
+    public static final class Timer {
+        private long count, totalMs, maxMs;
+
+        void record(long ms) {
+            count++;
+            totalMs += ms;
+            maxMs = Math.max(maxMs, ms);
+        }
+
+        public long getCount() { return count; }
+        public long getTotalMs() { return totalMs; }
+        public long getMaxMs() { return maxMs; }
+        public double getMeanMs() { return count == 0 ? 0 : (double) totalMs / count; }
+    }
+
+    private final Map<String, Long> counters = new TreeMap<>();
+    private final Map<String, Timer> timers = new TreeMap<>();
+    private final Deque<SolverRunStats> recent = new ArrayDeque<>();
+    private final List<Consumer<SolverRunStats>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long slowRunMs = Long.getLong("solver.slowRunMs", 30_000L);
+
+    public void record(SolverRunStats run) {
+        synchronized (this) {
+            String engine = run.getEngine();
+            increment("solver.runs", 1);
+            increment("solver.runs." + engine + "." + run.getOutcome(), 1);
+            increment("solver.solutions", run.getSolutions());
+            increment("solver.search.nodes", run.getNodes());
+            increment("solver.search.fails", run.getFails());
+            increment("solver.search.backtracks", run.getBacktracks());
+            increment("solver.search.restarts", run.getRestartCount());
+            for (Map.Entry<String, Long> c : run.getCounters().entrySet()) increment("solver." + engine + "." + c.getKey(), c.getValue());
+
+            timer("solver.run." + engine).record(run.getWallMs());
+            if (run.getBuildMs() >= 0) timer("solver.build." + engine).record(run.getBuildMs());
+            for (Map.Entry<String, Long> p : run.getPhases().entrySet()) timer("solver.phase." + engine + "." + p.getKey()).record(p.getValue());
+            for (SolverRunStats.Restart r : run.getRestarts()) timer("solver.restart").record(r.wallMs);
+            if (run.getFirstSolutionMs() >= 0) timer("solver.firstSolution." + engine).record(run.getFirstSolutionMs());
+            if (run.getBestSolutionMs() >= 0) timer("solver.bestSolution." + engine).record(run.getBestSolutionMs());
+
+            recent.addLast(run);
+            if (recent.size() > RECENT_RUNS) recent.removeFirst();
+        }
+
+        long threshold = slowRunMs;
+        if (threshold > 0 && run.getWallMs() > threshold) {
+            System.err.println("Slow solver run (over " + threshold + "ms): " + run.report());
+        }
+        for (Consumer<SolverRunStats> listener : listeners) listener.accept(run);
+    }
+
+    private void increment(String name, long delta) {
+        counters.merge(name, delta, Long::sum);
+    }
+
+    private Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    /**
+     * Vista plana de todos los agregados: contadores por su nombre y temporizadores como
+     * {@code <nombre>.count}, {@code .totalMs}, {@code .maxMs} y {@code .meanMs}.
+     */
+    public synchronized Map<String, Number> snapshot() {
+        Map<String, Number> out = new TreeMap<>(counters);
+        for (Map.Entry<String, Timer> e : timers.entrySet()) {
+            Timer t = e.getValue();
+            out.put(e.getKey() + ".count", t.count);
+            out.put(e.getKey() + ".totalMs", t.totalMs);
+            out.put(e.getKey() + ".maxMs", t.maxMs);
+            out.put(e.getKey() + ".meanMs", t.getMeanMs());
+        }
+        return out;
+    }
+
+    public synchronized long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /** Copia del temporizador con ese nombre, null si aún no tiene medidas. */
+    public synchronized Timer getTimer(String name) {
+        Timer t = timers.get(name);
+        if (t == null) return null;
+        Timer copy = new Timer();
+        copy.count = t.count;
+        copy.totalMs = t.totalMs;
+        copy.maxMs = t.maxMs;
+        return copy;
+    }
+
+    /** Últimas ejecuciones (como mucho RECENT_RUNS), de la más antigua a la más reciente. */
+    public synchronized List<SolverRunStats> getRecentRuns() {
+        return new ArrayList<>(recent);
+    }
+
+    /** Última ejecución registrada, null si ninguna. */
+    public synchronized SolverRunStats getLastRun() {
+        return recent.peekLast();
+    }
+
+    /** Recibe cada ejecución al registrarse, desde el hilo del motor; no debe bloquear. */
+    public void addListener(Consumer<SolverRunStats> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<SolverRunStats> listener) {
+        listeners.remove(listener);
+    }
+
+    public long getSlowRunMs() {
+        return slowRunMs;
+    }
+
+    public void setSlowRunMs(long slowRunMs) {
+        this.slowRunMs = slowRunMs;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        timers.clear();
+        recent.clear();
+    }
+}
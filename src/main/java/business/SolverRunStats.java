@@ -0,0 +1,224 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Métricas estructuradas de una ejecución de createSchedule: tiempos de cada fase y de cada reinicio,
+ * tamaño del modelo (variables y restricciones por tipo), memoria ocupada antes y después de construirlo
+ * y estadísticas de la búsqueda (nodos, fallos, retrocesos, reinicios, tiempo hasta la primera y hasta la
+ * mejor solución). Cada motor la rellena mientras resuelve y la publica al terminar en su SolverMetrics.
+ *
+ * Los tiempos hasta la primera y la mejor solución se cuentan desde el inicio de createSchedule (como
+ * ScheduleUpdate.getElapsedMs), así que incluyen la construcción del modelo. La memoria es el heap en uso
+ * (sin forzar una recolección), una aproximación del coste del modelo.
+ */
+public final class SolverRunStats {
+
+    /** Resultado de la ejecución. */
+    public enum Outcome { SOLVED, NO_SOLUTION, INFEASIBLE, CANCELLED, ERROR }
+
+    /** Un reinicio de la búsqueda: duración, nodos, fallos y soluciones aceptadas en él. */
+    public static final class Restart {
+        public final int index;
+        public final long wallMs;
+        public final long nodes;
+        public final long fails;
+        public final int solutions;
+
+        Restart(int index, long wallMs, long nodes, long fails, int solutions) {
+            this.index = index;
+            this.wallMs = wallMs;
+            this.nodes = nodes;
+            this.fails = fails;
+            this.solutions = solutions;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " " + wallMs + "ms " + nodes + "n/" + fails + "f/" + solutions + "s";
+        }
+    }
+
+    private final String engine;
+    private final int units, teachers, classrooms, timePeriods;
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private long wallMs;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final List<Restart> restarts = new ArrayList<>();
+    private final Map<String, Integer> variables = new TreeMap<>();
+    private final Map<String, Integer> constraints = new TreeMap<>();
+    private final Map<String, Long> counters = new TreeMap<>();
+    private long heapBeforeBuild = -1, heapAfterBuild = -1;
+    private long buildStartNanos, buildMs = -1;
+
+    private long nodes, fails, backtracks, restartCount;
+    private int solutions;
+    private long firstSolutionMs = -1, bestSolutionMs = -1;
+    private Integer bestScore;
+    private Outcome outcome;
+    private boolean cancelled;
+
+    SolverRunStats(String engine, int units, int teachers, int classrooms, int timePeriods) {
+        this.engine = engine;
+        this.units = units;
+        this.teachers = teachers;
+        this.classrooms = classrooms;
+        this.timePeriods = timePeriods;
+    }
+
+    // --- Registro (lo usan los motores) ---
+
+    /** Suma a la fase {@code name} el tiempo transcurrido desde {@code startNanos} (System.nanoTime). */
+    void endPhase(String name, long startNanos) {
+        addPhase(name, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    void addPhase(String name, long ms) {
+        phases.merge(name, ms, Long::sum);
+    }
+
+    void addRestart(long wallMs, long nodes, long fails, int solutions) {
+        restarts.add(new Restart(restarts.size() + 1, wallMs, nodes, fails, solutions));
+    }
+
+    /** Inicio de la construcción del modelo: anota el heap en uso. */
+    void buildStarted() {
+        heapBeforeBuild = usedHeap();
+        buildStartNanos = System.nanoTime();
+    }
+
+    /** Fin de la construcción del modelo: anota el heap en uso y la duración. */
+    void buildFinished() {
+        heapAfterBuild = usedHeap();
+        buildMs = (System.nanoTime() - buildStartNanos) / 1_000_000;
+    }
+
+    void countVariable(String type) {
+        variables.merge(type, 1, Integer::sum);
+    }
+
+    void countConstraint(String type) {
+        constraints.merge(type, 1, Integer::sum);
+    }
+
+    void addCounter(String name, long value) {
+        counters.merge(name, value, Long::sum);
+    }
+
+    void setSearchCounts(long nodes, long fails, long backtracks, long restarts) {
+        this.nodes = nodes;
+        this.fails = fails;
+        this.backtracks = backtracks;
+        this.restartCount = restarts;
+    }
+
+    /** Una solución aceptada con esa puntuación: actualiza las soluciones y los tiempos a la primera y la mejor. */
+    void solutionFound(int score) {
+        long elapsed = elapsedMs();
+        solutions++;
+        if (firstSolutionMs < 0) firstSolutionMs = elapsed;
+        if (bestScore == null || score > bestScore) {
+            bestScore = score;
+            bestSolutionMs = elapsed;
+        }
+    }
+
+    void finish(Outcome outcome, boolean cancelled) {
+        this.wallMs = elapsedMs();
+        this.outcome = outcome;
+        this.cancelled = cancelled;
+    }
+
+    long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // --- Consulta ---
+
+    public String getEngine() { return engine; }
+    public int getUnits() { return units; }
+    public int getTeachers() { return teachers; }
+    public int getClassrooms() { return classrooms; }
+    public int getTimePeriods() { return timePeriods; }
+    /** Instante de inicio (epoch ms). */
+    public long getStartedAt() { return startedAt; }
+    public long getWallMs() { return wallMs; }
+
+    /** Milisegundos por fase, en el orden en que se ejecutaron. */
+    public Map<String, Long> getPhases() { return Collections.unmodifiableMap(phases); }
+    public List<Restart> getRestarts() { return Collections.unmodifiableList(restarts); }
+    /** Variables del modelo por tipo ("int", "bool", "int view"...); vacío para motores sin modelo. */
+    public Map<String, Integer> getVariables() { return Collections.unmodifiableMap(variables); }
+    /** Restricciones del modelo por nombre de Choco ("TABLE", "SUM", "ARITHM"...). */
+    public Map<String, Integer> getConstraints() { return Collections.unmodifiableMap(constraints); }
+    /** Contadores propios del motor (p. ej. movimientos de la búsqueda local). */
+    public Map<String, Long> getCounters() { return Collections.unmodifiableMap(counters); }
+
+    /** Heap en uso antes y después de construir el modelo, en bytes (-1 si no se construyó). */
+    public long getHeapBeforeBuild() { return heapBeforeBuild; }
+    public long getHeapAfterBuild() { return heapAfterBuild; }
+    /** Milisegundos de construcción del modelo (variables y restricciones), -1 si no se construyó. */
+    public long getBuildMs() { return buildMs; }
+
+    public long getNodes() { return nodes; }
+    public long getFails() { return fails; }
+    public long getBacktracks() { return backtracks; }
+    /** Reinicios: los aleatorios de ScheduleSolver.solveModel más los internos de Choco (p. ej. cada vecindario LNS). */
+    public long getRestartCount() { return restartCount; }
+    public int getSolutions() { return solutions; }
+    /** Milisegundos hasta la primera y hasta la mejor solución, -1 si no hubo ninguna. */
+    public long getFirstSolutionMs() { return firstSolutionMs; }
+    public long getBestSolutionMs() { return bestSolutionMs; }
+    /** Mejor puntuación encontrada, null si ninguna. */
+    public Integer getBestScore() { return bestScore; }
+    public Outcome getOutcome() { return outcome; }
+    public boolean isCancelled() { return cancelled; }
+
+    public int getVariableCount() {
+        return variables.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public int getConstraintCount() {
+        return constraints.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /** Una línea: resultado, tiempos principales y tamaño. */
+    public String summary() {
+        return String.format("%s %s in %dms: %d units, build %s, %d vars, %d constraints, first %s, best %s (score %s), "
+                        + "%d nodes, %d fails, %d backtracks, %d restarts, heap %s -> %s",
+                engine, outcome, wallMs, units, ms(buildMs), getVariableCount(), getConstraintCount(), ms(firstSolutionMs),
+                ms(bestSolutionMs), bestScore == null ? "-" : bestScore, nodes, fails, backtracks, restartCount,
+                mb(heapBeforeBuild), mb(heapAfterBuild));
+    }
+
+    /** Informe completo, para los logs de las ejecuciones lentas. */
+    public String report() {
+        StringBuilder sb = new StringBuilder(summary());
+        sb.append("\n  phases: ").append(phases);
+        if (!restarts.isEmpty()) sb.append("\n  restarts: ").append(restarts);
+        if (!variables.isEmpty()) sb.append("\n  variables: ").append(variables);
+        if (!constraints.isEmpty()) sb.append("\n  constraints: ").append(constraints);
+        if (!counters.isEmpty()) sb.append("\n  counters: ").append(counters);
+        return sb.toString();
+    }
+
+    private static String ms(long ms) {
+        return ms < 0 ? "-" : ms + "ms";
+    }
+
+    private static String mb(long bytes) {
+        return bytes < 0 ? "-" : (bytes >> 20) + "MB";
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
@@ -0,0 +1,309 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Prefase de asignación de profesores (ver ScheduleSolver.setTeacherPrePhase): reparte las ofertas
+ * (grupo, asignatura) entre los profesores como flujo máximo de coste mínimo, antes del horario.
+ *
+ * Red: fuente -> oferta (capacidad = horas semanales x duración) -> profesor (un arco por profesor del
+ * dominio de la oferta, ver UnitDomains; coste = pesos de las condiciones no preferidas menos las preferidas
+ * de la asignatura y del grupo) -> sumidero (capacidad = horas de trabajo del profesor, acotadas por sus
+ * periodos disponibles). El arco al sumidero se parte en tramos de coste creciente para repartir la carga:
+ * un profesor lleno deja poco margen al horario. Las preferencias pesan más que cualquier tramo.
+ *
+ * El flujo es una relajación (una oferta podría repartirse entre varios profesores): si no cubre toda la
+ * demanda, no existe horario y {@link #report()} explica el corte mínimo. Si la cubre, cada oferta se
+ * asigna al profesor que lleva más flujo y aún tiene capacidad (o, si ninguno, al más barato que la tenga);
+ * {@link #isIntegral()} indica si todas las ofertas quedan asignadas así.
+ */
+public class TeacherAssignment {
+
+    static final int LOAD_TIERS = 4;                  // tramos de carga por profesor (coste 0, 1, 2, 3)
+    static final int PREFERENCE_SCALE = LOAD_TIERS;   // una unidad de peso vale más que cualquier tramo
+
+    private final List<String> offeringNames = new ArrayList<>();
+    private final int[] demand;         // [oferta] -> horas
+    private final int[] capacity;       // [profesor] -> horas
+    private final int[] offeringOf;     // [unidad] -> oferta
+    private final int[] offeringTeacher; // [oferta] -> profesor asignado, -1 si ninguno
+    private final int[][] offeringCosts; // [oferta] -> coste por profesor del dominio (alineado con offeringDomain)
+    private final int[][] offeringDomain; // [oferta] -> profesores posibles
+    private final List<Teacher> teachers;
+    private int flow;
+    private int totalDemand;
+    private int cost;
+    private boolean integral;
+    private long elapsedMs;
+    private String cutReport = "";
+
+    // Residual graph (edge arrays)
+    private int[] head, next, to, cap, edgeCost;
+    private int edges;
+
+    private TeacherAssignment(List<Teacher> teachers, int numOfferings, int numUnits) {
+        this.teachers = teachers;
+        this.demand = new int[numOfferings];
+        this.capacity = new int[teachers.size()];
+        this.offeringOf = new int[numUnits];
+        this.offeringTeacher = new int[numOfferings];
+        this.offeringCosts = new int[numOfferings][];
+        this.offeringDomain = new int[numOfferings][];
+    }
+
+    public static TeacherAssignment solve(List<ScheduledUnit> units, UnitDomains domains, List<Teacher> teachers,
+                                          List<TimePeriod> timePeriods) {
+        return solve(ProblemInstance.compileUnits(units, teachers, List.of(), timePeriods), domains);
+    }
+
+    /** Flujo sobre la instancia compilada, con los dominios de UnitDomains.compute(instance). */
+    public static TeacherAssignment solve(ProblemInstance instance, UnitDomains domains) {
+        long start = System.nanoTime();
+        List<ScheduledUnit> units = instance.getUnits();
+        List<Teacher> teachers = instance.getTeachers();
+
+        // Offerings: one per (group, subject); units of an offering share their teacher (section 6)
+        int nO = instance.numOfferings, nT = teachers.size();
+        TeacherAssignment a = new TeacherAssignment(teachers, nO, units.size());
+        System.arraycopy(instance.unitOffering, 0, a.offeringOf, 0, units.size());
+        int maxDuration = 1;
+        for (int u = 0; u < units.size(); u++) {
+            int duration = Math.max(1, instance.duration[instance.unitSubject[u]]);
+            a.demand[instance.unitOffering[u]] += duration;
+            maxDuration = Math.max(maxDuration, duration);
+        }
+        for (int o = 0; o < nO; o++) {
+            ScheduledUnit unit = units.get(instance.offeringUnits[instance.offeringStart[o]]);
+            a.offeringNames.add(unit.getStudentGroup().getName() + "/" + unit.getSubject().getName());
+            a.totalDemand += a.demand[o];
+        }
+        for (int t = 0; t < nT; t++) {
+            a.capacity[t] = Math.max(0, Math.min(instance.hoursWork[t], instance.availableCount[t] * maxDuration));
+        }
+
+        // Nodes: source 0, offerings [1, nO], teachers [nO + 1, nO + nT], sink nO + nT + 1
+        int source = 0, sink = nO + nT + 1;
+        a.initGraph(nO + nT + 2, 2 * (nO + nT * LOAD_TIERS + nO * Math.max(1, nT)));
+        for (int o = 0; o < nO; o++) {
+            a.addEdge(source, 1 + o, a.demand[o], 0);
+            int u = instance.offeringUnits[instance.offeringStart[o]];
+            a.offeringDomain[o] = domains.teachers[u];
+            a.offeringCosts[o] = new int[domains.teachers[u].length];
+            for (int k = 0; k < domains.teachers[u].length; k++) {
+                int t = domains.teachers[u][k];
+                a.offeringCosts[o][k] = preferenceCost(teachers.get(t), units.get(u)) * PREFERENCE_SCALE;
+                a.addEdge(1 + o, 1 + nO + t, a.demand[o], a.offeringCosts[o][k]);
+            }
+        }
+        for (int t = 0; t < nT; t++) {
+            // Convex load cost: tier k (k = 0..LOAD_TIERS-1) costs k per hour
+            int left = a.capacity[t];
+            for (int k = 0; k < LOAD_TIERS; k++) {
+                int tier = k == LOAD_TIERS - 1 ? left : a.capacity[t] / LOAD_TIERS;
+                a.addEdge(1 + nO + t, sink, tier, k);
+                left -= tier;
+            }
+        }
+
+        a.minCostMaxFlow(source, sink);
+        a.round(nO, nT);
+        if (a.flow < a.totalDemand) a.cutReport = a.describeMinCut(source, nO, nT);
+        a.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return a;
+    }
+
+    // Unpreferred minus preferred weights of the subject and group conditions of the teacher
+    private static int preferenceCost(Teacher teacher, ScheduledUnit unit) {
+        int cost = 0;
+        for (Condition c : teacher.getPreferredConditions()) cost -= matches(c, unit) ? c.getWeight() : 0;
+        for (Condition c : teacher.getUnPreferredConditions()) cost += matches(c, unit) ? c.getWeight() : 0;
+        return cost;
+    }
+
+    private static boolean matches(Condition c, ScheduledUnit unit) {
+        return (c.getSubject() != null && c.getSubject().getId().equals(unit.getSubject().getId()))
+                || (c.getStudentGroup() != null && c.getStudentGroup().getId().equals(unit.getStudentGroup().getId()));
+    }
+
+    private void initGraph(int nodes, int maxEdges) {
+        head = new int[nodes];
+        Arrays.fill(head, -1);
+        next = new int[maxEdges];
+        to = new int[maxEdges];
+        cap = new int[maxEdges];
+        edgeCost = new int[maxEdges];
+    }
+
+    private void addEdge(int from, int dest, int capacity, int cost) {
+        to[edges] = dest; cap[edges] = capacity; edgeCost[edges] = cost; next[edges] = head[from]; head[from] = edges++;
+        to[edges] = from; cap[edges] = 0; edgeCost[edges] = -cost; next[edges] = head[dest]; head[dest] = edges++;
+    }
+
+    // Primal-dual: SPFA distances (costs may be negative; the graph has no negative cycles), then every
+    // shortest path at once as a Dinic blocking flow over the admissible arcs. Costs are small integers,
+    // so there are few phases even with thousands of offerings.
+    private void minCostMaxFlow(int source, int sink) {
+        int n = head.length;
+        int[] dist = new int[n];
+        int[] level = new int[n];
+        int[] arc = new int[n];
+        boolean[] inQueue = new boolean[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        while (true) {
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            dist[source] = 0;
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                inQueue[v] = false;
+                for (int e = head[v]; e >= 0; e = next[e]) {
+                    if (cap[e] > 0 && dist[v] + edgeCost[e] < dist[to[e]]) {
+                        dist[to[e]] = dist[v] + edgeCost[e];
+                        if (!inQueue[to[e]]) {
+                            inQueue[to[e]] = true;
+                            queue.add(to[e]);
+                        }
+                    }
+                }
+            }
+            if (dist[sink] == Integer.MAX_VALUE) return;
+
+            // Blocking flows over the arcs on shortest paths (levels keep zero-cost cycles out)
+            while (true) {
+                Arrays.fill(level, -1);
+                level[source] = 0;
+                queue.add(source);
+                while (!queue.isEmpty()) {
+                    int v = queue.poll();
+                    for (int e = head[v]; e >= 0; e = next[e]) {
+                        if (cap[e] > 0 && level[to[e]] < 0 && admissible(e, v, dist)) {
+                            level[to[e]] = level[v] + 1;
+                            queue.add(to[e]);
+                        }
+                    }
+                }
+                if (level[sink] < 0) break;
+                System.arraycopy(head, 0, arc, 0, n);
+                for (int pushed; (pushed = augment(source, sink, Integer.MAX_VALUE, dist, level, arc)) > 0; ) {
+                    flow += pushed;
+                    cost += pushed * dist[sink];
+                }
+            }
+        }
+    }
+
+    private boolean admissible(int e, int from, int[] dist) {
+        return dist[from] != Integer.MAX_VALUE && dist[from] + edgeCost[e] == dist[to[e]];
+    }
+
+    private int augment(int v, int sink, int limit, int[] dist, int[] level, int[] arc) {
+        if (v == sink) return limit;
+        for (; arc[v] >= 0; arc[v] = next[arc[v]]) {
+            int e = arc[v], w = to[e];
+            if (cap[e] <= 0 || level[w] != level[v] + 1 || !admissible(e, v, dist)) continue;
+            int pushed = augment(w, sink, Math.min(limit, cap[e]), dist, level, arc);
+            if (pushed > 0) {
+                cap[e] -= pushed;
+                cap[e ^ 1] += pushed;
+                return pushed;
+            }
+        }
+        return 0;
+    }
+
+    // Largest offerings first: the teacher carrying most of its flow with room left, else the cheapest with room
+    private void round(int nO, int nT) {
+        int[][] flowTo = new int[nO][nT];
+        for (int o = 0; o < nO; o++) {
+            for (int e = head[1 + o]; e >= 0; e = next[e]) {
+                int t = to[e] - 1 - nO;
+                if (t >= 0 && t < nT && (e & 1) == 0) flowTo[o][t] = cap[e ^ 1]; // flow = reverse residual capacity
+            }
+        }
+        Integer[] order = new Integer[nO];
+        for (int o = 0; o < nO; o++) order[o] = o;
+        Arrays.sort(order, (x, y) -> Integer.compare(demand[y], demand[x]));
+
+        int[] left = capacity.clone();
+        integral = flow == totalDemand;
+        for (int o : order) {
+            int best = -1;
+            for (int k = 0; k < offeringDomain[o].length; k++) {
+                int t = offeringDomain[o][k];
+                if (left[t] < demand[o]) continue;
+                if (best < 0 || flowTo[o][t] > flowTo[o][offeringDomain[o][best]]
+                        || (flowTo[o][t] == flowTo[o][offeringDomain[o][best]] && offeringCosts[o][k] < offeringCosts[o][best])) {
+                    best = k;
+                }
+            }
+            offeringTeacher[o] = best < 0 ? -1 : offeringDomain[o][best];
+            if (best < 0) integral = false;
+            else left[offeringDomain[o][best]] -= demand[o];
+        }
+    }
+
+    // Source side of the minimum cut: offerings that cannot be covered and the (full) teachers they can reach
+    private String describeMinCut(int source, int nO, int nT) {
+        boolean[] reached = new boolean[head.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(source));
+        reached[source] = true;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int e = head[v]; e >= 0; e = next[e]) {
+                if (cap[e] > 0 && !reached[to[e]]) {
+                    reached[to[e]] = true;
+                    queue.add(to[e]);
+                }
+            }
+        }
+        List<String> offerings = new ArrayList<>();
+        int need = 0;
+        for (int o = 0; o < nO; o++) {
+            if (!reached[1 + o]) continue;
+            offerings.add(offeringNames.get(o));
+            need += demand[o];
+        }
+        List<String> full = new ArrayList<>();
+        int available = 0;
+        for (int t = 0; t < nT; t++) {
+            if (!reached[1 + nO + t]) continue;
+            full.add(teachers.get(t).getName());
+            available += capacity[t];
+        }
+        return offerings.size() + " offerings need " + need + "h but their qualified teachers " + full
+                + " have only " + available + "h: " + offerings;
+    }
+
+    /** true si el flujo cubre toda la demanda (condición necesaria para que exista horario). */
+    public boolean isFeasible() {
+        return flow == totalDemand;
+    }
+
+    /** true si la asignación redondeada (un profesor por oferta) respeta todas las capacidades. */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /** Coste del flujo: pesos no preferidos menos preferidos por hora (x PREFERENCE_SCALE) más los tramos de carga. */
+    public int getCost() {
+        return cost;
+    }
+
+    /** Profesor (índice) asignado a la oferta de la unidad, o -1. */
+    public int teacherOfUnit(int unit) {
+        return offeringTeacher[offeringOf[unit]];
+    }
+
+    public String report() {
+        if (!isFeasible()) {
+            return "Teacher assignment infeasible (" + elapsedMs + "ms): " + flow + "/" + totalDemand + "h covered; "
+                    + cutReport;
+        }
+        return "Teacher assignment: " + offeringTeacher.length + " offerings, " + totalDemand + "h, cost " + cost
+                + (integral ? "" : " (split offerings: used as hints only)") + ", " + elapsedMs + "ms";
+    }
+}
@@ -0,0 +1,187 @@
+package business;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainRandom;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.ActivityBased;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDegRef;
+import org.chocosolver.solver.search.strategy.selectors.variables.FirstFail;
+import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelectorWithTies;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Estrategias de búsqueda de ScheduleSolver (ver ScheduleSolver.SearchStrategy).
+ *
+ * MOST_CONSTRAINED elige primero la unidad con menos combinaciones posibles (producto de los tamaños
+ * actuales de los dominios de profesor, periodo y aula; a igualdad, la de dominios iniciales más
+ * pequeños) y decide su profesor, luego su periodo y luego su aula. Los valores siguen las preferencias
+ * de los profesores (Teacher.getPreferredConditions): el profesor con más peso para la asignatura y el
+ * grupo de la unidad y el periodo con más peso para su profesor (o para los profesores que le quedan).
+ * En la versión aleatoria, para los reinicios, los empates se deshacen al azar.
+ *
+ * Las estrategias de Choco también tienen una versión aleatoria con la semilla del reinicio; si no, cada
+ * reinicio repetiría la misma búsqueda y el SolutionPool descartaría sus soluciones por duplicadas.
+ */
+final class TimetableSearch {
+
+    private TimetableSearch() {
+    }
+
+    /**
+     * Estrategia para las variables de las unidades; randomized da la variante de los reinicios (y del LNS).
+     * DEFAULT no tiene estrategia propia: devuelve null y cada búsqueda usa la suya.
+     */
+    static AbstractStrategy<IntVar> build(ScheduleSolver.SearchStrategy strategy, IntVar[] teacherVars,
+                                          IntVar[] periodVars, IntVar[] roomVars, ProblemInstance instance,
+                                          boolean randomized, long seed) {
+        IntVar[] all = concat(teacherVars, periodVars, roomVars);
+        Model model = all[0].getModel();
+        return switch (strategy) {
+            case DEFAULT -> null;
+            case MOST_CONSTRAINED -> {
+                Random random = randomized ? new Random(seed) : null;
+                yield Search.intVarSearch(new MostConstrainedUnit(teacherVars, periodVars, roomVars, random),
+                        new PreferredValue(teacherVars, periodVars, instance, random), all);
+            }
+            case DOM_WDEG_REF -> randomized
+                    ? Search.intVarSearch(new DomOverWDegRef<>(all, seed), new IntDomainRandom(seed), all)
+                    : Search.domOverWDegRefSearch(all);
+            // Same parameters as Search.activityBasedSearch, which always uses seed 0
+            case ACTIVITY -> new ActivityBased(model, all, null, 0.999d, 0.2d, 8, 1, randomized ? seed : 0);
+            case MIN_DOM -> randomized
+                    ? Search.intVarSearch(new VariableSelectorWithTies<>(new FirstFail(model),
+                            new org.chocosolver.solver.search.strategy.selectors.variables.Random<>(seed)),
+                            new IntDomainMin(), all)
+                    : Search.minDomLBSearch(all);
+            case RANDOM -> Search.randomSearch(all, seed);
+        };
+    }
+
+    private static IntVar[] concat(IntVar[]... groups) {
+        int n = 0;
+        for (IntVar[] g : groups) n += g.length;
+        IntVar[] all = new IntVar[n];
+        int i = 0;
+        for (IntVar[] g : groups) {
+            System.arraycopy(g, 0, all, i, g.length);
+            i += g.length;
+        }
+        return all;
+    }
+
+    // Unit with the fewest (teacher, period, room) combinations left; its first free variable
+    static final class MostConstrainedUnit implements VariableSelector<IntVar> {
+        private final IntVar[] teacherVars, periodVars, roomVars;
+        private final long[] initialSize;
+        private final Random random;
+
+        MostConstrainedUnit(IntVar[] teacherVars, IntVar[] periodVars, IntVar[] roomVars, Random random) {
+            this.teacherVars = teacherVars;
+            this.periodVars = periodVars;
+            this.roomVars = roomVars;
+            this.random = random;
+            this.initialSize = new long[teacherVars.length];
+            for (int u = 0; u < teacherVars.length; u++) initialSize[u] = size(u);
+        }
+
+        private long size(int u) {
+            return (long) teacherVars[u].getDomainSize() * periodVars[u].getDomainSize() * roomVars[u].getDomainSize();
+        }
+
+        @Override
+        public IntVar getVariable(IntVar[] variables) {
+            int best = -1, ties = 0;
+            long bestSize = Long.MAX_VALUE;
+            for (int u = 0; u < teacherVars.length; u++) {
+                long size = size(u);
+                if (size == 1) continue; // all three fixed
+                int cmp = best < 0 ? -1 : size != bestSize ? Long.compare(size, bestSize)
+                        : Long.compare(initialSize[u], initialSize[best]);
+                if (cmp < 0) {
+                    best = u;
+                    bestSize = size;
+                    ties = 1;
+                } else if (cmp == 0 && random != null && random.nextInt(++ties) == 0) {
+                    best = u;
+                }
+            }
+            if (best < 0) return null;
+            if (!teacherVars[best].isInstantiated()) return teacherVars[best];
+            if (!periodVars[best].isInstantiated()) return periodVars[best];
+            return roomVars[best];
+        }
+    }
+
+    // Highest preference weight first; rooms (no preferences) and ties: lowest value, or random
+    static final class PreferredValue implements IntValueSelector {
+        private static final int TEACHER = 0, PERIOD = 1;
+
+        private final IntVar[] teacherVars, periodVars;
+        private final Map<IntVar, Integer> role = new IdentityHashMap<>(); // unit * 2 + TEACHER | PERIOD
+        private final int[] unitSubject, unitGroup;
+        private final int[] periodWeight, subjectWeight, groupWeight;
+        private final int numPeriods, numSubjects, numGroups;
+        private final Random random;
+
+        PreferredValue(IntVar[] teacherVars, IntVar[] periodVars, ProblemInstance instance, Random random) {
+            this.teacherVars = teacherVars;
+            this.periodVars = periodVars;
+            for (int u = 0; u < teacherVars.length; u++) {
+                role.put(teacherVars[u], u * 2 + TEACHER);
+                role.put(periodVars[u], u * 2 + PERIOD);
+            }
+            this.unitSubject = instance.unitSubject;
+            this.unitGroup = instance.unitGroup;
+            this.periodWeight = instance.termWeights(ProblemInstance.PERIOD);
+            this.subjectWeight = instance.termWeights(ProblemInstance.SUBJECT);
+            this.groupWeight = instance.termWeights(ProblemInstance.GROUP);
+            this.numPeriods = instance.numTimePeriods();
+            this.numSubjects = instance.numSubjects();
+            this.numGroups = instance.numGroups();
+            this.random = random;
+        }
+
+        @Override
+        public int selectValue(IntVar var) {
+            Integer r = role.get(var);
+            int best = var.getLB(), ties = 0;
+            long bestWeight = Long.MIN_VALUE;
+            for (int v = var.getLB(); v <= var.getUB(); v = var.nextValue(v)) {
+                long w = r == null ? 0 : (r & 1) == TEACHER ? teacherWeight(r >> 1, v) : periodWeight(r >> 1, v);
+                if (w > bestWeight) {
+                    best = v;
+                    bestWeight = w;
+                    ties = 1;
+                } else if (w == bestWeight && random != null && random.nextInt(++ties) == 0) {
+                    best = v;
+                }
+            }
+            return best;
+        }
+
+        private long teacherWeight(int u, int t) {
+            long w = subjectWeight[t * numSubjects + unitSubject[u]] + groupWeight[t * numGroups + unitGroup[u]];
+            IntVar period = periodVars[u];
+            if (period.isInstantiated()) w += periodWeight[t * numPeriods + period.getValue()];
+            return w;
+        }
+
+        // For its teacher if already chosen, otherwise summed over the teachers still possible
+        private long periodWeight(int u, int p) {
+            IntVar teacher = teacherVars[u];
+            long w = 0;
+            for (int t = teacher.getLB(); t <= teacher.getUB(); t = teacher.nextValue(t)) {
+                w += periodWeight[t * numPeriods + p];
+            }
+            return w;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package business;
+
+import java.util.*;
+
+/**
+ * Prefiltrado estático de dominios: calcula, antes de crear el modelo, los profesores, aulas y periodos
+ * posibles de cada unidad, para que ScheduleSolver cree las variables con esos valores y no necesite
+ * restricciones de filtrado (member, element de capacidad).
+ *
+ * Profesores: los que pueden impartir la asignatura y tienen algún periodo disponible.
+ * Aulas: el aula asignada a la asignatura, si la hay; si no, las disponibles para la asignatura
+ * (Classroom.isAvailableForSubject) con capacidad suficiente para el grupo.
+ * Periodos: aquellos en los que algún profesor posible está disponible.
+ */
+public class UnitDomains {
+
+    private final List<ScheduledUnit> units;
+    final int[][] teachers;     // [unidad] -> índices de profesores posibles
+    final int[][] classrooms;   // [unidad] -> índices de aulas posibles
+    final int[][] timePeriods;  // [unidad] -> índices de periodos posibles
+
+    private UnitDomains(List<ScheduledUnit> units) {
+        this.units = units;
+        this.teachers = new int[units.size()][];
+        this.classrooms = new int[units.size()][];
+        this.timePeriods = new int[units.size()][];
+    }
+
+    public static UnitDomains compute(List<ScheduledUnit> units, List<Teacher> teachers,
+                                      List<Classroom> classrooms, List<TimePeriod> timePeriods) {
+        return compute(ProblemInstance.compileUnits(units, teachers, classrooms, timePeriods));
+    }
+
+    /** Dominios sobre la instancia compilada: cada oferta (grupo, asignatura) se calcula una vez con BitSets. */
+    public static UnitDomains compute(ProblemInstance instance) {
+        UnitDomains d = new UnitDomains(instance.getUnits());
+        for (int o = 0; o < instance.numOfferings; o++) {
+            int[][] family = computeFamily(instance, instance.offeringSubject[o], instance.offeringGroup[o]);
+            for (int i = instance.offeringStart[o]; i < instance.offeringStart[o + 1]; i++) {
+                int u = instance.offeringUnits[i];
+                d.teachers[u] = family[0];
+                d.classrooms[u] = family[1];
+                d.timePeriods[u] = family[2];
+            }
+        }
+        return d;
+    }
+
+    private static int[][] computeFamily(ProblemInstance instance, int subject, int group) {
+        int[] qualified = instance.subjectTeachers[subject];
+        int[] teacherIdx = new int[qualified.length];
+        int nTeachers = 0;
+        BitSet periodOk = new BitSet(instance.numTimePeriods());
+        for (int t : qualified) {
+            if (instance.availableCount[t] == 0) continue;
+            periodOk.or(instance.available[t]);
+            teacherIdx[nTeachers++] = t;
+        }
+
+        int[] classroomIdx = new int[instance.numClassrooms()];
+        int nClassrooms = 0;
+        for (int c = 0; c < classroomIdx.length; c++) {
+            if (instance.roomFits(c, subject, group)) classroomIdx[nClassrooms++] = c;
+        }
+
+        return new int[][]{Arrays.copyOf(teacherIdx, nTeachers), Arrays.copyOf(classroomIdx, nClassrooms),
+                periodOk.stream().toArray()};
+    }
+
+    /** Aula asignada a la asignatura, aulas disponibles para ella y capacidad suficiente para el grupo. */
+    static boolean classroomAllowed(Classroom classroom, Subject subject, StudentGroup group) {
+        Classroom assigned = subject.getAssignedClassroom();
+        if (assigned != null && !assigned.getId().equals(classroom.getId())) return false;
+        if (!classroom.isAvailableForSubject(subject)) return false;
+        return group == null || classroom.getCapacity() >= group.getNumberOfStudents();
+    }
+
+    /** Unidades con algún dominio vacío (el modelo no tendrá solución). */
+    public List<Integer> emptyUnits() {
+        List<Integer> empty = new ArrayList<>();
+        for (int u = 0; u < units.size(); u++) {
+            if (teachers[u].length == 0 || classrooms[u].length == 0 || timePeriods[u].length == 0) empty.add(u);
+        }
+        return empty;
+    }
+
+    /**
+     * Informe de tamaños de dominio: mínimo/medio/máximo por tipo de variable, las unidades más
+     * ajustadas (menor producto profesores × aulas × periodos) y las que no tienen ningún valor.
+     */
+    public String report(int tightest) {
+        StringBuilder sb = new StringBuilder("Unit domains (min/avg/max): ");
+        sb.append("teacher ").append(stats(teachers))
+                .append(", classroom ").append(stats(classrooms))
+                .append(", time period ").append(stats(timePeriods));
+
+        Integer[] order = new Integer[units.size()];
+        for (int u = 0; u < order.length; u++) order[u] = u;
+        Arrays.sort(order, Comparator.comparingLong(this::product));
+        Set<String> families = new LinkedHashSet<>();
+        for (int u : order) {
+            if (families.size() >= tightest) break;
+            ScheduledUnit unit = units.get(u);
+            families.add(unit.getStudentGroup().getId() + "/" + unit.getSubject().getId()
+                    + " (" + teachers[u].length + "x" + classrooms[u].length + "x" + timePeriods[u].length + ")");
+        }
+        if (!families.isEmpty()) sb.append(System.lineSeparator()).append("Tightest: ").append(String.join(", ", families));
+
+        List<Integer> empty = emptyUnits();
+        if (!empty.isEmpty()) {
+            sb.append(System.lineSeparator()).append("Empty domains: ").append(empty.size()).append(" units, e.g. ")
+                    .append(units.get(empty.get(0)));
+        }
+        return sb.toString();
+    }
+
+    private long product(int u) {
+        return (long) teachers[u].length * classrooms[u].length * timePeriods[u].length;
+    }
+
+    private String stats(int[][] domains) {
+        if (domains.length == 0) return "-";
+        int min = Integer.MAX_VALUE, max = 0;
+        long sum = 0;
+        for (int[] d : domains) {
+            min = Math.min(min, d.length);
+            max = Math.max(max, d.length);
+            sum += d.length;
+        }
+        return String.format("%d/%.1f/%d", min, (double) sum / domains.length, max);
+    }
+}
@@ -0,0 +1,236 @@
+package persistence.DAO;
+
+import business.*;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Bulk load of a whole school: the same rows the entity DAOs write one statement at a time, sent as JDBC
+ * batches of {@code batchSize} rows (one round trip per batch with rewriteBatchedStatements). Tables are
+ * written in foreign-key order; the caller owns the transaction.
+ */
+public class BatchInsertDAO {
+
+    private final Connection connection;
+    private final int batchSize;
+    private int rows;
+
+    public BatchInsertDAO(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** Number of rows written so far. */
+    public int getRows() {
+        return rows;
+    }
+
+    public void insertAll(List<TimePeriod> timePeriods, List<Classroom> classrooms, List<Subject> subjects,
+                          List<StudentGroup> studentGroups, List<Teacher> teachers) throws SQLException {
+        insertTimePeriods(timePeriods);
+        insertClassrooms(classrooms);
+        insertSubjects(subjects);
+        insertClassroomAssignedSubjects(classrooms);
+        insertStudentGroups(studentGroups);
+        insertTeachers(teachers);
+        insertConditions(teachers);
+    }
+
+    public void insertTimePeriods(List<TimePeriod> timePeriods) throws SQLException {
+        String query = "INSERT INTO timePeriods (id, weekDay, initialHour, finalHour, idTeacher, idSubject, idStudentGroup, idClassroom) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (TimePeriod tp : timePeriods) {
+                ps.setString(1, tp.getId());
+                ps.setString(2, tp.getWeekday());
+                ps.setTime(3, Time.valueOf(tp.getInitialHour()));
+                ps.setTime(4, Time.valueOf(tp.getFinalHour()));
+                ps.setString(5, tp.getIdTeacher());
+                ps.setString(6, tp.getIdSubject());
+                ps.setString(7, tp.getIdStudentGroup());
+                ps.setString(8, tp.getIdClassroom());
+                pending = add(ps, pending);
+            }
+            flush(ps, pending);
+        }
+    }
+
+    public void insertClassrooms(List<Classroom> classrooms) throws SQLException {
+        String query = "INSERT INTO classrooms (id, name, abbreviation, classroomType, capacity) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Classroom c : classrooms) {
+                ps.setString(1, c.getId());
+                ps.setString(2, c.getName());
+                ps.setString(3, c.getAbbreviation());
+                ps.setString(4, c.getClassroomType());
+                ps.setInt(5, c.getCapacity());
+                pending = add(ps, pending);
+            }
+            flush(ps, pending);
+        }
+    }
+
+    public void insertSubjects(List<Subject> subjects) throws SQLException {
+        String query = "INSERT INTO subjects (id, name, abbreviation, department, course, weeklyAssignedHours, duration, maxDailyHours, assignedClassroom) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Subject s : subjects) {
+                ps.setString(1, s.getId());
+                ps.setString(2, s.getName());
+                ps.setString(3, s.getAbbreviation());
+                ps.setString(4, s.getDepartment());
+                ps.setString(5, s.getCourse());
+                ps.setInt(6, s.getWeeklyAssignedHours());
+                ps.setInt(7, s.getDuration());
+                ps.setInt(8, s.getMaxDailyHours());
+                if (s.getAssignedClassroom() != null) ps.setString(9, s.getAssignedClassroom().getId());
+                else ps.setNull(9, Types.VARCHAR);
+                pending = add(ps, pending);
+            }
+            flush(ps, pending);
+        }
+    }
+
+    public void insertClassroomAssignedSubjects(List<Classroom> classrooms) throws SQLException {
+        String query = "INSERT INTO classroomAssignedSubjects (classroomId, subjectId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Classroom c : classrooms) {
+                if (c.getAssignedSubjects() == null) continue;
+                for (Subject s : c.getAssignedSubjects()) pending = link(ps, pending, c.getId(), s.getId());
+            }
+            flush(ps, pending);
+        }
+    }
+
+    public void insertStudentGroups(List<StudentGroup> studentGroups) throws SQLException {
+        String query = "INSERT INTO studentGroups (id, name, abbreviation, course, weeklyGroupHours, numberOfStudents) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (StudentGroup g : studentGroups) {
+                ps.setString(1, g.getId());
+                ps.setString(2, g.getName());
+                ps.setString(3, g.getAbbreviation());
+                ps.setString(4, g.getCourse());
+                ps.setInt(5, g.getWeeklyGroupHours());
+                ps.setInt(6, g.getNumberOfStudents());
+                pending = add(ps, pending);
+            }
+            flush(ps, pending);
+        }
+
+        query = "INSERT INTO studentGroupRequiredSubjects (studentGroupId, subjectId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (StudentGroup g : studentGroups) {
+                if (g.getRequiredSubjects() == null) continue;
+                for (Subject s : g.getRequiredSubjects()) pending = link(ps, pending, g.getId(), s.getId());
+            }
+            flush(ps, pending);
+        }
+    }
+
+    public void insertTeachers(List<Teacher> teachers) throws SQLException {
+        String query = "INSERT INTO teachers (id, name, abbreviation, email, phone, department, hoursWork) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                ps.setString(1, t.getId());
+                ps.setString(2, t.getName());
+                ps.setString(3, t.getAbbreviation());
+                setOptional(ps, 4, t.getEmail());
+                setOptional(ps, 5, t.getPhone());
+                setOptional(ps, 6, t.getDepartment());
+                ps.setInt(7, t.getHoursWork());
+                pending = add(ps, pending);
+            }
+            flush(ps, pending);
+        }
+
+        query = "INSERT INTO teacherPossibleSubjects (teacherId, subjectId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                for (Subject s : t.getPossibleSubjects()) pending = link(ps, pending, t.getId(), s.getId());
+            }
+            flush(ps, pending);
+        }
+
+        query = "INSERT INTO teacherUnavailableTimePeriods (teacherId, timePeriodId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                for (TimePeriod tp : t.getUnavailableTimePeriods()) pending = link(ps, pending, t.getId(), tp.getId());
+            }
+            flush(ps, pending);
+        }
+    }
+
+    /** The conditions of every teacher and their preferred/unpreferred link rows. */
+    public void insertConditions(List<Teacher> teachers) throws SQLException {
+        String query = "INSERT INTO conditions (id, teacher, weight, subject, timePeriod, studentGroup) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                for (Condition c : t.getPreferredConditions()) pending = addCondition(ps, pending, c);
+                for (Condition c : t.getUnPreferredConditions()) pending = addCondition(ps, pending, c);
+            }
+            flush(ps, pending);
+        }
+
+        query = "INSERT INTO teacherPreferredConditions (teacherId, conditionId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                for (Condition c : t.getPreferredConditions()) pending = link(ps, pending, t.getId(), c.getId());
+            }
+            flush(ps, pending);
+        }
+
+        query = "INSERT INTO teacherUnpreferredConditions (teacherId, conditionId) VALUES (?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            int pending = 0;
+            for (Teacher t : teachers) {
+                for (Condition c : t.getUnPreferredConditions()) pending = link(ps, pending, t.getId(), c.getId());
+            }
+            flush(ps, pending);
+        }
+    }
+
+    private int addCondition(PreparedStatement ps, int pending, Condition c) throws SQLException {
+        ps.setString(1, c.getId());
+        ps.setString(2, c.getTeacher().getId());
+        ps.setInt(3, c.getWeight());
+        ps.setString(4, c.getSubject() != null ? c.getSubject().getId() : null);
+        ps.setString(5, c.getTimePeriod() != null ? c.getTimePeriod().getId() : null);
+        ps.setString(6, c.getStudentGroup() != null ? c.getStudentGroup().getId() : null);
+        return add(ps, pending);
+    }
+
+    private int link(PreparedStatement ps, int pending, String ownerId, String otherId) throws SQLException {
+        ps.setString(1, ownerId);
+        ps.setString(2, otherId);
+        return add(ps, pending);
+    }
+
+    private static void setOptional(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null || value.isEmpty()) ps.setNull(index, Types.VARCHAR);
+        else ps.setString(index, value);
+    }
+
+    // Queues the current row and sends the batch when it is full
+    private int add(PreparedStatement ps, int pending) throws SQLException {
+        ps.addBatch();
+        if (++pending < batchSize) return pending;
+        flush(ps, pending);
+        return 0;
+    }
+
+    private void flush(PreparedStatement ps, int pending) throws SQLException {
+        if (pending == 0) return;
+        ps.executeBatch();
+        rows += pending;
+    }
+}
@@ -11,7 +11,7 @@ public class DataBaseConnection {
 
     // Database connection details
 
-    private static final String URL = "jdbc:mysql://localhost:3306/scheduler_db";
+    private static final String URL = "jdbc:mysql://localhost:3306/scheduler_db?rewriteBatchedStatements=true";
     private static final String USER = "root";  // Change if using another user
     private static final String PASSWORD = "mipassword";
     private static Connection connection;
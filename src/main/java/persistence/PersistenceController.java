@@ -1,6 +1,6 @@
 package persistence;
 
-import business.Subject;
+import business.*;
 import persistence.DAO.*;
 
 import java.sql.Connection;
@@ -89,6 +89,28 @@ public class PersistenceController {
         dao.delete(t);
     }
 
+    /**
+     * Inserts a whole school with batched statements in a single transaction (all or nothing), instead
+     * of one add per entity and link row. Returns the number of rows written.
+     */
+    public int addAllBatched(List<TimePeriod> timePeriods, List<Classroom> classrooms, List<Subject> subjects,
+                             List<StudentGroup> studentGroups, List<Teacher> teachers, int batchSize) throws SQLException {
+        Connection connection = dataBaseConnection.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        BatchInsertDAO dao = new BatchInsertDAO(connection, batchSize);
+        connection.setAutoCommit(false);
+        try {
+            dao.insertAll(timePeriods, classrooms, subjects, studentGroups, teachers);
+            connection.commit();
+            return dao.getRows();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
     // === Possible subjects (teacher ↔ subject) ===
     public void insertTeacherPossibleSubject(String teacherId, String subjectId) throws SQLException {
         TeacherPossibleSubjectsDAO d = new TeacherPossibleSubjectsDAO(
@@ -3,6 +3,7 @@ package presentation;
 import business.Condition;
 import business.Lesson;
 import business.Schedule;
+import business.ScheduleJob;
 import business.Teacher;
 
 import javax.swing.*;
@@ -12,6 +13,7 @@ import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Calendar extends JFrame {
     private JComboBox<String> categoryCombo;
@@ -217,32 +219,75 @@ public class Calendar extends JFrame {
         return north;
     }
 
-    /** Delete ALL schedules and generate fresh ones; refresh UI. */
+    /**
+     * Delete ALL schedules and generate fresh ones; refresh UI. The generation and the persistence
+     * run as a background job (see BusinessController.startRegeneration) so the window keeps
+     * painting; a progress dialog shows the phase and best score and lets the user cancel.
+     */
     private void regenerateReplaceSchedules() {
         setAllEnabled(false);
-        Cursor old = getCursor();
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        int before = safeCountSchedules();
+
+        JDialog dialog = new JDialog(this, "Generando horarios", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        JLabel phaseLabel = new JLabel("Construyendo el modelo…");
+        JLabel scoreLabel = new JLabel("Soluciones: 0   Mejor puntuación: -");
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        JButton cancelBtn = new JButton("Cancelar");
+
+        JPanel content = new JPanel(new GridLayout(0, 1, 0, 6));
+        content.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        content.add(phaseLabel);
+        content.add(scoreLabel);
+        content.add(bar);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        buttons.add(cancelBtn);
+        content.add(buttons);
+        dialog.setContentPane(content);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+
+        // The job reports from its own thread: keep only the latest progress and repaint it on the EDT
+        AtomicReference<ScheduleJob.Progress> pending = new AtomicReference<>();
+        Runnable showProgress = () -> {
+            ScheduleJob.Progress p = pending.getAndSet(null);
+            if (p == null) return;
+            phaseLabel.setText(phaseText(p) + "  (" + p.getElapsedMs() / 1000 + " s)");
+            scoreLabel.setText("Soluciones: " + p.getSolutionsFound() + "   Mejor puntuación: "
+                    + (p.getBestScore() == null ? "-" : p.getBestScore()));
+        };
+
+        ScheduleJob job;
         try {
-            int before = safeCountSchedules();
+            job = presentationControler.startRegeneration(p -> {
+                if (pending.getAndSet(p) == null) SwingUtilities.invokeLater(showProgress);
+            });
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            setAllEnabled(true);
+            JOptionPane.showMessageDialog(this, "Error al regenerar horarios:\n" + ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            // 1) Borrar TODOS los horarios existentes
-            List<Schedule> all = presentationControler.getAllSchedules();
-            if (all != null) {
-                for (Schedule s : all) {
-                    try {
-                        presentationControler.deleteSchedule(s.getId());
-                    } catch (Exception ex) {
-                        // Si tu controller usa otro método (p.ej. deleteAllSchedules),
-                        // deja este catch silencioso y confía en que al menos algunos se borren.
-                        ex.printStackTrace();
-                    }
-                }
-            }
+        cancelBtn.addActionListener(e -> {
+            cancelBtn.setEnabled(false);
+            phaseLabel.setText("Cancelando: se guardan las mejores soluciones encontradas…");
+            job.cancel();
+        });
 
-            // 2) Generar de nuevo con la información actual
-            presentationControler.generateSchedules();
+        job.getResult().whenComplete((generated, error) -> SwingUtilities.invokeLater(() -> {
+            dialog.dispose();
+            setAllEnabled(true);
+            if (error != null) {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Error al regenerar horarios:\n" + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-            // 3) Recargar y seleccionar el primero (o único)
+            // Recargar y seleccionar el primero (o único)
             reloadScheduleCombo();
             if (scheduleCombo.getItemCount() > 0) {
                 scheduleCombo.setSelectedIndex(0);
@@ -255,16 +300,25 @@ public class Calendar extends JFrame {
             refreshCalendarTable(lastTpNames);
 
             int after = safeCountSchedules();
-            JOptionPane.showMessageDialog(this,
-                    "Regeneración completada.\nHorarios antes: " + before + "  →  ahora: " + after,
-                    "OK", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error al regenerar horarios:\n" + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        } finally {
-            setCursor(old);
-            setAllEnabled(true);
+            String title = job.isCancelled() ? "Cancelado" : "OK";
+            String text = job.isCancelled()
+                    ? (generated.isEmpty()
+                        ? "Generación cancelada sin soluciones: se conservan los horarios anteriores."
+                        : "Generación cancelada: se han guardado las " + generated.size() + " mejores soluciones encontradas.")
+                    : "Regeneración completada.";
+            JOptionPane.showMessageDialog(this, text + "\nHorarios antes: " + before + "  →  ahora: " + after,
+                    title, JOptionPane.INFORMATION_MESSAGE);
+        }));
+
+        dialog.setVisible(true);
+    }
+
+    private static String phaseText(ScheduleJob.Progress p) {
+        switch (p.getPhase()) {
+            case MODEL_BUILD: return "Construyendo el modelo…";
+            case SEARCH:      return p.isCancelled() ? "Cancelando la búsqueda…" : "Buscando horarios…";
+            case PERSISTENCE: return "Guardando horarios…";
+            default:          return "Terminado";
         }
     }
 
@@ -130,6 +130,10 @@ public class PresentationController {
         businessController.regenerateSchedules();
     }
 
+    public void repairSchedules(java.util.Collection<?> changedEntities) {
+        businessController.repairSchedules(changedEntities);
+    }
+
     public List<Subject> getTeacherPreferredSubjects(String teacherId) {
         return businessController.getTeacherPreferredSubjects(teacherId);
     }
@@ -263,6 +267,14 @@ public class PresentationController {
         businessController.generateSchedules(false);
     }
 
+    public ScheduleJob startRegeneration(java.util.function.Consumer<ScheduleJob.Progress> progressListener) {
+        return businessController.startRegeneration(progressListener, javax.swing.SwingUtilities::invokeLater);
+    }
+
+    public ScheduleStream streamSchedules() {
+        return businessController.streamSchedules();
+    }
+
     public void deleteSchedule(String id) {
         businessController.deleteSchedule(id);
     }